@@ -8,6 +8,16 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import org.basex.core.BaseXException;
 import org.basex.core.Context;
 import org.basex.core.Main;
@@ -29,7 +39,9 @@ import org.basex.util.list.StringList;
 
 /**
  * This is the starter class for running the database server. It handles
- * concurrent requests from multiple users.
+ * concurrent requests from multiple users. Client connections are monitored
+ * by a single selector thread, and complete requests are processed by a
+ * fixed number of worker threads (see {@link MainProp#SERVERTHREADS}).
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -57,8 +69,14 @@ public final class BaseXServer extends Main implements Runnable {
   /** Stopped flag. */
   private volatile boolean stopped;
 
-  /** Server socket. */
-  private ServerSocket socket;
+  /** Server socket channel. */
+  private ServerSocketChannel socket;
+  /** Selector for client connections. */
+  private Selector selector;
+  /** Worker threads for processing client requests. */
+  private ExecutorService workers;
+  /** Threads for delivering event notifications. */
+  private ExecutorService notifiers;
   /** Initial commands. */
   private StringList commands;
 
@@ -125,9 +143,15 @@ public final class BaseXServer extends Main implements Runnable {
       log = new Log(context, quiet);
       log.write(SRV_STARTED);
 
-      socket = new ServerSocket();
-      socket.setReuseAddress(true);
-      socket.bind(new InetSocketAddress(addr, port));
+      socket = ServerSocketChannel.open();
+      socket.socket().setReuseAddress(true);
+      socket.socket().bind(new InetSocketAddress(addr, port));
+      socket.configureBlocking(false);
+      selector = Selector.open();
+      socket.register(selector, SelectionKey.OP_ACCEPT);
+      workers = Executors.newFixedThreadPool(
+          Math.max(1, mprop.num(MainProp.SERVERTHREADS)));
+      notifiers = Executors.newCachedThreadPool();
       esocket = new ServerSocket();
       esocket.setReuseAddress(true);
       esocket.bind(new InetSocketAddress(addr, eport));
@@ -163,21 +187,34 @@ public final class BaseXServer extends Main implements Runnable {
     running = true;
     while(running) {
       try {
-        final Socket s = socket.accept();
-        if(stop.exists()) {
-          if(!stop.delete()) log.write(Util.info(FILE_NOT_DELETED_X, stop));
-          quit();
-        } else {
-          // drop inactive connections
-          final long ka = context.mprop.num(MainProp.KEEPALIVE) * 1000L;
-          if(ka > 0) {
-            final long ms = System.currentTimeMillis();
-            for(final ClientListener cs : context.sessions) {
-              if(ms - cs.last > ka) cs.quit();
+        selector.select(1000);
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while(keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          try {
+            if(key.isAcceptable()) {
+              if(!accept()) return;
+            } else if(key.isReadable()) {
+              // pass on complete requests to a worker thread
+              final ClientListener cl = (ClientListener) key.attachment();
+              if(cl.read(key)) workers.execute(cl);
             }
+          } catch(final CancelledKeyException ex) {
+            // connection was closed by a worker thread..
+          }
+        }
+        // drop inactive connections
+        final long ka = context.mprop.num(MainProp.KEEPALIVE) * 1000L;
+        if(ka > 0) {
+          final long ms = System.currentTimeMillis();
+          for(final ClientListener cs : context.sessions) {
+            if(ms - cs.last > ka) cs.quit();
           }
-          new ClientListener(s, context, log, this).start();
         }
+      } catch(final ClosedSelectorException ex) {
+        // server was stopped..
+        break;
       } catch(final IOException ex) {
         // socket was closed..
         break;
@@ -185,6 +222,33 @@ public final class BaseXServer extends Main implements Runnable {
     }
   }
 
+  /**
+   * Accepts a new client connection.
+   * @return {@code false} if the server was stopped
+   * @throws IOException I/O exception
+   */
+  private boolean accept() throws IOException {
+    final SocketChannel ch = socket.accept();
+    if(ch == null) return true;
+    if(stop.exists()) {
+      if(!stop.delete()) log.write(Util.info(FILE_NOT_DELETED_X, stop));
+      ch.close();
+      quit();
+      return false;
+    }
+    ch.configureBlocking(false);
+    final ClientListener cl = new ClientListener(ch, context, log, this);
+    try {
+      cl.init();
+      ch.register(selector, SelectionKey.OP_READ, cl);
+    } catch(final IOException ex) {
+      // connection was closed by the client
+      Util.debug(ex);
+      cl.close();
+    }
+    return true;
+  }
+
   /**
    * Generates a stop file for the specified port.
    * @param port server port
@@ -207,6 +271,9 @@ public final class BaseXServer extends Main implements Runnable {
       if(console) System.in.close();
       esocket.close();
       socket.close();
+      selector.close();
+      workers.shutdown();
+      notifiers.shutdown();
     } catch(final IOException ex) {
       log.write(ex.getMessage());
       Util.stack(ex);
@@ -362,6 +429,20 @@ public final class BaseXServer extends Main implements Runnable {
     }
   }
 
+  /**
+   * Delivers event notifications in a separate thread, so that slow clients
+   * do not block the notifying process.
+   * @param task delivery task
+   */
+  public void deliver(final Runnable task) {
+    try {
+      notifiers.execute(task);
+    } catch(final RejectedExecutionException ex) {
+      // server was stopped
+      Util.debug(ex);
+    }
+  }
+
   /**
    * Initializes the event listener.
    */
@@ -5,7 +5,9 @@ import java.io.IOException;
 
 import org.basex.core.Context;
 import org.basex.core.MainProp;
+import org.basex.core.Prop;
 import org.basex.core.cmd.DropDB;
+import org.basex.data.Categories;
 import org.basex.data.Data;
 import org.basex.data.DiskData;
 import org.basex.data.MetaData;
@@ -14,6 +16,7 @@ import org.basex.io.IO;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
 import org.basex.io.out.TableOutput;
+import org.basex.io.random.CompressedAccess;
 import org.basex.io.random.TableAccess;
 import org.basex.io.random.TableDiskAccess;
 import org.basex.util.Compress;
@@ -36,6 +39,8 @@ public final class DiskBuilder extends Builder {
   private DataOutput vout;
   /** Output stream for temporary values. */
   private DataOutput sout;
+  /** Dictionaries for attribute values. */
+  private Categories cats;
 
   /** Admin properties. */
   private final MainProp mprop;
@@ -76,6 +81,7 @@ public final class DiskBuilder extends Builder {
     xout = new DataOutput(md.dbfile(DATATXT), bs);
     vout = new DataOutput(md.dbfile(DATAATV), bs);
     sout = new DataOutput(md.dbfile(DATATMP), bs);
+    cats = new Categories(md);
 
     final Names tags = new Names(md);
     final Names atts = new Names(md);
@@ -90,8 +96,15 @@ public final class DiskBuilder extends Builder {
     in.close();
     md.dbfile(DATATMP).delete();
 
+    // compress texts and attribute values
+    if(prop.is(Prop.COMPRESS)) {
+      CompressedAccess.compress(md.dbfile(DATATXT));
+      CompressedAccess.compress(md.dbfile(DATAATV));
+      md.compress = true;
+    }
+
     // return database instance
-    return new DiskData(md, tags, atts, path, ns);
+    return new DiskData(md, tags, atts, path, ns, cats);
   }
 
   @Override
@@ -121,7 +134,7 @@ public final class DiskBuilder extends Builder {
   protected void addDoc(final byte[] value) throws IOException {
     tout.write1(Data.DOC);
     tout.write2(0);
-    tout.write5(textOff(value, true));
+    tout.write5(textOff(value, true, 0));
     tout.write4(0);
     tout.write4(meta.size++);
   }
@@ -144,7 +157,7 @@ public final class DiskBuilder extends Builder {
 
     tout.write1(dist << 3 | Data.ATTR);
     tout.write2(nm);
-    tout.write5(textOff(value, false));
+    tout.write5(textOff(value, false, nm));
     tout.write4(uri);
     tout.write4(meta.size++);
   }
@@ -155,7 +168,7 @@ public final class DiskBuilder extends Builder {
 
     tout.write1(kind);
     tout.write2(0);
-    tout.write5(textOff(value, true));
+    tout.write5(textOff(value, true, 0));
     tout.write4(dist);
     tout.write4(meta.size++);
   }
@@ -171,15 +184,21 @@ public final class DiskBuilder extends Builder {
    * Calculates the text offset and writes the text value.
    * @param value value to be inlined
    * @param text text/attribute flag
-   * @return inline value or text position
+   * @param nm id of the attribute name
+   * @return inline value, dictionary reference or text position
    * @throws IOException I/O exception
    */
-  private long textOff(final byte[] value, final boolean text)
+  private long textOff(final byte[] value, final boolean text, final int nm)
       throws IOException {
 
     // inline integer values...
     final long v = Token.toSimpleInt(value);
     if(v != Integer.MIN_VALUE) return v | IO.OFFNUM;
+    // ...or reference dictionary entry
+    if(!text) {
+      final long c = cats.encode(nm, value);
+      if(c != 0) return c;
+    }
 
     // store text
     final DataOutput store = text ? xout : vout;
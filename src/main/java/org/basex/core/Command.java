@@ -143,6 +143,34 @@ public abstract class Command extends Progress {
     return (flags & (User.CREATE | User.WRITE)) != 0;
   }
 
+  /**
+   * Checks if the command can be evaluated concurrently to other versioned
+   * commands (see {@link MainProp#MVCC}). Versioned readers will be
+   * evaluated on snapshots of the accessed databases.
+   * @param ctx database context
+   * @return result of check
+   */
+  @SuppressWarnings("unused")
+  public boolean versioned(final Context ctx) {
+    return false;
+  }
+
+  /**
+   * Adds the names of all databases that will be accessed by this command.
+   * By default, commands operating on the currently opened database will
+   * lock this database, and all other commands will lock all databases.
+   * @param ctx database context
+   * @param db list of database names
+   * @return {@code false} if the databases cannot be statically determined,
+   * and if all databases need to be locked
+   */
+  public boolean databases(final Context ctx, final StringList db) {
+    final Data data = ctx.data();
+    if((flags & DATAREF) == 0 || data == null) return false;
+    db.add(data.meta.name);
+    return true;
+  }
+
   /**
    * Returns true if this command will change the {@link Context#data}
    * reference. This method is required by the progress dialog in the frontend.
@@ -237,6 +265,23 @@ public abstract class Command extends Progress {
     return sl.toArray();
   }
 
+  /**
+   * Adds the names of the databases referenced by the specified arguments.
+   * Database paths ({@code db/path}) are reduced to the database name.
+   * @param db list of database names
+   * @param a indexes of the arguments
+   * @return {@code false} if one of the arguments is a glob pattern
+   */
+  protected final boolean databases(final StringList db, final int... a) {
+    for(final int i : a) {
+      final String arg = args[i];
+      if(arg == null || arg.matches(".*[*?,].*")) return false;
+      final int s = arg.indexOf('/');
+      db.add(s == -1 ? arg : arg.substring(0, s));
+    }
+    return true;
+  }
+
   /**
    * Returns the specified command option.
    * @param typ options enumeration
@@ -305,9 +350,14 @@ public abstract class Command extends Progress {
     // check concurrency of commands
     final boolean ok;
     final boolean writing = updating(ctx);
-    ctx.register(writing);
+    StringList db = new StringList();
+    if(!databases(ctx, db)) db = null;
+    // commands of a batch may already be covered by the lock of the batch
+    final boolean reg = !ctx.batched(db);
+    final Job job = reg ? ctx.register(writing, versioned(ctx), db) : null;
+    if(reg && job == null) return error(QUEUE_FULL);
     ok = run(ctx, os);
-    ctx.unregister(writing);
+    if(job != null) ctx.unregister(job);
     return ok;
   }
 
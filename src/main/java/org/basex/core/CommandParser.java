@@ -64,6 +64,7 @@ import org.basex.core.cmd.Set;
 import org.basex.core.cmd.ShowBackups;
 import org.basex.core.cmd.ShowDatabases;
 import org.basex.core.cmd.ShowEvents;
+import org.basex.core.cmd.ShowQueue;
 import org.basex.core.cmd.ShowSessions;
 import org.basex.core.cmd.ShowUsers;
 import org.basex.core.cmd.Store;
@@ -299,6 +300,8 @@ public final class CommandParser extends InputParser {
             return new ShowBackups();
           case EVENTS:
             return new ShowEvents();
+          case QUEUE:
+            return new ShowQueue();
           default:
         }
         break;
@@ -19,7 +19,7 @@ public interface Commands {
   /** Optimize commands. */
   enum CmdOptimize { NULL, ALL }
   /** Show commands. */
-  enum CmdShow { DATABASES, SESSIONS, USERS, BACKUPS, EVENTS }
+  enum CmdShow { DATABASES, SESSIONS, USERS, BACKUPS, EVENTS, QUEUE }
   /** Permission commands. */
   enum CmdPerm { NONE, READ, WRITE, CREATE, ADMIN }
   /** Index types. */
@@ -1,13 +1,24 @@
 package org.basex.core;
 
 import static org.basex.core.Text.*;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.basex.data.Data;
 import org.basex.data.MetaData;
 import org.basex.data.Nodes;
 import org.basex.index.Resources;
+import org.basex.io.random.BufferPool;
+import org.basex.query.QueryCache;
+import org.basex.query.ResultCache;
 import org.basex.query.util.pkg.Repo;
 import org.basex.server.ClientListener;
 import org.basex.server.Sessions;
+import org.basex.util.Util;
+import org.basex.util.list.StringList;
 
 /**
  * This class serves as a central database context.
@@ -37,6 +48,12 @@ public final class Context {
   public final Users users;
   /** Package repository. */
   public final Repo repo;
+  /** Query cache. */
+  public final QueryCache queries;
+  /** Result cache. */
+  public final ResultCache results;
+  /** Thread pool for the parallel evaluation of queries. */
+  public final ThreadPoolExecutor threads;
 
   /** User reference. */
   public User user;
@@ -55,6 +72,10 @@ public final class Context {
   private Nodes current;
   /** Process locking. */
   private final Lock lock;
+  /** Databases locked by a batch of commands ({@code null}: no batch). */
+  private StringList batch;
+  /** Process registered for a batch of commands. */
+  private Job batchJob;
   /** Data reference. */
   private Data data;
 
@@ -64,12 +85,27 @@ public final class Context {
   public Context() {
     listener = null;
     mprop = new MainProp();
+    BufferPool.budget(mprop.num(MainProp.BUFFERPOOL));
     datas = new Datas();
     events = new Events();
     sessions = new Sessions();
     lock = new Lock(this);
     users = new Users(true);
     repo = new Repo(this);
+    queries = new QueryCache(mprop);
+    results = new ResultCache(mprop);
+    final int t = Math.max(1, mprop.num(MainProp.PARALLELTHREADS));
+    // threads are discarded if they are not used anymore
+    threads = new ThreadPoolExecutor(t, t, 1, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(final Runnable run) {
+            final Thread th = new Thread(run, Util.name(Context.class));
+            th.setDaemon(true);
+            return th;
+          }
+        });
+    threads.allowCoreThreadTimeOut(true);
     user = users.get(ADMIN);
   }
 
@@ -88,6 +124,9 @@ public final class Context {
     lock = ctx.lock;
     users = ctx.users;
     repo = ctx.repo;
+    queries = ctx.queries;
+    results = ctx.results;
+    threads = ctx.threads;
   }
 
   /**
@@ -95,6 +134,9 @@ public final class Context {
    */
   public synchronized void close() {
     while(!sessions.isEmpty()) sessions.get(0).quit();
+    queries.close();
+    results.close();
+    threads.shutdown();
     datas.close();
   }
 
@@ -231,17 +273,95 @@ public final class Context {
   /**
    * Registers a process.
    * @param w writing flag
+   * @param db names of the accessed databases, or {@code null} if all
+   * databases are to be locked
+   * @return registered process, or {@code null} if the process was rejected
    */
-  public void register(final boolean w) {
-    lock.lock(w);
+  public Job register(final boolean w, final StringList db) {
+    return register(w, false, db);
   }
 
   /**
-   * Unregisters a process.
+   * Registers a process.
    * @param w writing flag
+   * @param v versioned flag: if {@link MainProp#MVCC} is enabled, versioned
+   * readers and writers will not block each other
+   * @param db names of the accessed databases, or {@code null} if all
+   * databases are to be locked
+   * @return registered process, or {@code null} if the process was rejected,
+   * because too many processes are waiting
+   */
+  public Job register(final boolean w, final boolean v, final StringList db) {
+    final Job job = lock.lock(w, v, db, user);
+    if(job == null) return null;
+    // discard cached queries and results that access the databases to be
+    // updated
+    if(w) {
+      queries.invalidate(db);
+      results.invalidate(db);
+    }
+    return job;
+  }
+
+  /**
+   * Registers a writing process for a batch of commands, which access the
+   * specified databases. Until {@link #unregisterBatch} is called, commands
+   * on these databases will be executed without further registration.
+   * @param db names of the accessed databases
+   * @return {@code false} if the process was rejected
+   */
+  public boolean registerBatch(final StringList db) {
+    batchJob = register(true, db);
+    if(batchJob == null) return false;
+    batch = db;
+    return true;
+  }
+
+  /**
+   * Unregisters the process for a batch of commands, if it exists.
+   */
+  public void unregisterBatch() {
+    if(batch == null) return;
+    unregister(batchJob);
+    batch = null;
+    batchJob = null;
+  }
+
+  /**
+   * Checks if a process for a batch of commands has been registered.
+   * @return result of check
+   */
+  public boolean batched() {
+    return batch != null;
+  }
+
+  /**
+   * Checks if the specified databases are locked by the process for a batch
+   * of commands.
+   * @param db names of the accessed databases, or {@code null} for all
+   * databases
+   * @return result of check
+   */
+  boolean batched(final StringList db) {
+    if(batch == null || db == null) return false;
+    for(final String d : db) if(!batch.contains(d)) return false;
+    return true;
+  }
+
+  /**
+   * Returns information on the waiting and active processes.
+   * @return info string
+   */
+  public String queue() {
+    return lock.info();
+  }
+
+  /**
+   * Unregisters a process.
+   * @param job process returned by {@link #register}
    */
-  public void unregister(final boolean w) {
-    lock.unlock(w);
+  public void unregister(final Job job) {
+    lock.unlock(job);
   }
 
   /**
@@ -6,6 +6,8 @@ import static org.basex.util.Token.*;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.basex.io.IO;
 import org.basex.io.IOFile;
@@ -25,6 +27,10 @@ import org.basex.util.Util;
  * @author Andreas Weiler
  */
 public final class Events extends HashMap<String, Sessions> {
+  /** Number of delivered notifications. */
+  public final AtomicLong delivered = new AtomicLong();
+  /** Number of dropped notifications. */
+  public final AtomicLong dropped = new AtomicLong();
   /** Event file. */
   private final IOFile file = new IOFile(Prop.HOME, IO.BASEXSUFFIX + "events");
 
@@ -93,11 +99,19 @@ public final class Events extends HashMap<String, Sessions> {
     final String[] names = keySet().toArray(new String[size()]);
     Arrays.sort(names);
     for(final String n : names) tb.add(NL).add(LI).add(n);
+
+    // notifications that are waiting to be delivered
+    final HashSet<ClientListener> watchers = new HashSet<ClientListener>();
+    for(final Sessions sess : values()) watchers.addAll(sess);
+    long pending = 0;
+    for(final ClientListener cl : watchers) pending += cl.pending();
+    tb.add(NL).addExt(NOTIFICATIONS_X_X_X, delivered, dropped, pending);
     return tb.toString();
   }
 
   /**
-   * Notifies the watching sessions about an event.
+   * Notifies the watching sessions about an event. The notifications are
+   * queued and delivered by separate threads.
    * @param ctx database context
    * @param name name
    * @param msg message
@@ -110,16 +124,9 @@ public final class Events extends HashMap<String, Sessions> {
     // event was not found
     if(sess == null) return false;
 
-    // refresh timestamp for last interaction
     for(final ClientListener srv : sess) {
       // ignore active client
-      if(srv == ctx.listener) continue;
-      try {
-        srv.notify(name, msg);
-      } catch(final IOException ex) {
-        // remove client if event could not be delivered
-        sess.remove(srv);
-      }
+      if(srv != ctx.listener) srv.notify(name, msg);
     }
     return true;
   }
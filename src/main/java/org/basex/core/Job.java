@@ -0,0 +1,83 @@
+package org.basex.core;
+
+import static org.basex.core.Text.*;
+
+import org.basex.core.Commands.CmdPerm;
+import org.basex.util.Performance;
+import org.basex.util.TokenBuilder;
+import org.basex.util.list.StringList;
+
+/**
+ * Single process, waiting or active, which has been registered by
+ * {@link Context#register}. The instance must be passed on to
+ * {@link Context#unregister}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Job {
+  /** Writing flag. */
+  final boolean writer;
+  /** Versioned flag: readers access snapshots of the databases. */
+  final boolean versioned;
+  /** Names of accessed databases ({@code null}: all databases). */
+  final StringList dbs;
+  /** Name of the user ({@code null}: unknown). */
+  final String user;
+  /** Priority: global permission of the user (see {@link User#perm}). */
+  final int priority;
+  /** Time when the process was queued (nanoseconds). */
+  final long queued = System.nanoTime();
+  /** Time when the process was admitted (nanoseconds). */
+  long start;
+
+  /**
+   * Constructor.
+   * @param w writing flag
+   * @param v versioned flag
+   * @param db names of the accessed databases
+   * @param u user, or {@code null}
+   */
+  Job(final boolean w, final boolean v, final StringList db, final User u) {
+    writer = w;
+    versioned = v;
+    dbs = db;
+    user = u != null ? u.name : null;
+    priority = u == null ? User.ADMIN : u.perm;
+  }
+
+  /**
+   * Returns information on this process.
+   * @param state state of the process
+   * @param time time spent in this state (nanoseconds)
+   * @return info string
+   */
+  String info(final String state, final long time) {
+    final TokenBuilder tb = new TokenBuilder(LI).add(state).add(' ');
+    if(user != null) tb.add(user).add(' ');
+    tb.add((writer ? CmdPerm.WRITE : CmdPerm.READ).toString()).add(' ');
+    if(dbs == null) {
+      tb.add("* ");
+    } else if(dbs.size() != 0) {
+      for(int d = 0; d < dbs.size(); ++d) {
+        tb.add(d == 0 ? "" : ",").add(dbs.get(d));
+      }
+      tb.add(' ');
+    }
+    return tb.add(Performance.getTime(time, 1)).toString();
+  }
+
+  /**
+   * Checks if this job conflicts with the specified job.
+   * @param job job to be compared
+   * @return result of check
+   */
+  boolean conflicts(final Job job) {
+    if(!writer && !job.writer) return false;
+    if(dbs == null || job.dbs == null) return true;
+    // readers on snapshots will not see the modifications of writers
+    if(versioned && job.versioned && writer != job.writer) return false;
+    for(final String db : dbs) if(job.dbs.contains(db)) return true;
+    return false;
+  }
+}
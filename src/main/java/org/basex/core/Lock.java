@@ -1,19 +1,43 @@
 package org.basex.core;
 
+import static org.basex.core.Text.*;
+
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.ListIterator;
+
+import org.basex.util.Performance;
+import org.basex.util.TokenBuilder;
 import org.basex.util.Util;
+import org.basex.util.list.StringList;
 
 /**
  * Management of executing read/write processes.
  * Supports multiple readers, limited by {@link MainProp#PARALLEL},
- * and a single writer (readers/writer lock).
+ * and a single writer (readers/writer lock) per database.
+ *
+ * Processes may specify the databases they access. Processes without
+ * databases will lock all databases (global lock). Two processes will only
+ * block each other if at least one of them is writing and if they access
+ * at least one common database, or if one of them is global.
+ *
+ * If {@link MainProp#MVCC} is enabled, versioned readers are evaluated on
+ * database snapshots. They will not be blocked by versioned writers.
+ *
+ * The number of waiting processes is limited by {@link MainProp#QUEUESIZE}:
+ * processes will be rejected if the queue is full. Processes of admin users
+ * will always be accepted. Processes are prioritized by the global permission
+ * of their user (admin, create, write, read, none): they are queued before
+ * all processes of users with lower permissions.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 final class Lock {
   /** Queue for all waiting processes. */
-  private final LinkedList<Object> queue = new LinkedList<Object>();
+  private final LinkedList<Job> queue = new LinkedList<Job>();
+  /** Active processes. */
+  private final ArrayList<Job> active = new ArrayList<Job>();
   /** Mutex object. */
   private final Object mutex = new Object();
   /** Database context. */
@@ -21,8 +45,20 @@ final class Lock {
 
   /** Number of active readers. */
   private int readers;
-  /** Writer flag. */
-  private boolean writer;
+  /** Number of admitted processes. */
+  private long admitted;
+  /** Number of rejected processes. */
+  private long rejected;
+  /** Number of finished processes. */
+  private long finished;
+  /** Total waiting time (nanoseconds). */
+  private long waitTotal;
+  /** Maximum waiting time (nanoseconds). */
+  private long waitMax;
+  /** Total running time (nanoseconds). */
+  private long runTotal;
+  /** Maximum running time (nanoseconds). */
+  private long runMax;
 
   /**
    * Default constructor.
@@ -35,25 +71,34 @@ final class Lock {
   /**
    * Modifications before executing a command.
    * @param w writing flag
+   * @param v versioned flag
+   * @param db names of the accessed databases, or {@code null} for a
+   * global lock
+   * @param u user, or {@code null}
+   * @return registered process, or {@code null} if the process was rejected
    */
-  void lock(final boolean w) {
-    final Object o = new Object();
+  Job lock(final boolean w, final boolean v, final StringList db,
+      final User u) {
+    final Job job = new Job(w, v, db, u);
 
     synchronized(mutex) {
-      queue.add(o);
-
-      while(true) {
-        if(!writer && o == queue.get(0)) {
-          if(w) {
-            if(readers == 0) {
-              writer = true;
-              break;
-            }
-          } else if(readers < Math.max(ctx.mprop.num(MainProp.PARALLEL), 1)) {
-            ++readers;
-            break;
-          }
+      // reject process if too many processes are waiting
+      final int max = ctx.mprop.num(MainProp.QUEUESIZE);
+      if(job.priority < User.ADMIN && max > 0 && queue.size() >= max) {
+        ++rejected;
+        return null;
+      }
+      // queue process before all processes with lower priority
+      final ListIterator<Job> it = queue.listIterator();
+      while(it.hasNext()) {
+        if(it.next().priority < job.priority) {
+          it.previous();
+          break;
         }
+      }
+      it.add(job);
+
+      while(!admissible(job)) {
         try {
           mutex.wait();
         } catch(final InterruptedException ex) {
@@ -61,22 +106,94 @@ final class Lock {
         }
       }
 
-      queue.remove(0);
+      queue.remove(job);
+      active.add(job);
+      if(!w) ++readers;
+
+      job.start = System.nanoTime();
+      final long wait = job.start - job.queued;
+      waitTotal += wait;
+      waitMax = Math.max(waitMax, wait);
+      ++admitted;
     }
+    return job;
   }
 
   /**
    * Modifications after executing a command.
-   * @param w writing flag
+   * @param job process returned by {@link #lock}
    */
-  void unlock(final boolean w) {
+  void unlock(final Job job) {
     synchronized(mutex) {
-      if(w) {
-        writer = false;
-      } else {
-        --readers;
-      }
+      // jobs are identified by reference, as the properties of concurrent
+      // jobs may be equal
+      if(!active.remove(job)) return;
+      final long run = System.nanoTime() - job.start;
+      runTotal += run;
+      runMax = Math.max(runMax, run);
+      ++finished;
+      if(!job.writer) --readers;
       mutex.notifyAll();
     }
   }
+
+  /**
+   * Returns information on the waiting and active processes.
+   * @return info string
+   */
+  String info() {
+    final long time = System.nanoTime();
+    final TokenBuilder tb = new TokenBuilder();
+    synchronized(mutex) {
+      final int max = ctx.mprop.num(MainProp.QUEUESIZE);
+      tb.addExt(QUEUE_X_X, queue.size(), active.size());
+      tb.add(max > 0 ? " (" + LIMIT + max + ')' : "").add(DOT).add(NL);
+      tb.add(LI_ADMITTED).add(Long.toString(admitted)).add(NL);
+      tb.add(LI_REJECTED).add(Long.toString(rejected)).add(NL);
+      tb.add(LI_WAIT_TIME).add(times(waitTotal, admitted, waitMax)).add(NL);
+      tb.add(LI_RUN_TIME).add(times(runTotal, finished, runMax));
+      for(final Job j : queue) {
+        tb.add(NL).add(j.info(WAITING, time - j.queued));
+      }
+      for(final Job j : active) {
+        tb.add(NL).add(j.info(ACTIVE, time - j.start));
+      }
+    }
+    return tb.toString();
+  }
+
+  /**
+   * Returns a string with the average and maximum time.
+   * @param total total time (nanoseconds)
+   * @param n number of processes
+   * @param max maximum time (nanoseconds)
+   * @return string
+   */
+  private static String times(final long total, final long n, final long max) {
+    return Performance.getTime(n == 0 ? 0 : total / n, 1) + " (avg), " +
+      Performance.getTime(max, 1) + " (max)";
+  }
+
+  /**
+   * Checks if the specified job can be executed. A job will be admitted
+   * if it does not conflict with any active job, or with any job that has
+   * been queued before.
+   * @param job job to be checked
+   * @return result of check
+   */
+  private boolean admissible(final Job job) {
+    // number of readers that have been queued before
+    int waiting = 0;
+    for(final Job j : queue) {
+      if(j == job) break;
+      if(j.conflicts(job)) return false;
+      if(!j.writer) ++waiting;
+    }
+    if(!job.writer &&
+        readers + waiting >= Math.max(ctx.mprop.num(MainProp.PARALLEL), 1))
+      return false;
+
+    for(final Job j : active) if(j.conflicts(job)) return false;
+    return true;
+  }
 }
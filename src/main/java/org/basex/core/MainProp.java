@@ -42,6 +42,11 @@ public final class MainProp extends AProp {
   public static final Object[] SERVERPORT = { "SERVERPORT", 1984 };
   /** Server: port, used for sending events. */
   public static final Object[] EVENTPORT = { "EVENTPORT", 1985 };
+  /** Server: number of worker threads for processing client requests. */
+  public static final Object[] SERVERTHREADS = { "SERVERTHREADS", 32 };
+  /** Server: size of the chunks in which responses are sent to clients,
+   * in bytes. */
+  public static final Object[] CHUNKSIZE = { "CHUNKSIZE", 1 << 15 };
   /** Server: port, used for starting the HTTP server. */
   public static final Object[] HTTPPORT = { "HTTPPORT", 8984 };
   /** Server: port, used for stopping the HTTP server. */
@@ -51,10 +56,40 @@ public final class MainProp extends AProp {
   public static final Object[] TIMEOUT = { "TIMEOUT", 0 };
   /** Keep alive time of clients; deactivated if set to 0. */
   public static final Object[] KEEPALIVE = { "KEEPALIVE", 0 };
+  /** Maximum delay for writing log entries to disk, in milliseconds;
+   * entries are written at once if set to 0. */
+  public static final Object[] LOGFLUSH = { "LOGFLUSH", 1000 };
+  /** Maximum number of pending event notifications per client;
+   * unlimited if set to 0. */
+  public static final Object[] EVENTQUEUE = { "EVENTQUEUE", 10000 };
+  /** Removes clients from all events if their maximum number of pending
+   * notifications has been reached (by default, new notifications will be
+   * dropped). */
+  public static final Object[] EVENTDISCONNECT = { "EVENTDISCONNECT", false };
   /** Debug mode. */
   public static final Object[] DEBUG = { "DEBUG", false };
   /** Defines the number of parallel readers. */
   public static final Object[] PARALLEL = { "PARALLEL", 8 };
+  /** Maximum number of threads for the parallel evaluation of queries
+   * (see {@code basex:parallel} pragma). */
+  public static final Object[] PARALLELTHREADS = { "PARALLELTHREADS",
+    Runtime.getRuntime().availableProcessors() };
+  /** Maximum number of waiting processes; unlimited if set to 0. */
+  public static final Object[] QUEUESIZE = { "QUEUESIZE", 0 };
+  /** Size of the shared buffer pool in megabytes; deactivated if set to 0.
+   * The pool is shared by all contexts and sized by the first one. */
+  public static final Object[] BUFFERPOOL = { "BUFFERPOOL", 32 };
+  /** Evaluates read-only queries on snapshots of disk databases, which
+   * allows them to run in parallel with updating queries. */
+  public static final Object[] MVCC = { "MVCC", false };
+  /** Maximum number of compiled queries that are cached for re-evaluation;
+   * deactivated if set to 0. External variables of cached queries will be
+   * bound after compilation, so their values cannot be used for index
+   * optimizations. */
+  public static final Object[] QUERYCACHE = { "QUERYCACHE", 0 };
+  /** Maximum size of serialized results of read-only queries that are cached,
+   * in megabytes; deactivated if set to 0. */
+  public static final Object[] RESULTCACHE = { "RESULTCACHE", 0 };
 
   /**
    * Constructor.
@@ -90,20 +90,34 @@ public final class Prop extends AProp {
   public static final Object[] MAXCATS = { "MAXCATS", 100 };
   /** Flag for automatic index update. */
   public static final Object[] UPDINDEX = { "UPDINDEX", false };
+  /** Maximum memory consumed by a single index cache (MB). */
+  public static final Object[] INDEXCACHE = { "INDEXCACHE", 8 };
+  /** Eviction policy of the index caches (LRU, FIFO). */
+  public static final Object[] CACHEPOLICY = { "CACHEPOLICY", "LRU" };
 
   /** Writes original files back after updates. */
   public static final Object[] WRITEBACK = { "WRITEBACK", false };
   /** Flag for creating a main memory database. */
   public static final Object[] MAINMEM = { "MAINMEM", false };
+  /** Maps the table and text files of disk databases into memory. */
+  public static final Object[] MMAP = { "MMAP", false };
+  /** Compresses the text and attribute value files of new databases. */
+  public static final Object[] COMPRESS = { "COMPRESS", false };
   /** Forces database creation for unknown documents. */
   public static final Object[] FORCECREATE = { "FORCECREATE", false };
   /** Flushes the database after each update. */
   public static final Object[] AUTOFLUSH = { "AUTOFLUSH", true };
+  /** Logs updates of disk databases in a write-ahead log. */
+  public static final Object[] WAL = { "WAL", false };
 
   /** Maximum number of index occurrences to print. */
   public static final Object[] MAXSTAT = { "MAXSTAT", 30 };
   /** Flag for tail-call optimization. */
   public static final Object[] TAILCALLS = { "TAILCALLS", 42 };
+  /** Maximum number of tuples sorted in main memory (0: unlimited). */
+  public static final Object[] SORTLIMIT = { "SORTLIMIT", 0 };
+  /** Maximum number of grouped items kept in main memory (0: unlimited). */
+  public static final Object[] GROUPLIMIT = { "GROUPLIMIT", 0 };
 
   /** Flag for creating a wildcard index. */
   public static final Object[] WILDCARDS = { "WILDCARDS", false };
@@ -363,11 +363,12 @@ public interface Text {
   /** Command help. */
   String[] HELPSHOW = {
     "[" + CmdShow.BACKUPS + '|' + CmdShow.DATABASES + '|' + CmdShow.EVENTS +
-    '|' + CmdShow.SESSIONS + '|' + CmdShow.USERS + ']',
+    '|' + CmdShow.QUEUE + '|' + CmdShow.SESSIONS + '|' + CmdShow.USERS + ']',
     lang("c_show1"),
     lang("c_show21") + NL +
     LI + CmdShow.DATABASES + ": " + lang("c_show22") + NL +
     LI + CmdShow.EVENTS + ": " + lang("c_show26") + NL +
+    LI + CmdShow.QUEUE + ": " + lang("c_show27") + NL +
     LI + CmdShow.SESSIONS + ": " + lang("c_show23") + NL +
     LI + CmdShow.USERS + " (" + ON + " [database]): " + lang("c_show24") + NL +
     LI + CmdShow.BACKUPS + ": " + lang("c_show25")
@@ -482,6 +483,8 @@ public interface Text {
   String DB_CREATED_X_X = lang("db_created_%_%");
   /** Path added. */
   String PATH_ADDED_X_X = lang("path_added_%_%");
+  /** Input received. */
+  String RECEIVED_X_X = lang("received_%_%");
   /** Path deleted. */
   String DOCS_DELETED_X_X = lang("docs_deleted_%_%");
   /** Path renamed. */
@@ -582,6 +585,8 @@ public interface Text {
   String LI_SIZE = LI + "Size: ";
   /** Index info. */
   String LI_ENTRIES = LI + "Entries: ";
+  /** Index info. */
+  String LI_CACHE = LI + "Cache: ";
 
   /** Index info. */
   String TRIE = "Trie";
@@ -619,6 +624,8 @@ public interface Text {
   String EVALUATING_CC = lang("evaluating") + COLS;
   /** "Printing: ". */
   String PRINTING_CC = lang("printing") + COLS;
+  /** "Saved by cache: ". */
+  String CACHED_CC = lang("cached") + COLS;
   /** "Total time: ". */
   String TOTAL_TIME_CC = lang("total_time") + COLS;
   /** "Hit(s): ". */
@@ -656,6 +663,26 @@ public interface Text {
   String SESSIONS_X = lang("sessions_%");
   /** Show events. */
   String EVENTS_X = lang("events_%");
+  /** Event notifications. */
+  String NOTIFICATIONS_X_X_X = lang("notifications_%_%_%");
+  /** Show queue. */
+  String QUEUE_X_X = lang("queue_%_%");
+  /** Queue is full. */
+  String QUEUE_FULL = lang("queue_full");
+  /** Queue info. */
+  String LI_ADMITTED = LI + "Admitted: ";
+  /** Queue info. */
+  String LI_REJECTED = LI + "Rejected: ";
+  /** Queue info. */
+  String LI_WAIT_TIME = LI + "Waiting time: ";
+  /** Queue info. */
+  String LI_RUN_TIME = LI + "Running time: ";
+  /** Queue info. */
+  String LIMIT = "limit: ";
+  /** Queue info. */
+  String WAITING = "waiting";
+  /** Queue info. */
+  String ACTIVE = "active";
   /** Show packages. */
   String PACKAGES_X = lang("packages_%");
   /** Permission needed. */
@@ -729,6 +756,8 @@ public interface Text {
   String OPTIMIZING_DB_D = lang("optimizing_db") + DOTS;
   /** Statistics information. */
   String CREATE_STATS_D = lang("create_stats") + DOTS;
+  /** Buffer pool information. */
+  String BUFFER_POOL_X_X_X_X = lang("buffer_pool_%_%_%_%");
 
   /** "Name". */
   String NAME = lang("name");
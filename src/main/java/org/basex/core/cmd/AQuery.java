@@ -10,13 +10,16 @@ import org.basex.io.out.NullOutput;
 import org.basex.io.out.PrintOutput;
 import org.basex.io.serial.DOTSerializer;
 import org.basex.io.serial.Serializer;
+import org.basex.query.QueryCache;
 import org.basex.query.QueryException;
 import org.basex.query.QueryProcessor;
+import org.basex.query.ResultCache;
 import org.basex.query.item.Item;
 import org.basex.query.iter.Iter;
 import static org.basex.query.util.Err.XPSTACK;
 import org.basex.util.Performance;
 import org.basex.util.Util;
+import org.basex.util.list.StringList;
 
 import java.io.IOException;
 
@@ -34,6 +37,12 @@ abstract class AQuery extends Command {
   private QueryProcessor qp;
   /** Query exception. */
   private QueryException qe;
+  /** Flag for evaluating the query on database snapshots. */
+  private boolean snapshots;
+  /** Key of the query in the cache ({@code null}: query is not cached). */
+  private String key;
+  /** Flag indicating that the query cache has been accessed. */
+  private boolean cached;
   /** Initial parsing time. */
   private long init;
   /** Parsing time. */
@@ -70,6 +79,7 @@ abstract class AQuery extends Command {
         final boolean serial = prop.is(Prop.SERIALIZE);
         long hits = 0;
         int updates = 0;
+        long saved = 0;
         final int runs = Math.max(1, prop.num(Prop.RUNS));
         for(int r = 0; r < runs; ++r) {
           // reuse existing processor instance
@@ -79,11 +89,31 @@ abstract class AQuery extends Command {
           pars += init + p.time();
           init = 0;
           if(r == 0) plan(false);
+          if(key != null) cache(query);
+
+          // return cached result
+          final ResultCache rc = context.results;
+          final String rkey = runs == 1 && serial &&
+            !prop.is(Prop.CACHEQUERY) ? rc.key(query, "", context) : null;
+          final boolean record = rkey != null && rc.cacheable(qp);
+          final ResultCache.Entry entry = record ? rc.get(rkey) : null;
+          if(entry != null) {
+            out.write(entry.result);
+            hits = entry.hits;
+            saved = entry.time;
+            if(key == null) qp.close();
+            prnt += p.time();
+            continue;
+          }
+          final long stamp = rc.stamp();
+
           qp.compile();
           comp += p.time();
           if(r == 0) plan(true);
 
-          final PrintOutput po = r == 0 && serial ? out : new NullOutput();
+          final ResultCache.Recorder rec = record ? rc.recorder(out) : null;
+          final PrintOutput po = r == 0 && serial ?
+              rec != null ? PrintOutput.get(rec) : out : new NullOutput();
           final Serializer ser;
 
           if(prop.is(Prop.CACHEQUERY)) {
@@ -109,12 +139,27 @@ abstract class AQuery extends Command {
           }
           updates = qp.updates();
           ser.close();
-          qp.close();
+          prnt += p.time();
+          saved = qp.saved();
+          // cache result before the query is closed
+          final byte[] res = rec != null ? rec.bytes() : null;
+          if(res != null) {
+            rc.put(rkey, qp, res, hits, pars + comp + eval + prnt, stamp);
+          }
+          // the processor of the last run will be cached
+          if(key == null || r + 1 < runs) qp.close();
           prnt += p.time();
         }
         // dump some query info
-        if(prop.is(Prop.QUERYINFO)) evalInfo(query, hits, updates, runs);
+        if(prop.is(Prop.QUERYINFO)) {
+          evalInfo(query, hits, updates, saved, runs);
+        }
         out.flush();
+        // cache query before the process is unregistered
+        if(key != null) {
+          context.queries.put(key, qp);
+          qp = null;
+        }
         final long time = pars + comp + eval + prnt;
         return info(NL + QUERY_EXECUTED_X, Performance.getTime(time, runs));
       } catch(final QueryException ex) {
@@ -158,7 +203,16 @@ abstract class AQuery extends Command {
     // keyword found; parse query to get sure
     try {
       final Performance p = new Performance();
-      qp = progress(new QueryProcessor(qu, ctx));
+      // close processor that may have been taken from the cache
+      if(qp != null) try { qp.close(); } catch(final QueryException ex) { }
+      final QueryCache qc = ctx.queries;
+      key = qc.key(qu, "", ctx);
+      if(key != null && qc.rejected(key)) key = null;
+      // cached queries will only be requested once
+      final QueryProcessor cp = key != null && !cached ?
+          qc.get(key, ctx) : null;
+      cached = true;
+      qp = progress(cp != null ? cp : new QueryProcessor(qu, ctx));
       qp.parse();
       init = p.time();
       return qp.ctx.updating();
@@ -170,6 +224,48 @@ abstract class AQuery extends Command {
     }
   }
 
+  /**
+   * Compiles a query that will be cached, or checks if a cached query is
+   * still valid. Must be called after the process has been registered.
+   * @param query query string
+   * @throws QueryException query exception
+   */
+  private void cache(final String query) throws QueryException {
+    final QueryCache qc = context.queries;
+    if(qp.saved() != 0) {
+      if(qc.valid(qp)) return;
+      qp.close();
+      qp = null;
+      queryProcessor(query, context);
+    }
+    if(!qc.compile(key, qp)) key = null;
+  }
+
+  /**
+   * Checks if the parsed query can be evaluated concurrently to other
+   * versioned commands. If so, read-only queries will be evaluated on
+   * snapshots of the accessed databases.
+   * @return result of check
+   */
+  final boolean versioned() {
+    if(qp == null || !qp.ctx.versioned()) return false;
+    snapshots = !qp.ctx.updating();
+    qp.ctx.snapshots = snapshots;
+    return true;
+  }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    // query will only be available if it has been parsed before
+    if(qp == null) return qe != null || super.databases(ctx, db);
+    try {
+      return qp.databases(db);
+    } catch(final QueryException ex) {
+      Util.debug(ex);
+      return false;
+    }
+  }
+
   /**
    * Performs the first argument as XQuery and returns a node set.
    */
@@ -191,7 +287,10 @@ abstract class AQuery extends Command {
    */
   private QueryProcessor queryProcessor(final String query,
       final Context ctx) {
-    if(qp == null) qp = progress(new QueryProcessor(query, ctx));
+    if(qp == null) {
+      qp = progress(new QueryProcessor(query, ctx));
+      qp.ctx.snapshots = snapshots;
+    }
     return qp;
   }
 
@@ -205,10 +304,11 @@ abstract class AQuery extends Command {
    * @param query query string
    * @param hits information
    * @param updates updated items
+   * @param saved time saved by the query and result caches
    * @param runs number of runs
    */
   private void evalInfo(final String query, final long hits, final long updates,
-      final int runs) {
+      final long saved, final int runs) {
 
     final long total = pars + comp + eval + prnt;
     info(NL);
@@ -218,6 +318,7 @@ abstract class AQuery extends Command {
     info(COMPILING_CC + Performance.getTime(comp, runs));
     info(EVALUATING_CC + Performance.getTime(eval, runs));
     info(PRINTING_CC + Performance.getTime(prnt, runs));
+    if(saved != 0) info(CACHED_CC + Performance.getTime(saved, 1));
     info(TOTAL_TIME_CC + Performance.getTime(total, runs) + NL);
     info(HITS_X_CC + hits + ' ' + (hits == 1 ? ITEM : ITEMS));
     info(UPDATED_CC + updates + ' ' + (updates == 1 ? ITEM : ITEMS));
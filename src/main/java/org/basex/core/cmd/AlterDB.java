@@ -10,6 +10,7 @@ import org.basex.core.User;
 import org.basex.core.Commands.Cmd;
 import org.basex.core.Commands.CmdAlter;
 import org.basex.data.MetaData;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'alter database' command and renames a database.
@@ -75,4 +76,9 @@ public final class AlterDB extends Command {
   public void build(final CommandBuilder cb) {
     cb.init(Cmd.ALTER + " " + CmdAlter.DB).args();
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return databases(db, 0, 1);
+  }
 }
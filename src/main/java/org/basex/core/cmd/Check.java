@@ -16,6 +16,7 @@ import org.basex.data.Data;
 import org.basex.data.MetaData;
 import org.basex.io.IO;
 import org.basex.util.Util;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'checks' command, opens an existing database or
@@ -96,4 +97,10 @@ public final class Check extends Command {
     final DirParser dp = new DirParser(io, ctx.prop, ctx.mprop.dbpath(name));
     return CreateDB.create(name, dp, ctx);
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    db.add(IO.get(args[0]).dbname());
+    return true;
+  }
 }
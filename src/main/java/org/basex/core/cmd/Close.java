@@ -6,6 +6,7 @@ import org.basex.core.Context;
 import org.basex.core.Command;
 import org.basex.data.Data;
 import org.basex.util.Util;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'close' command and closes the current database.
@@ -46,4 +47,9 @@ public final class Close extends Command {
       throws IOException {
     if(ctx.unpin(data)) data.close();
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
 }
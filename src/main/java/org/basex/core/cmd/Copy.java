@@ -13,6 +13,7 @@ import org.basex.data.MetaData;
 import org.basex.io.IOFile;
 import org.basex.util.Util;
 import org.basex.util.list.StringList;
+import org.basex.core.Context;
 
 /**
  * Evaluates the 'copy' command and creates a copy of a database.
@@ -124,4 +125,9 @@ public final class Copy extends Command {
   protected double prog() {
     return (double) of / tf;
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return databases(db, 0, 1);
+  }
 }
@@ -21,6 +21,7 @@ import org.basex.io.*;
 import org.basex.io.in.*;
 import org.basex.util.*;
 import org.xml.sax.*;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'create db' command and creates a new database.
@@ -161,4 +162,9 @@ public final class CreateDB extends ACreate {
   public void build(final CommandBuilder cb) {
     cb.init(Cmd.CREATE + " " + CmdCreate.DB).args();
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return databases(db, 0);
+  }
 }
@@ -11,6 +11,7 @@ import org.basex.core.MainProp;
 import org.basex.core.User;
 import org.basex.data.MetaData;
 import org.basex.io.IOFile;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'drop database' command and deletes a database.
@@ -95,4 +96,9 @@ public final class DropDB extends Command {
   public void build(final CommandBuilder cb) {
     cb.init(Cmd.DROP + " " + CmdDrop.DB).args();
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return databases(db, 0);
+  }
 }
@@ -1,6 +1,8 @@
 package org.basex.core.cmd;
 
 import org.basex.core.Command;
+import org.basex.core.Context;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'exit' command and quits the console.
@@ -18,4 +20,9 @@ public final class Exit extends Command {
   protected boolean run() {
     return new Close().run(context);
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
 }
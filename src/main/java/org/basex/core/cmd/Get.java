@@ -5,6 +5,8 @@ import java.io.IOException;
 import java.util.Locale;
 
 import org.basex.core.User;
+import org.basex.core.Context;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'get' command and return the value of a database property.
@@ -31,4 +33,9 @@ public final class Get extends AGet {
     out.println(key + COLS + type);
     return true;
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
 }
@@ -4,6 +4,8 @@ import static org.basex.core.Commands.*;
 import static org.basex.core.Text.*;
 import java.io.IOException;
 import org.basex.core.Command;
+import org.basex.core.Context;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'help' command and returns help on the database commands.
@@ -44,4 +46,9 @@ public final class Help extends Command {
     }
     return true;
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
 }
@@ -10,6 +10,7 @@ import org.basex.core.Commands.Cmd;
 import org.basex.core.Commands.CmdInfo;
 import org.basex.data.Data;
 import org.basex.data.Nodes;
+import org.basex.io.random.BufferPool;
 import org.basex.util.Table;
 import org.basex.util.TokenBuilder;
 import org.basex.util.list.TokenList;
@@ -63,6 +64,7 @@ public final class InfoStorage extends AQuery {
       }
       out.print(table(data, ps, pe));
     }
+    out.println(BufferPool.info());
     return true;
   }
 
@@ -17,6 +17,8 @@ import org.basex.util.Table;
 import org.basex.util.Util;
 import org.basex.util.list.IntList;
 import org.basex.util.list.TokenList;
+import org.basex.core.Context;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'list' command and shows all documents in a database.
@@ -88,4 +90,9 @@ public final class ListDB extends Command {
   public void build(final CommandBuilder cb) {
     cb.init(Cmd.LIST.toString()).args();
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return databases(db, 0);
+  }
 }
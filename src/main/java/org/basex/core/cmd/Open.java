@@ -13,6 +13,7 @@ import org.basex.data.Data;
 import org.basex.data.DiskData;
 import org.basex.data.MetaData;
 import org.basex.util.Util;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'open' command and opens a database.
@@ -88,4 +89,9 @@ public final class Open extends Command {
     Close.close(data, ctx);
     throw new BaseXException(PERM_NEEDED_X, CmdPerm.READ);
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return databases(db, 0);
+  }
 }
@@ -86,6 +86,7 @@ public final class Optimize extends ACreate {
     d.atnindex.init();
     final MetaData m = d.meta;
     m.dirty = true;
+    ++m.version;
 
     final IntList pars = new IntList();
     final IntList tags = new IntList();
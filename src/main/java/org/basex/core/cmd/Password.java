@@ -1,6 +1,8 @@
 package org.basex.core.cmd;
 
 import static org.basex.core.Text.*;
+import org.basex.core.Context;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'password' command and alters the user's password.
@@ -24,4 +26,9 @@ public final class Password extends AUser {
     return isMD5(pass) && context.users.alter(user, pass) ?
         info(PW_CHANGED_X, user) : error(PW_NOT_VALID);
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
 }
@@ -9,6 +9,7 @@ import org.basex.core.MainProp;
 import org.basex.core.Context;
 import org.basex.core.User;
 import org.basex.util.Util;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'set' command and modifies database properties.
@@ -86,4 +87,9 @@ public final class Set extends AGet {
     }
     return v;
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
 }
\ No newline at end of file
@@ -7,6 +7,8 @@ import org.basex.core.CommandBuilder;
 import org.basex.core.Commands.Cmd;
 import org.basex.core.Commands.CmdShow;
 import org.basex.core.User;
+import org.basex.core.Context;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'show events' command and lists all existing events.
@@ -33,4 +35,9 @@ public final class ShowEvents extends Command {
   public void build(final CommandBuilder cb) {
     cb.init(Cmd.SHOW + " " + CmdShow.EVENTS).args();
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
 }
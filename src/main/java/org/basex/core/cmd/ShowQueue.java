@@ -0,0 +1,42 @@
+package org.basex.core.cmd;
+
+import java.io.IOException;
+import org.basex.core.CommandBuilder;
+import org.basex.core.Command;
+import org.basex.core.User;
+import org.basex.core.Commands.Cmd;
+import org.basex.core.Commands.CmdShow;
+import org.basex.core.Context;
+import org.basex.util.list.StringList;
+
+/**
+ * Evaluates the 'show queue' command and shows the waiting and active
+ * processes.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ShowQueue extends Command {
+  /**
+   * Default constructor.
+   */
+  public ShowQueue() {
+    super(User.ADMIN);
+  }
+
+  @Override
+  protected boolean run() throws IOException {
+    out.println(context.queue());
+    return true;
+  }
+
+  @Override
+  public void build(final CommandBuilder cb) {
+    cb.init(Cmd.SHOW + " " + CmdShow.QUEUE);
+  }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
+}
@@ -6,6 +6,8 @@ import org.basex.core.Command;
 import org.basex.core.User;
 import org.basex.core.Commands.Cmd;
 import org.basex.core.Commands.CmdShow;
+import org.basex.core.Context;
+import org.basex.util.list.StringList;
 
 /**
  * Evaluates the 'show sessions' command and shows server sessions.
@@ -31,4 +33,9 @@ public final class ShowSessions extends Command {
   public void build(final CommandBuilder cb) {
     cb.init(Cmd.SHOW + " " + CmdShow.SESSIONS);
   }
+
+  @Override
+  public boolean databases(final Context ctx, final StringList db) {
+    return true;
+  }
 }
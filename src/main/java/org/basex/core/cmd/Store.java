@@ -96,7 +96,8 @@ public final class Store extends ACreate {
       if(r != null) {
         for(int c; (c = r.read()) != -1;) po.utf8(c);
       } else if(is != null) {
-        for(int b; (b = is.read()) != -1;) po.write(b);
+        final byte[] buffer = new byte[IO.BLOCKSIZE];
+        for(int l; (l = is.read(buffer)) != -1;) po.write(buffer, 0, l);
       } else if(id != null) {
         final BufferInput bi = IO.get(id).inputStream();
         try {
@@ -0,0 +1,141 @@
+package org.basex.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.basex.io.IO;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.hash.TokenSet;
+
+/**
+ * This class contains dictionaries with the values of attributes that have a
+ * small number of distinct values. A separate dictionary is created for each
+ * attribute name. Dictionary-encoded values are stored in the table instead of
+ * a text offset: the offset is flagged with {@link IO#OFFDICT} and references
+ * the attribute name and the dictionary entry.
+ *
+ * The size of each dictionary is limited by {@link MetaData#maxcats}.
+ * Dictionaries are never shrunk; if a dictionary is full, new values will be
+ * stored in the attribute value file.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Categories {
+  /** Maximum number of values per dictionary. */
+  private static final int MAX = 0xFFFF;
+  /** Meta data. */
+  private final MetaData meta;
+  /** Dictionaries, indexed by attribute name ids. */
+  private TokenSet[] dicts;
+
+  /**
+   * Constructor.
+   * @param md meta data
+   */
+  public Categories(final MetaData md) {
+    meta = md;
+    dicts = new TokenSet[1];
+  }
+
+  /**
+   * Constructor, specifying an input stream.
+   * @param in input stream
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  Categories(final DataInput in, final MetaData md) throws IOException {
+    meta = md;
+    dicts = new TokenSet[in.readNum()];
+    for(int d = 0; d < dicts.length; ++d) {
+      if(in.readBool()) dicts[d] = new TokenSet(in);
+    }
+  }
+
+  /**
+   * Writes the dictionaries to the specified output.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  void write(final DataOutput out) throws IOException {
+    out.writeNum(dicts.length);
+    for(final TokenSet dict : dicts) {
+      out.writeBool(dict != null);
+      if(dict != null) dict.write(out);
+    }
+  }
+
+  /**
+   * Returns the encoded offset of the specified attribute value.
+   * If the value is not found, it is added to the dictionary.
+   * @param name id of the attribute name
+   * @param value attribute value
+   * @return encoded offset, or {@code 0} if the value cannot be encoded
+   */
+  public long encode(final int name, final byte[] value) {
+    if(value.length > meta.maxlen) return 0;
+    if(name >= dicts.length) dicts = Arrays.copyOf(dicts, name + 1 << 1);
+    TokenSet dict = dicts[name];
+    if(dict == null) {
+      dict = new TokenSet();
+      dicts[name] = dict;
+    }
+    int id = dict.id(value);
+    if(id == 0) {
+      if(dict.size() >= Math.min(meta.maxcats, MAX)) return 0;
+      id = dict.add(value);
+      meta.dirty = true;
+    }
+    return offset(name, id);
+  }
+
+  /**
+   * Returns the encoded offset of the specified attribute value.
+   * @param name id of the attribute name
+   * @param value attribute value
+   * @return encoded offset, or {@code 0} if the value is not found
+   */
+  public long offset(final int name, final byte[] value) {
+    final TokenSet dict = name < dicts.length ? dicts[name] : null;
+    final int id = dict != null ? dict.id(value) : 0;
+    return id == 0 ? 0 : offset(name, id);
+  }
+
+  /**
+   * Returns the attribute value referenced by the specified offset.
+   * @param off encoded offset
+   * @return attribute value
+   */
+  public byte[] decode(final long off) {
+    return dicts[name(off)].key((int) off & MAX);
+  }
+
+  /**
+   * Returns the id of the attribute name referenced by the specified offset.
+   * @param off encoded offset
+   * @return name id
+   */
+  public static int name(final long off) {
+    return (int) (off >>> 16) & 0x7FFF;
+  }
+
+  /**
+   * Checks if the specified offset references a dictionary entry.
+   * @param off offset
+   * @return result of check
+   */
+  public static boolean encoded(final long off) {
+    return (off & IO.OFFDICT) == IO.OFFDICT;
+  }
+
+  /**
+   * Returns an encoded offset.
+   * @param name id of the attribute name
+   * @param id id of the dictionary entry
+   * @return offset
+   */
+  private static long offset(final int name, final int id) {
+    return IO.OFFDICT | (long) name << 16 | id;
+  }
+}
@@ -134,6 +134,15 @@ public abstract class Data {
    */
   public abstract void flush();
 
+  /**
+   * Returns a read-only snapshot of the last committed version of the
+   * database, which is not affected by subsequent updates.
+   * @return snapshot, or this instance if snapshots are not supported
+   */
+  public Data snapshot() {
+    return this;
+  }
+
   /**
    * Checks if the database contains no documents.
    * Empty databases can be recognized by a single document node.
@@ -455,6 +464,25 @@ public abstract class Data {
     return table.read5(pre, 3);
   }
 
+  /**
+   * Returns the dictionary reference of an attribute value.
+   * @param pre pre value
+   * @return reference, or {@code 0} if the value is not dictionary-encoded
+   */
+  public long valueOffset(final int pre) {
+    return 0;
+  }
+
+  /**
+   * Returns the dictionary reference of the specified attribute value.
+   * @param name id of the attribute name
+   * @param value attribute value
+   * @return reference, or {@code 0} if the value is not found
+   */
+  public long valueOffset(final int name, final byte[] value) {
+    return 0;
+  }
+
   /**
    * Returns a text (text, comment, pi) or attribute value.
    * @param pre pre value
@@ -1008,7 +1036,7 @@ public abstract class Data {
    */
   public final void doc(final int pre, final int size, final byte[] value) {
     final int i = newID();
-    final long v = index(pre, i, value, DOC);
+    final long v = index(pre, i, value, DOC, 0);
     s(DOC); s(0); s(0); s(v >> 32);
     s(v >> 24); s(v >> 16); s(v >> 8); s(v);
     s(size >> 24); s(size >> 16); s(size >> 8); s(size);
@@ -1049,7 +1077,7 @@ public abstract class Data {
 
     // build and insert new entry
     final int i = newID();
-    final long v = index(pre, i, value, kind);
+    final long v = index(pre, i, value, kind, 0);
     s(kind); s(0); s(0); s(v >> 32);
     s(v >> 24); s(v >> 16); s(v >> 8); s(v);
     s(dist >> 24); s(dist >> 16); s(dist >> 8); s(dist);
@@ -1070,7 +1098,7 @@ public abstract class Data {
 
     // add attribute to text storage
     final int i = newID();
-    final long v = index(pre, i, value, ATTR);
+    final long v = index(pre, i, value, ATTR, name);
     final int n = ne ? 1 << 7 : 0;
     s(Math.min(IO.MAXATTS, dist) << 3 | ATTR);
     s(n | (byte) (name >> 8)); s(name); s(v >> 32);
@@ -1119,10 +1147,11 @@ public abstract class Data {
    * @param id id value
    * @param value text to be indexed
    * @param kind node kind
+   * @param name id of the attribute name (ignored for other node kinds)
    * @return reference
    */
   protected abstract long index(final int pre, final int id, final byte[] value,
-      final int kind);
+      final int kind, final int name);
 
   /** Notify the index structures that an update operation is started. */
   void indexBegin() { }
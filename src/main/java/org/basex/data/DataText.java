@@ -13,7 +13,7 @@ public interface DataText {
 
   /** Database version; if it's modified, old database instances can't
    * be parsed anymore. */
-  String STORAGE = "7.1";
+  String STORAGE = "7.2";
   /** Index version; if it's modified, new indexes can't be parsed anymore
    * by older versions. */
   String ISTORAGE = "7.1";
@@ -40,6 +40,10 @@ public interface DataText {
   String DBPTHIDX = "PTHINDEX";
   /** Automatic index update. */
   String DBUPDIDX = "UPDINDEX";
+  /** Memory mapping. */
+  String DBMMAP = "MMAP";
+  /** Block compression. */
+  String DBCOMPR = "COMPRESS";
   /** Text indexing. */
   String DBTXTIDX = "TXTINDEX";
   /** Attribute indexing. */
@@ -91,6 +95,8 @@ public interface DataText {
   String DBPATH = "PATH";
   /** Namespace. */
   String DBNS = "NS";
+  /** Attribute value dictionaries. */
+  String DBCATS = "CATS";
 
   // DATABASE FILES ===========================================================
 
@@ -110,6 +116,8 @@ public interface DataText {
   String DATASWL = "swl";
   /** Database - Updating flag. */
   String DATAUPD = "upd";
+  /** Database - Write-ahead log. */
+  String DATAWAL = "wal";
 
   // XML SERIALIZATION ========================================================
 
@@ -20,9 +20,12 @@ import org.basex.index.Names;
 import org.basex.io.IO;
 import org.basex.io.IOFile;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.ArrayOutput;
 import org.basex.io.out.DataOutput;
+import org.basex.io.random.CompressedAccess;
 import org.basex.io.random.DataAccess;
 import org.basex.io.random.TableDiskAccess;
+import org.basex.io.random.WriteAheadLog;
 import org.basex.util.Compress;
 import org.basex.util.Num;
 import org.basex.util.hash.TokenObjMap;
@@ -45,6 +48,23 @@ public final class DiskData extends Data {
   private DataAccess texts;
   /** Values access file. */
   private DataAccess values;
+  /** Compressed texts ({@code null} if texts are not compressed). */
+  private CompressedAccess ctexts;
+  /** Compressed values ({@code null} if values are not compressed). */
+  private CompressedAccess cvalues;
+  /** Dictionaries for attribute values. */
+  private Categories cats;
+  /** Write-ahead log ({@code null} if updates are written directly). */
+  private WriteAheadLog wal;
+  /** Serialized meta data of the last committed version
+   * ({@code null} if versioning is disabled). */
+  private byte[] info;
+  /** Serialized id/pre mapping of the last committed version. */
+  private byte[] ids;
+  /** Snapshot of the last committed version ({@code null} if not created). */
+  private DiskData snapshot;
+  /** Flag for a read-only snapshot. */
+  private boolean pinned;
   /** Texts buffered for subsequent index updates. */
   private TokenObjMap<IntList> txts;
   /** Attribute values buffered for subsequent index updates. */
@@ -59,27 +79,27 @@ public final class DiskData extends Data {
   public DiskData(final String db, final Context ctx) throws IOException {
     meta = new MetaData(db, ctx);
 
+    // replay committed updates of an interrupted session. the update marker
+    // is kept, as it may also have been set by writes that were not logged
+    WriteAheadLog.recover(meta);
     // don't allow to open locked databases
     if(updateFile().exists())
       throw new BaseXException(Text.DB_UPDATED_X, meta.name);
 
-    final DataInput in = new DataInput(meta.dbfile(DATAINF));
+    // keep committed meta data in memory if versioning is enabled
+    final IOFile inf = meta.dbfile(DATAINF);
+    if(meta.mvcc) info = inf.read();
+    final DataInput in = info != null ? new DataInput(info) :
+      new DataInput(inf);
     try {
-      // read meta data and indexes
-      meta.read(in);
-      while(true) {
-        final String k = string(in.readToken());
-        if(k.isEmpty()) break;
-        if(k.equals(DBTAGS))      tagindex = new Names(in, meta);
-        else if(k.equals(DBATTS)) atnindex = new Names(in, meta);
-        else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
-        else if(k.equals(DBNS))   nspaces = new Namespaces(in);
-        else if(k.equals(DBDOCS)) resources.read(in);
-      }
+      read(in);
       // open data and indexes
       init();
       if(meta.updindex) {
-        idmap = new IdPreMap(meta.dbfile(DATAIDP));
+        final IOFile idp = meta.dbfile(DATAIDP);
+        if(meta.mvcc) ids = idp.read();
+        idmap = ids != null ? new IdPreMap(new DataInput(ids)) :
+          new IdPreMap(idp);
         if(meta.textindex) txtindex = new UpdatableDiskValues(this, true);
         if(meta.attrindex) atvindex = new UpdatableDiskValues(this, false);
       } else {
@@ -99,12 +119,15 @@ public final class DiskData extends Data {
    * @param at attributes
    * @param ps path summary
    * @param n namespaces
+   * @param c attribute value dictionaries
    * @throws IOException I/O Exception
    */
   public DiskData(final MetaData md, final Names nm, final Names at,
-      final PathSummary ps, final Namespaces n) throws IOException {
+      final PathSummary ps, final Namespaces n, final Categories c)
+      throws IOException {
 
     meta = md;
+    cats = c;
     tagindex = nm;
     atnindex = at;
     paths = ps;
@@ -115,20 +138,103 @@ public final class DiskData extends Data {
     flush();
   }
 
+  /**
+   * Constructor for a read-only snapshot of the last committed version of
+   * the specified database, called from {@link #snapshot}.
+   * @param dd database
+   * @throws IOException I/O Exception
+   */
+  private DiskData(final DiskData dd) throws IOException {
+    meta = new MetaData(dd.meta);
+    pinned = true;
+    read(new DataInput(dd.info));
+    table = ((TableDiskAccess) dd.table).version();
+    if(meta.compress) {
+      // compressed files are replaced before they are updated
+      ctexts = dd.ctexts;
+      cvalues = dd.cvalues;
+    } else {
+      texts = dd.texts.version();
+      values = dd.values.version();
+    }
+    super.init();
+    if(meta.updindex) idmap = new IdPreMap(new DataInput(dd.ids));
+    // indexes may have been closed in the meantime
+    meta.textindex &= dd.txtindex != null;
+    meta.attrindex &= dd.atvindex != null;
+    meta.ftxtindex &= dd.ftxindex != null;
+    if(meta.textindex) txtindex = ((DiskValues) dd.txtindex).version(this);
+    if(meta.attrindex) atvindex = ((DiskValues) dd.atvindex).version(this);
+    // full-text indexes are invalidated by updates
+    if(meta.ftxtindex) ftxindex = dd.ftxindex;
+  }
+
+  /**
+   * Reads the meta data and the main memory structures.
+   * @param in input stream
+   * @throws IOException I/O Exception
+   */
+  private void read(final DataInput in) throws IOException {
+    meta.read(in);
+    while(true) {
+      final String k = string(in.readToken());
+      if(k.isEmpty()) break;
+      if(k.equals(DBTAGS))      tagindex = new Names(in, meta);
+      else if(k.equals(DBATTS)) atnindex = new Names(in, meta);
+      else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
+      else if(k.equals(DBNS))   nspaces = new Namespaces(in);
+      else if(k.equals(DBDOCS)) resources.read(in);
+      else if(k.equals(DBCATS)) cats = new Categories(in, meta);
+    }
+    if(cats == null) cats = new Categories(meta);
+  }
+
   @Override
   public void init() throws IOException {
-    table = new TableDiskAccess(meta, DATATBL);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    if(meta.prop.is(Prop.WAL)) wal = new WriteAheadLog(meta);
+    table = new TableDiskAccess(meta, DATATBL, wal);
+    if(meta.compress) {
+      ctexts = new CompressedAccess(meta.dbfile(DATATXT));
+      cvalues = new CompressedAccess(meta.dbfile(DATAATV));
+    } else {
+      texts = new DataAccess(meta.dbfile(DATATXT), meta.mmap, wal, meta.mvcc);
+      values = new DataAccess(meta.dbfile(DATAATV), meta.mmap, wal, meta.mvcc);
+    }
     super.init();
   }
 
+  @Override
+  public synchronized Data snapshot() {
+    // no committed version is available for new databases
+    if(info == null) return this;
+    // snapshots are cached until the next commit
+    if(snapshot == null) {
+      try {
+        snapshot = new DiskData(this);
+      } catch(final IOException ex) {
+        throw Util.notexpected(ex);
+      }
+    }
+    return snapshot;
+  }
+
   /**
-   * Writes all meta data to disk.
+   * Returns the write-ahead log.
+   * @return write-ahead log, or {@code null} if updates are written directly
+   */
+  public WriteAheadLog wal() {
+    return wal;
+  }
+
+  /**
+   * Writes all meta data to disk. If the write-ahead log is enabled,
+   * the files will be written to the log.
    * @throws IOException I/O exception
    */
   private void write() throws IOException {
-    final DataOutput out = new DataOutput(meta.dbfile(DATAINF));
+    final ArrayOutput ao = wal != null || meta.mvcc ? new ArrayOutput() : null;
+    final DataOutput out = ao != null ? new DataOutput(ao) :
+      new DataOutput(meta.dbfile(DATAINF));
     meta.write(out);
     out.writeToken(token(DBTAGS));
     tagindex.write(out);
@@ -140,36 +246,83 @@ public final class DiskData extends Data {
     nspaces.write(out);
     out.writeToken(token(DBDOCS));
     resources.write(out);
+    out.writeToken(token(DBCATS));
+    cats.write(out);
     out.write(0);
     out.close();
-    if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
+    if(ao != null) {
+      final byte[] inf = ao.toArray();
+      write(DATAINF, inf);
+      if(meta.mvcc) info = inf;
+    }
+    if(idmap == null) return;
+
+    if(ao != null) {
+      final ArrayOutput io = new ArrayOutput();
+      idmap.write(new DataOutput(io));
+      final byte[] idp = io.toArray();
+      write(DATAIDP, idp);
+      if(meta.mvcc) ids = idp;
+    } else {
+      idmap.write(meta.dbfile(DATAIDP));
+    }
+  }
+
+  /**
+   * Writes the specified file, or adds it to the write-ahead log.
+   * @param name name of the file
+   * @param contents file contents
+   * @throws IOException I/O exception
+   */
+  private void write(final String name, final byte[] contents)
+      throws IOException {
+    final IOFile file = meta.dbfile(name);
+    if(wal != null) wal.file(file, contents);
+    else file.write(contents);
   }
 
   @Override
   public synchronized void flush() {
-    if(!meta.prop.is(Prop.AUTOFLUSH)) return;
+    if(pinned || !meta.prop.is(Prop.AUTOFLUSH)) return;
     try {
-      if(meta.dirty) write();
-      table.flush();
-      texts.flush();
-      values.flush();
-      if(txtindex != null) ((DiskValues) txtindex).flush();
-      if(atvindex != null) ((DiskValues) atvindex).flush();
-      meta.dirty = false;
+      commit();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
 
+  /**
+   * Writes all buffered data to disk. If the write-ahead log is enabled,
+   * the updates will be committed to the log.
+   * @throws IOException I/O exception
+   */
+  private void commit() throws IOException {
+    if(meta.dirty) write();
+    table.flush();
+    if(texts != null) texts.flush();
+    if(values != null) values.flush();
+    if(txtindex != null) ((DiskValues) txtindex).flush();
+    if(atvindex != null) ((DiskValues) atvindex).flush();
+    meta.dirty = false;
+    if(wal != null) wal.commit();
+    // the next snapshot will reflect the committed updates
+    snapshot = null;
+  }
+
   @Override
   public synchronized void close() throws IOException {
-    if(meta.dirty) write();
+    if(pinned) return;
+    if(wal != null) commit();
+    else if(meta.dirty) write();
     table.close();
-    texts.close();
-    values.close();
+    if(texts != null) texts.close();
+    if(values != null) values.close();
+    if(ctexts != null) ctexts.close();
+    if(cvalues != null) cvalues.close();
     closeIndex(IndexType.TEXT);
     closeIndex(IndexType.ATTRIBUTE);
     closeIndex(IndexType.FULLTEXT);
+    if(wal != null) wal.close();
   }
 
   @Override
@@ -177,6 +330,7 @@ public final class DiskData extends Data {
     final Index index = index(type);
     if(index == null) return;
 
+    snapshot = null;
     index.close();
     switch(type) {
       case TEXT:      txtindex = null; break;
@@ -188,8 +342,9 @@ public final class DiskData extends Data {
   }
 
   @Override
-  public void setIndex(final IndexType type, final Index index) {
+  public synchronized void setIndex(final IndexType type, final Index index) {
     meta.dirty = true;
+    snapshot = null;
     switch(type) {
       case TEXT:      txtindex = index; break;
       case ATTRIBUTE: atvindex = index; break;
@@ -216,29 +371,58 @@ public final class DiskData extends Data {
   @Override
   public byte[] text(final int pre, final boolean text) {
     final long o = textOff(pre);
-    return num(o) ? token((int) o) : txt(o, text);
+    return num(o) ? token((int) o) : Categories.encoded(o) ? cats.decode(o) :
+      txt(o, text);
   }
 
   @Override
   public long textItr(final int pre, final boolean text) {
     final long o = textOff(pre);
-    return num(o) ? o & IO.OFFNUM - 1 : toLong(txt(o, text));
+    return num(o) ? o & IO.OFFNUM - 1 : toLong(text(o, text));
   }
 
   @Override
   public double textDbl(final int pre, final boolean text) {
     final long o = textOff(pre);
-    return num(o) ? o & IO.OFFNUM - 1 : toDouble(txt(o, text));
+    return num(o) ? o & IO.OFFNUM - 1 : toDouble(text(o, text));
   }
 
   @Override
   public int textLen(final int pre, final boolean text) {
     final long o = textOff(pre);
     if(num(o)) return numDigits((int) o);
+    if(Categories.encoded(o)) return cats.decode(o).length;
+    final long p = o & IO.OFFCOMP - 1;
+    if(ctexts != null) {
+      final CompressedAccess ca = text ? ctexts : cvalues;
+      final int l = ca.readNum(p);
+      return cpr(o) ? ca.readNum(p + Num.length(l)) : l;
+    }
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final int l = da.readNum(p);
     // compressed: next number contains number of compressed bytes
-    return cpr(o) ? da.readNum() : l;
+    return cpr(o) ? da.readNum(p + Num.length(l)) : l;
+  }
+
+  @Override
+  public long valueOffset(final int pre) {
+    final long o = textOff(pre);
+    return Categories.encoded(o) ? o : 0;
+  }
+
+  @Override
+  public long valueOffset(final int name, final byte[] value) {
+    return cats.offset(name, value);
+  }
+
+  /**
+   * Returns a text (text, comment, pi) or attribute value.
+   * @param o text offset
+   * @param text text or attribute flag
+   * @return text
+   */
+  private byte[] text(final long o, final boolean text) {
+    return Categories.encoded(o) ? cats.decode(o) : txt(o, text);
   }
 
   /**
@@ -248,17 +432,47 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long o, final boolean text) {
-    final byte[] txt = (text ? texts : values).readToken(o & IO.OFFCOMP - 1);
+    final long p = o & IO.OFFCOMP - 1;
+    final byte[] txt = ctexts != null ? (text ? ctexts : cvalues).readToken(p) :
+      (text ? texts : values).readToken(p);
     return cpr(o) ? comp.unpack(txt) : txt;
   }
 
+  /**
+   * Restores the default layout of block-compressed text files before
+   * they are updated. The files can be compressed again by rebuilding
+   * the database.
+   */
+  private void decompress() {
+    if(ctexts == null) return;
+    try {
+      // the compressed files are still accessed by the snapshot
+      if(meta.mvcc) {
+        snapshot();
+      } else {
+        ctexts.close();
+        cvalues.close();
+      }
+      ctexts = null;
+      cvalues = null;
+      CompressedAccess.decompress(meta.dbfile(DATATXT));
+      CompressedAccess.decompress(meta.dbfile(DATAATV));
+      texts = new DataAccess(meta.dbfile(DATATXT), meta.mmap, wal, meta.mvcc);
+      values = new DataAccess(meta.dbfile(DATAATV), meta.mmap, wal, meta.mvcc);
+      meta.compress = false;
+      meta.dirty = true;
+    } catch(final IOException ex) {
+      throw Util.notexpected(ex);
+    }
+  }
+
   /**
    * Returns true if the specified value contains a number.
    * @param o offset
    * @return result of check
    */
   private static boolean num(final long o) {
-    return (o & IO.OFFNUM) != 0;
+    return (o & IO.OFFDICT) == IO.OFFNUM;
   }
 
   /**
@@ -274,10 +488,12 @@ public final class DiskData extends Data {
 
   @Override
   protected void delete(final int pre, final boolean text) {
+    decompress();
     // old entry (offset or value)
     final long old = textOff(pre);
     // fill unused space with zero-bytes
-    if(!num(old)) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    if(!num(old) && !Categories.encoded(old))
+      (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
   }
 
   @Override
@@ -294,14 +510,21 @@ public final class DiskData extends Data {
     }
 
     // reference to text store
+    decompress();
     final DataAccess store = text ? texts : values;
     // file length
     final long len = store.length();
 
     // new entry (offset or value)
-    final long v = toSimpleInt(value);
-    // flag for inlining numeric value
-    final boolean vn = v != Integer.MIN_VALUE;
+    long v = toSimpleInt(value);
+    // flag for inlining numeric value or dictionary reference
+    boolean vn = v != Integer.MIN_VALUE;
+    if(vn) {
+      v |= IO.OFFNUM;
+    } else if(!text) {
+      v = cats.encode(name(pre), value);
+      vn = v != 0;
+    }
     // text to be stored (null if value will be inlined)
     final byte[] vl = vn ? null : comp.pack(value);
 
@@ -309,8 +532,8 @@ public final class DiskData extends Data {
     final long old = textOff(pre);
     // find text store offset
     final long off;
-    if(num(old)) {
-      // numeric entry: append new entry at the end
+    if(num(old) || Categories.encoded(old)) {
+      // inlined entry: append new entry at the end
       off = len;
     } else {
       // text size (0 if value will be inlined)
@@ -320,8 +543,8 @@ public final class DiskData extends Data {
 
     // store new entry
     if(vn) {
-      // inline integer value
-      textOff(pre, v | IO.OFFNUM);
+      // inline integer value or dictionary reference
+      textOff(pre, v);
     } else {
       store.writeToken(off, vl);
       textOff(pre, vl == value ? off : off | IO.OFFCOMP);
@@ -354,8 +577,9 @@ public final class DiskData extends Data {
 
   @Override
   protected long index(final int pre, final int id, final byte[] value,
-      final int kind) {
+      final int kind, final int name) {
 
+    decompress();
     final DataAccess store;
     final TokenObjMap<IntList> m;
 
@@ -385,6 +609,11 @@ public final class DiskData extends Data {
     // inline integer value...
     final long v = toSimpleInt(value);
     if(v != Integer.MIN_VALUE) return v | IO.OFFNUM;
+    // ...or reference dictionary entry
+    if(kind == ATTR) {
+      final long c = cats.encode(name, value);
+      if(c != 0) return c;
+    }
 
     // store text
     final long off = store.length();
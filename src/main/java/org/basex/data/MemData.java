@@ -114,12 +114,12 @@ public final class MemData extends Data {
       final boolean txt = kind != ATTR;
       ((MemValues) (txt ? txtindex : atvindex)).delete(text(pre, txt), id);
     }
-    textOff(pre, index(pre, id, val, kind));
+    textOff(pre, index(pre, id, val, kind, 0));
   }
 
   @Override
   protected long index(final int pre, final int id, final byte[] txt,
-      final int kind) {
+      final int kind, final int name) {
     return ((MemValues) (kind == ATTR ? atvindex : txtindex)).
         index(txt, meta.updindex ? id : pre);
   }
@@ -51,6 +51,10 @@ public final class MetaData {
   public boolean chop;
   /** Flag for activated automatic index update. */
   public boolean updindex;
+  /** Flag for memory mapped storage files. */
+  public boolean mmap;
+  /** Flag for block-compressed text and attribute value files. */
+  public boolean compress;
   /** Indicates if a text index exists. */
   public boolean textindex;
   /** Indicates if a attribute index exists. */
@@ -100,6 +104,11 @@ public final class MetaData {
   public boolean corrupt;
   /** Dirty flag. */
   public boolean dirty;
+  /** Modification counter, which is incremented by each update
+   * (not stored on disk). */
+  public volatile long version;
+  /** Flag for maintaining committed versions of the database files. */
+  public final boolean mvcc;
 
   /** Table size. */
   public int size;
@@ -130,9 +139,32 @@ public final class MetaData {
    * @param mprop main properties
    */
   public MetaData(final String db, final Prop pr, final MainProp mprop) {
-    path = mprop != null ? mprop.dbpath(db) : null;
+    this(db, pr, mprop != null ? mprop.dbpath(db) : null,
+        mprop != null && mprop.is(MainProp.MVCC));
+  }
+
+  /**
+   * Constructor for the meta data of a database snapshot.
+   * The stored meta data must be read via {@link #read}.
+   * @param md meta data of the database
+   */
+  MetaData(final MetaData md) {
+    this(md.name, md.prop, md.path, false);
+  }
+
+  /**
+   * Constructor, specifying the database name and path.
+   * @param db database name
+   * @param pr database properties
+   * @param dir database path
+   * @param mv flag for maintaining committed versions
+   */
+  private MetaData(final String db, final Prop pr, final IOFile dir,
+      final boolean mv) {
+    path = dir;
     prop = pr;
     name = db;
+    mvcc = mv;
     chop = prop.is(Prop.CHOP);
     createtext = prop.is(Prop.TEXTINDEX);
     createattr = prop.is(Prop.ATTRINDEX);
@@ -143,6 +175,7 @@ public final class MetaData {
     stemming = prop.is(Prop.STEMMING);
     casesens = prop.is(Prop.CASESENS);
     updindex = prop.is(Prop.UPDINDEX);
+    mmap = prop.is(Prop.MMAP);
     scoring = prop.num(Prop.SCORING);
     maxlen = prop.num(Prop.MAXLEN);
     maxcats = prop.num(Prop.MAXCATS);
@@ -347,6 +380,8 @@ public final class MetaData {
         else if(k.equals(DBFTDC))     diacritics = toBool(v);
         else if(k.equals(DBCHOP))     chop       = toBool(v);
         else if(k.equals(DBUPDIDX))   updindex   = toBool(v);
+        else if(k.equals(DBMMAP))     mmap       = toBool(v);
+        else if(k.equals(DBCOMPR))    compress   = toBool(v);
         else if(k.equals(DBPTHIDX))   pathindex  = toBool(v);
         else if(k.equals(DBTXTIDX))   textindex  = toBool(v);
         else if(k.equals(DBATVIDX))   attrindex  = toBool(v);
@@ -388,6 +423,8 @@ public final class MetaData {
     writeInfo(out, DBSIZE,     size);
     writeInfo(out, DBCHOP,     chop);
     writeInfo(out, DBUPDIDX,   updindex);
+    writeInfo(out, DBMMAP,     mmap);
+    writeInfo(out, DBCOMPR,    compress);
     writeInfo(out, DBPTHIDX,   pathindex);
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
@@ -421,6 +458,7 @@ public final class MetaData {
     time = System.currentTimeMillis();
     uptodate = false;
     dirty = true;
+    ++version;
     if(!updindex) {
       textindex = false;
       attrindex = false;
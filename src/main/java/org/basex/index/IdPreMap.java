@@ -53,18 +53,36 @@ public class IdPreMap {
   public IdPreMap(final IOFile f) throws IOException {
     final DataInput in = new DataInput(f);
     try {
-      baseid = in.readNum();
-      rows = in.readNum();
-      pres = in.readNums();
-      fids = in.readNums();
-      nids = in.readNums();
-      incs = in.readNums();
-      oids = in.readNums();
+      read(in);
     } finally {
       in.close();
     }
   }
 
+  /**
+   * Construct a map by reading it from the specified input stream.
+   * @param in input stream
+   * @throws IOException I/O error while reading from the stream
+   */
+  public IdPreMap(final DataInput in) throws IOException {
+    read(in);
+  }
+
+  /**
+   * Reads the map from the specified input stream.
+   * @param in input stream
+   * @throws IOException I/O error while reading from the stream
+   */
+  private void read(final DataInput in) throws IOException {
+    baseid = in.readNum();
+    rows = in.readNum();
+    pres = in.readNums();
+    fids = in.readNums();
+    nids = in.readNums();
+    incs = in.readNums();
+    oids = in.readNums();
+  }
+
   /**
    * Write the map to the specified file.
    * @param f file to write to
@@ -73,18 +91,27 @@ public class IdPreMap {
   public void write(final IOFile f) throws IOException {
     final DataOutput out = new DataOutput(f);
     try {
-      out.writeNum(baseid);
-      out.writeNum(rows);
-      out.writeNums(pres);
-      out.writeNums(fids);
-      out.writeNums(nids);
-      out.writeNums(incs);
-      out.writeNums(oids);
+      write(out);
     } finally {
       out.close();
     }
   }
 
+  /**
+   * Write the map to the specified output stream.
+   * @param out output stream
+   * @throws IOException I/O error while writing to the stream
+   */
+  public void write(final DataOutput out) throws IOException {
+    out.writeNum(baseid);
+    out.writeNum(rows);
+    out.writeNums(pres);
+    out.writeNums(fids);
+    out.writeNums(nids);
+    out.writeNums(incs);
+    out.writeNums(oids);
+  }
+
   /**
    * Find the PRE value of a given ID.
    * @param id ID
@@ -1,33 +1,154 @@
 package org.basex.index;
 
+import static org.basex.util.Token.*;
+
 import java.util.Arrays;
 
-import org.basex.util.hash.TokenSet;
+import org.basex.core.Prop;
+import org.basex.util.Performance;
 
 /**
  * This class caches sizes and pointers from index results.
+ * The memory consumed by the cache is limited by the {@link Prop#INDEXCACHE}
+ * option. If the limit is reached, entries are evicted according to the
+ * {@link Prop#CACHEPOLICY} option.
+ *
+ * Ids returned by {@link #id} are only valid until the next key is added
+ * to or deleted from the cache.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Sebastian Gath
  */
-public final class IndexCache extends TokenSet {
+public final class IndexCache {
+  /** Eviction policies. */
+  public enum Policy {
+    /** Evicts the least recently used entries. */
+    LRU,
+    /** Evicts the entries that have been added first. */
+    FIFO
+  }
+
+  /** Estimated memory consumption of an entry, excluding the key. */
+  private static final int ENTRY = 64;
+  /** Initial hash capacity. */
+  private static final int CAP = 1 << 3;
+
+  /** Memory budget (bytes). */
+  private final long budget;
+  /** Eviction policy. */
+  private final Policy policy;
+
+  /** Keys ({@code null} for unused entries). */
+  private byte[][] keys = new byte[CAP][];
   /** Number of position values. */
   private int[] sizes = new int[CAP];
   /** Pointer on token data. */
   private long[] pointers = new long[CAP];
+  /** Pointers to the next entries in the hash buckets, or in the list
+   * of unused entries. */
+  private int[] next = new int[CAP];
+  /** Hash table buckets. */
+  private int[] bucket = new int[CAP];
+  /** Pointers to the newer entries. Entry 0 points to the oldest entry. */
+  private int[] newer = new int[CAP];
+  /** Pointers to the older entries. Entry 0 points to the newest entry. */
+  private int[] older = new int[CAP];
+  /** Number of assigned entries. */
+  private int size = 1;
+  /** First unused entry. */
+  private int unused;
+  /** Number of cached keys. */
+  private int count;
+  /** Estimated memory consumption (bytes). */
+  private long mem;
+
+  /** Number of cache hits. */
+  private long hits;
+  /** Number of cache misses. */
+  private long misses;
+  /** Number of evicted entries. */
+  private long evictions;
 
   /**
-   * Indexes the specified keys and values.
+   * Constructor.
+   * @param prop properties
+   */
+  public IndexCache(final Prop prop) {
+    this(budget(prop), policy(prop));
+  }
+
+  /**
+   * Constructor.
+   * @param b memory budget (bytes)
+   * @param p eviction policy
+   */
+  public IndexCache(final long b, final Policy p) {
+    budget = b;
+    policy = p;
+  }
+
+  /**
+   * Returns the memory budget of the specified properties.
+   * @param prop properties
+   * @return budget (bytes)
+   */
+  public static long budget(final Prop prop) {
+    return (long) prop.num(Prop.INDEXCACHE) << 20;
+  }
+
+  /**
+   * Returns the id of the specified key or 0 if the key is not cached.
+   * @param key key to be found
+   * @return id or 0 if nothing was found
+   */
+  public int id(final byte[] key) {
+    final int id = find(key);
+    if(id == 0) {
+      ++misses;
+    } else {
+      ++hits;
+      if(policy == Policy.LRU) {
+        unlink(id);
+        link(id);
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Indexes the specified keys and values. If the memory budget is
+   * exceeded, other entries will be evicted.
    * @param key key
    * @param s size
    * @param p pointer
    */
   public void add(final byte[] key, final int s, final long p) {
-    final int i = add(key);
-    if(i > 0) {
-      sizes[i] = s;
-      pointers[i] = p;
+    int id = find(key);
+    if(id == 0) {
+      final long m = key.length + ENTRY;
+      if(m > budget) return;
+      while(mem + m > budget) {
+        remove(newer[0]);
+        ++evictions;
+      }
+      // reuse an unused entry or assign a new one
+      if(unused != 0) {
+        id = unused;
+        unused = next[id];
+      } else {
+        if(size == keys.length) rehash();
+        id = size++;
+      }
+      final int b = hash(key) & bucket.length - 1;
+      keys[id] = key;
+      next[id] = bucket[b];
+      bucket[b] = id;
+      link(id);
+      mem += m;
+      ++count;
     }
+    sizes[id] = s;
+    pointers[id] = p;
   }
 
   /**
@@ -41,6 +162,15 @@ public final class IndexCache extends TokenSet {
     pointers[id] = p;
   }
 
+  /**
+   * Deletes the specified key.
+   * @param key key
+   */
+  public void delete(final byte[] key) {
+    final int id = find(key);
+    if(id != 0) remove(id);
+  }
+
   /**
    * Returns the size for the specified key.
    * @param id id of the key to be found
@@ -59,11 +189,104 @@ public final class IndexCache extends TokenSet {
     return pointers[id];
   }
 
-  @Override
-  protected void rehash() {
-    super.rehash();
+  /**
+   * Returns information on the cache.
+   * @return info string
+   */
+  public String info() {
+    final long all = hits + misses;
+    return count + " entries, " + Performance.format(mem, true) + " of " +
+      Performance.format(budget, true) + ", " + policy + ", " + hits +
+      " hits, " + misses + " misses" +
+      (all == 0 ? "" : " (" + hits * 100 / all + "% hits)") + ", " +
+      evictions + " evictions";
+  }
+
+  /**
+   * Returns the id of the specified key.
+   * @param key key to be found
+   * @return id or 0 if nothing was found
+   */
+  private int find(final byte[] key) {
+    final int b = hash(key) & bucket.length - 1;
+    for(int id = bucket[b]; id != 0; id = next[id]) {
+      if(eq(key, keys[id])) return id;
+    }
+    return 0;
+  }
+
+  /**
+   * Removes the specified entry.
+   * @param id id of the entry
+   */
+  private void remove(final int id) {
+    final byte[] key = keys[id];
+    final int b = hash(key) & bucket.length - 1;
+    if(bucket[b] == id) {
+      bucket[b] = next[id];
+    } else {
+      int p = bucket[b];
+      while(next[p] != id) p = next[p];
+      next[p] = next[id];
+    }
+    unlink(id);
+    keys[id] = null;
+    next[id] = unused;
+    unused = id;
+    mem -= key.length + ENTRY;
+    --count;
+  }
+
+  /**
+   * Adds the specified entry as newest entry.
+   * @param id id of the entry
+   */
+  private void link(final int id) {
+    final int n = older[0];
+    newer[n] = id;
+    older[id] = n;
+    newer[id] = 0;
+    older[0] = id;
+  }
+
+  /**
+   * Removes the specified entry from the eviction order.
+   * @param id id of the entry
+   */
+  private void unlink(final int id) {
+    newer[older[id]] = newer[id];
+    older[newer[id]] = older[id];
+  }
+
+  /**
+   * Resizes the hash table.
+   */
+  private void rehash() {
     final int s = size << 1;
-    pointers = Arrays.copyOf(pointers, s);
+    keys = Arrays.copyOf(keys, s);
     sizes = Arrays.copyOf(sizes, s);
+    pointers = Arrays.copyOf(pointers, s);
+    newer = Arrays.copyOf(newer, s);
+    older = Arrays.copyOf(older, s);
+    next = new int[s];
+    bucket = new int[s];
+    for(int id = 1; id < size; ++id) {
+      final int b = hash(keys[id]) & s - 1;
+      next[id] = bucket[b];
+      bucket[b] = id;
+    }
+  }
+
+  /**
+   * Returns the eviction policy of the specified properties.
+   * @param prop properties
+   * @return policy
+   */
+  private static Policy policy(final Prop prop) {
+    final String p = prop.get(Prop.CACHEPOLICY);
+    for(final Policy pl : Policy.values()) {
+      if(pl.name().equalsIgnoreCase(p)) return pl;
+    }
+    return Policy.LRU;
   }
 }
@@ -183,6 +183,7 @@ final class FTFuzzy extends FTIndex {
     final IndexStats stats = new IndexStats(data);
     addOccs(stats);
     stats.print(tb);
+    tb.add(LI_CACHE + cache.info() + NL);
     return tb.finish();
   }
 
@@ -66,9 +66,8 @@ final class FTFuzzyList extends FTList {
 
     final byte[] t = str.readBytes(ptok, ctl);
     // skip pointer
-    size = str.read4(str.cursor() + 5);
-    // position will always fit in an integer...
-    ptok = (int) str.cursor();
+    size = str.read4(ptok + ctl + 5);
+    ptok += ctl + 9;
     return t;
   }
 }
@@ -17,7 +17,7 @@ import org.basex.util.list.IntList;
  */
 public abstract class FTIndex implements Index {
   /** Cache for number of hits and data reference per token. */
-  final IndexCache cache = new IndexCache();
+  final IndexCache cache;
   /** Data reference. */
   final Data data;
   /** Scoring mode. 1 = document based, 2 = text-node based .*/
@@ -45,6 +45,7 @@ public abstract class FTIndex implements Index {
    */
   FTIndex(final Data d) {
     data = d;
+    cache = new IndexCache(d.meta.prop);
     scm = d.meta.scoring;
     max = Math.log(data.meta.maxscore + 1);
     min = Math.log(data.meta.minscore - 1);
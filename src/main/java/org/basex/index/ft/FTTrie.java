@@ -195,6 +195,7 @@ final class FTTrie extends FTIndex {
     final IndexStats stats = new IndexStats(data);
     addOccs(EMPTY, 0, stats);
     stats.print(tb);
+    tb.add(LI_CACHE + cache.info() + NL);
     return tb.finish();
   }
 
@@ -225,7 +226,7 @@ final class FTTrie extends FTIndex {
   private int[] entry(final long id) {
     // read start and end position
     int sp = inC.read4(id << 2);
-    final int ep = inC.read4();
+    final int ep = inC.read4((id << 2) + 4);
 
     final IntList il = new IntList();
     inA.cursor(sp++);
@@ -7,13 +7,16 @@ import static org.basex.util.Token.*;
 import java.io.IOException;
 
 import org.basex.data.Data;
+import org.basex.data.DiskData;
 import org.basex.index.Index;
 import org.basex.index.IndexCache;
 import org.basex.index.IndexIterator;
 import org.basex.index.IndexStats;
 import org.basex.index.IndexToken;
 import org.basex.index.RangeToken;
+import org.basex.io.IOFile;
 import org.basex.io.random.DataAccess;
+import org.basex.io.random.WriteAheadLog;
 import org.basex.util.Num;
 import org.basex.util.Performance;
 import org.basex.util.TokenBuilder;
@@ -36,14 +39,22 @@ public class DiskValues implements Index {
   final DataAccess idxr;
   /** ID lists. */
   final DataAccess idxl;
+  /** Numeric keys ({@code null} if the index was created by an older
+   * version). */
+  final NumericValues numeric;
   /** Value type (texts/attributes). */
   final boolean text;
   /** Data reference. */
   final Data data;
-  /** Cached tokens. */
-  final IndexCache cache = new IndexCache();
-  /** Cached texts. Increases used memory, but speeds up repeated queries. */
-  final IntMap<byte[]> ctext = new IntMap<byte[]>();
+  /** Cached tokens. Access must be synchronized on the cache instance. */
+  final IndexCache cache;
+  /** Cached texts. Increases used memory, but speeds up repeated queries.
+   * Access must be synchronized on the {@link #cache} instance. */
+  private IntMap<byte[]> ctext = new IntMap<byte[]>();
+  /** Estimated memory consumption of the cached texts (bytes). */
+  private long ctextMem;
+  /** Maximum memory consumption of the cached texts (bytes). */
+  private final long ctextMax;
 
   /**
    * Constructor, initializing the index structure.
@@ -66,16 +77,51 @@ public class DiskValues implements Index {
       throws IOException {
     data = d;
     text = txt;
-    idxl = new DataAccess(d.meta.dbfile(pref + 'l'));
-    idxr = new DataAccess(d.meta.dbfile(pref + 'r'));
+    cache = new IndexCache(d.meta.prop);
+    ctextMax = IndexCache.budget(d.meta.prop);
+    final WriteAheadLog wal = d instanceof DiskData ? ((DiskData) d).wal() :
+      null;
+    final boolean vs = d.meta.mvcc;
+    idxl = new DataAccess(d.meta.dbfile(pref + 'l'), false, wal, vs);
+    idxr = new DataAccess(d.meta.dbfile(pref + 'r'), false, wal, vs);
     size = idxl.read4();
+    final IOFile nf = d.meta.dbfile(pref + 'n');
+    numeric = nf.exists() ? new NumericValues(nf, wal, vs) : null;
+  }
+
+  /**
+   * Constructor for a read-only instance, which is pinned to the last
+   * committed version of the specified index.
+   * @param d snapshot of the database
+   * @param dv index
+   */
+  DiskValues(final Data d, final DiskValues dv) {
+    data = d;
+    text = dv.text;
+    cache = new IndexCache(d.meta.prop);
+    ctextMax = IndexCache.budget(d.meta.prop);
+    idxl = dv.idxl.version();
+    idxr = dv.idxr.version();
+    size = idxl.read4(0);
+    numeric = dv.numeric != null ? dv.numeric.version() : null;
+  }
+
+  /**
+   * Returns a read-only instance of the last committed version of the index,
+   * which is not affected by subsequent updates.
+   * @param d snapshot of the database
+   * @return index
+   */
+  public DiskValues version(final Data d) {
+    return new DiskValues(d, this);
   }
 
   @Override
   public synchronized byte[] info() {
     final TokenBuilder tb = new TokenBuilder();
     tb.add(LI_STRUCTURE + SORTED_LIST + NL);
-    final long l = idxl.length() + idxr.length();
+    final long l = idxl.length() + idxr.length() +
+        (numeric != null ? numeric.length() : 0);
     tb.add(LI_SIZE + Performance.format(l, true) + NL);
     final IndexStats stats = new IndexStats(data);
     for(int m = 0; m < size; ++m) {
@@ -84,31 +130,50 @@ public class DiskValues implements Index {
       if(stats.adding(oc)) stats.add(data.text(firstpre(pos), text));
     }
     stats.print(tb);
+    synchronized(cache) {
+      tb.add(LI_CACHE + cache.info() + NL);
+    }
     return tb.finish();
   }
 
   @Override
-  public synchronized IndexIterator iter(final IndexToken tok) {
+  public IndexIterator iter(final IndexToken tok) {
     if(tok instanceof RangeToken) return idRange((RangeToken) tok);
 
-    final int id = cache.id(tok.get());
-    if(id > 0) return iter(cache.size(id), cache.pointer(id));
+    final byte[] key = tok.get();
+    int nr = 0;
+    long pos = 0;
+    synchronized(cache) {
+      final int id = cache.id(key);
+      if(id > 0) {
+        nr = cache.size(id);
+        pos = cache.pointer(id);
+      }
+    }
+    if(nr > 0) return iter(nr, pos);
 
-    final int ix = get(tok.get());
+    final int ix = get(key);
     if(ix < 0) return IndexIterator.EMPTY;
-    final long pos = idxr.read5(ix * 5L);
-    return iter(idxl.readNum(pos), idxl.cursor());
+    pos = idxr.read5(ix * 5L);
+    nr = idxl.readNum(pos);
+    return iter(nr, pos + Num.length(nr));
   }
 
   @Override
-  public synchronized int count(final IndexToken it) {
-    if(it instanceof RangeToken) return idRange((RangeToken) it).size();
+  public int count(final IndexToken it) {
+    if(it instanceof RangeToken) {
+      // without numeric keys, a full scan would be required to count the hits
+      return numeric != null ? idRange((RangeToken) it).size() :
+        Math.max(1, data.meta.size / 5);
+    }
 
     final byte[] key = it.get();
     if(key.length > data.meta.maxlen) return Integer.MAX_VALUE;
 
-    final int id = cache.id(key);
-    if(id > 0) return cache.size(id);
+    synchronized(cache) {
+      final int id = cache.id(key);
+      if(id > 0) return cache.size(id);
+    }
 
     final int ix = get(key);
     if(ix < 0) return 0;
@@ -116,22 +181,27 @@ public class DiskValues implements Index {
     final long pos = idxr.read5(ix * 5L);
     // the first heap entry represents the number of hits
     final int nr = idxl.readNum(pos);
-    cache.add(key, nr, pos + Num.length(nr));
+    synchronized(cache) {
+      cache.add(key, nr, pos + Num.length(nr));
+    }
     return nr;
   }
 
   @Override
-  public TokenIntMap entries(final byte[] prefix) {
+  public synchronized TokenIntMap entries(final byte[] prefix) {
     final TokenIntMap tim = new TokenIntMap();
     int ix = get(prefix);
     if(ix < 0) ix = -ix - 1;
     idxr.cursor(ix * 5l);
     for(; ix < size; ix++) {
       final long pos = idxr.read5();
-      final int nr = idxl.readNum(pos);
+      idxl.cursor(pos);
+      final int nr = idxl.readNum();
       final int pre = idxl.readNum();
       final byte[] key = data.text(pre, text);
-      cache.add(key, nr, pos + Num.length(nr));
+      synchronized(cache) {
+        cache.add(key, nr, pos + Num.length(nr));
+      }
       if(!startsWith(key, prefix)) break;
       tim.add(key, nr);
     }
@@ -143,8 +213,11 @@ public class DiskValues implements Index {
    * @return compressed values
    */
   byte[] nextValues() {
-    return idxr.cursor() >= idxr.length() ? EMPTY : idxl.readBytes(
-        idxr.read5(), idxl.read4());
+    if(idxr.cursor() >= idxr.length()) return EMPTY;
+    final long pos = idxr.read5();
+    final int l = idxl.read4();
+    idxl.cursor(pos);
+    return idxl.readBytes(l);
   }
 
   /**
@@ -157,19 +230,48 @@ public class DiskValues implements Index {
     final IntList pres = new IntList(s);
     long p = ps;
     for(int l = 0, v = 0; l < s; ++l) {
-      v += idxl.readNum(p);
-      p = idxl.cursor();
+      final int d = idxl.readNum(p);
+      p += Num.length(d);
+      v += d;
       pres.add(v);
     }
     return iter(pres);
   }
 
   /**
-   * Performs a range query. All index values must be numeric.
+   * Performs a range query. If the numeric keys are available, they are used
+   * to find the matching keys.
    * @param tok index term
    * @return results
    */
   IndexIterator idRange(final RangeToken tok) {
+    if(numeric == null) return scanRange(tok);
+
+    final IntList keys = new IntList();
+    numeric.range(tok.min, tok.max, keys);
+    final IntList pres = new IntList();
+    final int ks = keys.size();
+    for(int k = 0; k < ks; ++k) {
+      long p = idxr.read5(keys.get(k) * 5L);
+      final int ds = idxl.readNum(p);
+      p += Num.length(ds);
+      for(int d = 0, v = 0; d < ds; ++d) {
+        final int n = idxl.readNum(p);
+        p += Num.length(n);
+        v += n;
+        pres.add(pre(v));
+      }
+    }
+    return iter(pres.sort());
+  }
+
+  /**
+   * Performs a range query by scanning all keys. All index values must be
+   * numeric.
+   * @param tok index term
+   * @return results
+   */
+  synchronized IndexIterator scanRange(final RangeToken tok) {
     final double min = tok.min;
     final double max = tok.max;
 
@@ -180,7 +282,8 @@ public class DiskValues implements Index {
 
     final IntList pres = new IntList();
     for(int l = 0; l < size; ++l) {
-      final int ds = idxl.readNum(idxr.read5(l * 5L));
+      idxl.cursor(idxr.read5(l * 5L));
+      final int ds = idxl.readNum();
       int pre = idxl.readNum();
 
       final double v = data.textDbl(pre, text);
@@ -233,15 +336,23 @@ public class DiskValues implements Index {
     };
   }
 
+  /**
+   * Returns the pre value for the specified index entry.
+   * @param id index entry
+   * @return pre value
+   */
+  int pre(final int id) {
+    return id;
+  }
+
   /**
    * Get the first pre value from the id-list at the specified position.
    * @param pos position of the id-list in {@link #idxl}
    * @return pre value
    */
   int firstpre(final long pos) {
-    // read the number of ids in the list
-    idxl.readNum(pos);
-    return idxl.readNum();
+    // skip the number of ids in the list
+    return idxl.readNum(pos + Num.length(idxl.readNum(pos)));
   }
 
   /**
@@ -255,9 +366,6 @@ public class DiskValues implements Index {
 
   /**
    * Binary search for key in the {@link #idxr}.
-   * <em>Important:</em> This method has to be called while being in the monitor
-   * of this instance, e.g. from a {@code synchronized}
-   * method.
    * @param key token to be found
    * @param first begin of the search interval
    * @param last end of the search interval
@@ -267,10 +375,20 @@ public class DiskValues implements Index {
     int l = first, h = last;
     while(l <= h) {
       final int m = l + h >>> 1;
-      byte[] txt = ctext.get(m);
+      byte[] txt;
+      synchronized(cache) {
+        txt = ctext.get(m);
+      }
       if(txt == null) {
         txt = data.text(firstpre(idxr.read5(m * 5L)), text);
-        ctext.add(m, txt);
+        // texts of the first requested keys, which will be visited by most
+        // binary searches, are cached until the maximum size is reached
+        synchronized(cache) {
+          if(ctextMem < ctextMax) {
+            ctext.add(m, txt);
+            ctextMem += txt.length + 16;
+          }
+        }
       }
       final int d = diff(txt, key);
       if(d == 0) return m;
@@ -280,6 +398,16 @@ public class DiskValues implements Index {
     return -(l + 1);
   }
 
+  /**
+   * Discards all cached texts. Called when index keys are inserted or deleted.
+   */
+  final void discardTexts() {
+    synchronized(cache) {
+      ctext = new IntMap<byte[]>();
+      ctextMem = 0;
+    }
+  }
+
   /**
    * Flushes the buffered data.
    * @throws IOException I/O exception
@@ -287,12 +415,14 @@ public class DiskValues implements Index {
   public void flush() throws IOException {
     idxl.flush();
     idxr.flush();
+    if(numeric != null) numeric.flush();
   }
 
   @Override
   public synchronized void close() throws IOException {
     idxl.close();
     idxr.close();
+    if(numeric != null) numeric.close();
   }
 
   /**
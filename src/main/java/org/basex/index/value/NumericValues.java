@@ -0,0 +1,254 @@
+package org.basex.index.value;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.basex.io.IOFile;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.DataAccess;
+import org.basex.io.random.WriteAheadLog;
+import org.basex.util.list.IntList;
+
+/**
+ * <p>This class provides access to the numeric keys of a value index.
+ * The numeric index is built by the {@link ValueBuilder} and stored in the
+ * {@code DATATXT/ATV + 'n'} file. The number of entries is stored in the
+ * first 4 bytes of the file. It is followed by entries with a fixed size of
+ * 12 bytes, which are sorted by their numeric values:</p>
+ * <ul>
+ * <li>8 bytes: numeric value of the key (bits of a double value)</li>
+ * <li>4 bytes: index of the key in the value index</li>
+ * </ul>
+ *
+ * <p>Range queries are evaluated by a binary search for the smallest value,
+ * followed by a sequential scan of all entries up to the largest value.</p>
+ *
+ * <p>Before the entries are updated, they are completely read into main
+ * memory. They will be written back to disk when the index is flushed.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class NumericValues {
+  /** Size of a single entry. */
+  private static final int ENTRY = 12;
+
+  /** Index file. */
+  private final DataAccess da;
+  /** Number of entries. */
+  private int size;
+  /** Cached values (assigned if the entries are updated). */
+  private double[] vals;
+  /** Cached key indexes (assigned if the entries are updated). */
+  private int[] keys;
+  /** Flag for modified entries. */
+  private boolean dirty;
+
+  /**
+   * Constructor, opening an existing index file.
+   * @param file index file
+   * @param wal write-ahead log ({@code null} if updates are written directly)
+   * @param vs maintain committed versions of the file
+   * @throws IOException I/O Exception
+   */
+  NumericValues(final IOFile file, final WriteAheadLog wal, final boolean vs)
+      throws IOException {
+    da = new DataAccess(file, false, wal, vs);
+    size = da.read4(0);
+  }
+
+  /**
+   * Constructor for a read-only instance, which is pinned to the last
+   * committed version of the specified numeric values.
+   * @param nv numeric values
+   */
+  private NumericValues(final NumericValues nv) {
+    da = nv.da.version();
+    size = da.read4(0);
+  }
+
+  /**
+   * Returns a read-only instance of the last committed version.
+   * @return numeric values
+   */
+  NumericValues version() {
+    return new NumericValues(this);
+  }
+
+  /**
+   * Writes a new index file.
+   * @param file index file
+   * @param nv numeric values
+   * @param ix key indexes
+   * @throws IOException I/O exception
+   */
+  static void write(final IOFile file, final double[] nv, final IntList ix)
+      throws IOException {
+
+    // sort key indexes by their numeric values
+    ix.sort(nv, true);
+    final int s = ix.size();
+    final DataOutput out = new DataOutput(file);
+    out.write4(s);
+    for(int i = 0; i < s; ++i) {
+      final long v = Double.doubleToLongBits(nv[i]);
+      out.write4((int) (v >>> 32));
+      out.write4((int) v);
+      out.write4(ix.get(i));
+    }
+    out.close();
+  }
+
+  /**
+   * Adds the indexes of all keys to the specified list whose numeric
+   * values are in the specified range.
+   * @param min minimum value (inclusive)
+   * @param max maximum value (inclusive)
+   * @param ix list for key indexes
+   */
+  void range(final double min, final double max, final IntList ix) {
+    // find first entry which is equal to or greater than the minimum
+    int l = 0, h = size - 1;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      if(value(m) < min) l = m + 1;
+      else h = m - 1;
+    }
+    for(; l < size && value(l) <= max; ++l) ix.add(key(l));
+  }
+
+  /**
+   * Adds new keys. All key indexes of the existing entries will be adjusted.
+   * @param ix final indexes of all new keys (sorted)
+   * @param nv numeric values of the new keys ({@code NaN} for non-numeric
+   * keys, which will not be stored in the index)
+   */
+  void insert(final int[] ix, final double[] nv) {
+    load();
+    final int n = ix.length;
+    // number of existing keys that precede each new key
+    final int[] prec = new int[n];
+    for(int i = 0; i < n; ++i) prec[i] = ix[i] - i;
+
+    // shift existing key indexes by the number of preceding new keys
+    for(int e = 0; e < size; ++e) {
+      int p = Arrays.binarySearch(prec, keys[e]);
+      if(p < 0) p = -p - 1;
+      else while(p < n && prec[p] == keys[e]) ++p;
+      keys[e] += p;
+    }
+
+    // sort new numeric keys
+    final IntList nk = new IntList();
+    for(int i = 0; i < n; ++i) if(!Double.isNaN(nv[i])) nk.add(i);
+    final int ns = nk.size();
+    if(ns == 0) return;
+    final double[] sv = new double[ns];
+    for(int i = 0; i < ns; ++i) sv[i] = nv[nk.get(i)];
+    nk.sort(sv, true);
+
+    // merge existing and new entries
+    final double[] v = new double[size + ns];
+    final int[] k = new int[size + ns];
+    for(int i = 0, e = 0, c = 0; c < v.length; ++c) {
+      if(e < size && (i == ns || vals[e] <= sv[i])) {
+        v[c] = vals[e];
+        k[c] = keys[e++];
+      } else {
+        v[c] = sv[i];
+        k[c] = ix[nk.get(i++)];
+      }
+    }
+    vals = v;
+    keys = k;
+    size = v.length;
+  }
+
+  /**
+   * Deletes keys. All key indexes of the remaining entries will be adjusted.
+   * @param ix indexes of the deleted keys (sorted)
+   */
+  void delete(final int[] ix) {
+    load();
+    int s = 0;
+    for(int e = 0; e < size; ++e) {
+      final int p = Arrays.binarySearch(ix, keys[e]);
+      if(p >= 0) continue;
+      vals[s] = vals[e];
+      keys[s++] = keys[e] + p + 1;
+    }
+    size = s;
+  }
+
+  /**
+   * Returns the length of the index file.
+   * @return file length
+   */
+  long length() {
+    return da.length();
+  }
+
+  /**
+   * Flushes the buffered data.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    if(dirty) {
+      da.write4(0, size);
+      for(int e = 0; e < size; ++e) {
+        final long v = Double.doubleToLongBits(vals[e]);
+        da.write4((int) (v >>> 32));
+        da.write4((int) v);
+        da.write4(keys[e]);
+      }
+      dirty = false;
+    }
+    da.flush();
+  }
+
+  /**
+   * Closes the index file.
+   * @throws IOException I/O exception
+   */
+  void close() throws IOException {
+    flush();
+    da.close();
+  }
+
+  /**
+   * Reads all entries into main memory before they are updated.
+   */
+  private void load() {
+    dirty = true;
+    if(vals != null) return;
+    final double[] v = new double[size];
+    final int[] k = new int[size];
+    for(int e = 0; e < size; ++e) {
+      v[e] = value(e);
+      k[e] = key(e);
+    }
+    vals = v;
+    keys = k;
+  }
+
+  /**
+   * Returns the numeric value of the specified entry.
+   * @param e entry
+   * @return value
+   */
+  private double value(final int e) {
+    if(vals != null) return vals[e];
+    final long p = 4 + (long) e * ENTRY;
+    return Double.longBitsToDouble((long) da.read4(p) << 32 |
+        da.read4(p + 4) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Returns the key index of the specified entry.
+   * @param e entry
+   * @return key index
+   */
+  private int key(final int e) {
+    return keys != null ? keys[e] : da.read4(4 + (long) e * ENTRY + 8);
+  }
+}
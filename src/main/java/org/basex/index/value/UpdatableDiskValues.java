@@ -42,20 +42,36 @@ public final class UpdatableDiskValues extends DiskValues {
     super(d, txt, pref);
   }
 
+  /**
+   * Constructor for a read-only instance, which is pinned to the last
+   * committed version of the specified index.
+   * @param d snapshot of the database
+   * @param dv index
+   */
+  private UpdatableDiskValues(final Data d, final UpdatableDiskValues dv) {
+    super(d, dv);
+  }
+
+  @Override
+  public DiskValues version(final Data d) {
+    return new UpdatableDiskValues(d, this);
+  }
+
   @Override
   protected IndexIterator iter(final int s, final long ps) {
     final IntList pres = new IntList(s);
     long p = ps;
     for(int l = 0, v = 0; l < s; ++l) {
-      v += idxl.readNum(p);
-      p = idxl.cursor();
+      final int d = idxl.readNum(p);
+      p += Num.length(d);
+      v += d;
       pres.add(data.pre(v));
     }
     return iter(pres.sort());
   }
 
   @Override
-  protected IndexIterator idRange(final RangeToken tok) {
+  protected synchronized IndexIterator scanRange(final RangeToken tok) {
     final double min = tok.min;
     final double max = tok.max;
 
@@ -66,7 +82,8 @@ public final class UpdatableDiskValues extends DiskValues {
 
     final IntList pres = new IntList();
     for(int l = 0; l < size; ++l) {
-      final int ds = idxl.readNum(idxr.read5(l * 5L));
+      idxl.cursor(idxr.read5(l * 5L));
+      final int ds = idxl.readNum();
       int id = idxl.readNum();
       final int pre = data.pre(id);
       final double v = data.textDbl(pre, text);
@@ -87,6 +104,11 @@ public final class UpdatableDiskValues extends DiskValues {
     return iter(pres.sort());
   }
 
+  @Override
+  protected int pre(final int id) {
+    return data.pre(id);
+  }
+
   @Override
   protected int firstpre(final long pos) {
     return data.pre(super.firstpre(pos));
@@ -119,25 +141,26 @@ public final class UpdatableDiskValues extends DiskValues {
     }
 
     // insert new keys, starting from the biggest one
-    for(int j = nkeys.size() - 1, i = last, pos = size + j; j >= 0; --j) {
+    final int ns = nkeys.size();
+    final int[] nix = new int[ns];
+    for(int j = ns - 1, i = last, pos = size + j; j >= 0; --j) {
       final byte[] key = nkeys.get(j);
+      nix[j] = pos;
 
       final int ins = -(1 + get(key, 0, i));
       if(ins < 0) throw new IllegalStateException("Key should not exist");
 
       // shift all bigger keys to the right
-      while(i >= ins) {
-        idxr.write5(pos * 5L, idxr.read5(i * 5L));
-        ctext.add(pos--, ctext.get(i--));
-      }
+      while(i >= ins) idxr.write5(pos-- * 5L, idxr.read5(i-- * 5L));
 
       // add the new key and its ids
-      idxr.write5(pos * 5L, idxl.appendNums(diffs(m.get(key))));
-      ctext.add(pos--, key);
+      idxr.write5(pos-- * 5L, idxl.appendNums(diffs(m.get(key))));
       // [DP] should the entry be added to the cache?
     }
 
-    size += nkeys.size();
+    size += ns;
+    discardTexts();
+    if(numeric != null) numeric.insert(nix, numbers(nkeys));
   }
 
   /**
@@ -148,8 +171,8 @@ public final class UpdatableDiskValues extends DiskValues {
    * smallest id and all others are only difference to the previous one
    */
   private void appendIds(final int ix, final byte[] key, final int[] nids) {
-    final long oldpos = idxr.read5(ix * 5L);
-    final int numold = idxl.readNum(oldpos);
+    idxl.cursor(idxr.read5(ix * 5L));
+    final int numold = idxl.readNum();
     final int[] ids = new int[numold + nids.length];
 
     // read the old ids
@@ -198,7 +221,8 @@ public final class UpdatableDiskValues extends DiskValues {
    */
   private int deleteIds(final int ix, final byte[] key, final int[] ids) {
     final long pos = idxr.read5(ix * 5L);
-    final int numold = idxl.readNum(pos);
+    idxl.cursor(pos);
+    final int numold = idxl.readNum();
 
     if(numold == ids.length) {
       // all ids should be deteted: the key itself will be deleted, too
@@ -237,13 +261,12 @@ public final class UpdatableDiskValues extends DiskValues {
     int j = 0;
     for(int pos = keys[j++], i = pos + 1; i < size; ++i) {
       if(j < keys.length && i == keys[j]) ++j;
-      else {
-        idxr.write5(pos * 5L, idxr.read5(i * 5L));
-        ctext.add(pos++, ctext.get(i));
-      }
+      else idxr.write5(pos++ * 5L, idxr.read5(i * 5L));
     }
     // reduce the size of the index
     size -= j;
+    discardTexts();
+    if(numeric != null) numeric.delete(keys);
   }
 
   @Override
@@ -280,14 +303,16 @@ public final class UpdatableDiskValues extends DiskValues {
 
       // add the key and the id
       idxr.write5(ix * 5L, idxl.appendNums(new int[] { id}));
-      ctext.add(ix, key);
       // [DP] should the entry be added to the cache?
 
       ++size;
+      discardTexts();
+      if(numeric != null)
+        numeric.insert(new int[] { ix}, new double[] { toDouble(key)});
     } else {
       // add id to the list of ids in the index node
-      final long pos = idxr.read5(ix * 5L);
-      final int num = idxl.readNum(pos);
+      idxl.cursor(idxr.read5(ix * 5L));
+      final int num = idxl.readNum();
 
       final int[] ids = new int[num + 1];
       boolean notadded = true;
@@ -320,6 +345,18 @@ public final class UpdatableDiskValues extends DiskValues {
     }
   }
 
+  /**
+   * Returns the numeric values of the specified keys.
+   * @param keys keys
+   * @return numeric values ({@code NaN} for non-numeric keys)
+   */
+  private static double[] numbers(final TokenList keys) {
+    final int ks = keys.size();
+    final double[] nv = new double[ks];
+    for(int k = 0; k < ks; ++k) nv[k] = toDouble(keys.get(k));
+    return nv;
+  }
+
   /**
    * Sort and calculate the differences between a list of ids.
    * @param ids id list
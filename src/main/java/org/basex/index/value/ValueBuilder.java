@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 import java.io.IOException;
+import java.util.Arrays;
 import org.basex.data.Data;
 import org.basex.index.IndexBuilder;
 import org.basex.index.IndexTree;
@@ -29,6 +30,9 @@ import org.basex.util.list.IntList;
  *   structure. Instead, they can be found by following the id references to
  *   the main table.
  * </li>
+ * <li> {@code DATATXT/ATV + 'n'}: contains the numeric values of all keys
+ *   that can be converted to numbers, and references to the keys. The
+ *   structure is described in the {@link NumericValues} class.</li>
  * </ul>
  *
  * @author BaseX Team 2005-12, BSD License
@@ -39,6 +43,12 @@ public final class ValueBuilder extends IndexBuilder {
   private IndexTree index = new IndexTree();
   /** Index type (attributes/texts). */
   private final boolean text;
+  /** Indexes of all numeric keys. */
+  private final IntList nkeys = new IntList();
+  /** Numeric values of all numeric keys. */
+  private double[] nvalues = new double[IntList.CAP];
+  /** Number of written keys. */
+  private int keys;
 
   /**
    * Constructor.
@@ -85,6 +95,8 @@ public final class ValueBuilder extends IndexBuilder {
     } else {
       write(f, true);
     }
+    NumericValues.write(data.meta.dbfile(f + 'n'), nvalues, nkeys);
+    nvalues = null;
 
     if(text) data.meta.textindex = true;
     else data.meta.attrindex = true;
@@ -142,6 +154,7 @@ public final class ValueBuilder extends IndexBuilder {
           v = Num.get(t.values, l);
           il.add(v);
         }
+        if(m == 0) numeric(t.key);
         t.next();
       }
       // write final structure to disk
@@ -174,10 +187,12 @@ public final class ValueBuilder extends IndexBuilder {
     final IntList il = new IntList();
     index.init();
     while(index.more()) {
-      final byte[] values = index.values.get(index.next());
+      final int id = index.next();
+      final byte[] values = index.values.get(id);
       final int vs = Num.size(values);
 
       if(all) {
+        numeric(index.keys.get(id));
         // cache and sort all values
         for(int ip = 4; ip < vs; ip += Num.length(values, ip)) {
           il.add(Num.get(values, ip));
@@ -202,6 +217,21 @@ public final class ValueBuilder extends IndexBuilder {
     }
   }
 
+  /**
+   * Caches the numeric value of the key that will be written next.
+   * @param key key
+   */
+  private void numeric(final byte[] key) {
+    final double v = toDouble(key);
+    if(!Double.isNaN(v)) {
+      final int s = nkeys.size();
+      if(s == nvalues.length) nvalues = Arrays.copyOf(nvalues, s << 1);
+      nvalues[s] = v;
+      nkeys.add(keys);
+    }
+    ++keys;
+  }
+
   /**
    * Writes the final value structure to disk.
    * @param outL index values
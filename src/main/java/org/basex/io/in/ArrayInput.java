@@ -29,4 +29,12 @@ public final class ArrayInput extends BufferInput {
   public int read() {
     return bpos < bsize ? buffer[bpos++] & 0xFF : -1;
   }
+
+  /**
+   * Checks if more bytes can be read.
+   * @return result of check
+   */
+  public boolean more() {
+    return bpos < bsize;
+  }
 }
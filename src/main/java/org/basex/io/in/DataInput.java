@@ -1,5 +1,6 @@
 package org.basex.io.in;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 
@@ -25,6 +26,14 @@ public final class DataInput extends BufferInput {
     super(file);
   }
 
+  /**
+   * Constructor, specifying the byte array to be read.
+   * @param input input bytes
+   */
+  public DataInput(final byte[] input) {
+    super(new ByteArrayInputStream(input));
+  }
+
   /**
    * Reads a boolean value.
    * @return boolean value
@@ -139,7 +148,7 @@ public final class DataInput extends BufferInput {
    * @return read value
    * @throws IOException I/O Exception
    */
-  long read8() throws IOException {
+  public long read8() throws IOException {
     return ((long) read() << 56) + ((long) (read() & 255) << 48)
         + ((long) (read() & 255) << 40) + ((long) (read() & 255) << 32)
         + ((long) (read() & 255) << 24) + ((read() & 255) << 16)
@@ -0,0 +1,142 @@
+package org.basex.io.random;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.basex.io.IO;
+import org.basex.util.Util;
+
+/**
+ * This class provides a snapshot of a file for a single thread.
+ * Blocks are cached in thread-local buffers; they are retrieved from the
+ * {@link BufferPool} or read from disk via positional reads, which do not
+ * change the file pointer of the shared file handle. If the snapshot is
+ * pinned to a committed {@link Version}, blocks are retrieved via the
+ * {@link Versions} of the file.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class BlockSnapshot extends Snapshot {
+  /** Buffer manager. */
+  private final Buffers bm = new Buffers();
+  /** File channel. */
+  private final FileChannel channel;
+  /** File id in the buffer pool. */
+  private final int id;
+  /** Versions of the file ({@code null} if the snapshot is not pinned). */
+  private final Versions versions;
+  /** Pinned version ({@code null} if the snapshot is not pinned). */
+  private final Version pinned;
+  /** Version of the snapshot. */
+  int version = -1;
+
+  /**
+   * Constructor.
+   * @param file file to be read
+   * @param i file id in the buffer pool
+   */
+  BlockSnapshot(final RandomAccessFile file, final int i) {
+    channel = file.getChannel();
+    id = i;
+    versions = null;
+    pinned = null;
+  }
+
+  /**
+   * Constructor for a snapshot that is pinned to the specified version.
+   * @param vs versions of the file
+   * @param v version
+   */
+  BlockSnapshot(final Versions vs, final Version v) {
+    channel = null;
+    id = -1;
+    versions = vs;
+    pinned = v;
+    length = v.length;
+  }
+
+  /**
+   * Invalidates all buffers and assigns a new version.
+   * @param v version
+   * @param l number of accessible bytes
+   */
+  void reset(final int v, final long l) {
+    for(final Buffer b : bm.all()) b.pos = -1;
+    version = v;
+    length = l;
+  }
+
+  @Override
+  int read1(final long p) {
+    return block(p)[(int) (p & IO.BLOCKSIZE - 1)] & 0xFF;
+  }
+
+  @Override
+  int read2(final long p) {
+    final int o = (int) (p & IO.BLOCKSIZE - 1);
+    if(o + 2 > IO.BLOCKSIZE) return super.read2(p);
+    final byte[] b = block(p);
+    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  }
+
+  @Override
+  int read4(final long p) {
+    final int o = (int) (p & IO.BLOCKSIZE - 1);
+    if(o + 4 > IO.BLOCKSIZE) return super.read4(p);
+    final byte[] b = block(p);
+    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  }
+
+  @Override
+  long read5(final long p) {
+    final int o = (int) (p & IO.BLOCKSIZE - 1);
+    if(o + 5 > IO.BLOCKSIZE) return super.read5(p);
+    final byte[] b = block(p);
+    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  }
+
+  @Override
+  byte[] readBytes(final long p, final int l) {
+    final byte[] b = new byte[l];
+    for(int i = 0; i < l;) {
+      final long q = p + i;
+      final int o = (int) (q & IO.BLOCKSIZE - 1);
+      final int n = Math.min(l - i, IO.BLOCKSIZE - o);
+      System.arraycopy(block(q), o, b, i, n);
+      i += n;
+    }
+    return b;
+  }
+
+  /**
+   * Returns the data of the block containing the specified position.
+   * @param p position
+   * @return block data
+   */
+  private byte[] block(final long p) {
+    final long b = p / IO.BLOCKSIZE;
+    if(bm.cursor(b)) {
+      final Buffer bf = bm.current();
+      bf.pos = b;
+      if(pinned != null) {
+        final byte[] d = versions.read(pinned, b, bf.data);
+        if(d != bf.data) System.arraycopy(d, 0, bf.data, 0, d.length);
+      } else if(!BufferPool.POOL.read(id, b, bf.data)) {
+        try {
+          final ByteBuffer bb = ByteBuffer.wrap(bf.data);
+          final long s = b * IO.BLOCKSIZE;
+          while(bb.hasRemaining() && channel.read(bb, s + bb.position()) > 0);
+        } catch(final IOException ex) {
+          Util.stack(ex);
+        }
+        BufferPool.POOL.write(id, b, bf.data);
+      }
+    }
+    return bm.current().data;
+  }
+}
@@ -15,4 +15,6 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+  /** Reference flag, used by the clock algorithm. */
+  boolean used;
 }
@@ -0,0 +1,219 @@
+package org.basex.io.random;
+
+import static org.basex.core.Text.*;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.basex.io.IO;
+import org.basex.util.Util;
+
+/**
+ * This class organizes a pool of disk blocks, which is shared by all
+ * instances of {@link TableDiskAccess} and {@link DataAccess}.
+ * It serves as second cache level: blocks that are not found in the buffers
+ * of a single file will be looked up in the pool before they are read from
+ * disk. The pool contains clean copies of the blocks on disk, so it can
+ * evict its least recently used blocks without writing them back.
+ *
+ * <p>The small {@link Buffers} ring of each file is kept as first level:
+ * its buffers are accessed without any synchronization, and the cursors of
+ * the file classes operate directly on their contents. Blocks are copied
+ * from and to the pool, as the buffers of the ring are modified in place,
+ * whereas the pool must only contain clean blocks.</p>
+ *
+ * <p>To reduce the contention of concurrent readers, the pool is split into
+ * {@link #SEGMENTS} segments. Each segment has its own lock and replacement
+ * order, and each block is assigned to a segment by the hash of its file
+ * id and block number.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPool {
+  /** Global pool instance. */
+  static final BufferPool POOL = new BufferPool();
+  /** Number of bits used to address a segment. */
+  private static final int BITS = 4;
+  /** Number of segments. */
+  private static final int SEGMENTS = 1 << BITS;
+
+  /** Segments. */
+  private final Segment[] segments = new Segment[SEGMENTS];
+  /** Maximum number of blocks. */
+  private volatile int capacity;
+  /** Number of registered files. */
+  private int files;
+  /** Indicates if a budget has been assigned. */
+  private boolean assigned;
+
+  /** Private constructor. */
+  private BufferPool() {
+    for(int s = 0; s < SEGMENTS; ++s) segments[s] = new Segment();
+  }
+
+  /**
+   * Assigns a memory budget to the pool. As the pool is shared by all
+   * database contexts, the budget is only assigned once; later calls will
+   * be ignored.
+   * @param mb budget in megabytes; the pool is deactivated if set to 0
+   */
+  public static void budget(final int mb) {
+    POOL.resize((int) Math.min(Integer.MAX_VALUE,
+        Math.max(0, (long) mb << 20) / IO.BLOCKSIZE));
+  }
+
+  /**
+   * Returns the statistics of the pool.
+   * @return info string
+   */
+  public static String info() {
+    return POOL.stats();
+  }
+
+  /**
+   * Registers a file and returns its id.
+   * @return file id
+   */
+  synchronized int register() {
+    return files++;
+  }
+
+  /**
+   * Removes all blocks of the specified file.
+   * @param id file id
+   */
+  void release(final int id) {
+    for(final Segment s : segments) {
+      synchronized(s) {
+        final Iterator<Long> it = s.keySet().iterator();
+        while(it.hasNext()) if((int) (it.next() >>> 40) == id) it.remove();
+      }
+    }
+  }
+
+  /**
+   * Copies the specified block to the given array if it is found in the pool.
+   * @param id file id
+   * @param b block number
+   * @param data target array
+   * @return true if the block was found
+   */
+  boolean read(final int id, final long b, final byte[] data) {
+    if(capacity == 0) return false;
+    final long k = key(id, b);
+    final Segment s = segment(k);
+    synchronized(s) {
+      final byte[] d = s.get(k);
+      if(d == null) {
+        ++s.misses;
+        return false;
+      }
+      ++s.hits;
+      System.arraycopy(d, 0, data, 0, IO.BLOCKSIZE);
+    }
+    return true;
+  }
+
+  /**
+   * Stores a copy of the specified block.
+   * @param id file id
+   * @param b block number
+   * @param data block data
+   */
+  void write(final int id, final long b, final byte[] data) {
+    if(capacity == 0) return;
+    final Long k = key(id, b);
+    final Segment s = segment(k);
+    synchronized(s) {
+      byte[] d = s.get(k);
+      if(d == null) {
+        d = new byte[IO.BLOCKSIZE];
+        s.put(k, d);
+      }
+      System.arraycopy(data, 0, d, 0, IO.BLOCKSIZE);
+    }
+  }
+
+  /**
+   * Changes the maximum number of blocks.
+   * @param c capacity
+   */
+  private synchronized void resize(final int c) {
+    if(assigned) return;
+    assigned = true;
+    capacity = c;
+    // the capacity is distributed among all segments
+    final int sc = (c + SEGMENTS - 1) / SEGMENTS;
+    for(final Segment s : segments) {
+      synchronized(s) {
+        s.capacity = sc;
+        final Iterator<Long> it = s.keySet().iterator();
+        for(int n = s.size(); n > sc; --n) {
+          it.next();
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the statistics of the pool.
+   * @return info string
+   */
+  private String stats() {
+    long size = 0, hits = 0, misses = 0;
+    for(final Segment s : segments) {
+      synchronized(s) {
+        size += s.size();
+        hits += s.hits;
+        misses += s.misses;
+      }
+    }
+    final long all = hits + misses;
+    return Util.info(BUFFER_POOL_X_X_X_X, size, capacity, hits, misses) +
+      (all == 0 ? "" : " (" + hits * 100 / all + "%)");
+  }
+
+  /**
+   * Returns the segment of the specified key.
+   * @param k key
+   * @return segment
+   */
+  private Segment segment(final long k) {
+    // spread the bits of the file id and the block number
+    final int h = (int) (k ^ k >>> 40) * 0x9E3779B9;
+    return segments[h >>> 32 - BITS];
+  }
+
+  /**
+   * Returns the key for the specified block.
+   * @param id file id
+   * @param b block number
+   * @return key
+   */
+  private static long key(final int id, final long b) {
+    return (long) id << 40 | b;
+  }
+
+  /** Segment of the pool; blocks are sorted by their last access. */
+  private static final class Segment extends LinkedHashMap<Long, byte[]> {
+    /** Maximum number of blocks. */
+    int capacity;
+    /** Number of cache hits. */
+    long hits;
+    /** Number of cache misses. */
+    long misses;
+
+    /** Constructor. */
+    Segment() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Long, byte[]> e) {
+      return size() > capacity;
+    }
+  }
+}
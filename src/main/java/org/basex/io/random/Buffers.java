@@ -2,6 +2,9 @@ package org.basex.io.random;
 
 /**
  * This class provides a simple, clock-based buffer management.
+ * Buffers that have been accessed since the last sweep of the clock hand
+ * will be skipped once before they are replaced. Blocks that are replaced
+ * may be retrieved from the global {@link BufferPool}.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -13,6 +16,8 @@ final class Buffers {
   private final Buffer[] buf = new Buffer[BUFFERS];
   /** Current buffer offset. */
   private int off;
+  /** Clock hand, pointing to the next replacement candidate. */
+  private int hand;
 
   /**
    * Constructor.
@@ -45,9 +50,19 @@ final class Buffers {
   boolean cursor(final long p) {
     final int o = off;
     do {
-      if(buf[off].pos == p) return false;
+      if(buf[off].pos == p) {
+        buf[off].used = true;
+        return false;
+      }
     } while((off = off + 1 & BUFFERS - 1) != o);
-    off = o + 1 & BUFFERS - 1;
+
+    while(buf[hand].used || hand == o) {
+      buf[hand].used = false;
+      hand = hand + 1 & BUFFERS - 1;
+    }
+    off = hand;
+    buf[off].used = true;
+    hand = hand + 1 & BUFFERS - 1;
     return true;
   }
 }
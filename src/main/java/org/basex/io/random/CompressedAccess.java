@@ -0,0 +1,321 @@
+package org.basex.io.random;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.basex.io.IOFile;
+import org.basex.util.BlockCompress;
+import org.basex.util.Num;
+import org.basex.util.Util;
+
+/**
+ * This class provides read-only access to a block-compressed database file.
+ * The file is divided into logical blocks of {@link #BLOCK} bytes, which are
+ * compressed with the {@link BlockCompress} codec. The file has the following
+ * structure:
+ * <ul>
+ * <li>4 bytes: size of a logical block</li>
+ * <li>5 bytes: length of the uncompressed file</li>
+ * <li>5 bytes per block, plus 5 bytes: file offsets of all blocks and
+ *   the end of the file</li>
+ * <li>the compressed blocks. If compression does not reduce the size of a
+ *   block, it will be stored uncompressed.</li>
+ * </ul>
+ *
+ * Read operations are thread-safe. A small number of decompressed blocks is
+ * cached, so that subsequent accesses to the same block will not be decoded
+ * again.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedAccess {
+  /** Size of a logical block. */
+  private static final int BLOCK = 1 << 14;
+  /** Number of cached blocks (must be a power of two). */
+  private static final int CACHE = 1 << 4;
+  /** Length of the file header. */
+  private static final int HEADER = 9;
+  /** Suffix of temporary files. */
+  private static final String TMP = ".tmp";
+
+  /** Reference to the file. */
+  private final RandomAccessFile file;
+  /** File channel for positional read operations. */
+  private final FileChannel channel;
+  /** Size of a logical block. */
+  private final int block;
+  /** Length of the uncompressed file. */
+  private final long len;
+  /** File offsets of all blocks. */
+  private final long[] offs;
+  /** Numbers of the cached blocks. */
+  private final int[] cached = new int[CACHE];
+  /** Cached blocks. */
+  private final byte[][] blocks = new byte[CACHE][];
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param f the file to be read
+   * @throws IOException I/O Exception
+   */
+  public CompressedAccess(final IOFile f) throws IOException {
+    file = new RandomAccessFile(f.file(), "r");
+    channel = file.getChannel();
+    final byte[] h = new byte[HEADER];
+    read(h, 0, h.length);
+    block = get4(h, 0);
+    len = get5(h, 4);
+    final int n = blocks(len, block);
+    final byte[] d = new byte[(n + 1) * 5];
+    read(d, HEADER, d.length);
+    offs = new long[n + 1];
+    for(int b = 0; b <= n; ++b) offs[b] = get5(d, b * 5);
+    for(int c = 0; c < CACHE; ++c) cached[c] = -1;
+  }
+
+  /**
+   * Compresses the specified file. The original file will be replaced.
+   * @param f file to be compressed
+   * @throws IOException I/O Exception
+   */
+  public static void compress(final IOFile f) throws IOException {
+    final IOFile tmp = new IOFile(f.path() + TMP);
+    final RandomAccessFile in = new RandomAccessFile(f.file(), "r");
+    final RandomAccessFile out = new RandomAccessFile(tmp.file(), "rw");
+    try {
+      final long l = in.length();
+      final int n = blocks(l, BLOCK);
+      final byte[] d = new byte[(n + 1) * 5];
+      long o = HEADER + d.length;
+      out.seek(o);
+
+      final byte[] buf = new byte[BLOCK];
+      for(int b = 0; b < n; ++b) {
+        set5(d, b * 5, o);
+        final int bl = (int) Math.min(BLOCK, l - (long) b * BLOCK);
+        in.readFully(buf, 0, bl);
+        final byte[] c = BlockCompress.pack(buf, bl);
+        if(c.length < bl) {
+          out.write(c);
+          o += c.length;
+        } else {
+          out.write(buf, 0, bl);
+          o += bl;
+        }
+      }
+      set5(d, n * 5, o);
+
+      final byte[] h = new byte[HEADER];
+      set4(h, 0, BLOCK);
+      set5(h, 4, l);
+      out.seek(0);
+      out.write(h);
+      out.write(d);
+    } finally {
+      in.close();
+      out.close();
+    }
+    replace(tmp, f);
+  }
+
+  /**
+   * Decompresses the specified file. The original file will be replaced.
+   * @param f file to be decompressed
+   * @throws IOException I/O Exception
+   */
+  public static void decompress(final IOFile f) throws IOException {
+    final IOFile tmp = new IOFile(f.path() + TMP);
+    final CompressedAccess in = new CompressedAccess(f);
+    final RandomAccessFile out = new RandomAccessFile(tmp.file(), "rw");
+    try {
+      final int n = in.offs.length - 1;
+      final byte[] buf = new byte[in.block];
+      for(int b = 0; b < n; ++b) out.write(buf, 0, in.decode(b, buf));
+    } finally {
+      in.close();
+      out.close();
+    }
+    replace(tmp, f);
+  }
+
+  /**
+   * Closes the file.
+   * @throws IOException I/O exception
+   */
+  public void close() throws IOException {
+    file.close();
+  }
+
+  /**
+   * Returns the length of the uncompressed file.
+   * @return file length
+   */
+  public long length() {
+    return len;
+  }
+
+  /**
+   * Reads a {@link Num} value.
+   * @param p position
+   * @return read num
+   */
+  public int readNum(final long p) {
+    return Num.get(readBytes(p, Math.min(5, (int) (len - p))), 0);
+  }
+
+  /**
+   * Reads a token.
+   * @param p position
+   * @return text as byte array
+   */
+  public byte[] readToken(final long p) {
+    final byte[] n = readBytes(p, Math.min(5, (int) (len - p)));
+    return readBytes(p + Num.length(n, 0), Num.get(n, 0));
+  }
+
+  /**
+   * Reads a number of bytes from the specified offset.
+   * @param p position
+   * @param l length
+   * @return byte array
+   */
+  public byte[] readBytes(final long p, final int l) {
+    final byte[] b = new byte[l];
+    long o = p;
+    for(int c = 0; c < l;) {
+      final int bl = (int) (o / block), bo = (int) (o % block);
+      final int n = Math.min(l - c, block - bo);
+      System.arraycopy(block(bl), bo, b, c, n);
+      c += n;
+      o += n;
+    }
+    return b;
+  }
+
+  /**
+   * Returns the specified decompressed block.
+   * @param b block number
+   * @return block
+   */
+  private synchronized byte[] block(final int b) {
+    final int c = b & CACHE - 1;
+    if(cached[c] != b) {
+      // create new array, as the old one may still be referenced
+      final byte[] buf = new byte[block];
+      decode(b, buf);
+      blocks[c] = buf;
+      cached[c] = b;
+    }
+    return blocks[c];
+  }
+
+  /**
+   * Reads and decompresses the specified block.
+   * @param b block number
+   * @param buf target buffer
+   * @return length of the block
+   */
+  private int decode(final int b, final byte[] buf) {
+    final int bl = (int) Math.min(block, len - (long) b * block);
+    final int cl = (int) (offs[b + 1] - offs[b]);
+    try {
+      if(cl == bl) {
+        // uncompressed block
+        read(buf, offs[b], bl);
+        return bl;
+      }
+      final byte[] c = new byte[cl];
+      read(c, offs[b], cl);
+      return BlockCompress.unpack(c, 0, cl, buf);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+      return bl;
+    }
+  }
+
+  /**
+   * Reads bytes from the specified file position.
+   * @param b target array
+   * @param p file position
+   * @param l number of bytes
+   * @throws IOException I/O exception
+   */
+  private void read(final byte[] b, final long p, final int l)
+      throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(b, 0, l);
+    while(bb.hasRemaining()) {
+      if(channel.read(bb, p + bb.position()) == -1)
+        throw new IOException("Unexpected end of file: " + p);
+    }
+  }
+
+  /**
+   * Replaces a file with a temporary file.
+   * @param tmp temporary file
+   * @param f file to be replaced
+   * @throws IOException I/O exception
+   */
+  private static void replace(final IOFile tmp, final IOFile f)
+      throws IOException {
+    if(!f.delete() || !tmp.rename(f))
+      throw new IOException("Could not replace " + f);
+  }
+
+  /**
+   * Returns the number of blocks.
+   * @param l file length
+   * @param bs block size
+   * @return number of blocks
+   */
+  private static int blocks(final long l, final int bs) {
+    return (int) ((l + bs - 1) / bs);
+  }
+
+  /**
+   * Returns a 4-byte value from the specified array.
+   * @param b array
+   * @param p position
+   * @return value
+   */
+  private static int get4(final byte[] b, final int p) {
+    return (b[p] & 0xFF) << 24 | (b[p + 1] & 0xFF) << 16 |
+      (b[p + 2] & 0xFF) << 8 | b[p + 3] & 0xFF;
+  }
+
+  /**
+   * Returns a 5-byte value from the specified array.
+   * @param b array
+   * @param p position
+   * @return value
+   */
+  private static long get5(final byte[] b, final int p) {
+    return (long) (b[p] & 0xFF) << 32 | get4(b, p + 1) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Writes a 4-byte value to the specified array.
+   * @param b array
+   * @param p position
+   * @param v value
+   */
+  private static void set4(final byte[] b, final int p, final int v) {
+    b[p] = (byte) (v >>> 24);
+    b[p + 1] = (byte) (v >>> 16);
+    b[p + 2] = (byte) (v >>> 8);
+    b[p + 3] = (byte) v;
+  }
+
+  /**
+   * Writes a 5-byte value to the specified array.
+   * @param b array
+   * @param p position
+   * @param v value
+   */
+  private static void set5(final byte[] b, final int p, final long v) {
+    b[p] = (byte) (v >>> 32);
+    set4(b, p + 1, (int) v);
+  }
+}
@@ -10,6 +10,15 @@ import org.basex.util.Util;
 
 /**
  * This class allows positional read and write access to a database file.
+ * As long as all modifications have been flushed, positional read operations
+ * will be performed on a {@link Snapshot} of the file, bypassing the buffers
+ * and the monitor of this instance. If memory mapping is enabled, the
+ * snapshot is a {@link Mapping} of the file. The cursor position is undefined
+ * after positional read operations; sequential read operations must be
+ * preceded by a call to {@link #cursor(long)}.
+ *
+ * If versioning is enabled, a read-only instance that is pinned to the last
+ * committed version of the file can be requested via {@link #version()}.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -25,6 +34,18 @@ public final class DataAccess {
   private boolean changed;
   /** Offset. */
   private int off;
+  /** File id in the buffer pool. */
+  private final int id;
+  /** Snapshots for concurrent read operations. */
+  private final Snapshots snaps;
+  /** Write-ahead log ({@code null} if disabled). */
+  private final WriteAheadLog wal;
+  /** File id in the write-ahead log. */
+  private final int target;
+  /** Committed versions of the file ({@code null} if disabled). */
+  private final Versions versions;
+  /** Pinned version ({@code null} if this instance accesses the file). */
+  private final Version pinned;
 
   /**
    * Constructor, initializing the file reader.
@@ -32,21 +53,95 @@ public final class DataAccess {
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile f) throws IOException {
+    this(f, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param f the file to be read
+   * @param mm map file into memory
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile f, final boolean mm) throws IOException {
+    this(f, mm, null);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param f the file to be read
+   * @param mm map file into memory
+   * @param log write-ahead log ({@code null} if disabled)
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile f, final boolean mm, final WriteAheadLog log)
+      throws IOException {
+    this(f, mm, log, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param f the file to be read
+   * @param mm map file into memory
+   * @param log write-ahead log ({@code null} if disabled)
+   * @param vs maintain committed versions of the file
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile f, final boolean mm, final WriteAheadLog log,
+      final boolean vs) throws IOException {
     file = new RandomAccessFile(f.file(), "rw");
     len = file.length();
+    id = BufferPool.POOL.register();
+    snaps = new Snapshots(file, id, mm);
+    wal = log;
+    target = log != null ? log.register(f, file, snaps) : -1;
+    versions = vs ? new Versions(file, id, wal, target) : null;
+    if(vs) versions.publish(len, null, null, 0);
+    pinned = null;
     cursor(0);
   }
 
+  /**
+   * Constructor for a read-only instance, which is pinned to the last
+   * committed version of the specified file access.
+   * @param da file access
+   */
+  private DataAccess(final DataAccess da) {
+    file = da.file;
+    id = da.id;
+    wal = null;
+    target = -1;
+    versions = da.versions;
+    pinned = versions.current();
+    snaps = new Snapshots(versions, pinned);
+    len = pinned.length;
+    cursor(0);
+  }
+
+  /**
+   * Returns a read-only instance of the last committed version of the file,
+   * which is not affected by subsequent modifications.
+   * @return file access, or this instance if versioning is disabled
+   */
+  public DataAccess version() {
+    return versions != null ? new DataAccess(this) : this;
+  }
+
   /**
    * Flushes the buffered data.
    * @throws IOException I/O exception
    */
   public synchronized void flush() throws IOException {
+    if(pinned != null) return;
     for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
     if(changed) {
-      file.setLength(len);
+      if(versions != null) versions.truncate(len);
+      if(wal != null) wal.length(target, len);
+      else file.setLength(len);
       changed = false;
     }
+    // with a write-ahead log, snapshots are enabled by the next checkpoint
+    if(wal == null) snaps.flush();
+    if(versions != null) versions.publish(len, null, null, 0);
   }
 
   /**
@@ -54,7 +149,11 @@ public final class DataAccess {
    * @throws IOException I/O exception
    */
   public synchronized void close() throws IOException {
+    if(pinned != null) return;
     flush();
+    if(wal != null) wal.unregister(target);
+    snaps.close();
+    BufferPool.POOL.release(id);
     file.close();
   }
 
@@ -71,6 +170,7 @@ public final class DataAccess {
    * @param l file length
    */
   synchronized void length(final long l) {
+    snaps.modify();
     changed |= l != len;
     len = l;
   }
@@ -96,9 +196,13 @@ public final class DataAccess {
    * @param p position
    * @return integer value
    */
-  public synchronized byte read1(final long p) {
-    cursor(p);
-    return read1();
+  public byte read1(final long p) {
+    final Snapshot m = snaps.get(len);
+    if(m != null && m.covers(p, 1)) return (byte) m.read1(p);
+    synchronized(this) {
+      cursor(p);
+      return read1();
+    }
   }
 
   /**
@@ -114,9 +218,13 @@ public final class DataAccess {
    * @param p position
    * @return integer value
    */
-  public synchronized int read4(final long p) {
-    cursor(p);
-    return read4();
+  public int read4(final long p) {
+    final Snapshot m = snaps.get(len);
+    if(m != null && m.covers(p, 4)) return m.read4(p);
+    synchronized(this) {
+      cursor(p);
+      return read4();
+    }
   }
 
   /**
@@ -132,9 +240,13 @@ public final class DataAccess {
    * @param p position
    * @return long value
    */
-  public synchronized long read5(final long p) {
-    cursor(p);
-    return read5();
+  public long read5(final long p) {
+    final Snapshot m = snaps.get(len);
+    if(m != null && m.covers(p, 5)) return m.read5(p);
+    synchronized(this) {
+      cursor(p);
+      return read5();
+    }
   }
 
   /**
@@ -151,9 +263,13 @@ public final class DataAccess {
    * @param p text position
    * @return read num
    */
-  public synchronized int readNum(final long p) {
-    cursor(p);
-    return readNum();
+  public int readNum(final long p) {
+    final Snapshot m = snaps.get(len);
+    if(m != null && m.covers(p, 5)) return readNum(m, p);
+    synchronized(this) {
+      cursor(p);
+      return readNum();
+    }
   }
 
   /**
@@ -161,9 +277,17 @@ public final class DataAccess {
    * @param p text position
    * @return text as byte array
    */
-  public synchronized byte[] readToken(final long p) {
-    cursor(p);
-    return readToken();
+  public byte[] readToken(final long p) {
+    final Snapshot m = snaps.get(len);
+    if(m != null && m.covers(p, 5)) {
+      final int l = readNum(m, p);
+      final long o = p + numLength(m.read1(p));
+      if(m.covers(o, l)) return m.readBytes(o, l);
+    }
+    synchronized(this) {
+      cursor(p);
+      return readToken();
+    }
   }
 
   /**
@@ -181,9 +305,13 @@ public final class DataAccess {
    * @param l length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final long p, final int l) {
-    cursor(p);
-    return readBytes(l);
+  public byte[] readBytes(final long p, final int l) {
+    final Snapshot m = snaps.get(len);
+    if(m != null && m.covers(p, l)) return m.readBytes(p, l);
+    synchronized(this) {
+      cursor(p);
+      return readBytes(l);
+    }
   }
 
   /**
@@ -223,9 +351,19 @@ public final class DataAccess {
     try {
       if(bf.dirty) writeBlock(bf);
       bf.pos = b;
-      file.seek(bf.pos);
-      if(bf.pos < file.length())
-        file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
+      final long bn = b / IO.BLOCKSIZE;
+      if(pinned != null) {
+        final byte[] d = versions.read(pinned, bn, bf.data);
+        if(d != bf.data) System.arraycopy(d, 0, bf.data, 0, d.length);
+        return;
+      }
+      final boolean logged = wal != null && wal.read(target, b, bf.data);
+      if(!logged && b < file.length() &&
+          !BufferPool.POOL.read(id, bn, bf.data)) {
+        file.seek(b);
+        file.readFully(bf.data, 0, (int) Math.min(len - b, IO.BLOCKSIZE));
+        BufferPool.POOL.write(id, bn, bf.data);
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -333,6 +471,7 @@ public final class DataAccess {
    * @param length token length
    */
   public void writeToken(final byte[] buf, final int offset, final int length) {
+    snaps.modify();
     writeNum(length);
 
     final int last = offset + length;
@@ -379,7 +518,8 @@ public final class DataAccess {
    */
   public long free(final long pos, final int size) {
     // old text size (available space)
-    int os = readNum(pos) + (int) (cursor() - pos);
+    cursor(pos);
+    int os = readNum() + (int) (cursor() - pos);
 
     // extend available space by subsequent zero-bytes
     cursor(pos + os);
@@ -410,15 +550,61 @@ public final class DataAccess {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Reads a compressed number from the specified mapping.
+   * @param m mapping
+   * @param p position
+   * @return number
+   */
+  private static int readNum(final Snapshot m, final long p) {
+    final int v = m.read1(p);
+    switch(v & 0xC0) {
+    case 0:
+      return v;
+    case 0x40:
+      return (v - 0x40 << 8) + m.read1(p + 1);
+    case 0x80:
+      return (v - 0x80 << 24) + (m.read1(p + 1) << 16) +
+        (m.read1(p + 2) << 8) + m.read1(p + 3);
+    default:
+      return m.read4(p + 1);
+    }
+  }
+
+  /**
+   * Returns the number of bytes occupied by a compressed number,
+   * starting with the specified byte.
+   * @param v first byte
+   * @return number of bytes
+   */
+  private static int numLength(final int v) {
+    switch(v & 0xC0) {
+    case 0:
+      return 1;
+    case 0x40:
+      return 2;
+    case 0x80:
+      return 4;
+    default:
+      return 5;
+    }
+  }
+
   /**
    * Writes the specified block to disk.
    * @param bf buffer to write
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos);
-    file.write(bf.data);
+    if(versions != null) versions.save(bf.pos / IO.BLOCKSIZE);
+    if(wal != null) {
+      wal.page(target, bf.pos, bf.data);
+    } else {
+      file.seek(bf.pos);
+      file.write(bf.data);
+    }
     bf.dirty = false;
+    BufferPool.POOL.write(id, bf.pos / IO.BLOCKSIZE, bf.data);
   }
 
   /**
@@ -435,6 +621,7 @@ public final class DataAccess {
    * @param b byte to be written
    */
   private void write(final int b) {
+    snaps.modify();
     final Buffer bf = buffer(off == IO.BLOCKSIZE);
     bf.dirty = true;
     bf.data[off++] = (byte) b;
@@ -0,0 +1,48 @@
+package org.basex.io.random;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * This class maps a file into memory. As a single mapping is limited to
+ * {@code 2^31} bytes, files are mapped in segments of a fixed size.
+ * All read operations are absolute and do not modify any state;
+ * they can thus be called by concurrent threads.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Mapping extends Snapshot {
+  /** Segment size, expressed as power of two. Segments are always
+   * multiples of the block size. */
+  private static final int SEGPOWER = 30;
+  /** Segment size. */
+  private static final int SEGSIZE = 1 << SEGPOWER;
+
+  /** Mapped segments. */
+  private final MappedByteBuffer[] segs;
+
+  /**
+   * Constructor, mapping the current contents of the specified file.
+   * @param file file to be mapped
+   * @throws IOException I/O exception
+   */
+  Mapping(final RandomAccessFile file) throws IOException {
+    final FileChannel fc = file.getChannel();
+    length = fc.size();
+    final int ns = (int) (length + SEGSIZE - 1 >>> SEGPOWER);
+    segs = new MappedByteBuffer[ns];
+    for(int s = 0; s < ns; ++s) {
+      final long p = (long) s << SEGPOWER;
+      segs[s] = fc.map(MapMode.READ_ONLY, p, Math.min(SEGSIZE, length - p));
+    }
+  }
+
+  @Override
+  int read1(final long p) {
+    return segs[(int) (p >>> SEGPOWER)].get((int) (p & SEGSIZE - 1)) & 0xFF;
+  }
+}
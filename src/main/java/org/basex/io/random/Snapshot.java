@@ -0,0 +1,75 @@
+package org.basex.io.random;
+
+/**
+ * This class provides read-only access to the flushed contents of a file.
+ * All read operations are absolute and do not modify the state of the
+ * underlying file access; instances can thus be used without
+ * synchronizing on the file access.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+abstract class Snapshot {
+  /** Number of accessible bytes. */
+  long length;
+  /** Index of the last accessed block, used as hint by the table access. */
+  int index;
+
+  /**
+   * Checks if the specified range is covered by the snapshot.
+   * @param p position
+   * @param l number of bytes
+   * @return result of check
+   */
+  final boolean covers(final long p, final int l) {
+    return p >= 0 && p + l <= length;
+  }
+
+  /**
+   * Reads a byte value from the specified position.
+   * @param p position
+   * @return integer value
+   */
+  abstract int read1(long p);
+
+  /**
+   * Reads a short value from the specified position.
+   * @param p position
+   * @return integer value
+   */
+  int read2(final long p) {
+    return (read1(p) << 8) + read1(p + 1);
+  }
+
+  /**
+   * Reads an integer value from the specified position.
+   * @param p position
+   * @return integer value
+   */
+  int read4(final long p) {
+    return (read1(p) << 24) + (read1(p + 1) << 16) + (read1(p + 2) << 8) +
+      read1(p + 3);
+  }
+
+  /**
+   * Reads a 5-byte value from the specified position.
+   * @param p position
+   * @return long value
+   */
+  long read5(final long p) {
+    return ((long) read1(p) << 32) + ((long) read1(p + 1) << 24) +
+      (read1(p + 2) << 16) + (read1(p + 3) << 8) + read1(p + 4);
+  }
+
+  /**
+   * Reads a number of bytes from the specified position.
+   * @param p position
+   * @param l number of bytes
+   * @return byte array
+   */
+  byte[] readBytes(final long p, final int l) {
+    final byte[] b = new byte[l];
+    for(int i = 0; i < l; ++i) b[i] = (byte) read1(p + i);
+    return b;
+  }
+}
@@ -0,0 +1,126 @@
+package org.basex.io.random;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * This class manages the snapshots of a file, which allow concurrent threads
+ * to read the file without synchronizing on the file access.
+ * Snapshots are only available as long as all modifications of the file
+ * have been flushed. If memory mapping is enabled, a single {@link Mapping}
+ * is shared by all threads. Otherwise, each thread is assigned a
+ * {@link BlockSnapshot}, which is invalidated as soon as the file is modified.
+ * Snapshots may also be pinned to a committed {@link Version} of a file;
+ * such snapshots remain valid while the file is modified.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Snapshots {
+  /** Thread-local snapshots. */
+  private final ThreadLocal<BlockSnapshot> local =
+    new ThreadLocal<BlockSnapshot>();
+  /** File. */
+  private final RandomAccessFile file;
+  /** File id in the buffer pool. */
+  private final int id;
+  /** Flag for mapping the file into memory. */
+  private final boolean mapped;
+  /** Versions of the file ({@code null} if snapshots are not pinned). */
+  private final Versions versions;
+  /** Pinned version ({@code null} if snapshots are not pinned). */
+  private final Version pinned;
+
+  /** Memory mapping ({@code null} if disabled or invalidated by writes). */
+  private volatile Mapping map;
+  /** Indicates if all modifications have been flushed. */
+  private volatile boolean clean = true;
+  /** Version, incremented whenever the file is modified. */
+  private volatile int version;
+
+  /**
+   * Constructor.
+   * @param f file
+   * @param i file id in the buffer pool
+   * @param mm map file into memory
+   * @throws IOException I/O exception
+   */
+  Snapshots(final RandomAccessFile f, final int i, final boolean mm)
+      throws IOException {
+    file = f;
+    id = i;
+    mapped = mm;
+    versions = null;
+    pinned = null;
+    if(mapped) map = new Mapping(file);
+  }
+
+  /**
+   * Constructor for snapshots that are pinned to the specified version.
+   * @param vs versions of the file
+   * @param v version
+   */
+  Snapshots(final Versions vs, final Version v) {
+    file = null;
+    id = -1;
+    mapped = false;
+    versions = vs;
+    pinned = v;
+  }
+
+  /**
+   * Returns a snapshot for the current thread.
+   * @param length number of accessible bytes
+   * @return snapshot, or {@code null} if the file has unflushed modifications
+   */
+  Snapshot get(final long length) {
+    if(pinned != null) {
+      BlockSnapshot s = local.get();
+      if(s == null) {
+        s = new BlockSnapshot(versions, pinned);
+        local.set(s);
+      }
+      return s;
+    }
+    final Mapping m = map;
+    if(m != null) return m;
+    if(!clean) return null;
+
+    BlockSnapshot s = local.get();
+    if(s == null) {
+      s = new BlockSnapshot(file, id);
+      local.set(s);
+    }
+    final int v = version;
+    if(s.version != v) s.reset(v, length);
+    return s;
+  }
+
+  /**
+   * Invalidates all snapshots. Called before the file is modified.
+   */
+  void modify() {
+    map = null;
+    if(clean) {
+      clean = false;
+      ++version;
+    }
+  }
+
+  /**
+   * Enables snapshots after all modifications have been flushed.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    if(mapped && map == null) map = new Mapping(file);
+    clean = true;
+  }
+
+  /**
+   * Disables all snapshots.
+   */
+  void close() {
+    map = null;
+    clean = false;
+  }
+}
@@ -7,6 +7,7 @@ import java.util.Arrays;
 import org.basex.data.MetaData;
 import org.basex.io.IO;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.ArrayOutput;
 import org.basex.io.out.DataOutput;
 import org.basex.util.Array;
 import org.basex.util.BitArray;
@@ -14,6 +15,12 @@ import org.basex.util.Util;
 
 /**
  * This class stores the table on disk and reads it block-wise.
+ * As long as all modifications have been flushed, read operations will be
+ * performed on a {@link Snapshot} of the table file, bypassing the buffers
+ * and the monitor of this instance. If {@link MetaData#mmap} is enabled,
+ * the snapshot is a {@link Mapping} of the file. If {@link MetaData#mvcc}
+ * is enabled, a read-only {@link TableSnapshot} of the last committed
+ * version can be requested via {@link #version()}.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -45,6 +52,16 @@ public final class TableDiskAccess extends TableAccess {
   private int blocks;
   /** Index of the current block number in the {@link #pages} array. */
   private int index = -1;
+  /** File id in the buffer pool. */
+  private final int id = BufferPool.POOL.register();
+  /** Snapshots for concurrent read operations. */
+  private final Snapshots snaps;
+  /** Write-ahead log ({@code null} if disabled). */
+  private final WriteAheadLog wal;
+  /** File id in the write-ahead log. */
+  private final int target;
+  /** Committed versions of the table ({@code null} if disabled). */
+  private final Versions versions;
 
   /**
    * Constructor.
@@ -54,9 +71,22 @@ public final class TableDiskAccess extends TableAccess {
    */
   public TableDiskAccess(final MetaData md, final String pf)
       throws IOException {
+    this(md, pf, null);
+  }
+
+  /**
+   * Constructor.
+   * @param md meta data
+   * @param pf file prefix
+   * @param log write-ahead log ({@code null} if disabled)
+   * @throws IOException I/O exception
+   */
+  public TableDiskAccess(final MetaData md, final String pf,
+      final WriteAheadLog log) throws IOException {
 
     super(md);
     pref = pf;
+    wal = log;
 
     // read meta and index data
     final DataInput in = new DataInput(meta.dbfile(pf + 'i'));
@@ -79,14 +109,32 @@ public final class TableDiskAccess extends TableAccess {
 
     // initialize data file
     file = new RandomAccessFile(meta.dbfile(pf).file(), "rw");
+    snaps = new Snapshots(file, id, meta.mmap);
+    target = wal != null ? wal.register(meta.dbfile(pf), file, snaps) : -1;
+    versions = meta.mvcc ? new Versions(file, id, wal, target) : null;
+    if(versions != null) publish();
     readIndex(0);
   }
 
+  /**
+   * Returns a read-only instance of the last committed version of the table,
+   * which is not affected by subsequent modifications.
+   * @return table access, or this instance if versioning is disabled
+   */
+  public TableAccess version() {
+    return versions != null ? new TableSnapshot(meta, versions) : this;
+  }
+
   @Override
   public synchronized void flush() throws IOException {
     for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
+    // with a write-ahead log, snapshots are enabled by the next checkpoint
+    if(wal == null) snaps.flush();
+    if(versions != null) publish();
     if(!dirty) return;
-    final DataOutput out = new DataOutput(meta.dbfile(pref + 'i'));
+    final ArrayOutput ao = new ArrayOutput();
+    final DataOutput out = wal != null ? new DataOutput(ao) :
+      new DataOutput(meta.dbfile(pref + 'i'));
     out.writeNum(allBlocks);
     out.writeNum(blocks);
 
@@ -101,47 +149,69 @@ public final class TableDiskAccess extends TableAccess {
 
     out.writeLongs(pagemap.toArray());
     out.close();
+    if(wal != null) wal.file(meta.dbfile(pref + 'i'), ao.toArray());
     dirty = false;
   }
 
   @Override
   public synchronized void close() throws IOException {
     flush();
+    if(wal != null) wal.unregister(target);
+    snaps.close();
+    BufferPool.POOL.release(id);
     file.close();
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    final Snapshot m = snapshot();
+    if(m != null) return m.read1(position(pre, m) + off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return b[o] & 0xFF;
+    }
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    final Snapshot m = snapshot();
+    if(m != null) return m.read2(position(pre, m) + off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    final Snapshot m = snapshot();
+    if(m != null) return m.read4(position(pre, m) + off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+        ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    final Snapshot m = snapshot();
+    if(m != null) return m.read5(position(pre, m) + off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+        ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) +
+        (b[o + 4] & 0xFF);
+    }
   }
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    snaps.modify();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -151,6 +221,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    snaps.modify();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -161,6 +232,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    snaps.modify();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -173,6 +245,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    snaps.modify();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -186,6 +259,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   protected void copy(final byte[] entries, final int pre, final int last) {
+    snaps.modify();
     for(int o = 0, i = pre; i < last; ++i, o += IO.NODESIZE) {
       final int off = cursor(i);
       final Buffer bf = bm.current();
@@ -197,6 +271,7 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public void delete(final int pre, final int nr) {
     if(nr == 0) return;
+    snaps.modify();
     dirty = true;
 
     // get first block
@@ -271,6 +346,7 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public void insert(final int pre, final byte[] entries) {
     if(entries.length == 0) return;
+    snaps.modify();
     dirty = true;
 
     // go to the block and find the offset within the block where the new
@@ -378,6 +454,38 @@ public final class TableDiskAccess extends TableAccess {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Returns a snapshot for the current thread.
+   * @return snapshot, or {@code null} if modifications have not been flushed
+   */
+  private Snapshot snapshot() {
+    return snaps.get((long) allBlocks * IO.BLOCKSIZE);
+  }
+
+  /**
+   * Returns the file position of the entry for the specified pre value.
+   * In contrast to {@link #cursor}, the block index is searched without
+   * changing the state of this instance. The index of the last accessed
+   * block is remembered by the snapshot.
+   * @param pre pre value
+   * @param s snapshot
+   * @return file position
+   */
+  private long position(final int pre, final Snapshot s) {
+    int l = s.index;
+    if(l >= blocks || fpres[l] > pre || l + 1 < blocks && fpres[l + 1] <= pre) {
+      l = 0;
+      int h = blocks - 1;
+      while(l < h) {
+        final int m = l + h + 1 >>> 1;
+        if(fpres[m] <= pre) l = m;
+        else h = m - 1;
+      }
+      s.index = l;
+    }
+    return (long) pages[l] * IO.BLOCKSIZE + (pre - fpres[l] << IO.NODEPOWER);
+  }
+
   /**
    * Searches for the block containing the entry for that pre. then it
    * reads the block and returns it's offset inside the block.
@@ -441,9 +549,11 @@ public final class TableDiskAccess extends TableAccess {
       bf.pos = b;
       if(b >= allBlocks) {
         allBlocks = b + 1;
-      } else {
+      } else if(!(wal != null && wal.read(target, (long) b * IO.BLOCKSIZE,
+          bf.data)) && !BufferPool.POOL.read(id, b, bf.data)) {
         file.seek(bf.pos * IO.BLOCKSIZE);
         file.readFully(bf.data);
+        BufferPool.POOL.write(id, b, bf.data);
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -467,9 +577,27 @@ public final class TableDiskAccess extends TableAccess {
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos * IO.BLOCKSIZE);
-    file.write(bf.data);
+    if(versions != null) versions.save(bf.pos);
+    if(wal != null) {
+      wal.page(target, bf.pos * IO.BLOCKSIZE, bf.data);
+    } else {
+      file.seek(bf.pos * IO.BLOCKSIZE);
+      file.write(bf.data);
+    }
     bf.dirty = false;
+    BufferPool.POOL.write(id, bf.pos, bf.data);
+  }
+
+  /**
+   * Publishes the current state of the table as new version.
+   * The block directory is only copied if it has been modified.
+   */
+  private void publish() {
+    final Version v = versions.current();
+    final boolean copy = dirty || v == null;
+    versions.publish((long) allBlocks * IO.BLOCKSIZE,
+        copy ? Arrays.copyOf(fpres, blocks) : v.fpres,
+        copy ? Arrays.copyOf(pages, blocks) : v.pages, blocks);
   }
 
   /**
@@ -0,0 +1,122 @@
+package org.basex.io.random;
+
+import org.basex.data.MetaData;
+import org.basex.io.IO;
+import org.basex.util.Util;
+
+/**
+ * This class provides read-only access to a committed version of the table.
+ * The block directory of the version is used to locate the entries, and
+ * the blocks are read via thread-local snapshots that are pinned to the
+ * version. Subsequent modifications of the table are not visible.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class TableSnapshot extends TableAccess {
+  /** Pinned version. */
+  private final Version version;
+  /** Snapshots, pinned to the version. */
+  private final Snapshots snaps;
+
+  /**
+   * Constructor.
+   * @param md meta data
+   * @param vs versions of the table file
+   */
+  TableSnapshot(final MetaData md, final Versions vs) {
+    super(md);
+    version = vs.current();
+    snaps = new Snapshots(vs, version);
+  }
+
+  @Override
+  public void flush() { }
+
+  @Override
+  public void close() { }
+
+  @Override
+  public int read1(final int pre, final int off) {
+    final Snapshot s = snaps.get(version.length);
+    return s.read1(position(pre, s) + off);
+  }
+
+  @Override
+  public int read2(final int pre, final int off) {
+    final Snapshot s = snaps.get(version.length);
+    return s.read2(position(pre, s) + off);
+  }
+
+  @Override
+  public int read4(final int pre, final int off) {
+    final Snapshot s = snaps.get(version.length);
+    return s.read4(position(pre, s) + off);
+  }
+
+  @Override
+  public long read5(final int pre, final int off) {
+    final Snapshot s = snaps.get(version.length);
+    return s.read5(position(pre, s) + off);
+  }
+
+  @Override
+  public void write1(final int pre, final int off, final int v) {
+    Util.notexpected();
+  }
+
+  @Override
+  public void write2(final int pre, final int off, final int v) {
+    Util.notexpected();
+  }
+
+  @Override
+  public void write4(final int pre, final int off, final int v) {
+    Util.notexpected();
+  }
+
+  @Override
+  public void write5(final int pre, final int off, final long v) {
+    Util.notexpected();
+  }
+
+  @Override
+  protected void copy(final byte[] entries, final int pre, final int last) {
+    Util.notexpected();
+  }
+
+  @Override
+  public void delete(final int pre, final int nr) {
+    Util.notexpected();
+  }
+
+  @Override
+  public void insert(final int pre, final byte[] entries) {
+    Util.notexpected();
+  }
+
+  /**
+   * Returns the file position of the entry for the specified pre value.
+   * The index of the last accessed block is remembered by the snapshot.
+   * @param pre pre value
+   * @param s snapshot
+   * @return file position
+   */
+  private long position(final int pre, final Snapshot s) {
+    final int[] fpres = version.fpres;
+    final int blocks = version.blocks;
+    int l = s.index;
+    if(l >= blocks || fpres[l] > pre || l + 1 < blocks && fpres[l + 1] <= pre) {
+      l = 0;
+      int h = blocks - 1;
+      while(l < h) {
+        final int m = l + h + 1 >>> 1;
+        if(fpres[m] <= pre) l = m;
+        else h = m - 1;
+      }
+      s.index = l;
+    }
+    return (long) version.pages[l] * IO.BLOCKSIZE +
+      (pre - fpres[l] << IO.NODEPOWER);
+  }
+}
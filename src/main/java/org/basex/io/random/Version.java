@@ -0,0 +1,59 @@
+package org.basex.io.random;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class represents a committed version of a database file.
+ * If a block is modified after a version has been published, its original
+ * contents are preserved in the undo map of the latest version. The contents
+ * of a block at a specific version can thus be found in the undo map of the
+ * first subsequent version in which the block has been modified, or in the
+ * file if the block has not been modified since.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Version {
+  /** Original contents of the blocks that have been modified after this
+   * version was published, indexed by block numbers. */
+  final ConcurrentHashMap<Long, byte[]> undo =
+    new ConcurrentHashMap<Long, byte[]>();
+  /** Number of accessible bytes. */
+  final long length;
+  /** Table directory: first pre values ({@code null} for other files). */
+  final int[] fpres;
+  /** Table directory: block numbers ({@code null} for other files). */
+  final int[] pages;
+  /** Table directory: number of used blocks. */
+  final int blocks;
+  /** Next version ({@code null} if this is the latest version). */
+  volatile Version next;
+
+  /**
+   * Constructor.
+   * @param l number of accessible bytes
+   * @param fp first pre values of the table blocks
+   * @param pg block numbers of the table blocks
+   * @param bl number of used table blocks
+   */
+  Version(final long l, final int[] fp, final int[] pg, final int bl) {
+    length = l;
+    fpres = fp;
+    pages = pg;
+    blocks = bl;
+  }
+
+  /**
+   * Returns the original contents of the specified block, or {@code null}
+   * if the block has not been modified since this version was published.
+   * @param b block number
+   * @return block contents or {@code null}
+   */
+  byte[] undo(final long b) {
+    for(Version v = this; v != null; v = v.next) {
+      final byte[] d = v.undo.get(b);
+      if(d != null) return d;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,129 @@
+package org.basex.io.random;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.basex.io.IO;
+import org.basex.util.Util;
+
+/**
+ * This class manages the committed versions of a database file, which allow
+ * readers to access a consistent state of the file while it is being
+ * updated. New versions are published by the writer whenever its
+ * modifications are flushed. Before a block is overwritten, its original
+ * contents are copied to the latest {@link Version}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Versions {
+  /** File channel for positional read operations. */
+  private final FileChannel channel;
+  /** File id in the buffer pool. */
+  private final int id;
+  /** Write-ahead log ({@code null} if disabled). */
+  private final WriteAheadLog wal;
+  /** File id in the write-ahead log. */
+  private final int target;
+
+  /** Latest version. */
+  private volatile Version current;
+
+  /**
+   * Constructor.
+   * @param file file
+   * @param i file id in the buffer pool
+   * @param log write-ahead log ({@code null} if disabled)
+   * @param t file id in the write-ahead log
+   */
+  Versions(final RandomAccessFile file, final int i, final WriteAheadLog log,
+      final int t) {
+    channel = file.getChannel();
+    id = i;
+    wal = log;
+    target = t;
+  }
+
+  /**
+   * Returns the latest version.
+   * @return version
+   */
+  Version current() {
+    return current;
+  }
+
+  /**
+   * Publishes a new version.
+   * @param length number of accessible bytes
+   * @param fpres first pre values of the table blocks
+   * @param pages block numbers of the table blocks
+   * @param blocks number of used table blocks
+   */
+  void publish(final long length, final int[] fpres, final int[] pages,
+      final int blocks) {
+    final Version v = new Version(length, fpres, pages, blocks);
+    // link new version before subsequent modifications are preserved in it
+    if(current != null) current.next = v;
+    current = v;
+  }
+
+  /**
+   * Preserves the committed contents of a block before it is overwritten.
+   * Must be called by the writer before the block is written to disk,
+   * to the write-ahead log or to the buffer pool.
+   * @param b block number
+   */
+  void save(final long b) {
+    final Version v = current;
+    if(v.undo.containsKey(b) || b * IO.BLOCKSIZE >= v.length) return;
+    final byte[] d = new byte[IO.BLOCKSIZE];
+    read(b, d);
+    v.undo.put(b, d);
+  }
+
+  /**
+   * Preserves the committed contents of all blocks that will be affected
+   * if the file is truncated to the specified length.
+   * @param length new file length
+   */
+  void truncate(final long length) {
+    final long l = current.length;
+    if(length >= l) return;
+    for(long b = length / IO.BLOCKSIZE; b * IO.BLOCKSIZE < l; ++b) save(b);
+  }
+
+  /**
+   * Returns the contents of a block at the specified version.
+   * @param v version
+   * @param b block number
+   * @param buf buffer, which may be used for reading the block
+   * @return block contents (either the specified or a preserved buffer)
+   */
+  byte[] read(final Version v, final long b, final byte[] buf) {
+    final byte[] d = v.undo(b);
+    if(d != null) return d;
+    read(b, buf);
+    // check again: the block may have been preserved in the meantime
+    final byte[] u = v.undo(b);
+    return u != null ? u : buf;
+  }
+
+  /**
+   * Reads the current contents of a block.
+   * @param b block number
+   * @param buf buffer
+   */
+  private void read(final long b, final byte[] buf) {
+    final long p = b * IO.BLOCKSIZE;
+    try {
+      if(wal != null && wal.read(target, p, buf) ||
+          BufferPool.POOL.read(id, b, buf)) return;
+      final ByteBuffer bb = ByteBuffer.wrap(buf);
+      while(bb.hasRemaining() && channel.read(bb, p + bb.position()) > 0);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+}
@@ -0,0 +1,443 @@
+package org.basex.io.random;
+
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.basex.data.MetaData;
+import org.basex.io.IO;
+import org.basex.io.IOFile;
+import org.basex.util.Util;
+
+/**
+ * <p>This class implements a write-ahead log for the files of a disk database.
+ * If the log is enabled, modified blocks are appended to the log instead of
+ * being written to their files. A transaction is completed by a commit
+ * record, and the log is synchronized with the disk. Each database has its
+ * own log, and its writers are serialized by the database lock, so each
+ * commit is synchronized on its own.</p>
+ *
+ * <p>Blocks that have not been written to their files yet are read from the
+ * log. As soon as the log exceeds {@link #CHECKPOINT} bytes, and when the
+ * database is closed, all committed blocks are written to their files, and
+ * the log is truncated. Until then, snapshots of the logged files are
+ * disabled.</p>
+ *
+ * <p>When a database is opened, the log is replayed by {@link #recover}:
+ * all committed transactions are written to the database files, and all
+ * other records are discarded. The log consists of the following records,
+ * all of which start with a type byte and the name of the affected file:</p>
+ * <ul>
+ * <li>{@link #PAGE}: 8 bytes file position, 4 bytes length, block data</li>
+ * <li>{@link #LENGTH}: 8 bytes file length</li>
+ * <li>{@link #FILE}: 4 bytes length, contents of the complete file</li>
+ * <li>{@link #COMMIT}: (no file name) 8 bytes checksum of all records of
+ *   the transaction</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteAheadLog {
+  /** Record type: block. */
+  private static final int PAGE = 1;
+  /** Record type: file length. */
+  private static final int LENGTH = 2;
+  /** Record type: complete file. */
+  private static final int FILE = 3;
+  /** Record type: commit. */
+  private static final int COMMIT = 4;
+  /** Size of the log, after which a checkpoint is performed. */
+  private static final long CHECKPOINT = 1 << 24;
+
+  /** Log file. */
+  private final IOFile path;
+  /** Log file access. */
+  private final RandomAccessFile log;
+  /** Log channel. */
+  private final FileChannel channel;
+  /** Checksum of the current transaction. */
+  private final CRC32 crc = new CRC32();
+  /** Registered files. */
+  private final ArrayList<Target> targets = new ArrayList<Target>();
+  /** Logged complete files, indexed by their names. */
+  private final HashMap<String, long[]> files = new HashMap<String, long[]>();
+
+  /** Current size of the log. */
+  private long size;
+  /** Indicates if records have been added since the last commit. */
+  private boolean pending;
+
+  /**
+   * Constructor, creating a new log.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  public WriteAheadLog(final MetaData md) throws IOException {
+    path = md.dbfile(DATAWAL);
+    log = new RandomAccessFile(path.file(), "rw");
+    log.setLength(0);
+    channel = log.getChannel();
+  }
+
+  /**
+   * Replays all committed transactions of an existing log, and deletes the
+   * log. Records of incomplete transactions are discarded.
+   * @param md meta data
+   * @return {@code true} if a log was found
+   * @throws IOException I/O exception
+   */
+  public static boolean recover(final MetaData md) throws IOException {
+    final IOFile file = md.dbfile(DATAWAL);
+    if(!file.exists()) return false;
+
+    final RandomAccessFile in = new RandomAccessFile(file.file(), "r");
+    final HashMap<String, RandomAccessFile> out =
+      new HashMap<String, RandomAccessFile>();
+    try {
+      final long len = in.length();
+      final CRC32 cs = new CRC32();
+      // records of the current transaction: type, name, position, data
+      final ArrayList<Object[]> tx = new ArrayList<Object[]>();
+      while(in.getFilePointer() < len) {
+        final int type = in.read();
+        if(type == COMMIT) {
+          if(in.readLong() != cs.getValue()) break;
+          for(final Object[] r : tx) apply(md, out, r);
+          tx.clear();
+          cs.reset();
+          continue;
+        }
+        if(type != PAGE && type != LENGTH && type != FILE) break;
+        final byte[] nm = new byte[in.read()];
+        in.readFully(nm);
+        final long pos = type == FILE ? 0 : in.readLong();
+        byte[] data = null;
+        if(type != LENGTH) {
+          final int l = in.readInt();
+          if(l < 0 || l > len - in.getFilePointer()) break;
+          data = new byte[l];
+          in.readFully(data);
+        }
+        final byte[] rec = record(type, nm, pos, data);
+        cs.update(rec, 0, rec.length);
+        tx.add(new Object[] { type, string(nm), pos, data });
+      }
+    } catch(final IOException ex) {
+      // incomplete record: discard transaction
+      Util.debug(ex);
+    } finally {
+      in.close();
+      for(final RandomAccessFile raf : out.values()) {
+        raf.getFD().sync();
+        raf.close();
+      }
+    }
+    if(!file.delete()) throw new IOException("Could not delete " + file);
+    return true;
+  }
+
+  /**
+   * Registers a file.
+   * @param f file
+   * @param raf file access
+   * @param s snapshots of the file
+   * @return id of the registered file
+   */
+  synchronized int register(final IOFile f, final RandomAccessFile raf,
+      final Snapshots s) {
+    targets.add(new Target(f.name(), raf, s));
+    return targets.size() - 1;
+  }
+
+  /**
+   * Unregisters a file after all logged blocks have been written to the file.
+   * @param t id of the registered file
+   * @throws IOException I/O exception
+   */
+  synchronized void unregister(final int t) throws IOException {
+    checkpoint();
+    targets.set(t, null);
+  }
+
+  /**
+   * Logs a block.
+   * @param t id of the registered file
+   * @param pos file position
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  synchronized void page(final int t, final long pos, final byte[] data)
+      throws IOException {
+    final Target tg = targets.get(t);
+    tg.pages.put(pos, size + 1 + tg.name.length + 1 + 8 + 4);
+    append(record(PAGE, tg.name, pos, data));
+  }
+
+  /**
+   * Logs the length of a file.
+   * @param t id of the registered file
+   * @param len file length
+   * @throws IOException I/O exception
+   */
+  synchronized void length(final int t, final long len) throws IOException {
+    final Target tg = targets.get(t);
+    tg.length = len;
+    append(record(LENGTH, tg.name, len, null));
+  }
+
+  /**
+   * Logs the contents of a complete file.
+   * @param f file
+   * @param data file contents
+   * @throws IOException I/O exception
+   */
+  public synchronized void file(final IOFile f, final byte[] data)
+      throws IOException {
+    final byte[] nm = token(f.name());
+    files.put(f.path(), new long[] { size + 1 + nm.length + 1 + 4,
+        data.length });
+    append(record(FILE, nm, 0, data));
+  }
+
+  /**
+   * Reads a logged block.
+   * @param t id of the registered file
+   * @param pos file position
+   * @param data array for the block data
+   * @return {@code true} if the block has been logged
+   */
+  synchronized boolean read(final int t, final long pos, final byte[] data) {
+    final Long off = targets.get(t).pages.get(pos);
+    if(off == null) return false;
+    try {
+      read(off, data, data.length);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    return true;
+  }
+
+  /**
+   * Completes the current transaction and synchronizes the log with the disk.
+   * If the log exceeds the checkpoint size, all blocks are written to the
+   * database files.
+   * @throws IOException I/O exception
+   */
+  public synchronized void commit() throws IOException {
+    if(!pending) return;
+    final byte[] rec = new byte[9];
+    rec[0] = COMMIT;
+    final long v = crc.getValue();
+    for(int i = 0; i < 8; ++i) rec[1 + i] = (byte) (v >>> 56 - (i << 3));
+    write(rec);
+    crc.reset();
+    pending = false;
+    channel.force(false);
+    if(size > CHECKPOINT) checkpoint();
+  }
+
+  /**
+   * Commits the current transaction, writes all logged blocks and files
+   * to the database files, and truncates the log.
+   * @throws IOException I/O exception
+   */
+  public synchronized void checkpoint() throws IOException {
+    commit();
+    if(size == 0) return;
+
+    final byte[] block = new byte[IO.BLOCKSIZE];
+    for(final Target tg : targets) {
+      if(tg == null) continue;
+      final FileChannel fc = tg.file.getChannel();
+      for(final Map.Entry<Long, Long> e : tg.pages.entrySet()) {
+        read(e.getValue(), block, block.length);
+        final ByteBuffer bb = ByteBuffer.wrap(block);
+        while(bb.hasRemaining()) fc.write(bb, e.getKey() + bb.position());
+      }
+      if(tg.length != -1) fc.truncate(tg.length);
+      fc.force(false);
+    }
+    for(final Map.Entry<String, long[]> e : files.entrySet()) {
+      final long[] f = e.getValue();
+      final byte[] data = new byte[(int) f[1]];
+      read(f[0], data, data.length);
+      write(new IOFile(e.getKey()), data);
+    }
+
+    // truncate log and enable snapshots
+    log.setLength(0);
+    channel.force(false);
+    size = 0;
+    files.clear();
+    for(final Target tg : targets) {
+      if(tg == null) continue;
+      tg.pages.clear();
+      tg.length = -1;
+      tg.snaps.flush();
+    }
+  }
+
+  /**
+   * Writes all logged blocks to the database files and deletes the log.
+   * @throws IOException I/O exception
+   */
+  public synchronized void close() throws IOException {
+    checkpoint();
+    log.close();
+    if(!path.delete()) throw new IOException("Could not delete " + path);
+  }
+
+  /**
+   * Returns information on the log.
+   * @return info string
+   */
+  public synchronized String info() {
+    int pages = 0;
+    for(final Target tg : targets) if(tg != null) pages += tg.pages.size();
+    return size + " bytes, " + pages + " blocks";
+  }
+
+  /**
+   * Appends a record of the current transaction.
+   * @param rec record
+   * @throws IOException I/O exception
+   */
+  private void append(final byte[] rec) throws IOException {
+    crc.update(rec, 0, rec.length);
+    write(rec);
+    pending = true;
+  }
+
+  /**
+   * Writes bytes to the end of the log.
+   * @param b bytes
+   * @throws IOException I/O exception
+   */
+  private void write(final byte[] b) throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(b);
+    while(bb.hasRemaining()) channel.write(bb, size + bb.position());
+    size += b.length;
+  }
+
+  /**
+   * Reads bytes from the log.
+   * @param off log offset
+   * @param b target array
+   * @param l number of bytes
+   * @throws IOException I/O exception
+   */
+  private void read(final long off, final byte[] b, final int l)
+      throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(b, 0, l);
+    while(bb.hasRemaining()) {
+      if(channel.read(bb, off + bb.position()) == -1)
+        throw new IOException("Unexpected end of log: " + off);
+    }
+  }
+
+  /**
+   * Creates a record.
+   * @param type record type
+   * @param nm file name
+   * @param pos file position or length (ignored for files)
+   * @param data data ({@code null} for file lengths)
+   * @return record
+   */
+  private static byte[] record(final int type, final byte[] nm, final long pos,
+      final byte[] data) {
+    final int dl = data == null ? 0 : 4 + data.length;
+    final ByteBuffer bb = ByteBuffer.allocate(2 + nm.length +
+        (type == FILE ? 0 : 8) + dl);
+    bb.put((byte) type).put((byte) nm.length).put(nm);
+    if(type != FILE) bb.putLong(pos);
+    if(data != null) bb.putInt(data.length).put(data);
+    return bb.array();
+  }
+
+  /**
+   * Applies a committed record to the database files.
+   * @param md meta data
+   * @param out opened files
+   * @param r record: type, file name, position, data
+   * @throws IOException I/O exception
+   */
+  private static void apply(final MetaData md,
+      final HashMap<String, RandomAccessFile> out, final Object[] r)
+      throws IOException {
+
+    final int type = (Integer) r[0];
+    final String name = (String) r[1];
+    final byte[] data = (byte[]) r[3];
+    if(type == FILE) {
+      final RandomAccessFile raf = out.remove(name);
+      if(raf != null) raf.close();
+      write(new IOFile(md.path, name), data);
+      return;
+    }
+    RandomAccessFile raf = out.get(name);
+    if(raf == null) {
+      raf = new RandomAccessFile(new IOFile(md.path, name).file(), "rw");
+      out.put(name, raf);
+    }
+    final long pos = (Long) r[2];
+    if(type == LENGTH) {
+      raf.setLength(pos);
+    } else {
+      raf.seek(pos);
+      raf.write(data);
+    }
+  }
+
+  /**
+   * Writes a complete file and synchronizes it with the disk.
+   * @param f file
+   * @param data file contents
+   * @throws IOException I/O exception
+   */
+  private static void write(final IOFile f, final byte[] data)
+      throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(f.file(), "rw");
+    try {
+      raf.setLength(0);
+      raf.write(data);
+      raf.getFD().sync();
+    } finally {
+      raf.close();
+    }
+  }
+
+  /** Registered file. */
+  private static final class Target {
+    /** File name. */
+    final byte[] name;
+    /** File access. */
+    final RandomAccessFile file;
+    /** Snapshots of the file. */
+    final Snapshots snaps;
+    /** Log offsets of the logged blocks, indexed by their file positions. */
+    final HashMap<Long, Long> pages = new HashMap<Long, Long>();
+    /** Logged file length ({@code -1}: no length logged). */
+    long length = -1;
+
+    /**
+     * Constructor.
+     * @param nm file name
+     * @param f file access
+     * @param s snapshots
+     */
+    Target(final String nm, final RandomAccessFile f, final Snapshots s) {
+      name = token(nm);
+      file = f;
+      snaps = s;
+    }
+  }
+}
@@ -0,0 +1,257 @@
+package org.basex.query;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.basex.core.Context;
+import org.basex.core.MainProp;
+import org.basex.data.Nodes;
+import org.basex.query.util.VarStack;
+import org.basex.util.list.StringList;
+
+/**
+ * This class caches compiled queries, which can then be evaluated again by
+ * subsequent requests. Queries are identified by their query string, the
+ * client properties, the current user and database, and the names and types
+ * of the bound variables.
+ *
+ * <p>External variables of cached queries are bound after compilation, so
+ * that a query can be evaluated with different values. Only read-only queries
+ * are cached, which do not declare global variables with expressions, and
+ * which only access existing databases that can be statically determined
+ * (files and other resources may change at any time). Cached queries are
+ * discarded as soon as a writing process is registered for one of the
+ * accessed databases.</p>
+ *
+ * <p>A cached query is removed from the cache while it is being evaluated,
+ * and added again after a successful evaluation. The least recently used
+ * queries are discarded if the maximum number of cached queries
+ * (see {@link MainProp#QUERYCACHE}) is exceeded.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCache {
+  /** Cached queries, ordered by their last access
+   * ({@code null} values indicate queries that cannot be cached). */
+  private final LinkedHashMap<String, QueryProcessor> entries =
+    new LinkedHashMap<String, QueryProcessor>(16, 0.75f, true);
+  /** Last writes to single databases. */
+  private final HashMap<String, Long> written = new HashMap<String, Long>();
+  /** Main properties. */
+  private final MainProp mprop;
+  /** Number of registered writing processes. */
+  private long writes;
+  /** Last write to all databases. */
+  private long all;
+
+  /**
+   * Constructor.
+   * @param mp main properties
+   */
+  public QueryCache(final MainProp mp) {
+    mprop = mp;
+  }
+
+  /**
+   * Returns the key of a query.
+   * @param query query string
+   * @param types names and types of the bound variables
+   * @param ctx database context
+   * @return key, or {@code null} if the query cannot be cached in the
+   * current context
+   */
+  public String key(final String query, final String types,
+      final Context ctx) {
+
+    if(mprop.num(MainProp.QUERYCACHE) == 0) return null;
+    // skip contexts that are restricted to a database path
+    final Nodes nodes = ctx.current();
+    if(nodes != null && !nodes.root) return null;
+
+    final StringBuilder sb = new StringBuilder(query).append('\0');
+    sb.append(types).append('\0').append(ctx.user.name).append('\0');
+    if(nodes != null) sb.append(nodes.data.meta.name);
+    return sb.append('\0').append(ctx.prop).toString();
+  }
+
+  /**
+   * Returns a compiled query for the specified key and removes it from the
+   * cache. The query has to be checked with {@link #valid} after the process
+   * has been registered.
+   * @param key key
+   * @param ctx database context
+   * @return query processor, or {@code null} if no query is cached
+   */
+  public synchronized QueryProcessor get(final String key,
+      final Context ctx) {
+
+    final QueryProcessor qp = entries.get(key);
+    if(qp == null) return null;
+    entries.remove(key);
+
+    // skip queries that have been compiled for another database instance
+    final QueryContext qc = qp.ctx;
+    if(qc.nodes != null && qc.nodes.data != ctx.data()) {
+      close(qp);
+      return null;
+    }
+    qc.reset(ctx);
+    qp.cached = true;
+    return qp;
+  }
+
+  /**
+   * Checks if the specified query has been rejected by the cache.
+   * @param key key
+   * @return result of check
+   */
+  public synchronized boolean rejected(final String key) {
+    return entries.containsKey(key) && entries.get(key) == null;
+  }
+
+  /**
+   * Checks if none of the databases accessed by a query, which has been
+   * taken from the cache, has been updated since it was cached. Must be called
+   * after the process has been registered.
+   * @param qp query processor
+   * @return result of check
+   */
+  public synchronized boolean valid(final QueryProcessor qp) {
+    if(all > qp.stamp) return false;
+    for(final String db : qp.dbs) {
+      final Long w = written.get(db);
+      if(w != null && w > qp.stamp) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Parses and compiles a query before any variables are bound. If the query
+   * cannot be cached, it is rejected, and the specified processor must not be
+   * evaluated any more.
+   * @param key key
+   * @param qp query processor
+   * @return {@code true} if the query can be cached
+   * @throws QueryException query exception
+   */
+  public boolean compile(final String key, final QueryProcessor qp)
+      throws QueryException {
+
+    qp.parse();
+    final QueryContext qc = qp.ctx;
+    final StringList db = new StringList();
+    boolean ok = !qc.updating() && qc.ctxItem == null && !qc.external() &&
+      qc.dbOptions.isEmpty() && qc.globalOpt.isEmpty() && qc.databases(db);
+    // documents may also be retrieved from the file system
+    for(final String d : db) ok &= mprop.dbexists(d);
+    // global variables must not be bound to expressions
+    final VarStack vs = qc.vars.globals();
+    for(int v = 0; ok && v < vs.size; ++v) ok = vs.vars[v].expr() == null;
+    if(ok) {
+      qp.compile();
+      ok = qc.cache();
+    }
+    if(ok) {
+      qp.dbs = db;
+    } else {
+      synchronized(this) {
+        add(key, null);
+      }
+    }
+    return ok;
+  }
+
+  /**
+   * Adds a successfully evaluated query to the cache. Must be called before
+   * the process is unregistered. The query will be closed if it cannot be
+   * cached, or if another instance of the query has already been cached.
+   * @param key key
+   * @param qp query processor
+   */
+  public void put(final String key, final QueryProcessor qp) {
+
+    final QueryContext qc = qp.ctx;
+    // skip queries with connections or loaded classes
+    if(qc.jdbc == null && qc.jars == null && qc.ftpos == null) {
+      synchronized(this) {
+        if(!entries.containsKey(key)) {
+          qp.stamp = writes;
+          add(key, qp);
+          return;
+        }
+      }
+    }
+    close(qp);
+  }
+
+  /**
+   * Discards all cached queries that access the specified databases.
+   * Called when a writing process has been registered.
+   * @param db names of the databases, or {@code null} for all databases
+   */
+  public synchronized void invalidate(final StringList db) {
+    ++writes;
+    if(db == null) {
+      all = writes;
+    } else {
+      for(final String d : db) written.put(d, writes);
+    }
+    final Iterator<QueryProcessor> it = entries.values().iterator();
+    while(it.hasNext()) {
+      final QueryProcessor qp = it.next();
+      if(qp != null && !valid(qp)) {
+        it.remove();
+        close(qp);
+      }
+    }
+  }
+
+  /**
+   * Closes all cached queries.
+   */
+  public synchronized void close() {
+    for(final QueryProcessor qp : entries.values()) if(qp != null) close(qp);
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of cached queries.
+   * @return number of queries
+   */
+  public synchronized int size() {
+    int s = 0;
+    for(final QueryProcessor qp : entries.values()) if(qp != null) ++s;
+    return s;
+  }
+
+  /**
+   * Adds an entry and removes the least recently used entries if the cache
+   * is full.
+   * @param key key
+   * @param qp query processor, or {@code null}
+   */
+  private void add(final String key, final QueryProcessor qp) {
+    entries.put(key, qp);
+    final int max = mprop.num(MainProp.QUERYCACHE);
+    final Iterator<QueryProcessor> it = entries.values().iterator();
+    for(int s = entries.size(); s > max && it.hasNext(); --s) {
+      final QueryProcessor old = it.next();
+      it.remove();
+      if(old != null) close(old);
+    }
+  }
+
+  /**
+   * Closes the specified query processor.
+   * @param qp query processor
+   */
+  private static void close(final QueryProcessor qp) {
+    try {
+      qp.close();
+    } catch(final QueryException ex) {
+      // ignore errors that occur while closing databases
+    }
+  }
+}
@@ -14,6 +14,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.basex.core.Context;
+import org.basex.core.MainProp;
 import org.basex.core.Progress;
 import org.basex.core.Prop;
 import org.basex.core.cmd.Set;
@@ -26,7 +27,9 @@ import org.basex.io.serial.SerializerException;
 import org.basex.io.serial.SerializerProp;
 import org.basex.query.expr.Expr;
 import org.basex.query.expr.ParseExpr;
+import org.basex.query.flwor.Group;
 import org.basex.query.func.JavaMapping;
+import org.basex.query.func.StandardFunc;
 import org.basex.query.func.UserFuncs;
 import org.basex.query.item.DBNode;
 import org.basex.query.item.Dat;
@@ -54,6 +57,7 @@ import org.basex.util.ft.FTLexer;
 import org.basex.util.ft.FTOpt;
 import org.basex.util.hash.TokenMap;
 import org.basex.util.list.IntList;
+import org.basex.util.list.StringList;
 
 /**
  * This class provides query-specific methods and properties.
@@ -69,14 +73,14 @@ public final class QueryContext extends Progress {
   /** Static context of an expression. */
   public StaticContext sc = new StaticContext();
   /** Variables. */
-  public final VarContext vars = new VarContext();
+  public final VarContext vars;
   /** Functions. */
-  public final UserFuncs funcs = new UserFuncs();
+  public final UserFuncs funcs;
 
   /** Query resources. */
-  public final QueryResources resource = new QueryResources(this);
-  /** Database context. */
-  public final Context context;
+  public final QueryResources resource;
+  /** Database context (reassigned if a cached query is evaluated again). */
+  public Context context;
   /** XQuery version flag. */
   public boolean xquery3;
 
@@ -124,8 +128,8 @@ public final class QueryContext extends Progress {
 
   /** Compilation flag: current node has leaves. */
   public boolean leaf;
-  /** Compilation flag: GFLWOR clause performs grouping. */
-  public boolean grouping;
+  /** Compilation flag: group by clause of the current GFLWOR clause. */
+  public Group grouping;
 
   /** Number of successive tail calls. */
   public int tailCalls;
@@ -153,6 +157,14 @@ public final class QueryContext extends Progress {
 
   /** Indicates if this query includes updating expressions. */
   private boolean updating;
+  /** Names of the accessed databases ({@code null}: all databases). */
+  private StringList dbs = new StringList();
+  /** Indicates if the query only accesses versioned database contents. */
+  private boolean versioned = true;
+  /** Indicates if the query reads resources other than databases. */
+  private boolean external;
+  /** Flag for evaluating the query on snapshots of the accessed databases. */
+  public boolean snapshots;
 
   /** String container for query background information. */
   private final TokenBuilder info = new TokenBuilder();
@@ -162,12 +174,19 @@ public final class QueryContext extends Progress {
   private boolean firstOpt = true;
   /** Evaluation flag. */
   private boolean firstEval = true;
+  /** Context value after compilation (assigned if the query is cached). */
+  private Value compValue;
+  /** Length of query info after compilation. */
+  private int compInfo;
 
   /**
    * Constructor.
    * @param ctx database context
    */
   public QueryContext(final Context ctx) {
+    vars = new VarContext();
+    funcs = new UserFuncs();
+    resource = new QueryResources(this);
     context = ctx;
     nodes = ctx.current();
     xquery3 = ctx.prop.is(Prop.XQUERY3);
@@ -177,6 +196,56 @@ public final class QueryContext extends Progress {
     maxCalls = ctx.prop.num(Prop.TAILCALLS);
   }
 
+  /**
+   * Constructor for a child context (see {@link #fork}).
+   * @param qc parent context
+   */
+  private QueryContext(final QueryContext qc) {
+    sc = qc.sc.fork();
+    vars = qc.vars.fork();
+    funcs = qc.funcs;
+    resource = qc.resource;
+    context = qc.context;
+    xquery3 = qc.xquery3;
+    stop = qc.stop;
+    thes = qc.thes;
+    root = qc.root;
+    value = qc.value;
+    pos = qc.pos;
+    size = qc.size;
+    nodes = qc.nodes;
+    ftOpt = qc.ftOpt;
+    date = qc.date;
+    dtm = qc.dtm;
+    time = qc.time;
+    maxCalls = qc.maxCalls;
+    varIDs = qc.varIDs;
+    serProp = qc.serProp;
+    ctxItem = qc.ctxItem;
+    javaModules.putAll(qc.javaModules);
+    jars = qc.jars;
+    jdbc = qc.jdbc;
+    dbs = qc.dbs;
+    versioned = qc.versioned;
+    external = qc.external;
+    snapshots = qc.snapshots;
+    inf = false;
+  }
+
+  /**
+   * Returns a child context, which can be used to evaluate an expression in
+   * a separate thread. The child context shares the static declarations,
+   * functions and resources of this context. It is initialized with the
+   * current context value and copies of the local variables; namespaces,
+   * variables and the context value can then be changed independently.
+   * The child context is never closed; full-text positions, query info and
+   * pending updates are not propagated.
+   * @return child context
+   */
+  public QueryContext fork() {
+    return new QueryContext(this);
+  }
+
   /**
    * Parses the specified query.
    * @param qu input query
@@ -246,6 +315,36 @@ public final class QueryContext extends Progress {
     if(inf) info.add(NL + RESULT_C + funcs + root + NL);
   }
 
+  /**
+   * Checks if the compiled query can be evaluated again, and saves the
+   * state after compilation (see {@link QueryCache}).
+   * @return result of check
+   */
+  boolean cache() {
+    // skip queries with pre-evaluated dates or full-text positions
+    if(date != null || ftpos != null || updating || snapshots) return false;
+    compValue = value;
+    compInfo = info.size();
+    return true;
+  }
+
+  /**
+   * Resets the state of a cached query before it is evaluated again.
+   * @param ctx database context
+   */
+  void reset(final Context ctx) {
+    context = ctx;
+    value = compValue;
+    pos = 1;
+    size = 1;
+    date = null;
+    dtm = null;
+    time = null;
+    tailCalls = 0;
+    info.size(compInfo);
+    firstEval = true;
+  }
+
   /**
    * Returns a result iterator.
    * @return result iterator
@@ -537,6 +636,50 @@ public final class QueryContext extends Progress {
     updating = up;
   }
 
+  /**
+   * Registers the databases that will be accessed by the specified function.
+   * @param fun function, or {@code null} if the function may access
+   * arbitrary databases
+   */
+  public void access(final StandardFunc fun) {
+    if(dbs != null && (fun == null || !fun.databases(dbs))) dbs = null;
+    if(fun == null || !fun.versioned()) versioned = false;
+    if(fun != null && fun.external()) external = true;
+  }
+
+  /**
+   * Checks if the query reads resources other than databases, such as files
+   * (see {@link StandardFunc#external}). Must be called after the query has
+   * been parsed.
+   * @return result of check
+   */
+  public boolean external() {
+    return external;
+  }
+
+  /**
+   * Checks if the query can be evaluated concurrently to other versioned
+   * queries (see {@link MainProp#MVCC}). Must be called after the query has
+   * been parsed.
+   * @return result of check
+   */
+  public boolean versioned() {
+    return versioned && context.mprop.is(MainProp.MVCC);
+  }
+
+  /**
+   * Adds the names of all databases that will be accessed by the query.
+   * Must be called after the query has been parsed.
+   * @param db list of database names
+   * @return {@code false} if the databases cannot be statically determined
+   */
+  public boolean databases(final StringList db) {
+    if(dbs == null) return false;
+    for(final String d : dbs) db.add(d);
+    if(nodes != null) db.add(nodes.data.meta.name);
+    return true;
+  }
+
   @Override
   public String tit() {
     return EVALUATING_C;
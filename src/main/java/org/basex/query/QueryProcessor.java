@@ -19,6 +19,8 @@ import org.basex.query.func.JavaMapping;
 import org.basex.query.item.Value;
 import org.basex.query.iter.Iter;
 import org.basex.query.util.json.JsonMapConverter;
+import org.basex.util.Performance;
+import org.basex.util.list.StringList;
 
 /**
  * This class is an entry point for evaluating XQuery implementations.
@@ -37,6 +39,14 @@ public final class QueryProcessor extends Progress {
   private boolean compiled;
   /** Closed flag. */
   private boolean closed;
+  /** Time needed for parsing and compiling the query. */
+  long time;
+  /** Flag for a processor that has been taken from the query cache. */
+  boolean cached;
+  /** Number of writing processes when the query was cached. */
+  long stamp;
+  /** Names of the accessed databases (assigned if the query is cached). */
+  StringList dbs;
 
   /**
    * Default constructor.
@@ -91,8 +101,10 @@ public final class QueryProcessor extends Progress {
    */
   public void parse() throws QueryException {
     if(parsed) return;
+    final Performance p = new Performance();
     ctx.parse(query);
     parsed = true;
+    time += p.time();
   }
 
   /**
@@ -102,8 +114,21 @@ public final class QueryProcessor extends Progress {
   public void compile() throws QueryException {
     parse();
     if(compiled) return;
+    final Performance p = new Performance();
     ctx.compile();
     compiled = true;
+    time += p.time();
+  }
+
+  /**
+   * Adds the names of all databases that will be accessed by the query.
+   * @param db list of database names
+   * @return {@code false} if the databases cannot be statically determined
+   * @throws QueryException query exception
+   */
+  public boolean databases(final StringList db) throws QueryException {
+    parse();
+    return ctx.databases(db);
   }
 
   /**
@@ -290,6 +315,15 @@ public final class QueryProcessor extends Progress {
     return ctx.updating() ? ctx.updates.size() : 0;
   }
 
+  /**
+   * Returns the time that has been saved by evaluating a cached query.
+   * @return time for parsing and compiling the query, or {@code 0} if the
+   * query was not taken from the cache
+   */
+  public long saved() {
+    return cached ? time : 0;
+  }
+
   /**
    * Returns query background information.
    * @return background information
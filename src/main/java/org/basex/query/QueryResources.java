@@ -2,6 +2,7 @@ package org.basex.query;
 
 import static org.basex.query.util.Err.*;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
@@ -11,8 +12,10 @@ import org.basex.core.cmd.Check;
 import org.basex.core.cmd.Close;
 import org.basex.core.cmd.Open;
 import org.basex.data.Data;
+import org.basex.data.MetaData;
 import org.basex.data.Nodes;
 import org.basex.io.IO;
+import org.basex.io.IOFile;
 import org.basex.query.item.DBNode;
 import org.basex.query.item.DBNodeSeq;
 import org.basex.query.item.Empty;
@@ -22,9 +25,12 @@ import org.basex.util.Array;
 import org.basex.util.InputInfo;
 import org.basex.util.Util;
 import org.basex.util.list.IntList;
+import org.basex.util.list.ObjList;
 
 /**
  * This class provides access to resources used by an XQuery expression.
+ * Resources may be requested by several threads if parts of a query are
+ * evaluated in parallel (see {@link QueryContext#fork}).
  *
  * @author BaseX Team 2005-12, BSD License
  */
@@ -32,8 +38,10 @@ public final class QueryResources {
   /** Database context. */
   private final QueryContext ctx;
 
-  /** Opened databases. */
+  /** Opened databases, or their snapshots. */
   private Data[] data = new Data[1];
+  /** Opened databases. */
+  private Data[] opened = new Data[1];
   /** Number of databases. */
   private int datas;
 
@@ -44,6 +52,9 @@ public final class QueryResources {
   /** Number of collections. */
   private int colls;
 
+  /** Temporary files. */
+  private final ObjList<IOFile> temp = new ObjList<IOFile>();
+
   /**
    * Constructor.
    * @param qc query context
@@ -58,8 +69,9 @@ public final class QueryResources {
    * @throws QueryException query exception
    */
   void compile(final Nodes nodes) throws QueryException {
-    final Data d = nodes.data;
-    if(!ctx.context.perm(User.READ, d.meta)) PERMNO.thrw(null, CmdPerm.READ);
+    if(!ctx.context.perm(User.READ, nodes.data.meta))
+      PERMNO.thrw(null, CmdPerm.READ);
+    final Data d = addData(nodes.data);
 
     // assign initial context value
     // (if database only contains an empty root node, assign empty sequence)
@@ -70,8 +82,6 @@ public final class QueryResources {
     // documents of the database. otherwise, create new node set
     addCollection(nodes.root ? ctx.value :
         DBNodeSeq.get(d.resources.docs(), d, true, true), d.meta.name);
-
-    addData(d);
   }
 
   /**
@@ -81,15 +91,39 @@ public final class QueryResources {
   void close() throws QueryException {
     try {
       for(int d = ctx.nodes != null ? 1 : 0; d < datas; ++d) {
-        Close.close(data[d], ctx.context);
+        Close.close(opened[d], ctx.context);
       }
     } catch(final IOException ex) {
       throw DBCLOSE.thrw(null);
     } finally {
       datas = 0;
+      for(final IOFile f : temp) if(f.exists()) f.delete();
+      temp.reset();
     }
   }
 
+  /**
+   * Creates a temporary file, which will be deleted when the query is closed.
+   * @return file
+   * @throws IOException I/O exception
+   */
+  public synchronized IOFile temp() throws IOException {
+    final IOFile file = new IOFile(File.createTempFile(
+        Util.name(QueryResources.class), null));
+    temp.add(file);
+    return file;
+  }
+
+  /**
+   * Returns the meta data of all opened databases.
+   * @return meta data
+   */
+  public MetaData[] meta() {
+    final MetaData[] meta = new MetaData[datas];
+    for(int d = 0; d < datas; ++d) meta[d] = opened[d].meta;
+    return meta;
+  }
+
   /**
    * Opens a new database or returns a reference to an already opened database.
    * @param name name of database
@@ -97,7 +131,7 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data data(final String name, final InputInfo ii)
+  public synchronized Data data(final String name, final InputInfo ii)
       throws QueryException {
 
     // check if a database with the same name has already been opened
@@ -107,9 +141,7 @@ public final class QueryResources {
 
     try {
       // open and add new data reference
-      final Data d = Open.open(name, ctx.context);
-      addData(d);
-      return d;
+      return addData(Open.open(name, ctx.context));
     } catch(final IOException ex) {
       throw NODB.thrw(ii, name);
     }
@@ -124,8 +156,8 @@ public final class QueryResources {
    * @return data reference
    * @throws QueryException query exception
    */
-  public Data data(final String input, final boolean col, final InputInfo ii)
-      throws QueryException {
+  public synchronized Data data(final String input, final boolean col,
+      final InputInfo ii) throws QueryException {
 
     // check if an opened database with the same name exists
     for(int d = 0; d < datas; ++d) {
@@ -164,8 +196,7 @@ public final class QueryResources {
     }
 
     // add reference to pool of opened databases
-    addData(d);
-    return d;
+    return addData(d);
   }
 
   /**
@@ -175,8 +206,8 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final String input, final InputInfo ii)
-      throws QueryException {
+  public synchronized Value collection(final String input,
+      final InputInfo ii) throws QueryException {
 
     int c = 0;
     // no collection specified.. return default collection/current context set
@@ -258,16 +289,20 @@ public final class QueryResources {
   }
 
   /**
-   * Adds a data reference to the global list.
+   * Adds a data reference to the global list. If the query is evaluated on
+   * snapshots, the snapshot of the database will be returned.
    * @param d data reference to be added
+   * @return data reference, or its snapshot
    */
-  private void addData(final Data d) {
+  private Data addData(final Data d) {
     if(datas == data.length) {
-      final Data[] tmp = new Data[Array.newSize(datas)];
-      System.arraycopy(data, 0, tmp, 0, datas);
-      data = tmp;
+      final int s = Array.newSize(datas);
+      data = Arrays.copyOf(data, s);
+      opened = Arrays.copyOf(opened, s);
     }
-    data[datas++] = d;
+    opened[datas] = d;
+    data[datas] = ctx.snapshots ? d.snapshot() : d;
+    return data[datas++];
   }
 
   /**
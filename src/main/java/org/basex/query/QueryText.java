@@ -570,6 +570,10 @@ public interface QueryText {
   /** Query Plan. */
   byte[] RET = token("Return");
   /** Query Plan. */
+  byte[] HASHJOIN = token("HashJoin");
+  /** Query Plan. */
+  byte[] PARALLEL = token("parallel");
+  /** Query Plan. */
   byte[] ITM = token("Item");
   /** Query Plan. */
   byte[] THN = token("Then");
@@ -644,10 +648,18 @@ public interface QueryText {
   /** Optimization info. */
   String OPTTEXT = "adding text() step";
   /** Optimization info. */
+  String OPTAGGR = "computing % while grouping";
+  /** Optimization info. */
   String OPTFLWOR = "simplifying flwor expression";
   /** Optimization info. */
   String OPTINLINE = "inlining function %(...)";
   /** Optimization info. */
+  String OPTJOIN = "applying hash join to %";
+  /** Optimization info. */
+  String OPTPARALLEL = "evaluating return clause in % threads";
+  /** Optimization info. */
+  String OPTTOPK = "sorting % first tuples";
+  /** Optimization info. */
   String OPTWHERE = "rewriting where clause to predicate(s)";
   /** Optimization info. */
   String OPTPRED = "rewriting % to predicate(s)";
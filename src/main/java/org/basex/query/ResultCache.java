@@ -0,0 +1,355 @@
+package org.basex.query;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.basex.core.Context;
+import org.basex.core.MainProp;
+import org.basex.data.MetaData;
+import org.basex.data.Nodes;
+import org.basex.query.expr.Expr;
+import org.basex.query.expr.Expr.Use;
+import org.basex.query.func.UserFunc;
+import org.basex.query.util.VarStack;
+import org.basex.util.list.ByteList;
+import org.basex.util.list.StringList;
+
+/**
+ * This class caches the serialized results of read-only queries. Results are
+ * identified by the query string, the bound variables, the client properties
+ * (including the serialization parameters), and the current user and database.
+ *
+ * <p>Only deterministic queries are cached, which access a statically known
+ * set of existing databases and no other resources, such as files. A cached
+ * result is discarded as soon as a writing process is registered for one of
+ * the accessed databases, or if the modification counter of one of the
+ * databases ({@link MetaData#version}) has changed. The least recently used
+ * results are discarded if the maximum cache size (see
+ * {@link MainProp#RESULTCACHE}) is exceeded.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ResultCache {
+  /** Cached results, ordered by their last access. */
+  private final LinkedHashMap<String, Entry> entries =
+    new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  /** Last writes to single databases. */
+  private final HashMap<String, Long> written = new HashMap<String, Long>();
+  /** Main properties. */
+  private final MainProp mprop;
+  /** Number of registered writing processes. */
+  private long writes;
+  /** Last write to all databases. */
+  private long all;
+  /** Size of all cached results. */
+  private long size;
+
+  /**
+   * Constructor.
+   * @param mp main properties
+   */
+  public ResultCache(final MainProp mp) {
+    mprop = mp;
+  }
+
+  /**
+   * Returns the key of a query result.
+   * @param query query string
+   * @param vars names, values and types of the bound variables
+   * @param ctx database context
+   * @return key, or {@code null} if the result cannot be cached in the
+   * current context
+   */
+  public String key(final String query, final String vars,
+      final Context ctx) {
+
+    if(max() == 0) return null;
+    // skip contexts that are restricted to a database path
+    final Nodes nodes = ctx.current();
+    if(nodes != null && !nodes.root) return null;
+
+    final StringBuilder sb = new StringBuilder(query).append('\0');
+    sb.append(vars).append('\0').append(ctx.user.name).append('\0');
+    if(nodes != null) sb.append(nodes.data.meta.name);
+    return sb.append('\0').append(ctx.prop).toString();
+  }
+
+  /**
+   * Checks if the result of a parsed query can be cached.
+   * @param qp query processor
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  public boolean cacheable(final QueryProcessor qp) throws QueryException {
+    qp.parse();
+    final QueryContext qc = qp.ctx;
+    final StringList db = new StringList();
+    if(qc.updating() || qc.external() ||
+        qc.ctxItem != null && qc.ctxItem.uses(Use.NDT) ||
+        !qc.databases(db) || qc.root.uses(Use.NDT)) return false;
+    // documents may also be retrieved from the file system
+    for(final String d : db) if(!mprop.dbexists(d)) return false;
+    for(final UserFunc f : qc.funcs.funcs()) if(f.uses(Use.NDT)) return false;
+    final VarStack vs = qc.vars.globals();
+    for(int v = 0; v < vs.size; ++v) {
+      final Expr e = vs.vars[v].expr();
+      if(e != null && e.uses(Use.NDT)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the current modification stamp, which must be passed on to
+   * {@link #put} if the query result is to be cached. Must be called after
+   * the process has been registered.
+   * @return stamp
+   */
+  public synchronized long stamp() {
+    return writes;
+  }
+
+  /**
+   * Returns a cached result. Must be called after the process has been
+   * registered.
+   * @param key key
+   * @return entry, or {@code null} if no valid result is cached
+   */
+  public synchronized Entry get(final String key) {
+    final Entry e = entries.get(key);
+    if(e == null) return null;
+    if(valid(e.db, e.stamp)) {
+      for(int m = 0; m < e.meta.length; m++) {
+        if(e.meta[m].version != e.versions[m]) {
+          remove(key);
+          return null;
+        }
+      }
+      return e;
+    }
+    remove(key);
+    return null;
+  }
+
+  /**
+   * Adds the result of a successfully evaluated query to the cache. Must be
+   * called before the process is unregistered and before the query is closed.
+   * @param key key
+   * @param qp query processor
+   * @param result serialized result
+   * @param hits number of results
+   * @param time evaluation time (nano seconds)
+   * @param stamp modification stamp before the query was evaluated
+   * @throws QueryException query exception
+   */
+  public void put(final String key, final QueryProcessor qp,
+      final byte[] result, final long hits, final long time, final long stamp)
+      throws QueryException {
+
+    final QueryContext qc = qp.ctx;
+    // skip queries that depend on the current time
+    if(qc.date != null) return;
+    final StringList db = new StringList();
+    qp.databases(db);
+    final MetaData[] meta = qc.resource.meta();
+    final long[] versions = new long[meta.length];
+    for(int m = 0; m < meta.length; m++) versions[m] = meta[m].version;
+    final Entry e = new Entry(result, hits, time, db, meta,
+        versions, stamp);
+
+    synchronized(this) {
+      // skip results of databases that have been updated in the meantime
+      if(!valid(db, stamp)) return;
+      remove(key);
+      entries.put(key, e);
+      size += result.length;
+      // remove least recently used entries
+      final long max = max();
+      final Iterator<Entry> it = entries.values().iterator();
+      while(size > max && it.hasNext()) {
+        size -= it.next().result.length;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Discards all cached results that access the specified databases.
+   * Called when a writing process has been registered.
+   * @param db names of the databases, or {@code null} for all databases
+   */
+  public synchronized void invalidate(final StringList db) {
+    ++writes;
+    if(db == null) {
+      all = writes;
+    } else {
+      for(final String d : db) written.put(d, writes);
+    }
+    final Iterator<Entry> it = entries.values().iterator();
+    while(it.hasNext()) {
+      final Entry e = it.next();
+      if(!valid(e.db, e.stamp)) {
+        size -= e.result.length;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Discards all cached results.
+   */
+  public synchronized void close() {
+    entries.clear();
+    size = 0;
+  }
+
+  /**
+   * Returns the number of cached results.
+   * @return number of results
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns an output stream that records the written bytes, unless they
+   * exceed the maximum size of a cached result.
+   * @param os output stream to be wrapped
+   * @return recording output stream
+   */
+  public Recorder recorder(final OutputStream os) {
+    return new Recorder(os, max() / 4);
+  }
+
+  /**
+   * Checks if none of the specified databases has been updated since the
+   * specified stamp.
+   * @param db database names
+   * @param stamp stamp
+   * @return result of check
+   */
+  private boolean valid(final StringList db, final long stamp) {
+    if(all > stamp) return false;
+    for(final String d : db) {
+      final Long w = written.get(d);
+      if(w != null && w > stamp) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Removes an entry.
+   * @param key key
+   */
+  private void remove(final String key) {
+    final Entry e = entries.remove(key);
+    if(e != null) size -= e.result.length;
+  }
+
+  /**
+   * Returns the maximum cache size in bytes.
+   * @return size
+   */
+  private long max() {
+    return (long) mprop.num(MainProp.RESULTCACHE) << 20;
+  }
+
+  /** Cached result. */
+  public static final class Entry {
+    /** Serialized result. */
+    public final byte[] result;
+    /** Number of results. */
+    public final long hits;
+    /** Evaluation time (nano seconds). */
+    public final long time;
+    /** Names of the accessed databases. */
+    final StringList db;
+    /** Meta data of the accessed databases. */
+    final MetaData[] meta;
+    /** Modification counters of the accessed databases. */
+    final long[] versions;
+    /** Modification stamp. */
+    final long stamp;
+
+    /**
+     * Constructor.
+     * @param r serialized result
+     * @param h number of results
+     * @param t evaluation time
+     * @param d database names
+     * @param m meta data
+     * @param v modification counters
+     * @param s modification stamp
+     */
+    Entry(final byte[] r, final long h, final long t, final StringList d,
+        final MetaData[] m, final long[] v, final long s) {
+      result = r;
+      hits = h;
+      time = t;
+      db = d;
+      meta = m;
+      versions = v;
+      stamp = s;
+    }
+  }
+
+  /** Output stream that records the written bytes. */
+  public static final class Recorder extends OutputStream {
+    /** Output stream. */
+    private final OutputStream os;
+    /** Maximum number of recorded bytes. */
+    private final long max;
+    /** Recorded bytes ({@code null} if the maximum size has been exceeded). */
+    private ByteList bytes = new ByteList();
+
+    /**
+     * Constructor.
+     * @param out output stream
+     * @param mx maximum number of recorded bytes
+     */
+    Recorder(final OutputStream out, final long mx) {
+      os = out;
+      max = mx;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      os.write(b);
+      if(bytes != null && check(1)) bytes.add(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len)
+        throws IOException {
+      os.write(b, off, len);
+      if(bytes != null && check(len)) bytes.add(b, off, off + len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      os.flush();
+    }
+
+    /**
+     * Returns the recorded bytes.
+     * @return bytes, or {@code null} if the maximum size has been exceeded
+     */
+    public byte[] bytes() {
+      return bytes != null ? bytes.toArray() : null;
+    }
+
+    /**
+     * Checks if the specified number of bytes can be recorded.
+     * @param len number of bytes
+     * @return result of check
+     */
+    private boolean check(final int len) {
+      if(bytes.size() + len <= max) return true;
+      bytes = null;
+      return false;
+    }
+  }
+}
@@ -69,6 +69,21 @@ public final class StaticContext {
     // decFormats
   }
 
+  /**
+   * Returns a copy of this context for a child query context. The static
+   * namespaces and decimal formats are shared, whereas the namespaces that
+   * are dynamically added during evaluation are copied.
+   * @return copy
+   */
+  StaticContext fork() {
+    final StaticContext sc = new StaticContext();
+    sc.copy(this);
+    sc.ns = ns.fork();
+    sc.initType = initType;
+    for(final byte[] k : decFormats) sc.decFormats.add(k, decFormats.get(k));
+    return sc;
+  }
+
   /**
    * Declares a namespace.
    * A namespace is undeclared if the {@code uri} is an empty string.
@@ -71,7 +71,7 @@ public final class Catch extends Single {
 
     if(!find(ex.err(), ex.qname())) return null;
 
-    final int s = prepare(ctx);
+    final int s = ctx.vars.size();
     try {
       int i = 0;
       final byte[] io = ex.file() == null ? EMPTY : token(ex.file().path());
@@ -79,7 +79,7 @@ public final class Catch extends Single {
       for(final Value v : new Value[] { ex.qname(),
           Str.get(ex.getLocalizedMessage()), val == null ? Empty.SEQ : val,
           Str.get(io), Int.get(ex.col()), Int.get(ex.line()), Empty.SEQ }) {
-        vars[i++].bind(v, ctx);
+        ctx.vars.add(vars[i++].copy().bind(v, ctx));
       }
       return ctx.value(expr);
     } finally {
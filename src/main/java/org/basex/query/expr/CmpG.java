@@ -5,6 +5,8 @@ import static org.basex.query.util.Err.*;
 
 import java.io.IOException;
 
+import org.basex.data.Categories;
+import org.basex.data.Data;
 import org.basex.index.IndexToken.IndexType;
 import org.basex.index.ValuesToken;
 import org.basex.io.serial.Serializer;
@@ -14,6 +16,7 @@ import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.func.Function;
 import org.basex.query.item.AtomType;
 import org.basex.query.item.Bln;
+import org.basex.query.item.DBNode;
 import org.basex.query.item.Item;
 import org.basex.query.item.NodeType;
 import org.basex.query.item.SeqType;
@@ -116,11 +119,13 @@ public final class CmpG extends Cmp {
   }
 
   /** Comparator. */
-  OpG op;
+  public OpG op;
   /** Index expression. */
   private IndexAccess[] iacc = {};
   /** Flag for atomic evaluation. */
   private boolean atomic;
+  /** Dictionary reference of the last compared string. */
+  private DictRef dict;
 
   /**
    * Constructor.
@@ -267,9 +272,41 @@ public final class CmpG extends Cmp {
         !ta.isFunction() && !tb.isFunction() ||
         ta == AtomType.QNM || tb == AtomType.QNM))
       XPTYPECMP.thrw(input, ta, tb);
+
+    // compare references of dictionary-encoded attribute values
+    if(op == OpG.EQ || op == OpG.NE) {
+      final int eq = ta == NodeType.ATT ? dict(a, b) :
+        tb == NodeType.ATT ? dict(b, a) : -1;
+      if(eq != -1) return eq == 1 == (op == OpG.EQ);
+    }
     return op.op.eval(input, a, b);
   }
 
+  /**
+   * Compares a dictionary-encoded attribute value with a string.
+   * @param a attribute
+   * @param s string
+   * @return {@code 1} if the values are equal, {@code 0} if they differ,
+   * or {@code -1} if the values cannot be compared via the dictionary
+   * @throws QueryException query exception
+   */
+  private int dict(final Item a, final Item s) throws QueryException {
+    if(!(a instanceof DBNode) ||
+        !s.type.isString() && s.type != AtomType.ATM) return -1;
+    final DBNode n = (DBNode) a;
+    final long off = n.data.valueOffset(n.pre);
+    if(off == 0) return -1;
+
+    final int name = Categories.name(off);
+    DictRef d = dict;
+    if(d == null || d.item != s || d.data != n.data || d.name != name) {
+      d = new DictRef(s, n.data, name,
+          n.data.valueOffset(name, s.string(input)));
+      dict = d;
+    }
+    return d.off == off ? 1 : 0;
+  }
+
   @Override
   public CmpG invert() {
     return expr[0].size() != 1 || expr[1].size() != 1 ? this :
@@ -371,6 +408,32 @@ public final class CmpG extends Cmp {
     ser.closeElement();
   }
 
+  /** Dictionary reference of a string. */
+  private static final class DictRef {
+    /** String item. */
+    final Item item;
+    /** Data reference. */
+    final Data data;
+    /** Id of the attribute name. */
+    final int name;
+    /** Dictionary reference ({@code 0} if the string is not found). */
+    final long off;
+
+    /**
+     * Constructor.
+     * @param it string item
+     * @param d data reference
+     * @param n id of the attribute name
+     * @param o dictionary reference
+     */
+    DictRef(final Item it, final Data d, final int n, final long o) {
+      item = it;
+      data = d;
+      name = n;
+      off = o;
+    }
+  }
+
   @Override
   public String description() {
     return "'" + op + "' expression";
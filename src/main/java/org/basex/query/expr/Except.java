@@ -1,15 +1,15 @@
 package org.basex.query.expr;
 
 import static org.basex.query.QueryText.*;
+import org.basex.data.Data;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
-import org.basex.query.item.Item;
 import org.basex.query.item.ANode;
 import org.basex.query.iter.Iter;
-import org.basex.query.iter.NodeCache;
 import org.basex.query.iter.NodeIter;
 import org.basex.util.Array;
 import org.basex.util.InputInfo;
+import org.basex.util.list.ObjList;
 
 /**
  * Except expression.
@@ -43,36 +43,21 @@ public final class Except extends Set {
   }
 
   @Override
-  protected NodeCache eval(final Iter[] iter) throws QueryException {
-    final NodeCache nc = new NodeCache().random();
-
-    for(Item it; (it = iter[0].next()) != null;) nc.add(checkNode(it));
-    final boolean db = nc.dbnodes();
-
-    for(int e = 1; e != expr.length && nc.size() != 0; ++e) {
-      final Iter ir = iter[e];
-      for(Item it; (it = ir.next()) != null;) {
-        final int i = nc.indexOf(checkNode(it), db);
-        if(i != -1) nc.delete(i);
-      }
-    }
-    return nc;
-  }
-
-  @Override
-  protected NodeIter iter(final Iter[] iter) {
-    return new SetIter(iter) {
+  protected NodeIter iter(final Iter[] iter, final ObjList<Data> order) {
+    return new SetIter(iter, order) {
       @Override
       public ANode next() throws QueryException {
         if(item == null) {
           item = new ANode[iter.length];
-          for(int i = 0; i != iter.length; ++i) next(i);
+          // skip other operands if the first operand is empty
+          if(!next(0)) return null;
+          for(int i = 1; i != iter.length; ++i) next(i);
         }
 
         for(int i = 1; i != item.length; ++i) {
           if(item[0] == null) return null;
           if(item[i] == null) continue;
-          final int d = item[0].diff(item[i]);
+          final int d = diff(item[0], item[i]);
 
           if(d < 0) {
             if(i + 1 == item.length) {
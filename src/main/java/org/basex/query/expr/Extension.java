@@ -6,6 +6,7 @@ import java.io.IOException;
 import org.basex.io.serial.Serializer;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
+import org.basex.query.flwor.GFLWOR;
 import org.basex.query.iter.Iter;
 import org.basex.util.InputInfo;
 
@@ -32,8 +33,13 @@ public final class Extension extends Single {
 
   @Override
   public Expr comp(final QueryContext ctx) throws QueryException {
-    // ignore pragma
-    return optPre(expr.comp(ctx), ctx);
+    // ignore pragmas, except for the parallel evaluation of FLWOR expressions
+    expr = expr.comp(ctx);
+    for(final Expr p : pragmas) {
+      final int t = ((Pragma) p).threads(ctx);
+      if(t != 0 && expr instanceof GFLWOR) ((GFLWOR) expr).parallel(t, ctx);
+    }
+    return optPre(expr, ctx);
   }
 
   @Override
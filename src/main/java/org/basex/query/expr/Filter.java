@@ -5,6 +5,7 @@ import java.io.IOException;
 import org.basex.io.serial.Serializer;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
+import org.basex.query.flwor.GFLWOR;
 import org.basex.query.item.Item;
 import org.basex.query.item.SeqType;
 import org.basex.query.item.SeqType.Occ;
@@ -24,7 +25,7 @@ import org.basex.util.InputInfo;
  */
 public class Filter extends Preds {
   /** Expression. */
-  Expr root;
+  public Expr root;
 
   /**
    * Constructor.
@@ -89,6 +90,10 @@ public class Filter extends Preds {
       }
     }
 
+    // only sort the requested tuples of a flwor expression
+    if(preds.length == 1 && preds[0] instanceof Pos && root instanceof GFLWOR)
+      ((GFLWOR) root).limit(((Pos) preds[0]).max, ctx);
+
     // check if offset will not be deterministic; e.g.:
     // (1 to 10)[xs:int(math:random() * 10)]
     boolean off = false;
@@ -1,13 +1,13 @@
 package org.basex.query.expr;
 
+import org.basex.data.Data;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
-import org.basex.query.item.Item;
 import org.basex.query.item.ANode;
 import org.basex.query.iter.Iter;
-import org.basex.query.iter.NodeCache;
 import org.basex.query.iter.NodeIter;
 import org.basex.util.InputInfo;
+import org.basex.util.list.ObjList;
 
 /**
  * Intersect expression.
@@ -32,28 +32,8 @@ public final class InterSect extends Set {
   }
 
   @Override
-  protected NodeCache eval(final Iter[] iter) throws QueryException {
-    NodeCache nc = new NodeCache();
-
-    for(Item it; (it = iter[0].next()) != null;) nc.add(checkNode(it));
-    final boolean db = nc.dbnodes();
-
-    for(int e = 1; e != expr.length && nc.size() != 0; ++e) {
-      final NodeCache nt = new NodeCache().random();
-      final Iter ir = iter[e];
-      for(Item it; (it = ir.next()) != null;) {
-        final ANode n = checkNode(it);
-        final int i = nc.indexOf(n, db);
-        if(i != -1) nt.add(n);
-      }
-      nc = nt;
-    }
-    return nc;
-  }
-
-  @Override
-  protected NodeIter iter(final Iter[] iter) {
-    return new SetIter(iter) {
+  protected NodeIter iter(final Iter[] iter, final ObjList<Data> order) {
+    return new SetIter(iter, order) {
       @Override
       public ANode next() throws QueryException {
         if(item == null) item = new ANode[iter.length];
@@ -61,7 +41,7 @@ public final class InterSect extends Set {
         for(int i = 0; i != iter.length; ++i) if(!next(i)) return null;
 
         for(int i = 1; i != item.length;) {
-          final int d = item[0].diff(item[i]);
+          final int d = diff(item[0], item[i]);
           if(d > 0) {
             if(!next(i)) return null;
           } else if(d < 0) {
@@ -2,8 +2,11 @@ package org.basex.query.expr;
 
 import java.io.IOException;
 import static org.basex.query.QueryText.*;
+import static org.basex.util.Token.*;
 
+import org.basex.core.MainProp;
 import org.basex.io.serial.Serializer;
+import org.basex.query.QueryContext;
 import org.basex.query.item.QNm;
 import org.basex.util.InputInfo;
 import org.basex.util.TokenBuilder;
@@ -32,6 +35,22 @@ public final class Pragma extends Simple {
     pContent = content;
   }
 
+  /**
+   * Returns the number of threads if this is a {@code basex:parallel} pragma.
+   * The number can be specified as pragma contents. It is limited by
+   * {@link MainProp#PARALLELTHREADS}, which is also returned by default.
+   * @param ctx query context
+   * @return number of threads, or {@code 0} if the expression is to be
+   * evaluated sequentially
+   */
+  int threads(final QueryContext ctx) {
+    if(!eq(qName.uri(), BASEXURI) || !eq(qName.local(), PARALLEL)) return 0;
+    final int max = ctx.context.mprop.num(MainProp.PARALLELTHREADS);
+    final int t = pContent.length == 0 ? max :
+      Math.min(toInt(pContent), max);
+    return t > 1 ? t : 0;
+  }
+
   @Override
   public void plan(final Serializer ser) throws IOException {
     ser.openElement(this, VAL, pContent);
@@ -4,6 +4,7 @@ import static org.basex.query.QueryText.*;
 
 import java.util.Locale;
 
+import org.basex.data.Data;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.item.Item;
@@ -14,6 +15,7 @@ import org.basex.query.iter.NodeCache;
 import org.basex.query.iter.NodeIter;
 import org.basex.util.InputInfo;
 import org.basex.util.Util;
+import org.basex.util.list.ObjList;
 
 /**
  * Set expression.
@@ -49,24 +51,51 @@ abstract class Set extends Arr {
   @Override
   public final NodeIter iter(final QueryContext ctx) throws QueryException {
     final Iter[] iter = new Iter[expr.length];
-    for(int e = 0; e != expr.length; ++e) iter[e] = ctx.iter(expr[e]);
-    return iterable ? iter(iter) : eval(iter).sort();
+    // operands that are not known to be sorted are cached and sorted lazily.
+    // the database order is shared, so that nodes of different databases
+    // can be compared by the merging iterators
+    final ObjList<Data> order = iterable ? null : new ObjList<Data>();
+    for(int e = 0; e != expr.length; ++e) {
+      final Iter ir = ctx.iter(expr[e]);
+      iter[e] = order == null ? ir : sort(ir, order);
+    }
+    return iter(iter, order);
   }
 
   /**
-   * Evaluates the specified iterators.
-   * @param iter iterators
-   * @return resulting iterator
-   * @throws QueryException query exception
+   * Returns an iterator, which returns the nodes of an operand in the
+   * order of {@link NodeCache#group}, followed by the document order.
+   * The nodes are cached and sorted when the first node is requested.
+   * @param ir operand iterator
+   * @param order order of databases
+   * @return iterator
    */
-  protected abstract NodeCache eval(final Iter[] iter) throws QueryException;
+  private NodeIter sort(final Iter ir, final ObjList<Data> order) {
+    return new NodeIter() {
+      /** Cached nodes. */
+      private NodeCache nc;
+
+      @Override
+      public ANode next() throws QueryException {
+        if(nc == null) {
+          nc = new NodeCache().random().order(order);
+          for(Item it; (it = ir.next()) != null;) nc.add(checkNode(it));
+        }
+        return nc.next();
+      }
+    };
+  }
 
   /**
    * Evaluates the specified iterators in an iterative manner.
+   * The nodes of each iterator must be sorted and duplicate-free.
    * @param iter iterators
+   * @param order order of databases, or {@code null} if all nodes are
+   * sorted in document order
    * @return resulting iterator
    */
-  protected abstract NodeIter iter(final Iter[] iter);
+  protected abstract NodeIter iter(final Iter[] iter,
+      final ObjList<Data> order);
 
   @Override
   public boolean iterable() {
@@ -79,15 +108,33 @@ abstract class Set extends Arr {
   abstract class SetIter extends NodeIter {
     /** Iterator. */
     final Iter[] iter;
+    /** Order of databases ({@code null}: document order). */
+    final ObjList<Data> order;
     /** Items. */
     ANode[] item;
 
     /**
      * Constructor.
      * @param ir iterator
+     * @param o order of databases
      */
-    SetIter(final Iter[] ir) {
+    SetIter(final Iter[] ir, final ObjList<Data> o) {
       iter = ir;
+      order = o;
+    }
+
+    /**
+     * Compares the order of two nodes.
+     * @param a first node
+     * @param b second node
+     * @return difference
+     */
+    int diff(final ANode a, final ANode b) {
+      if(order != null) {
+        final int d = NodeCache.group(a, order) - NodeCache.group(b, order);
+        if(d != 0) return d;
+      }
+      return a.diff(b);
     }
 
     @Override
@@ -78,7 +78,7 @@ public final class TypeCase extends Single {
     if(var.name == null) return ctx.iter(expr);
 
     final int s = ctx.vars.size();
-    ctx.vars.add(var.bind(seq, ctx).copy());
+    ctx.vars.add(var.copy().bind(seq, ctx));
     final ValueIter ic = ctx.value(expr).iter();
     ctx.vars.size(s);
     return ic;
@@ -1,6 +1,8 @@
 package org.basex.query.expr;
 
 import static org.basex.query.QueryText.*;
+
+import org.basex.data.Data;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.item.Empty;
@@ -11,6 +13,7 @@ import org.basex.query.iter.NodeCache;
 import org.basex.query.iter.NodeIter;
 import org.basex.util.Array;
 import org.basex.util.InputInfo;
+import org.basex.util.list.ObjList;
 
 /**
  * Union expression.
@@ -45,8 +48,13 @@ public final class Union extends Set {
       expr.length == 1 && iterable ? expr[0] : this;
   }
 
-  @Override
-  protected NodeCache eval(final Iter[] iter) throws QueryException {
+  /**
+   * Evaluates the specified iterators, which may return unsorted nodes.
+   * @param iter iterators
+   * @return resulting iterator
+   * @throws QueryException query exception
+   */
+  NodeCache eval(final Iter[] iter) throws QueryException {
     final NodeCache nc = new NodeCache().random();
     for(final Iter ir : iter) {
       for(Item it; (it = ir.next()) != null;) nc.add(checkNode(it));
@@ -55,8 +63,8 @@ public final class Union extends Set {
   }
 
   @Override
-  protected NodeIter iter(final Iter[] iter) {
-    return new SetIter(iter) {
+  protected NodeIter iter(final Iter[] iter, final ObjList<Data> order) {
+    return new SetIter(iter, order) {
       @Override
       public ANode next() throws QueryException {
         if(item == null) {
@@ -67,7 +75,7 @@ public final class Union extends Set {
         int m = -1;
         for(int i = 0; i != item.length; ++i) {
           if(item[i] == null) continue;
-          final int d = m == -1 ? 1 : item[m].diff(item[i]);
+          final int d = m == -1 ? 1 : diff(item[m], item[i]);
           if(d == 0) {
             next(i--);
           } else if(d > 0) {
@@ -68,20 +68,19 @@ public final class VarRef extends ParseExpr {
   @Override
   public Item item(final QueryContext ctx, final InputInfo ii)
       throws QueryException {
-    var = ctx.vars.get(var);
-    return var.item(ctx, ii);
+    // the resolved variable is not assigned, as the expression may be
+    // evaluated by several threads
+    return ctx.vars.get(var).item(ctx, ii);
   }
 
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
-    var = ctx.vars.get(var);
-    return ctx.iter(var);
+    return ctx.iter(ctx.vars.get(var));
   }
 
   @Override
   public Value value(final QueryContext ctx) throws QueryException {
-    var = ctx.vars.get(var);
-    return ctx.value(var);
+    return ctx.value(ctx.vars.get(var));
   }
 
   @Override
@@ -6,6 +6,7 @@ import org.basex.query.QueryException;
 import org.basex.query.expr.Expr;
 import org.basex.query.expr.VarRef;
 import org.basex.query.item.Item;
+import org.basex.query.item.Value;
 import org.basex.query.iter.Iter;
 import org.basex.query.util.Var;
 import org.basex.util.InputInfo;
@@ -50,6 +51,10 @@ public final class FLWR extends GFLWOR {
       private Iter[] iter;
       private Iter rtrn;
       private int p;
+      /** Parallel evaluation of the return clause. */
+      private Parallel par;
+      /** Flag for the last tuple. */
+      private boolean last;
 
       @Override
       public Item next() throws QueryException {
@@ -60,16 +65,21 @@ public final class FLWR extends GFLWOR {
             final Item i = rtrn.next();
             if(i != null) return i;
             rtrn = null;
-          } else {
-            while(iter[p].next() != null) {
-              if(p + 1 != fl.length) {
-                ++p;
-              } else if(where == null || where.ebv(ctx, input).bool(input)) {
-                rtrn = ctx.iter(ret);
-                break;
-              }
+          } else if(par != null) {
+            // evaluate return clause for next tuples, return oldest result
+            while(!last && !par.full()) {
+              if(tuple()) par.add();
+              else last = true;
+            }
+            final Value v = par.next();
+            if(v == null) {
+              par.close();
+              return null;
             }
-            if(rtrn == null && p-- == 0) return null;
+            rtrn = v.iter();
+          } else {
+            if(!tuple()) return null;
+            rtrn = ctx.iter(ret);
           }
         }
       }
@@ -81,10 +91,31 @@ public final class FLWR extends GFLWOR {
           iter = null;
           rtrn = null;
           p = 0;
+          if(par != null) par.close();
+          par = null;
+          last = false;
         }
         return true;
       }
 
+      /**
+       * Binds the variables of the next tuple that satisfies the where clause.
+       * @return {@code false} if no more tuples exist
+       * @throws QueryException query exception
+       */
+      private boolean tuple() throws QueryException {
+        while(true) {
+          while(iter[p].next() != null) {
+            if(p + 1 != fl.length) {
+              ++p;
+            } else if(where == null || where.ebv(ctx, input).bool(input)) {
+              return true;
+            }
+          }
+          if(p-- == 0) return false;
+        }
+      }
+
       /**
        * Initializes the iterator.
        * @throws QueryException query exception
@@ -93,6 +124,7 @@ public final class FLWR extends GFLWOR {
         if(iter != null) return;
         iter = new Iter[fl.length];
         for(int f = 0; f < fl.length; ++f) iter[f] = ctx.iter(fl[f]);
+        if(threads != 0) par = new Parallel(ret, threads, ctx);
       }
     };
   }
@@ -28,6 +28,8 @@ public final class For extends ForLet {
   final Var pos;
   /** Full-text score. */
   final Var score;
+  /** Hash join ({@code null} if the input is evaluated as it is). */
+  HashJoin join;
 
   /**
    * Constructor.
@@ -59,7 +61,7 @@ public final class For extends ForLet {
     expr = checkUp(expr, ctx).comp(ctx);
     type = expr.type();
     size = expr.size();
-    if(ctx.grouping) {
+    if(ctx.grouping != null) {
       var.ret = SeqType.get(type.type, Occ.ZM);
     } else {
       var.size = Math.min(1, size);
@@ -77,12 +79,15 @@ public final class For extends ForLet {
     final Var v = var.copy();
     final Var p = pos != null ? pos.copy() : null;
     final Var s = score != null ? score.copy() : null;
+    final HashJoin hj = join;
 
     return new Iter() {
       /** Variable stack size. */
       private int vs;
       /** Iterator flag. */
       private Iter ir;
+      /** Index of the hash join (created once for all iterations). */
+      private HashJoin.Index index;
       /** Counter. */
       private int c;
 
@@ -124,7 +129,12 @@ public final class For extends ForLet {
       private void init() throws QueryException {
         if(ir == null) {
           vs = ctx.vars.size();
-          ir = ctx.iter(expr);
+          if(hj != null) {
+            if(index == null) index = hj.index(ctx);
+            ir = hj.iter(ctx, index);
+          } else {
+            ir = ctx.iter(expr);
+          }
           ctx.vars.add(v);
           if(p != null) ctx.vars.add(p);
           if(s != null) ctx.vars.add(s);
@@ -158,6 +168,7 @@ public final class For extends ForLet {
     if(pos != null) ser.attribute(POS, token(pos.toString()));
     if(score != null) ser.attribute(token(SCORE), token(score.toString()));
     expr.plan(ser);
+    if(join != null) join.plan(ser);
     ser.closeElement();
   }
 
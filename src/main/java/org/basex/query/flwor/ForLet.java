@@ -48,7 +48,7 @@ public abstract class ForLet extends Single {
          (<a/>,<b/>)/(let $a := position() return $a=last())
      */
     if(expr.hasFreeVars(ctx) || expr.uses(Use.NDT) || expr.uses(Use.CTX) ||
-        expr.uses(Use.CNS) || ctx.grouping) return;
+        expr.uses(Use.CNS) || ctx.grouping != null) return;
 
     ctx.compInfo(OPTBIND, var);
     var.bind(expr, ctx);
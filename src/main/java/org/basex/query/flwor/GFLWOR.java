@@ -1,6 +1,7 @@
 package org.basex.query.flwor;
 
 import static org.basex.query.QueryText.*;
+import static org.basex.util.Token.*;
 
 import java.io.IOException;
 
@@ -13,9 +14,11 @@ import org.basex.query.expr.Filter;
 import org.basex.query.expr.If;
 import org.basex.query.expr.ParseExpr;
 import org.basex.query.func.Function;
+import org.basex.query.func.UserFunc;
 import org.basex.query.item.Empty;
 import org.basex.query.item.Item;
 import org.basex.query.item.SeqType;
+import org.basex.query.item.Value;
 import org.basex.query.iter.Iter;
 import org.basex.query.path.AxisPath;
 import org.basex.query.util.ValueList;
@@ -41,6 +44,10 @@ public class GFLWOR extends ParseExpr {
   private Order order;
   /** Group by clause. */
   private final Group group;
+  /** Threads for evaluating the return clause ({@code 0}: sequential). */
+  int threads;
+  /** Number of requested tuples of an ordered expression ({@code 0}: all). */
+  private int top;
 
   /**
    * GFLWOR constructor.
@@ -86,8 +93,8 @@ public class GFLWOR extends ParseExpr {
     compHoist(ctx);
     compWhere(ctx);
 
-    final boolean grp = ctx.grouping;
-    ctx.grouping = group != null;
+    final Group grp = ctx.grouping;
+    ctx.grouping = group;
 
     // optimize for/let clauses
     final int vs = ctx.vars.size();
@@ -124,6 +131,7 @@ public class GFLWOR extends ParseExpr {
     if(group != null) group.comp(ctx);
     if(order != null) order.comp(ctx);
     ret = ret.comp(ctx);
+    if(group != null) group.compRefs(ret, order);
     ctx.vars.size(vs);
     ctx.grouping = grp;
 
@@ -185,6 +193,7 @@ public class GFLWOR extends ParseExpr {
     type = SeqType.get(ret.type().type, size);
 
     compHoist(ctx);
+    compJoin(ctx);
     return this;
   }
 
@@ -219,6 +228,60 @@ public class GFLWOR extends ParseExpr {
     }
   }
 
+  /**
+   * Rewrites filtered inputs of inner for clauses to hash joins if they are
+   * compared with values of the outer clauses.
+   * @param ctx query context
+   */
+  private void compJoin(final QueryContext ctx) {
+    for(int f = 1; f < fl.length; f++) {
+      if(!(fl[f] instanceof For) || !fl[f].simple(false)) continue;
+      final For fr = (For) fl[f];
+      fr.join = HashJoin.get(fl, f);
+      if(fr.join != null) ctx.compInfo(OPTJOIN, fr.var);
+    }
+  }
+
+  /**
+   * Enables the parallel evaluation of the return clause (see
+   * {@link Parallel}). Called by the {@code basex:parallel} pragma.
+   * The expression will be evaluated sequentially if it contains no for
+   * clause or a group by clause, or if the return clause or one of the
+   * user-defined functions may create nodes or have side effects.
+   * New nodes are not created in parallel, as their identities are
+   * assigned from a global counter.
+   * @param t number of threads
+   * @param ctx query context
+   */
+  public final void parallel(final int t, final QueryContext ctx) {
+    if(group != null || ret.isValue() || ret.uses(Use.UPD) ||
+        ret.uses(Use.NDT) || ret.uses(Use.CNS)) return;
+    boolean f = false;
+    for(final ForLet l : fl) f |= l instanceof For;
+    if(!f) return;
+    for(final UserFunc uf : ctx.funcs.funcs()) {
+      if(uf.uses(Use.UPD) || uf.uses(Use.NDT) || uf.uses(Use.CNS)) return;
+    }
+    threads = t;
+    ctx.compInfo(OPTPARALLEL, t);
+  }
+
+  /**
+   * Limits the number of sorted tuples if only the first results of the
+   * expression will be requested (see {@link Sorter}). Called by filters
+   * with positional predicates and by {@code fn:subsequence}. The limit is
+   * ignored if the expression has no order by clause or a group by clause,
+   * or if the return clause may yield an empty sequence.
+   * @param k maximum number of requested results
+   * @param ctx query context
+   */
+  public final void limit(final long k, final QueryContext ctx) {
+    if(order == null || group != null || ret.type().occ.min == 0 || k < 1 ||
+        k > Integer.MAX_VALUE >> 1 || top != 0 && top <= k) return;
+    top = (int) k;
+    ctx.compInfo(OPTTOPK, k);
+  }
+
   /**
    * Rewrites a where clause to one or more predicates.
    * @param ctx query context
@@ -288,19 +351,25 @@ public class GFLWOR extends ParseExpr {
     // evaluate pre grouping tuples
     ObjList<Item[]> keys = null;
     ValueList vals = null;
-    if(order != null) {
+    if(group != null && order != null) {
       keys = new ObjList<Item[]>();
       vals = new ValueList();
     }
-    if(group != null) group.init(order);
-    iter(ctx, iter, 0, keys, vals);
+    final GroupPartition gp = group != null ? group.init(order) : null;
+    // order != null, otherwise it would have been handled in group
+    final Sorter sort = gp == null ? new Sorter(order, top, ctx) : null;
+    final Parallel par = threads != 0 ? new Parallel(ret, threads, ctx) : null;
+    try {
+      iter(ctx, iter, 0, gp, par, sort);
+      if(par != null) for(Value v; (v = par.next()) != null;) sort.add(v);
+    } finally {
+      if(par != null) par.close();
+    }
     ctx.vars.size(vs);
+    if(gp == null) return sort.iter();
 
     for(final ForLet f : fl) ctx.vars.add(f.var);
-
-    // order != null, otherwise it would have been handled in group
-    final Iter ir = group != null ?
-        group.gp.ret(ctx, ret, keys, vals) : ctx.iter(order.set(keys, vals));
+    final Iter ir = gp.ret(ctx, ret, keys, vals);
     ctx.vars.size(vs);
     return ir;
   }
@@ -310,22 +379,32 @@ public class GFLWOR extends ParseExpr {
    * @param ctx query context
    * @param it iterator
    * @param p variable position
-   * @param ks sort keys
-   * @param vs values to sort
+   * @param gp grouping partition ({@code null} if no group by clause exists)
+   * @param par parallel evaluation of the return clause (may be {@code null})
+   * @param sort sorted tuples ({@code null} if a group by clause exists)
    * @throws QueryException query exception
    */
   private void iter(final QueryContext ctx, final Iter[] it, final int p,
-      final ObjList<Item[]> ks, final ValueList vs) throws QueryException {
+      final GroupPartition gp, final Parallel par, final Sorter sort)
+      throws QueryException {
     final boolean more = p + 1 != fl.length;
     while(it[p].next() != null) {
       if(more) {
-        iter(ctx, it, p + 1, ks, vs);
+        iter(ctx, it, p + 1, gp, par, sort);
       } else if(where == null || where.ebv(ctx, input).bool(input)) {
-        if(group != null) {
-          group.gp.add(ctx);
-        } else if(order != null) {
-          // order by will be handled in group by otherwise
-          order.add(ctx, ret, ks, vs);
+        if(gp != null) {
+          // order by will be handled in group by
+          gp.add(ctx);
+        } else {
+          final Item[] k = sort.key();
+          if(!sort.accept(k)) continue;
+          if(par != null) {
+            if(par.full()) sort.add(par.next());
+            sort.defer(k);
+            par.add();
+          } else {
+            sort.add(k, ctx.value(ret));
+          }
         }
       }
     }
@@ -376,7 +455,8 @@ public class GFLWOR extends ParseExpr {
 
   @Override
   public final void plan(final Serializer ser) throws IOException {
-    ser.openElement(this);
+    if(threads != 0) ser.openElement(this, PARALLEL, token(threads));
+    else ser.openElement(this);
     for(final ForLet f : fl) f.plan(ser);
     if(where != null) {
       ser.openElement(WHR);
@@ -8,12 +8,15 @@ import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.expr.Expr;
 import org.basex.query.expr.ParseExpr;
+import org.basex.query.expr.VarRef;
+import org.basex.query.func.Function;
 import org.basex.query.item.SeqType;
 import org.basex.query.iter.Iter;
 import org.basex.query.util.Var;
 import org.basex.util.InputInfo;
 import org.basex.util.TokenBuilder;
 import org.basex.util.Util;
+import org.basex.util.list.ObjList;
 
 /**
  * Implementation of the group by clause.
@@ -22,12 +25,21 @@ import org.basex.util.Util;
  * @author Michael Seiferle
  */
 public final class Group extends ParseExpr {
+  /** Aggregating functions, which are computed while tuples are grouped. */
+  private static final Function[] AGGR = {
+    Function.COUNT, Function.SUM, Function.MIN, Function.MAX, Function.AVG
+  };
+
   /** Group by specification. */
   private final Var[] groupby;
   /** Non-grouping variables. */
   private final Var[][] nongroup;
-  /** Grouping partition. **/
-  GroupPartition gp;
+  /** Variables for the aggregates of the non-grouping variables. */
+  private Var[][] aggr;
+  /** Flags for non-grouping variables whose items are referenced. */
+  private boolean[] refs;
+  /** Referenced aggregates. */
+  private Aggregate[] aggs = {};
 
   /**
    * Constructor.
@@ -44,11 +56,12 @@ public final class Group extends ParseExpr {
   }
 
   /**
-   * Initializes the grouping partition.
+   * Creates a new grouping partition.
    * @param ob order by specifier
+   * @return grouping partition
    */
-  void init(final Order ob) {
-    gp = new GroupPartition(groupby, nongroup, ob, input);
+  GroupPartition init(final Order ob) {
+    return new GroupPartition(groupby, nongroup, refs, aggs, ob, input);
   }
 
   @Override
@@ -58,10 +71,76 @@ public final class Group extends ParseExpr {
       if(g.ret != null) g.ret = SeqType.get(g.ret.type, 1);
     }
 
-    for(final Var v : nongroup[1]) ctx.vars.add(v);
+    final Var[] ng = nongroup[1];
+    aggr = new Var[ng.length][AGGR.length];
+    for(int n = 0; n < ng.length; ++n) {
+      ctx.vars.add(ng[n]);
+      // declare variables for aggregates, which may be referenced later on
+      for(int a = 0; a < AGGR.length; ++a) {
+        aggr[n][a] = Var.create(ctx, input, ng[n].name, null);
+        ctx.vars.add(aggr[n][a]);
+      }
+    }
     return this;
   }
 
+  /**
+   * Rewrites an aggregating function on a non-grouping variable to a reference
+   * to its aggregate, which is computed while the tuples are grouped. Called
+   * by the compiled function.
+   * @param f function
+   * @param ref variable reference (argument of the function)
+   * @param ctx query context
+   * @return variable reference, or {@code null} if the function cannot be
+   * rewritten
+   * @throws QueryException query exception
+   */
+  public Expr aggregate(final Function f, final VarRef ref,
+      final QueryContext ctx) throws QueryException {
+    final Var[] ng = nongroup[1];
+    for(int n = 0; n < ng.length; ++n) {
+      if(!ref.var.is(ng[n])) continue;
+      for(int a = 0; a < AGGR.length; ++a) {
+        if(AGGR[a] != f) continue;
+        ctx.compInfo(OPTAGGR, f.get(input, ref));
+        return new VarRef(input, aggr[n][a]).comp(ctx);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Determines the non-grouping variables and aggregates that are referenced
+   * by the return and order by clauses. Items of other variables are not
+   * kept when the tuples are grouped.
+   * @param ret return clause
+   * @param ord order by clause (may be {@code null})
+   */
+  void compRefs(final Expr ret, final Order ord) {
+    final Var[] ng = nongroup[1];
+    refs = new boolean[ng.length];
+    final ObjList<Aggregate> al = new ObjList<Aggregate>();
+    for(int n = 0; n < ng.length; ++n) {
+      refs[n] = count(ng[n], ret, ord) != 0;
+      for(int a = 0; a < AGGR.length; ++a) {
+        if(count(aggr[n][a], ret, ord) != 0)
+          al.add(new Aggregate(AGGR[a], n, aggr[n][a]));
+      }
+    }
+    aggs = al.toArray(new Aggregate[al.size()]);
+  }
+
+  /**
+   * Counts the references to the specified variable.
+   * @param v variable
+   * @param ret return clause
+   * @param ord order by clause (may be {@code null})
+   * @return number of references
+   */
+  private static int count(final Var v, final Expr ret, final Order ord) {
+    return ret.count(v) + (ord != null ? ord.count(v) : 0);
+  }
+
   @Override
   public Iter iter(final QueryContext ctx) {
     throw Util.notexpected(this);
@@ -107,4 +186,26 @@ public final class Group extends ParseExpr {
     return new TokenBuilder(' ' + GROUP + ' ' + BY + ' ').
       addSep(groupby, SEP).toString();
   }
+
+  /** Aggregate of a non-grouping variable. */
+  static final class Aggregate {
+    /** Aggregating function. */
+    final Function func;
+    /** Index of the non-grouping variable. */
+    final int var;
+    /** Variable, which is bound to the aggregate. */
+    final Var agg;
+
+    /**
+     * Constructor.
+     * @param f aggregating function
+     * @param v index of the non-grouping variable
+     * @param a variable bound to the aggregate
+     */
+    Aggregate(final Function f, final int v, final Var a) {
+      func = f;
+      var = v;
+      agg = a;
+    }
+  }
 }
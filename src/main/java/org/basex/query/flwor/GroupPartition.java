@@ -1,9 +1,24 @@
 package org.basex.query.flwor;
 
 import static org.basex.query.util.Err.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.basex.core.Prop;
+import org.basex.io.IOFile;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.ArrayOutput;
+import org.basex.io.out.DataOutput;
 import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
+import org.basex.query.expr.Calc;
 import org.basex.query.expr.Expr;
+import org.basex.query.flwor.Group.Aggregate;
+import org.basex.query.func.Function;
+import org.basex.query.item.Empty;
+import org.basex.query.item.Int;
 import org.basex.query.item.Item;
 import org.basex.query.item.Value;
 import org.basex.query.iter.ItemCache;
@@ -11,6 +26,7 @@ import org.basex.query.iter.Iter;
 import org.basex.query.util.ValueList;
 import org.basex.query.util.Var;
 import org.basex.util.InputInfo;
+import org.basex.util.Util;
 import org.basex.util.hash.IntMap;
 import org.basex.util.list.IntList;
 import org.basex.util.list.ObjList;
@@ -18,6 +34,14 @@ import org.basex.util.list.ObjList;
 /**
  * Stores the grouping for a group by clause.
  *
+ * <p>Items of non-grouping variables are only kept if they are referenced.
+ * Aggregates of non-grouping variables (see {@link Group#aggregate}) are
+ * computed while the tuples are grouped. If the number of kept items reaches
+ * the limit specified by {@link Prop#GROUPLIMIT}, the items of each group
+ * are appended to a temporary file as a chunk, which is linked to the
+ * previous chunk of the same group. Groups with items that cannot be written
+ * (see {@link Spill}) are kept in main memory.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Michael Seiferle
  */
@@ -31,29 +55,68 @@ final class GroupPartition {
   private final Var[] gv;
   /** Non-grouping variables. */
   private final Var[][] ngv;
+  /** Flags for non-grouping variables whose items are kept. */
+  private final boolean[] keep;
+  /** Aggregates of non-grouping variables. */
+  private final Aggregate[] aggs;
 
   /** Group partitioning. */
   private final ObjList<GroupNode> part = new ObjList<GroupNode>();
   /** Resulting sequence for non-grouping variables. */
   private final ObjList<ItemCache[]> items;
+  /** Running aggregates of each group. */
+  private final ObjList<Item[]> results;
+  /** Number of aggregated items of each group. */
+  private final ObjList<long[]> counts;
   /** HashValue, position (with overflow bucket). */
   private final IntMap<IntList> hashes = new IntMap<IntList>();
 
+  /** Maximum number of items kept in main memory ({@code 0}: unlimited). */
+  private int limit;
+  /** Number of items kept in main memory. */
+  private long size;
+  /** Number of kept items that triggers writing them to disk. */
+  private long max;
+  /** Groups with items in main memory. */
+  private IntList dirty;
+  /** Offsets of the last written chunk of each group ({@code -1}: none). */
+  private long[] chunks;
+  /** Written items. */
+  private Spill spill;
+  /** Temporary file. */
+  private IOFile file;
+  /** Output stream. */
+  private DataOutput out;
+
   /**
    * Sets up an empty partitioning.
    * Sets up the ordering scheme.
    * @param g grouping variables
    * @param ng non-grouping variables
+   * @param k flags for non-grouping variables whose items are kept
+   * ({@code null}: all variables)
+   * @param a aggregates of non-grouping variables
    * @param ob order by specifier
    * @param ii input info
    */
-  GroupPartition(final Var[] g, final Var[][] ng, final Order ob,
-      final InputInfo ii) {
+  GroupPartition(final Var[] g, final Var[][] ng, final boolean[] k,
+      final Aggregate[] a, final Order ob, final InputInfo ii) {
     gv = g;
     ngv = ng;
     order = ob;
-    items = ngv[0].length != 0 ? new ObjList<ItemCache[]>() : null;
     input = ii;
+    aggs = a;
+    if(k == null) {
+      keep = new boolean[ngv[0].length];
+      Arrays.fill(keep, true);
+    } else {
+      keep = k;
+    }
+    boolean kp = false;
+    for(final boolean b : keep) kp |= b;
+    items = kp ? new ObjList<ItemCache[]>() : null;
+    results = aggs.length != 0 ? new ObjList<Item[]>() : null;
+    counts = aggs.length != 0 ? new ObjList<long[]>() : null;
   }
 
   /**
@@ -101,23 +164,54 @@ final class GroupPartition {
       pos.add(p);
     }
 
-    final int ngl = ngv[0].length;
+    // no non-grouping variables are referenced
+    if(items == null && results == null) return;
 
-    // no non-grouping variables exist
-    if(ngl == 0) return;
+    // computes the aggregates of the p-th partition
+    if(results != null) {
+      if(p == results.size()) {
+        results.add(new Item[aggs.length]);
+        counts.add(new long[aggs.length]);
+      }
+      final Item[] res = results.get(p);
+      final long[] cnt = counts.get(p);
+      for(int a = 0; a < aggs.length; ++a) {
+        final Aggregate ag = aggs[a];
+        final Value v = ctx.value(ctx.vars.get(ngv[0][ag.var]));
+        cnt[a] += v.size();
+        if(ag.func != Function.COUNT) res[a] = aggregate(ag, res[a], v, ctx);
+      }
+    }
+    if(items == null) return;
 
     // adds the current non-grouping variable bindings to the p-th partition.
-    if(p == items.size()) items.add(new ItemCache[ngl]);
+    final int ngl = ngv[0].length;
+    if(p == items.size()) {
+      items.add(new ItemCache[ngl]);
+      if(limit == 0) init(ctx);
+    }
     final ItemCache[] sq = items.get(p);
 
+    boolean empty = true;
+    long added = 0;
     for(int i = 0; i < ngl; ++i) {
+      if(!keep[i]) continue;
       ItemCache ic = sq[i];
-      final Value result = ctx.value(ctx.vars.get(ngv[0][i]));
       if(ic == null) {
         ic = new ItemCache();
         sq[i] = ic;
+      } else if(ic.size() != 0) {
+        empty = false;
       }
+      final Value result = ctx.value(ctx.vars.get(ngv[0][i]));
       ic.add(result);
+      added += result.size();
+    }
+    size += added;
+
+    if(limit > 0) {
+      if(empty && added != 0) dirty.add(p);
+      if(size >= max) write(ctx);
     }
   }
 
@@ -134,21 +228,207 @@ final class GroupPartition {
       final ValueList vs) throws QueryException {
     final ItemCache ic = new ItemCache();
 
-    for(int i = 0; i < part.size(); ++i) {
-      final GroupNode gn = part.get(i);
-      for(int j = 0; j < gv.length; ++j)
-        ctx.vars.add(gv[j].copy().bind(gn.vals[j], ctx));
+    RandomAccessFile in = null;
+    try {
+      if(out != null) {
+        out.close();
+        in = new RandomAccessFile(file.file(), "r");
+      }
+      for(int i = 0; i < part.size(); ++i) {
+        final GroupNode gn = part.get(i);
+        for(int j = 0; j < gv.length; ++j)
+          ctx.vars.add(gv[j].copy().bind(gn.vals[j], ctx));
 
-      if(items != null) {
-        final ItemCache[] ii = items.get(i);
-        for(int j = 0; j < ii.length; ++j) {
-          ctx.vars.add(ngv[1][j].copy().bind(ii[j].value(), ctx));
+        if(items != null) {
+          ItemCache[] ii = items.get(i);
+          if(in != null && i < chunks.length && chunks[i] != -1)
+            ii = read(in, chunks[i], ii);
+          for(int j = 0; j < ii.length; ++j) {
+            if(!keep[j]) continue;
+            ctx.vars.add(ngv[1][j].copy().bind(ii[j].value(), ctx));
+          }
+          // release memory of evaluated groups
+          items.set(i, null);
+        }
+        if(results != null) {
+          final Item[] res = results.get(i);
+          final long[] cnt = counts.get(i);
+          for(int a = 0; a < aggs.length; ++a) {
+            ctx.vars.add(aggs[a].agg.copy().bind(
+                result(aggs[a].func, res[a], cnt[a]), ctx));
+          }
         }
+        if(order != null) {
+          order.add(ctx, ret, ks, vs);
+        } else ic.add(ctx.value(ret));
       }
-      if(order != null) {
-        order.add(ctx, ret, ks, vs);
-      } else ic.add(ctx.value(ret));
+    } catch(final IOException ex) {
+      throw IOERR.thrw(input, ex);
+    } finally {
+      if(in != null) try { in.close(); } catch(final IOException ex) { }
+      if(file != null) file.delete();
+    }
+    return order != null ? order.iter(ctx, ks, vs) : ic;
+  }
+
+  /**
+   * Adds a value to a running aggregate.
+   * @param ag aggregate
+   * @param res current aggregate ({@code null} if no item has been added yet)
+   * @param v value to be added
+   * @param ctx query context
+   * @return new aggregate
+   * @throws QueryException query exception
+   */
+  private Item aggregate(final Aggregate ag, final Item res, final Value v,
+      final QueryContext ctx) throws QueryException {
+
+    if(v.size() == 0) return res;
+    // averages are computed from the sum and the number of items
+    final Function f = ag.func == Function.AVG ? Function.SUM : ag.func;
+    final ItemCache ic = new ItemCache();
+    if(res != null) ic.add(res);
+    ic.add(v);
+    return f.get(input, ic.value()).item(ctx, input);
+  }
+
+  /**
+   * Returns the final result of an aggregate.
+   * @param f aggregating function
+   * @param res running aggregate ({@code null} if no item has been added)
+   * @param c number of aggregated items
+   * @return result
+   * @throws QueryException query exception
+   */
+  private Value result(final Function f, final Item res, final long c)
+      throws QueryException {
+    switch(f) {
+      case COUNT: return Int.get(c);
+      case SUM:   return res != null ? res : Int.get(0);
+      case AVG:   return res != null ? Calc.DIV.ev(input, res, Int.get(c)) :
+        Empty.SEQ;
+      default:    return res != null ? res : Empty.SEQ;
+    }
+  }
+
+  /**
+   * Initializes the temporary storage of the kept items.
+   * @param ctx query context
+   */
+  private void init(final QueryContext ctx) {
+    limit = ctx.context.prop.num(Prop.GROUPLIMIT);
+    if(limit == 0) {
+      limit = -1;
+    } else {
+      max = limit;
+      dirty = new IntList();
+      chunks = new long[0];
+      spill = new Spill(ctx);
+    }
+  }
+
+  /**
+   * Writes the kept items of all groups to the temporary file.
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  private void write(final QueryContext ctx) throws QueryException {
+    ctx.checkStop();
+    try {
+      if(out == null) {
+        file = ctx.resource.temp();
+        out = new DataOutput(file);
+      }
+      final int ds = dirty.size();
+      for(int d = 0; d < ds; ++d) {
+        final int p = dirty.get(d);
+        final ItemCache[] sq = items.get(p);
+        final byte[] chunk = chunk(sq);
+        // keep all items of the group in main memory if they cannot be written
+        if(chunk == null) continue;
+        if(p >= chunks.length) {
+          final int l = chunks.length;
+          chunks = Arrays.copyOf(chunks, Math.max(p + 1, l << 1));
+          Arrays.fill(chunks, l, chunks.length, -1);
+        }
+        final long off = out.size();
+        out.write8(chunks[p]);
+        out.write4(chunk.length);
+        out.writeBytes(chunk);
+        chunks[p] = off;
+        for(final ItemCache ic : sq) {
+          if(ic == null) continue;
+          size -= ic.size();
+          ic.size(0);
+        }
+      }
+    } catch(final IOException ex) {
+      // keep all remaining items in main memory
+      Util.debug(ex);
+      limit = -1;
+      return;
+    }
+    dirty.reset();
+    max = size + limit;
+  }
+
+  /**
+   * Serializes the kept items of a group.
+   * @param sq items
+   * @return chunk, or {@code null} if the items cannot be written
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  private byte[] chunk(final ItemCache[] sq)
+      throws IOException, QueryException {
+    final ArrayOutput ao = new ArrayOutput();
+    final DataOutput dout = new DataOutput(ao);
+    for(int i = 0; i < sq.length; ++i) {
+      if(!keep[i]) continue;
+      final ItemCache ic = sq[i];
+      final int is = ic != null ? (int) ic.size() : 0;
+      dout.writeNum(is);
+      for(int j = 0; j < is; ++j) if(!spill.write(dout, ic.get(j))) return null;
+    }
+    return ao.toArray();
+  }
+
+  /**
+   * Reads the written items of a group and prepends them to the items in
+   * main memory.
+   * @param in temporary file
+   * @param off offset of the last chunk of the group
+   * @param sq items in main memory
+   * @return all items
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  private ItemCache[] read(final RandomAccessFile in, final long off,
+      final ItemCache[] sq) throws IOException, QueryException {
+
+    // collect chunks, starting with the last one
+    final ObjList<byte[]> list = new ObjList<byte[]>();
+    for(long o = off; o != -1;) {
+      in.seek(o);
+      o = in.readLong();
+      final byte[] chunk = new byte[in.readInt()];
+      in.readFully(chunk);
+      list.add(chunk);
+    }
+
+    final ItemCache[] all = new ItemCache[sq.length];
+    for(int i = 0; i < sq.length; ++i) if(keep[i]) all[i] = new ItemCache();
+    for(int c = list.size() - 1; c >= 0; --c) {
+      final DataInput din = new DataInput(list.get(c));
+      for(int i = 0; i < sq.length; ++i) {
+        if(!keep[i]) continue;
+        final int is = din.readNum();
+        for(int j = 0; j < is; ++j) all[i].add(spill.read(din));
+      }
+    }
+    for(int i = 0; i < sq.length; ++i) {
+      if(keep[i] && sq[i] != null) all[i].add(sq[i].value());
     }
-    return order != null ? ctx.iter(order.set(ks, vs)) : ic;
+    return all;
   }
 }
@@ -0,0 +1,411 @@
+package org.basex.query.flwor;
+
+import static org.basex.query.QueryText.*;
+
+import java.io.IOException;
+
+import org.basex.io.serial.Serializer;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.expr.CmpG;
+import org.basex.query.expr.CmpG.OpG;
+import org.basex.query.expr.Expr;
+import org.basex.query.expr.Expr.Use;
+import org.basex.query.expr.Filter;
+import org.basex.query.expr.Preds;
+import org.basex.query.item.AtomType;
+import org.basex.query.item.Item;
+import org.basex.query.item.Type;
+import org.basex.query.item.Value;
+import org.basex.query.iter.ItemCache;
+import org.basex.query.iter.Iter;
+import org.basex.query.path.AxisPath;
+import org.basex.query.util.Var;
+import org.basex.util.InputInfo;
+import org.basex.util.Token;
+import org.basex.util.hash.TokenObjMap;
+import org.basex.util.list.IntList;
+import org.basex.util.list.ObjList;
+
+/**
+ * Hash join, which is applied to the input of an inner for clause if it is
+ * filtered by a general equality comparison with an expression depending on
+ * the outer clauses. Example:
+ *
+ * <pre>for $a in X for $b in Y[@ref = $a/@id] ...</pre>
+ *
+ * The unfiltered input ({@code Y}) is evaluated once per evaluation of the
+ * FLWOR expression, and its items are indexed by the atomized values of the
+ * inner operand ({@code @ref}). For each iteration of the outer clauses, the
+ * index is probed with the values of the outer operand ({@code $a/@id}).
+ * The returned candidates are checked against the original predicates; if
+ * the value types of the two operands may not be compared via hash values,
+ * all items are checked. The results thus conform to the semantics of
+ * general comparisons, and they are returned in their original order.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class HashJoin {
+  /** Unfiltered input. */
+  private final Expr input;
+  /** Original predicates. */
+  private final Preds preds;
+  /** Inner operand, depending on the context item. */
+  private final Expr inner;
+  /** Outer operand, depending on the outer clauses. */
+  private final Expr outer;
+  /** Input info. */
+  private final InputInfo info;
+
+  /**
+   * Constructor.
+   * @param in unfiltered input
+   * @param p original predicates
+   * @param i inner operand
+   * @param o outer operand
+   * @param ii input info
+   */
+  private HashJoin(final Expr in, final Preds p, final Expr i, final Expr o,
+      final InputInfo ii) {
+    input = in;
+    preds = p;
+    inner = i;
+    outer = o;
+    info = ii;
+  }
+
+  /**
+   * Returns a hash join for the specified for clause, or {@code null} if
+   * the clause cannot be rewritten.
+   * @param fl for/let clauses
+   * @param f index of the for clause
+   * @return hash join or {@code null}
+   */
+  static HashJoin get(final ForLet[] fl, final int f) {
+
+    // collect variables of the outer clauses that change with each iteration
+    final ObjList<Var> vars = new ObjList<Var>();
+    for(int o = 0; o < f; ++o) {
+      if(fl[o] instanceof For || depends(fl[o].expr, vars)) {
+        for(final Var v : fl[o].vars()) vars.add(v);
+      }
+    }
+    if(vars.size() == 0) return null;
+
+    // find predicates of a filter or the last step of a path
+    final Expr expr = fl[f].expr;
+    final Preds preds;
+    final Expr root;
+    if(expr instanceof Filter) {
+      preds = (Filter) expr;
+      root = ((Filter) expr).root;
+    } else if(expr instanceof AxisPath) {
+      final AxisPath path = (AxisPath) expr;
+      preds = path.step(path.steps.length - 1);
+      root = path;
+    } else {
+      return null;
+    }
+
+    // predicates must not be positional
+    CmpG cmp = null;
+    int ip = 0;
+    for(final Expr p : preds.preds) {
+      if(p.type().mayBeNumber() || p.uses(Use.POS)) return null;
+      if(cmp != null || !(p instanceof CmpG) || ((CmpG) p).op != OpG.EQ)
+        continue;
+      // find operand that depends on the context
+      final Expr[] ops = ((CmpG) p).expr;
+      for(int i = 0; i < 2 && cmp == null; ++i) {
+        final Expr in = ops[i];
+        final Expr out = ops[1 - i];
+        if(in.uses(Use.CTX) && !in.uses(Use.NDT) && !depends(in, vars) &&
+           !out.uses(Use.CTX) && !out.uses(Use.NDT) && depends(out, vars)) {
+          cmp = (CmpG) p;
+          ip = i;
+        }
+      }
+    }
+    if(cmp == null) return null;
+
+    // the unfiltered input must be independent from the outer clauses
+    final Expr in = root instanceof AxisPath ?
+        ((AxisPath) root).dropPreds() : root;
+    if(in.uses(Use.NDT) || in.uses(Use.CNS) || depends(in, vars))
+      return null;
+    return new HashJoin(in, preds, cmp.expr[ip], cmp.expr[1 - ip],
+        cmp.input);
+  }
+
+  /**
+   * Checks if the specified expression references one of the variables.
+   * @param e expression
+   * @param vars variables
+   * @return result of check
+   */
+  private static boolean depends(final Expr e, final ObjList<Var> vars) {
+    for(final Var v : vars) if(e.count(v) != 0) return true;
+    return false;
+  }
+
+  /**
+   * Evaluates the input and creates an index for its items.
+   * @param ctx query context
+   * @return index
+   * @throws QueryException query exception
+   */
+  Index index(final QueryContext ctx) throws QueryException {
+    return new Index(ctx);
+  }
+
+  /**
+   * Returns the items of the input that match the current values of the
+   * outer operand.
+   * @param ctx query context
+   * @param index index
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  Iter iter(final QueryContext ctx, final Index index) throws QueryException {
+    final ItemCache ic = new ItemCache();
+    final IntList cand = index.probe(ctx);
+    final Value v = ctx.value;
+    try {
+      if(cand == null) {
+        final ItemCache items = index.items;
+        final int is = (int) items.size();
+        for(int i = 0; i < is; ++i) add(items.get(i), ic, ctx);
+      } else {
+        cand.sort();
+        final int cs = cand.size();
+        for(int c = 0; c < cs; ++c) {
+          final int i = cand.get(c);
+          if(c == 0 || i != cand.get(c - 1)) add(index.items.get(i), ic, ctx);
+        }
+      }
+    } finally {
+      ctx.value = v;
+    }
+    return ic;
+  }
+
+  /**
+   * Adds an item to the results if it matches the original predicates.
+   * @param it item
+   * @param ic results
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  private void add(final Item it, final ItemCache ic, final QueryContext ctx)
+      throws QueryException {
+    if(preds.preds(it, ctx)) ic.add(it);
+  }
+
+  /**
+   * Serializes the join.
+   * @param ser serializer
+   * @throws IOException I/O exception
+   */
+  void plan(final Serializer ser) throws IOException {
+    ser.openElement(HASHJOIN);
+    input.plan(ser);
+    inner.plan(ser);
+    outer.plan(ser);
+    ser.closeElement();
+  }
+
+  /** Index of the input items. */
+  final class Index {
+    /** Input items. */
+    final ItemCache items = new ItemCache();
+    /** Positions of items with string keys (including untyped values). */
+    private final TokenObjMap<IntList> strings = new TokenObjMap<IntList>();
+    /** Positions of items with numeric keys. */
+    private final TokenObjMap<IntList> numbers = new TokenObjMap<IntList>();
+    /** Untyped keys, which are converted to numbers on demand. */
+    private ObjList<Item> untyped = new ObjList<Item>();
+    /** Positions of the untyped keys. */
+    private IntList upos = new IntList();
+    /** Flag for keys of type string. */
+    private boolean str;
+    /** Flag for numeric keys. */
+    private boolean num;
+    /** Flag for keys of type float. */
+    private boolean flt;
+    /** Flag for integer and decimal keys. */
+    private boolean dec;
+    /** Flag for untyped keys that cannot be converted to numbers. */
+    private boolean nan;
+    /** Flag for keys that cannot be hashed. */
+    private boolean all;
+
+    /**
+     * Constructor, evaluating the input and indexing its items.
+     * @param ctx query context
+     * @throws QueryException query exception
+     */
+    Index(final QueryContext ctx) throws QueryException {
+      final Value v = ctx.value;
+      try {
+        final Iter ir = ctx.iter(input);
+        for(Item it; (it = ir.next()) != null;) {
+          final int p = (int) items.size();
+          items.add(it);
+          if(all) continue;
+          ctx.value = it;
+          final Iter keys = ctx.iter(inner);
+          for(Item k; (k = keys.next()) != null;) {
+            final Type t = k.type;
+            if(t.isUntyped()) {
+              add(strings, k.string(info), p);
+              untyped.add(k);
+              upos.add(p);
+            } else if(string(t)) {
+              add(strings, k.string(info), p);
+              str = true;
+            } else if(t.isNumber()) {
+              add(numbers, key(k.dbl(info)), p);
+              num = true;
+              flt |= t == AtomType.FLT;
+              dec |= decimal(t);
+            } else {
+              all = true;
+              break;
+            }
+          }
+        }
+      } finally {
+        ctx.value = v;
+      }
+    }
+
+    /**
+     * Returns the positions of all candidates for the current values of the
+     * outer operand.
+     * @param ctx query context
+     * @return positions (may contain duplicates), or {@code null} if all
+     * items need to be checked
+     * @throws QueryException query exception
+     */
+    IntList probe(final QueryContext ctx) throws QueryException {
+      if(all) return null;
+      final IntList cand = new IntList();
+      final Iter keys = ctx.iter(outer);
+      for(Item k; (k = keys.next()) != null;) {
+        final Type t = k.type;
+        if(t.isUntyped()) {
+          // untyped values are compared as strings or numbers
+          add(cand, strings.get(k.string(info)));
+          if(num) {
+            final byte[] n = number(k);
+            if(n == null) return null;
+            add(cand, numbers.get(n));
+          }
+        } else if(string(t)) {
+          if(num) return null;
+          add(cand, strings.get(k.string(info)));
+        } else if(t.isNumber()) {
+          if(str || !parse()) return null;
+          // floats are compared with decimals and integers as floats
+          if(t == AtomType.FLT ? dec : flt && decimal(t)) return null;
+          add(cand, numbers.get(key(k.dbl(info))));
+        } else {
+          return null;
+        }
+      }
+      return cand;
+    }
+
+    /**
+     * Converts the untyped keys to numbers.
+     * @return {@code false} if not all keys could be converted
+     */
+    private boolean parse() {
+      if(untyped != null) {
+        final int us = untyped.size();
+        for(int u = 0; u < us && !nan; ++u) {
+          final byte[] n = number(untyped.get(u));
+          if(n == null) nan = true;
+          else add(numbers, n, upos.get(u));
+        }
+        untyped = null;
+        upos = null;
+      }
+      return !nan;
+    }
+
+    /**
+     * Returns the hash key of an untyped value that is converted to a number.
+     * @param it item
+     * @return key, or {@code null} if the value cannot be converted
+     */
+    private byte[] number(final Item it) {
+      try {
+        return key(it.dbl(info));
+      } catch(final QueryException ex) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Checks if values of the specified type are compared as strings.
+   * @param t type
+   * @return result of check
+   */
+  static boolean string(final Type t) {
+    return t.isString() || t == AtomType.URI;
+  }
+
+  /**
+   * Checks if values of the specified numeric type are compared as decimals.
+   * @param t numeric type
+   * @return result of check
+   */
+  static boolean decimal(final Type t) {
+    return t != AtomType.DBL && t != AtomType.FLT;
+  }
+
+  /**
+   * Returns the hash key of a number.
+   * @param d number
+   * @return key
+   */
+  static byte[] key(final double d) {
+    // positive and negative zero are equal
+    return Token.token(Double.doubleToLongBits(d == 0 ? 0 : d));
+  }
+
+  /**
+   * Adds a position to the specified map.
+   * @param map map
+   * @param key key
+   * @param p position
+   */
+  static void add(final TokenObjMap<IntList> map, final byte[] key,
+      final int p) {
+    IntList il = map.get(key);
+    if(il == null) {
+      il = new IntList();
+      map.add(key, il);
+    }
+    if(il.size() == 0 || il.get(il.size() - 1) != p) il.add(p);
+  }
+
+  /**
+   * Adds positions to the candidates.
+   * @param cand candidates
+   * @param pos positions (may be {@code null})
+   */
+  static void add(final IntList cand, final IntList pos) {
+    if(pos == null) return;
+    final int ps = pos.size();
+    for(int p = 0; p < ps; ++p) cand.add(pos.get(p));
+  }
+
+  @Override
+  public String toString() {
+    return input + "[" + inner + " = " + outer + ']';
+  }
+}
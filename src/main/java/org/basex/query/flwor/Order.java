@@ -17,6 +17,7 @@ import org.basex.query.util.ValueList;
 import org.basex.query.util.Var;
 import org.basex.util.InputInfo;
 import org.basex.util.TokenBuilder;
+import org.basex.util.Util;
 import org.basex.util.list.ObjList;
 
 /**
@@ -29,11 +30,6 @@ public final class Order extends ParseExpr {
   /** Sort list. */
   final OrderBy[] ob;
 
-  /** Keys to sort by. */
-  private ObjList<Item[]> keys;
-  /** Values to sort. */
-  private ValueList values;
-
  /**
    * Constructor.
    * @param ii input info
@@ -52,19 +48,22 @@ public final class Order extends ParseExpr {
 
   @Override
   public Iter iter(final QueryContext ctx) {
-    return new OrderedIter(keys, values);
+    throw Util.notexpected(this);
   }
 
   /**
-   * Sets the key and value lists for this Order instance.
+   * Returns an iterator on the sorted values. The key and value lists are
+   * passed on as arguments, as the expression may be evaluated recursively
+   * or by several threads at the same time.
+   * @param ctx query context
    * @param ks key list
    * @param vs value list
-   * @return reference to this object for convenience
+   * @return iterator
    */
-  Order set(final ObjList<Item[]> ks, final ValueList vs) {
-    keys = ks;
-    values = vs;
-    return this;
+  Iter iter(final QueryContext ctx, final ObjList<Item[]> ks,
+      final ValueList vs) {
+    ctx.checkStop();
+    return new OrderedIter(ks, vs);
   }
 
   /**
@@ -77,12 +76,51 @@ public final class Order extends ParseExpr {
    */
   void add(final QueryContext ctx, final Expr e, final ObjList<Item[]> ks,
       final ValueList vs) throws QueryException {
-    final Item[] k = new Item[ob.length];
-    for(int o = k.length; o-- > 0;) k[o] = ob[o].key(ctx, ks.size());
-    ks.add(k);
+    ks.add(key(ctx, ks.size()));
     vs.add(ctx.value(e));
   }
 
+  /**
+   * Returns the sort keys of the current tuple.
+   * @param ctx query context
+   * @param i position of the tuple
+   * @return sort keys
+   * @throws QueryException query exception
+   */
+  Item[] key(final QueryContext ctx, final int i) throws QueryException {
+    final Item[] k = new Item[ob.length];
+    for(int o = k.length; o-- > 0;) k[o] = ob[o].key(ctx, i);
+    return k;
+  }
+
+  /**
+   * Sorts the specified keys.
+   * @param ks key list
+   * @return positions of the keys in sorted order
+   * @throws QueryException query exception
+   */
+  int[] sort(final ObjList<Item[]> ks) throws QueryException {
+    return new OrderedIter(ks, null).order();
+  }
+
+  /**
+   * Returns the difference of two entries.
+   * @param sa sort keys of first item
+   * @param sb sort keys of second item
+   * @return result
+   * @throws QueryException query exception
+   */
+  int diff(final Item[] sa, final Item[] sb) throws QueryException {
+    for(int k = 0; k < ob.length; ++k) {
+      final OrderBy or = ob[k];
+      final Item m = sa[k], n = sb[k];
+      final int c = m == null ? n == null ? 0 : or.lst ? -1 : 1 :
+        n == null ? or.lst ? 1 : -1 : m.diff(input, n);
+      if(c != 0) return or.desc ? -c : c;
+    }
+    return 0;
+  }
+
   @Override
   public boolean uses(final Use u) {
     for(final OrderBy o : ob) if(o.uses(u)) return true;
@@ -151,14 +189,7 @@ public final class Order extends ParseExpr {
 
     @Override
     public Item next() throws QueryException {
-      if(order == null) {
-        // enumerate sort array and sort entries
-        end = vl.size();
-        order = new int[end];
-        for(int i = 0; i < end; ++i) order[i] = i;
-        sort(order, 0, end);
-      }
-
+      order();
       while(true) {
         if(ir != null) {
           final Item i = ir.next();
@@ -171,6 +202,22 @@ public final class Order extends ParseExpr {
       }
     }
 
+    /**
+     * Sorts the entries if this has not been done yet.
+     * @return positions of the entries in sorted order
+     * @throws QueryException query exception
+     */
+    int[] order() throws QueryException {
+      if(order == null) {
+        // enumerate sort array and sort entries
+        end = kl.size();
+        order = new int[end];
+        for(int i = 0; i < end; ++i) order[i] = i;
+        sort(order, 0, end);
+      }
+      return order;
+    }
+
     /**
      * Recursively sorts the specified items.
      * The algorithm is derived from {@link Arrays#sort(int[])}.
@@ -204,13 +251,13 @@ public final class Order extends ParseExpr {
       int a = s, b = a, c = s + e - 1, d = c;
       while(true) {
         while(b <= c) {
-          final int h = d(kl.get(o[b]), im);
+          final int h = diff(kl.get(o[b]), im);
           if(h > 0) break;
           if(h == 0) swap(o, a++, b);
           ++b;
         }
         while(c >= b) {
-          final int h = d(kl.get(o[c]), im);
+          final int h = diff(kl.get(o[c]), im);
           if(h < 0) break;
           if(h == 0) swap(o, c, d--);
           --c;
@@ -230,24 +277,6 @@ public final class Order extends ParseExpr {
       if((k = d - c) > 1) sort(o, n - k, k);
     }
 
-    /**
-     * Returns the difference of two entries (part of QuickSort).
-     * @param sa sort keys of first item
-     * @param sb sort keys of second item
-     * @return result
-     * @throws QueryException query exception
-     */
-    private int d(final Item[] sa, final Item[] sb) throws QueryException {
-      for(int k = 0; k < ob.length; ++k) {
-        final OrderBy or = ob[k];
-        final Item m = sa[k], n = sb[k];
-        final int c = m == null ? n == null ? 0 : or.lst ? -1 : 1 :
-          n == null ? or.lst ? 1 : -1 : m.diff(input, n);
-        if(c != 0) return or.desc ? -c : c;
-      }
-      return 0;
-    }
-
     /**
      * Returns the difference of two entries (part of QuickSort).
      * @param o order array
@@ -258,7 +287,7 @@ public final class Order extends ParseExpr {
      */
     private int d(final int[] o, final int a, final int b)
         throws QueryException {
-      return d(kl.get(o[a]), kl.get(o[b]));
+      return diff(kl.get(o[a]), kl.get(o[b]));
     }
 
     /**
@@ -273,8 +302,8 @@ public final class Order extends ParseExpr {
     private int m(final int[] o, final int a, final int b, final int c)
         throws QueryException {
       final Item[] ka = kl.get(o[a]), kb = kl.get(o[b]), kc = kl.get(o[c]);
-      return d(ka, kb) < 0 ? d(kb, kc) < 0 ? b : d(ka, kc) < 0 ? c : a :
-          d(kb, kc) > 0 ? b : d(ka, kc) > 0 ? c : a;
+      return diff(ka, kb) < 0 ? diff(kb, kc) < 0 ? b : diff(ka, kc) < 0 ? c :
+        a : diff(kb, kc) > 0 ? b : diff(ka, kc) > 0 ? c : a;
     }
   }
 }
@@ -0,0 +1,125 @@
+package org.basex.query.flwor;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.basex.core.MainProp;
+import org.basex.core.ProgressException;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.expr.Expr;
+import org.basex.query.item.Value;
+import org.basex.util.Util;
+
+/**
+ * Parallel evaluation of the return clause of a FLWOR expression, which is
+ * enabled via the {@code basex:parallel} pragma. The tuples are generated by
+ * the calling thread. For each tuple, a child context is created, which
+ * contains copies of the current variable bindings (see
+ * {@link QueryContext#fork}), and the return clause is evaluated by one of
+ * the threads of the pool of the database context, the size of which is
+ * defined by {@link MainProp#PARALLELTHREADS}. The results are returned in
+ * the order of the tuples. The number of pending results is limited by the
+ * number of threads, so that the tuples are consumed at the speed at which
+ * the results are requested. If the evaluation of a tuple has not been
+ * started when its result is requested, it is evaluated by the calling
+ * thread. This way, nested parallel expressions cannot block each other.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Parallel {
+  /** Pending results, in the order of the tuples. */
+  private final LinkedList<FutureTask<Value>> results =
+    new LinkedList<FutureTask<Value>>();
+  /** Return expression. */
+  private final Expr ret;
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Shared thread pool. */
+  private final ThreadPoolExecutor pool;
+  /** Maximum number of pending results. */
+  private final int max;
+
+  /**
+   * Constructor.
+   * @param r return expression
+   * @param t number of threads
+   * @param c query context
+   */
+  Parallel(final Expr r, final int t, final QueryContext c) {
+    ret = r;
+    ctx = c;
+    max = t;
+    pool = c.context.threads;
+  }
+
+  /**
+   * Checks if the maximum number of pending results has been reached.
+   * @return result of check
+   */
+  boolean full() {
+    return results.size() >= max;
+  }
+
+  /**
+   * Evaluates the return clause for the current tuple.
+   */
+  void add() {
+    final QueryContext qc = ctx.fork();
+    final FutureTask<Value> f = new FutureTask<Value>(new Callable<Value>() {
+      @Override
+      public Value call() throws QueryException {
+        ctx.checkStop();
+        return qc.value(ret);
+      }
+    });
+    results.add(f);
+    try {
+      pool.execute(f);
+    } catch(final RejectedExecutionException ex) {
+      // the pool has been shut down: the tuple is evaluated by next()
+    }
+  }
+
+  /**
+   * Returns the result of the oldest pending tuple. Waits until the result
+   * is available.
+   * @return result, or {@code null} if no results are pending
+   * @throws QueryException query exception
+   */
+  Value next() throws QueryException {
+    final FutureTask<Value> f = results.poll();
+    if(f == null) return null;
+    // evaluate the tuple in this thread if no thread of the pool has started
+    f.run();
+    try {
+      return f.get();
+    } catch(final ExecutionException ex) {
+      close();
+      final Throwable th = ex.getCause();
+      if(th instanceof QueryException) throw (QueryException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw Util.notexpected(th);
+    } catch(final InterruptedException ex) {
+      close();
+      throw new ProgressException();
+    }
+  }
+
+  /**
+   * Cancels all pending evaluations.
+   */
+  void close() {
+    for(final FutureTask<Value> f : results) {
+      f.cancel(false);
+      pool.remove(f);
+    }
+    results.clear();
+  }
+}
@@ -0,0 +1,374 @@
+package org.basex.query.flwor;
+
+import static org.basex.query.util.Err.*;
+
+import java.io.IOException;
+import java.util.LinkedList;
+
+import org.basex.core.Prop;
+import org.basex.io.IOFile;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.item.Item;
+import org.basex.query.item.Value;
+import org.basex.query.iter.ItemCache;
+import org.basex.query.iter.Iter;
+import org.basex.query.util.ValueList;
+import org.basex.util.Util;
+import org.basex.util.list.ObjList;
+
+/**
+ * Sorts the tuples of a FLWOR expression with an order by clause.
+ *
+ * <p>If the number of buffered tuples reaches the limit specified by
+ * {@link Prop#SORTLIMIT}, the buffer is sorted and written to a temporary
+ * file (a sorted run). When the results are requested, the runs and the
+ * remaining buffer are merged. Tuples are read from the runs while the
+ * results are consumed. If a tuple contains items that cannot be written
+ * (see {@link Spill}), all remaining tuples are kept in main memory.</p>
+ *
+ * <p>If only the first tuples are requested (see {@link GFLWOR#limit}), the
+ * buffer is truncated to the requested tuples whenever its size has doubled,
+ * and tuples that are sorted behind the last retained tuple are rejected
+ * before their return clause is evaluated.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Sorter {
+  /** Temporary files with sorted runs. */
+  private final ObjList<IOFile> runs = new ObjList<IOFile>();
+  /** Sort keys of tuples whose values are still being evaluated. */
+  private final LinkedList<Item[]> pending = new LinkedList<Item[]>();
+  /** Written items. */
+  private final Spill spill;
+  /** Order by clause. */
+  private final Order order;
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Number of requested tuples ({@code 0}: all). */
+  private final int top;
+  /** Maximum number of buffered tuples ({@code 0}: unlimited). */
+  private int limit;
+
+  /** Sort keys of the buffered tuples. */
+  private ObjList<Item[]> keys = new ObjList<Item[]>();
+  /** Values of the buffered tuples. */
+  private ValueList values = new ValueList();
+  /** Sort keys of the last retained tuple ({@code null}: no tuple rejected). */
+  private Item[] last;
+  /** Number of generated tuples. */
+  private int count;
+
+  /**
+   * Constructor.
+   * @param o order by clause
+   * @param t number of requested tuples ({@code 0}: all)
+   * @param c query context
+   */
+  Sorter(final Order o, final int t, final QueryContext c) {
+    order = o;
+    top = t;
+    ctx = c;
+    spill = new Spill(c);
+    // the number of buffered tuples is already bounded if top-k is requested
+    limit = t != 0 ? 0 : c.context.prop.num(Prop.SORTLIMIT);
+  }
+
+  /**
+   * Returns the sort keys of the current tuple.
+   * @return sort keys
+   * @throws QueryException query exception
+   */
+  Item[] key() throws QueryException {
+    return order.key(ctx, count++);
+  }
+
+  /**
+   * Checks if a tuple with the specified sort keys may be part of the
+   * requested tuples.
+   * @param k sort keys
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  boolean accept(final Item[] k) throws QueryException {
+    return last == null || order.diff(k, last) < 0;
+  }
+
+  /**
+   * Remembers the sort keys of a tuple whose value is evaluated in parallel.
+   * The value must later be passed on via {@link #add(Value)}.
+   * @param k sort keys
+   */
+  void defer(final Item[] k) {
+    pending.add(k);
+  }
+
+  /**
+   * Adds the value of the oldest deferred tuple.
+   * @param v value
+   * @throws QueryException query exception
+   */
+  void add(final Value v) throws QueryException {
+    add(pending.poll(), v);
+  }
+
+  /**
+   * Adds a tuple.
+   * @param k sort keys
+   * @param v value
+   * @throws QueryException query exception
+   */
+  void add(final Item[] k, final Value v) throws QueryException {
+    keys.add(k);
+    values.add(v);
+    final int s = keys.size();
+    if(top != 0 && s >= top << 1) truncate();
+    else if(limit != 0 && s >= limit) spill();
+  }
+
+  /**
+   * Returns an iterator on the sorted values.
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  Iter iter() throws QueryException {
+    if(top != 0 && keys.size() > top) truncate();
+    if(runs.size() == 0) return order.iter(ctx, keys, values);
+
+    ctx.checkStop();
+    final Run[] heap = new Run[runs.size() + 1];
+    int h = 0;
+    try {
+      for(final IOFile f : runs) heap[h++] = new Run(new DataInput(f));
+    } catch(final IOException ex) {
+      throw IOERR.thrw(null, ex);
+    }
+    heap[h++] = new Run(keys, values, order.sort(keys));
+    keys = null;
+    values = null;
+    return new Merge(heap);
+  }
+
+  /**
+   * Sorts the buffer and discards all tuples that will not be requested.
+   * @throws QueryException query exception
+   */
+  private void truncate() throws QueryException {
+    final int[] o = order.sort(keys);
+    final ObjList<Item[]> ks = new ObjList<Item[]>(top);
+    final ValueList vs = new ValueList();
+    for(int i = 0; i < top; ++i) {
+      ks.add(keys.get(o[i]));
+      vs.add(values.get(o[i]));
+    }
+    keys = ks;
+    values = vs;
+    last = ks.get(top - 1);
+  }
+
+  /**
+   * Sorts the buffer and writes it to a temporary file.
+   * @throws QueryException query exception
+   */
+  private void spill() throws QueryException {
+    ctx.checkStop();
+    final int[] o = order.sort(keys);
+    IOFile file = null;
+    boolean ok = false;
+    try {
+      file = ctx.resource.temp();
+      final DataOutput out = new DataOutput(file);
+      try {
+        out.writeNum(o.length);
+        ok = true;
+        for(int i = 0; ok && i < o.length; ++i) {
+          ok = write(out, keys.get(o[i]), values.get(o[i]));
+        }
+      } finally {
+        out.close();
+      }
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      ok = false;
+    }
+
+    if(ok) {
+      runs.add(file);
+      keys = new ObjList<Item[]>();
+      values = new ValueList();
+    } else {
+      // keep all remaining tuples in main memory
+      if(file != null) file.delete();
+      limit = 0;
+    }
+  }
+
+  /**
+   * Writes a tuple.
+   * @param out output stream
+   * @param k sort keys
+   * @param v value
+   * @return {@code false} if the tuple cannot be written
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  private boolean write(final DataOutput out, final Item[] k, final Value v)
+      throws IOException, QueryException {
+    for(final Item it : k) if(!spill.write(out, it)) return false;
+    out.writeNum((int) v.size());
+    final Iter ir = v.iter();
+    for(Item it; (it = ir.next()) != null;) {
+      if(!spill.write(out, it)) return false;
+    }
+    return true;
+  }
+
+  /** Sorted run of tuples, which is read from a file or from main memory. */
+  private final class Run {
+    /** Input stream ({@code null} if the tuples are kept in main memory). */
+    private final DataInput in;
+    /** Sort keys of the buffered tuples. */
+    private final ObjList<Item[]> kl;
+    /** Values of the buffered tuples. */
+    private final ValueList vl;
+    /** Positions of the buffered tuples in sorted order. */
+    private final int[] sorted;
+    /** Number of tuples. */
+    private final int size;
+    /** Current position. */
+    private int pos;
+    /** Sort keys of the current tuple. */
+    Item[] key;
+    /** Value of the current tuple. */
+    Value value;
+
+    /**
+     * Constructor for a run that is read from a file.
+     * @param i input stream
+     * @throws IOException I/O exception
+     */
+    Run(final DataInput i) throws IOException {
+      in = i;
+      size = i.readNum();
+      kl = null;
+      vl = null;
+      sorted = null;
+    }
+
+    /**
+     * Constructor for a run in main memory.
+     * @param k sort keys
+     * @param v values
+     * @param o positions of the tuples in sorted order
+     */
+    Run(final ObjList<Item[]> k, final ValueList v, final int[] o) {
+      in = null;
+      kl = k;
+      vl = v;
+      sorted = o;
+      size = o.length;
+    }
+
+    /**
+     * Moves to the next tuple.
+     * @return {@code false} if the run is exhausted
+     * @throws QueryException query exception
+     */
+    boolean next() throws QueryException {
+      try {
+        if(pos == size) {
+          if(in != null) in.close();
+          return false;
+        }
+        if(in == null) {
+          key = kl.get(sorted[pos]);
+          value = vl.get(sorted[pos]);
+        } else {
+          key = new Item[order.ob.length];
+          for(int k = 0; k < key.length; ++k) key[k] = spill.read(in);
+          final int s = in.readNum();
+          final ItemCache ic = new ItemCache(s);
+          for(int i = 0; i < s; ++i) ic.add(spill.read(in));
+          value = ic.value();
+        }
+        ++pos;
+        return true;
+      } catch(final IOException ex) {
+        throw IOERR.thrw(null, ex);
+      }
+    }
+  }
+
+  /** Iterator, which merges the sorted runs. */
+  private final class Merge extends Iter {
+    /** Runs, organized as binary heap. */
+    private final Run[] heap;
+    /** Number of runs that are not exhausted. */
+    private int size;
+    /** Iterator on the current value. */
+    private Iter ir;
+
+    /**
+     * Constructor.
+     * @param r runs
+     */
+    Merge(final Run[] r) {
+      heap = r;
+      size = -1;
+    }
+
+    @Override
+    public Item next() throws QueryException {
+      if(size == -1) init();
+      while(true) {
+        if(ir != null) {
+          final Item i = ir.next();
+          if(i != null) return i;
+          ir = null;
+        } else {
+          if(size == 0) {
+            for(final IOFile f : runs) f.delete();
+            runs.reset();
+            return null;
+          }
+          final Run r = heap[0];
+          ir = r.value.iter();
+          if(!r.next()) heap[0] = heap[--size];
+          down(0);
+        }
+      }
+    }
+
+    /**
+     * Reads the first tuple of each run and builds the heap.
+     * @throws QueryException query exception
+     */
+    private void init() throws QueryException {
+      size = 0;
+      for(final Run r : heap) if(r.next()) heap[size++] = r;
+      for(int i = size >> 1; i-- > 0;) down(i);
+    }
+
+    /**
+     * Moves a run down the heap.
+     * @param i position of the run
+     * @throws QueryException query exception
+     */
+    private void down(final int i) throws QueryException {
+      int p = i;
+      final Run r = heap[p];
+      while(true) {
+        int c = (p << 1) + 1;
+        if(c >= size) break;
+        if(c + 1 < size && order.diff(heap[c + 1].key, heap[c].key) < 0) ++c;
+        if(order.diff(r.key, heap[c].key) <= 0) break;
+        heap[p] = heap[c];
+        p = c;
+      }
+      heap[p] = r;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package org.basex.query.flwor;
+
+import java.io.IOException;
+
+import org.basex.data.Data;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.QueryContext;
+import org.basex.query.QueryException;
+import org.basex.query.item.AtomType;
+import org.basex.query.item.DBNode;
+import org.basex.query.item.Dbl;
+import org.basex.query.item.Flt;
+import org.basex.query.item.Int;
+import org.basex.query.item.Item;
+import org.basex.query.item.Str;
+import org.basex.query.item.Type;
+import org.basex.util.list.ObjList;
+
+/**
+ * Writes items of FLWOR tuples to temporary files and reads them back.
+ * Database nodes are written as references to the database and the pre
+ * value, and atomic items are written with their type. Other items, such as
+ * constructed nodes, QNames or function items, cannot be written.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Spill {
+  /** Atomic types. */
+  private static final AtomType[] TYPES = AtomType.values();
+  /** Databases of the written nodes. */
+  private final ObjList<Data> data = new ObjList<Data>();
+  /** Query context. */
+  private final QueryContext ctx;
+
+  /**
+   * Constructor.
+   * @param c query context
+   */
+  Spill(final QueryContext c) {
+    ctx = c;
+  }
+
+  /**
+   * Writes a single item.
+   * @param out output stream
+   * @param it item (may be {@code null})
+   * @return {@code false} if the item cannot be written
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  boolean write(final DataOutput out, final Item it)
+      throws IOException, QueryException {
+
+    if(it == null) {
+      out.write1(0);
+      return true;
+    }
+    if(it instanceof DBNode) {
+      final DBNode n = (DBNode) it;
+      int d = data.size();
+      while(--d >= 0 && data.get(d) != n.data);
+      if(d == -1) {
+        d = data.size();
+        data.add(n.data);
+      }
+      out.write1(1);
+      out.writeNum(d);
+      out.writeNum(n.pre);
+      return true;
+    }
+    final Type t = it.type;
+    if(!(t instanceof AtomType) || t == AtomType.QNM || t == AtomType.NOT ||
+        t == AtomType.JAVA) return false;
+
+    final int o = ((AtomType) t).ordinal();
+    if(it instanceof Int) {
+      out.write1(2);
+      out.writeNum(o);
+      out.write8(it.itr(null));
+    } else if(it instanceof Dbl) {
+      out.write1(3);
+      out.writeNum(o);
+      out.write8(Double.doubleToRawLongBits(it.dbl(null)));
+    } else if(it instanceof Flt) {
+      out.write1(4);
+      out.writeNum(o);
+      out.write8(Float.floatToRawIntBits(it.flt(null)));
+    } else {
+      out.write1(5);
+      out.writeNum(o);
+      out.writeToken(it.string(null));
+    }
+    return true;
+  }
+
+  /**
+   * Reads a single item.
+   * @param in input stream
+   * @return item (may be {@code null})
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  Item read(final DataInput in) throws IOException, QueryException {
+    final int k = in.read();
+    if(k == 0) return null;
+    if(k == 1) return new DBNode(data.get(in.readNum()), in.readNum());
+    final AtomType t = TYPES[in.readNum()];
+    switch(k) {
+      case 2:  return Int.get(in.read8(), t);
+      case 3:  return Dbl.get(Double.longBitsToDouble(in.read8()));
+      case 4:  return Flt.get(Float.intBitsToFloat((int) in.read8()));
+      default: return t.cast(Str.get(in.readToken()), ctx, null);
+    }
+  }
+}
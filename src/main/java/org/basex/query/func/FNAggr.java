@@ -7,6 +7,7 @@ import org.basex.query.QueryException;
 import org.basex.query.expr.Calc;
 import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.expr.Expr;
+import org.basex.query.expr.VarRef;
 import org.basex.query.item.Dbl;
 import org.basex.query.item.Item;
 import org.basex.query.item.Int;
@@ -59,6 +60,13 @@ public final class FNAggr extends StandardFunc {
 
   @Override
   public Expr cmp(final QueryContext ctx) throws QueryException {
+    // compute aggregates of non-grouping variables while tuples are grouped
+    if(ctx.grouping != null && expr.length == 1 &&
+        expr[0] instanceof VarRef) {
+      final Expr ag = ctx.grouping.aggregate(sig, (VarRef) expr[0], ctx);
+      if(ag != null) return ag;
+    }
+
     final Expr e = expr[0];
     final long c = e.size();
     if(c < 0 || e.uses(Use.NDT) || e.uses(Use.CNS)) return this;
@@ -706,6 +706,15 @@ public final class FNDb extends StandardFunc {
       super.uses(u);
   }
 
+  @Override
+  public boolean databases(final StringList db) {
+    // functions without database argument
+    if(sig == Function._DB_SYSTEM || sig == Function._DB_EVENT ||
+       sig == Function._DB_NODE_ID || sig == Function._DB_NODE_PRE) return true;
+    // all other functions expect a database reference as first argument
+    return database(0, db);
+  }
+
   @Override
   public boolean iterable() {
     // index functions will always yield ordered and duplicate-free results
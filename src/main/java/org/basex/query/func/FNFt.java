@@ -27,6 +27,7 @@ import org.basex.util.XMLToken;
 import org.basex.util.ft.FTLexer;
 import org.basex.util.ft.FTOpt;
 import org.basex.util.list.IntList;
+import org.basex.util.list.StringList;
 
 /**
  * Full-text functions.
@@ -236,4 +237,10 @@ public final class FNFt extends StandardFunc {
     // skip evaluation at compile time
     return u == Use.CTX && sig == Function._FT_SEARCH || super.uses(u);
   }
+
+  @Override
+  public boolean databases(final StringList db) {
+    // other functions only access databases via the specified nodes
+    return sig != Function._FT_TOKENS || database(0, db);
+  }
 }
@@ -33,6 +33,7 @@ import org.basex.query.util.Err;
 import org.basex.query.util.Err.ErrType;
 import org.basex.util.InputInfo;
 import org.basex.util.list.ByteList;
+import org.basex.util.list.StringList;
 
 /**
  * Generating functions.
@@ -325,6 +326,43 @@ public final class FNGen extends StandardFunc {
         sig == Function.PUT) && expr.length == 0 || super.uses(u);
   }
 
+  @Override
+  public boolean databases(final StringList db) {
+    final boolean doc = sig == Function.DOC || sig == Function.DOC_AVAILABLE;
+    if(!doc && sig != Function.COLLECTION && sig != Function.URI_COLLECTION)
+      return true;
+    if(expr.length == 0 || !(expr[0] instanceof Str)) return false;
+
+    // documents and collections may be addressed via database paths
+    String in = string(((Str) expr[0]).string());
+    if(!doc) {
+      in = in.replaceFirst("^/+", "");
+      final int s = in.indexOf('/');
+      if(s != -1) in = in.substring(0, s);
+    }
+    db.add(IO.get(in).dbname());
+    return true;
+  }
+
+  @Override
+  public boolean external() {
+    if(sig == Function.UNPARSED_TEXT || sig == Function.UNPARSED_TEXT_LINES ||
+       sig == Function.UNPARSED_TEXT_AVAILABLE) return true;
+    final boolean doc = sig == Function.DOC || sig == Function.DOC_AVAILABLE;
+    if(!doc && sig != Function.COLLECTION && sig != Function.URI_COLLECTION ||
+       expr.length == 0) return false;
+    if(!(expr[0] instanceof Str)) return true;
+
+    // inputs that are no database names are parsed from files
+    String in = string(((Str) expr[0]).string());
+    if(!doc) {
+      in = in.replaceFirst("^/+", "");
+      final int s = in.indexOf('/');
+      if(s != -1) in = in.substring(0, s);
+    }
+    return !in.equals(IO.get(in).dbname());
+  }
+
   @Override
   public boolean iterable() {
     // collections will never yield duplicates
@@ -28,6 +28,7 @@ import org.basex.query.iter.NodeCache;
 import org.basex.query.iter.ValueIter;
 import org.basex.util.InputInfo;
 import org.basex.util.hash.TokenIntMap;
+import org.basex.util.list.StringList;
 
 /**
  * Index functions.
@@ -273,6 +274,11 @@ public final class FNIndex extends StandardFunc {
     }
   }
 
+  @Override
+  public boolean databases(final StringList db) {
+    return database(0, db);
+  }
+
   @Override
   public boolean uses(final Use u) {
     return
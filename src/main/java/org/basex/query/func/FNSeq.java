@@ -7,6 +7,7 @@ import org.basex.query.QueryContext;
 import org.basex.query.QueryException;
 import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.expr.Expr;
+import org.basex.query.flwor.GFLWOR;
 import org.basex.query.item.ANode;
 import org.basex.query.item.Atm;
 import org.basex.query.item.DBNode;
@@ -158,6 +159,19 @@ public final class FNSeq extends StandardFunc {
     else if(sig == Function.HEAD) o = Occ.ZO;
     type = SeqType.get(t, o);
 
+    // only sort the requested tuples of a flwor expression
+    if(expr[0] instanceof GFLWOR) {
+      final GFLWOR gf = (GFLWOR) expr[0];
+      if(sig == Function.HEAD) {
+        gf.limit(1, ctx);
+      } else if(sig == Function.SUBSEQUENCE && expr.length == 3 &&
+          expr[1] instanceof Item && expr[2] instanceof Item) {
+        final double s = checkDbl(expr[1], ctx), l = checkDbl(expr[2], ctx);
+        if(!Double.isNaN(s) && !Double.isNaN(l))
+          gf.limit(StrictMath.round(s) + StrictMath.round(l) - 1, ctx);
+      }
+    }
+
     // pre-evaluate distinct values
     if(sig == Function.DISTINCT_VALUES) return cmpDist(ctx);
 
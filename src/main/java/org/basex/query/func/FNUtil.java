@@ -34,6 +34,7 @@ import org.basex.util.InputInfo;
 import org.basex.util.Performance;
 import org.basex.util.Util;
 import org.basex.util.list.ByteList;
+import org.basex.util.list.StringList;
 
 /**
  * Project specific functions.
@@ -459,6 +460,12 @@ public final class FNUtil extends StandardFunc {
     return fn.isEmpty() ? null : Str.get(fn);
   }
 
+  @Override
+  public boolean databases(final StringList db) {
+    // evaluated queries may access arbitrary databases
+    return sig != Function._UTIL_EVAL && sig != Function._UTIL_RUN;
+  }
+
   @Override
   public boolean uses(final Use u) {
     return u == Use.NDT && (sig == Function._UTIL_EVAL ||
@@ -152,12 +152,16 @@ public final class Functions extends TokenSet {
 
     // Java function (only allowed with administrator permissions)
     if(startsWith(uri, JAVAPRE) && ctx.context.user.perm(User.ADMIN)) {
+      // Java code may access arbitrary databases
+      ctx.access(null);
       return TypedFunc.java(JavaMapping.get(name, args, ctx, ii));
     }
 
     // pre-defined functions
     final StandardFunc fun = Functions.get().get(ln, uri, args, ctx, ii);
     if(fun != null) {
+      if(!dyn) ctx.access(fun);
+      else if(!fun.versioned() || fun.external()) ctx.access(null);
       for(final Function f : Function.UPDATING) {
         if(fun.sig == f) {
           ctx.updating(true);
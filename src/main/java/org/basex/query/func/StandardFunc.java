@@ -27,6 +27,7 @@ import org.basex.query.iter.AxisIter;
 import org.basex.util.InputInfo;
 import org.basex.util.TokenBuilder;
 import org.basex.util.hash.TokenObjMap;
+import org.basex.util.list.StringList;
 
 /**
  * Standard (built-in) functions.
@@ -115,6 +116,48 @@ public abstract class StandardFunc extends Arr {
         desc.indexOf('(') + 1)).addSep(expr, SEP).add(PAR2).toString();
   }
 
+  /**
+   * Adds the names of all databases that will be accessed by this function.
+   * @param db list of database names
+   * @return {@code false} if the databases cannot be statically determined
+   */
+  @SuppressWarnings("unused")
+  public boolean databases(final StringList db) {
+    return true;
+  }
+
+  /**
+   * Checks if the function reads resources other than databases, such as
+   * files, which may change without a writing process being registered.
+   * @return result of check
+   */
+  public boolean external() {
+    return false;
+  }
+
+  /**
+   * Checks if the function only accesses database contents that are
+   * covered by snapshots. Optimizations rebuild the database structures,
+   * and raw files are not versioned.
+   * @return result of check
+   */
+  public boolean versioned() {
+    return sig != Function._DB_OPTIMIZE && sig != Function._DB_STORE &&
+        sig != Function._DB_RETRIEVE;
+  }
+
+  /**
+   * Adds the database name specified by the given argument.
+   * @param i index of argument
+   * @param db list of database names
+   * @return {@code false} if the argument is no string literal
+   */
+  final boolean database(final int i, final StringList db) {
+    if(i >= expr.length || !(expr[i] instanceof Str)) return false;
+    db.add(string(((Str) expr[i]).string()));
+    return true;
+  }
+
   /**
    * Returns the data instance for the specified argument.
    * @param i index of argument
@@ -139,7 +139,7 @@ public abstract class UserFuncCall extends Arr {
     final Var[] args = new Var[al];
     // evaluate arguments
     for(int a = 0; a < al; ++a)
-      args[a] = func.args[a].bind(expr[a].value(ctx), ctx).copy();
+      args[a] = func.args[a].copy().bind(expr[a].value(ctx), ctx);
     return args;
   }
 
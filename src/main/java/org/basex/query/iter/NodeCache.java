@@ -8,6 +8,7 @@ import org.basex.query.item.Seq;
 import org.basex.query.item.Value;
 import org.basex.util.Array;
 import org.basex.util.Util;
+import org.basex.util.list.ObjList;
 
 /**
  * Caching node iterator, returning sorted nodes.
@@ -26,6 +27,8 @@ public final class NodeCache extends AxisIter {
   private boolean sort;
   /** Flag for potential duplicates and unsorted entries. */
   private boolean random;
+  /** Order of databases ({@code null}: order of occurrence). */
+  private ObjList<Data> order;
 
   /**
    * Constructor.
@@ -54,6 +57,37 @@ public final class NodeCache extends AxisIter {
     return this;
   }
 
+  /**
+   * Assigns a list, which defines the order in which the nodes of different
+   * databases are sorted. Databases that are not found in the list are
+   * appended. The list can be shared by several instances, which will then
+   * sort their nodes in the same order.
+   * @param dbs databases
+   * @return self reference
+   */
+  public NodeCache order(final ObjList<Data> dbs) {
+    order = dbs;
+    return this;
+  }
+
+  /**
+   * Returns the group of the specified node, which determines its position
+   * in sorted nodes: {@code 0} for nodes that are no {@link DBNode}
+   * references, and {@code 1} and more for the databases in the specified
+   * list. Databases that are not found in the list are appended.
+   * @param n node
+   * @param dbs databases
+   * @return group
+   */
+  public static int group(final ANode n, final ObjList<Data> dbs) {
+    if(!(n instanceof DBNode)) return 0;
+    final Data data = n.data();
+    int g = 0;
+    while(g < dbs.size() && dbs.get(g) != data) ++g;
+    if(g == dbs.size()) dbs.add(data);
+    return g + 1;
+  }
+
   /**
    * Returns the specified node.
    * @param i node offset
@@ -81,7 +115,12 @@ public final class NodeCache extends AxisIter {
       System.arraycopy(item, 0, tmp, 0, size);
       item = tmp;
     }
-    if(random && !sort && size != 0) sort = item[size - 1].diff(n) > 0;
+    if(random && !sort && size != 0) {
+      // nodes of different databases are always sorted
+      final ANode p = item[size - 1];
+      sort = p.diff(n) > 0 || p.data() != n.data() ||
+        p instanceof DBNode != n instanceof DBNode;
+    }
     item[size++] = n;
   }
 
@@ -188,7 +227,7 @@ public final class NodeCache extends AxisIter {
     random = false;
     if(size > 1) {
       // sort arrays and remove duplicates
-      if(force) sort(0, size);
+      if(force) sortNodes();
 
       // remove duplicates and merge scores
       int i = 1;
@@ -203,6 +242,58 @@ public final class NodeCache extends AxisIter {
     }
   }
 
+  /**
+   * Sorts the nodes. {@link DBNode} references are grouped by their database
+   * and sorted by their pre values. Other nodes precede all database nodes.
+   * See {@link #group} for the order of the databases.
+   */
+  private void sortNodes() {
+    // assign groups: 0 for other nodes, 1 and more for databases
+    final ObjList<Data> dbs = order != null ? order : new ObjList<Data>();
+    final int[] groups = new int[size];
+    for(int s = 0; s < size; ++s) groups[s] = group(item[s], dbs);
+    final int gs = dbs.size() + 1;
+    final int[] counts = new int[gs];
+    int ng = 0;
+    for(final int g : groups) if(counts[g]++ == 0) ++ng;
+    if(counts[0] == size) {
+      sort(0, size);
+      return;
+    }
+
+    // order nodes by their groups, and sort each group
+    final int[] starts = new int[gs + 1];
+    for(int g = 0; g < gs; ++g) starts[g + 1] = starts[g] + counts[g];
+    if(ng > 1) {
+      final int[] pos = Arrays.copyOf(starts, gs);
+      final ANode[] nodes = new ANode[size];
+      for(int s = 0; s < size; ++s) nodes[pos[groups[s]]++] = item[s];
+      System.arraycopy(nodes, 0, item, 0, size);
+    }
+    if(counts[0] > 1) sort(0, counts[0]);
+    for(int g = 1; g < gs; ++g) {
+      if(counts[g] > 1) sortPres(starts[g], counts[g]);
+    }
+  }
+
+  /**
+   * Sorts the specified nodes by their pre values. All nodes must be
+   * {@link DBNode} references to the same database.
+   * @param s start position
+   * @param l number of nodes
+   */
+  private void sortPres(final int s, final int l) {
+    // pre values and offsets are combined to keys, which are sorted at once
+    final long[] keys = new long[l];
+    for(int i = 0; i < l; ++i) {
+      keys[i] = (long) ((DBNode) item[s + i]).pre << 32 | i;
+    }
+    Arrays.sort(keys);
+    final ANode[] nodes = new ANode[l];
+    for(int i = 0; i < l; ++i) nodes[i] = item[s + (int) keys[i]];
+    System.arraycopy(nodes, 0, item, s, l);
+  }
+
   /**
    * Recursively sorts the specified items via QuickSort
    * (derived from Java's sort algorithms).
@@ -36,10 +36,8 @@ import org.basex.util.list.ObjList;
 public class AxisPath extends Path {
   /** Flag for result caching. */
   private boolean cache;
-  /** Cached result. */
-  private NodeCache citer;
-  /** Last visited item. */
-  private Value lvalue;
+  /** Cached result ({@code null} if no result has been cached yet). */
+  private Cache cached;
 
   /**
    * Constructor.
@@ -282,25 +280,29 @@ public class AxisPath extends Path {
     try {
       Value r = root != null ? ctx.value(root) : cv;
 
-      if(!cache || citer == null || lvalue.type != NodeType.DOC ||
-          r.type != NodeType.DOC || !((ANode) lvalue).is((ANode) r)) {
-        lvalue = r;
-        citer = new NodeCache().random();
-        if(r != null) {
-          final Iter ir = ctx.iter(r);
-          while((r = ir.next()) != null) {
-            ctx.value = r;
-            iter(0, citer, ctx);
-          }
-        } else {
-          ctx.value = null;
-          iter(0, citer, ctx);
+      // return cached result if the root is the same document node. a new
+      // iterator is created, as the path may be evaluated recursively or by
+      // several threads at the same time
+      final Cache c = cached;
+      if(c != null && r.type == NodeType.DOC && c.doc.is((ANode) r))
+        return new NodeCache(c.nodes, c.size);
+
+      final NodeCache nc = new NodeCache().random();
+      final Value doc = r;
+      if(r != null) {
+        final Iter ir = ctx.iter(r);
+        while((r = ir.next()) != null) {
+          ctx.value = r;
+          iter(0, nc, ctx);
         }
-        citer.sort();
       } else {
-        citer.reset();
+        ctx.value = null;
+        iter(0, nc, ctx);
       }
-      return citer;
+      nc.sort();
+      if(cache && doc.type == NodeType.DOC)
+        cached = new Cache((ANode) doc, nc.item, (int) nc.size());
+      return nc;
     } finally {
       ctx.value = cv;
       ctx.size = cs;
@@ -394,6 +396,20 @@ public class AxisPath extends Path {
     return get(input, root, stps);
   }
 
+  /**
+   * Returns a copy of the path expression without the predicates of the
+   * last step.
+   * @return copy
+   */
+  public final Path dropPreds() {
+    final int sl = steps.length - 1;
+    final Expr[] stps = new Expr[sl + 1];
+    for(int s = 0; s < sl; ++s) stps[s] = AxisStep.get(step(s));
+    final AxisStep last = step(sl);
+    stps[sl] = AxisStep.get(last.input, last.axis, last.test);
+    return get(input, root, stps);
+  }
+
   /**
    * Returns the path nodes that will result from this path.
    * @param ctx query context
@@ -451,4 +467,26 @@ public class AxisPath extends Path {
     }
     return true;
   }
+
+  /** Cached result of a path that has been evaluated on a document node. */
+  private static final class Cache {
+    /** Document node. */
+    final ANode doc;
+    /** Sorted result nodes. */
+    final ANode[] nodes;
+    /** Number of result nodes. */
+    final int size;
+
+    /**
+     * Constructor.
+     * @param d document node
+     * @param n result nodes
+     * @param s number of result nodes
+     */
+    Cache(final ANode d, final ANode[] n, final int s) {
+      doc = d;
+      nodes = n;
+      size = s;
+    }
+  }
 }
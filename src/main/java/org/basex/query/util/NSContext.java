@@ -15,10 +15,40 @@ import org.basex.util.InputInfo;
  */
 public final class NSContext {
   /** Static namespaces, containing prefixes and URIs. */
-  private final Atts ns = new Atts();
+  private final Atts ns;
   /** Dynamically added namespaces. */
   private Atts stack;
 
+  /**
+   * Default constructor.
+   */
+  public NSContext() {
+    this(new Atts());
+  }
+
+  /**
+   * Constructor.
+   * @param n static namespaces
+   */
+  private NSContext(final Atts n) {
+    ns = n;
+  }
+
+  /**
+   * Returns a copy of this context, which shares the static namespaces and
+   * contains a copy of the dynamically added namespaces.
+   * @return copy
+   */
+  public NSContext fork() {
+    final NSContext nc = new NSContext(ns);
+    if(stack != null) {
+      final Atts s = nc.stack();
+      final int ss = stack.size();
+      for(int i = 0; i < ss; ++i) s.add(stack.name(i), stack.string(i));
+    }
+    return nc;
+  }
+
   /**
    * Validates and adds the specified namespace at parsing time.
    * @param pref namespace prefix
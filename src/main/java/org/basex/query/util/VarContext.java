@@ -15,10 +15,38 @@ import org.basex.query.item.QNm;
  */
 public final class VarContext extends ExprInfo {
   /** Global variables. */
-  private final VarStack global = new VarStack();
+  private final VarStack global;
   /** Local variables. */
   private VarStack local = new VarStack();
 
+  /**
+   * Default constructor.
+   */
+  public VarContext() {
+    this(new VarStack());
+  }
+
+  /**
+   * Constructor.
+   * @param g global variables
+   */
+  private VarContext(final VarStack g) {
+    global = g;
+  }
+
+  /**
+   * Returns a copy of this context, which shares the global variables and
+   * contains copies of the local variables. Values that are subsequently
+   * bound to the local variables of one of the contexts will thus not be
+   * visible in the other context.
+   * @return copy
+   */
+  public VarContext fork() {
+    final VarContext vc = new VarContext(global);
+    for(int v = 0; v < local.size; ++v) vc.local.add(local.vars[v].copy());
+    return vc;
+  }
+
   /**
    * Returns the global variables.
    * @return global variables
@@ -0,0 +1,138 @@
+package org.basex.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * This class reads input that is sent by a client in chunks
+ * (see {@link ServerCmd#CHUNKED}). Each chunk is introduced by its length
+ * (4 bytes, big endian); a chunk with zero length marks the end of the input.
+ * The chunks are directly read from the non-blocking client channel, which
+ * is no longer monitored by the selector thread during the transfer. As a
+ * result, the input is never buffered completely, and a slow consumer
+ * throttles the client.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class ChunkInput extends InputStream {
+  /** Channel. */
+  private final SocketChannel channel;
+  /** Read buffer. */
+  private final ByteBuffer bb;
+  /** Selector for waiting until the channel is readable (lazily opened). */
+  private Selector selector;
+  /** Remaining bytes of the current chunk. */
+  private int chunk;
+  /** Indicates if the last chunk has been read. */
+  private boolean last;
+  /** Number of read bytes. */
+  long size;
+
+  /**
+   * Constructor.
+   * @param ch channel
+   * @param bytes bytes that have already been read from the channel
+   * @param bufsize size of the read buffer
+   */
+  ChunkInput(final SocketChannel ch, final byte[] bytes, final int bufsize) {
+    channel = ch;
+    bb = ByteBuffer.allocate(Math.max(bufsize, bytes.length));
+    bb.put(bytes).flip();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if(!more()) return -1;
+    fill();
+    --chunk;
+    ++size;
+    return bb.get() & 0xFF;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len)
+      throws IOException {
+
+    if(len == 0) return 0;
+    if(!more()) return -1;
+    fill();
+    final int l = Math.min(len, Math.min(chunk, bb.remaining()));
+    bb.get(b, off, l);
+    chunk -= l;
+    size += l;
+    return l;
+  }
+
+  @Override
+  public void close() {
+    // the channel is closed by the client listener
+  }
+
+  /**
+   * Skips the remaining input and returns the bytes that have been read
+   * beyond the last chunk.
+   * @return remaining bytes
+   * @throws IOException I/O exception
+   */
+  byte[] finish() throws IOException {
+    try {
+      while(more()) {
+        fill();
+        final int l = Math.min(chunk, bb.remaining());
+        bb.position(bb.position() + l);
+        chunk -= l;
+      }
+      return Arrays.copyOfRange(bb.array(), bb.position(), bb.limit());
+    } finally {
+      if(selector != null) selector.close();
+    }
+  }
+
+  /**
+   * Checks if more bytes are available, and reads the length of the next
+   * chunk if necessary.
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  private boolean more() throws IOException {
+    while(!last && chunk == 0) {
+      int l = 0;
+      for(int i = 0; i < 4; i++) {
+        fill();
+        l = l << 8 | bb.get() & 0xFF;
+      }
+      if(l < 0) throw new IOException("Invalid chunk length: " + l);
+      chunk = l;
+      last = l == 0;
+    }
+    return !last;
+  }
+
+  /**
+   * Ensures that the read buffer is not empty.
+   * @throws IOException I/O exception
+   */
+  private void fill() throws IOException {
+    while(!bb.hasRemaining()) {
+      bb.clear();
+      final int r = channel.read(bb);
+      bb.flip();
+      if(r < 0) throw new IOException("Unexpected end of input.");
+      if(r == 0) {
+        // wait until more bytes are available
+        if(selector == null) {
+          selector = Selector.open();
+          channel.register(selector, SelectionKey.OP_READ);
+        }
+        selector.select(1000);
+        selector.selectedKeys().clear();
+      }
+    }
+  }
+}
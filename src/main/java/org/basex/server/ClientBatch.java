@@ -0,0 +1,237 @@
+package org.basex.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Command;
+import org.basex.io.out.ArrayOutput;
+import org.basex.io.out.EncodingOutput;
+import org.basex.util.Token;
+
+/**
+ * This class collects several requests of a {@link ClientSession}, which are
+ * then sent to the server in a single message. The server processes the
+ * requests in the given order and returns all responses at once, thus saving
+ * one round trip per request. Consecutive requests that add, replace or store
+ * documents are processed with a single lock.
+ *
+ * <p>The {@link #execute} method returns the results of all requests.
+ * If the session has been assigned an output stream, the results of database
+ * commands and queries are instead serialized to that stream.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientBatch {
+  /** Client session. */
+  private final ClientSession cs;
+  /** Buffered requests. */
+  private final ArrayOutput requests = new ArrayOutput();
+  /** Types of the buffered requests. */
+  private final ArrayList<ServerCmd> types = new ArrayList<ServerCmd>();
+  /** Command info of the last request. */
+  private String info;
+
+  /**
+   * Constructor.
+   * @param session client session
+   */
+  ClientBatch(final ClientSession session) {
+    cs = session;
+  }
+
+  /**
+   * Adds a database command.
+   * @param command command to be executed
+   * @return self reference
+   */
+  public ClientBatch execute(final Command command) {
+    return execute(command.toString());
+  }
+
+  /**
+   * Adds a database command.
+   * @param command command to be parsed
+   * @return self reference
+   */
+  public ClientBatch execute(final String command) {
+    return add(ServerCmd.COMMAND, request(ServerCmd.COMMAND, command));
+  }
+
+  /**
+   * Adds a request for adding a document to the opened database.
+   * @param path target path
+   * @param input xml input
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch add(final String path, final InputStream input)
+      throws IOException {
+    return add(ServerCmd.ADD, input, path);
+  }
+
+  /**
+   * Adds a request for replacing a document in the opened database.
+   * @param path document(s) to replace
+   * @param input new content
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch replace(final String path, final InputStream input)
+      throws IOException {
+    return add(ServerCmd.REPLACE, input, path);
+  }
+
+  /**
+   * Adds a request for storing raw data in the opened database.
+   * @param path target path
+   * @param input binary input
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  public ClientBatch store(final String path, final InputStream input)
+      throws IOException {
+    return add(ServerCmd.STORE, input, path);
+  }
+
+  /**
+   * Adds a request for binding an external variable of a query.
+   * @param query query
+   * @param name name of variable
+   * @param value value to be bound
+   * @param type type ({@code null}: no type)
+   * @return self reference
+   */
+  public ClientBatch bind(final ClientQuery query, final String name,
+      final Object value, final String type) {
+    return add(ServerCmd.BIND, request(ServerCmd.BIND, query.id, name,
+        value.toString(), type == null ? "" : type));
+  }
+
+  /**
+   * Adds a request for executing a query.
+   * @param query query
+   * @return self reference
+   */
+  public ClientBatch execute(final ClientQuery query) {
+    return add(ServerCmd.EXEC, request(ServerCmd.EXEC, query.id));
+  }
+
+  /**
+   * Returns the number of requests.
+   * @return number of requests
+   */
+  public int size() {
+    return types.size();
+  }
+
+  /**
+   * Sends all requests in a single message and reads the responses.
+   * All responses will be read, even if single requests fail. Afterwards,
+   * the batch is empty and can be reused.
+   * @return results of the requests (empty strings for requests without
+   * results, or for results that have been serialized to the output
+   * stream of the session)
+   * @throws IOException I/O exception, or {@link BaseXException} with the
+   * error message of the first failed request
+   */
+  public String[] execute() throws IOException {
+    final int rs = types.size();
+    final ServerCmd[] cmds = types.toArray(new ServerCmd[rs]);
+    // send {BATCH}{COUNT}0{REQUEST}*
+    cs.finish();
+    cs.sout.write(ServerCmd.BATCH.code);
+    cs.send(Integer.toString(rs));
+    cs.sout.write(requests.toArray());
+    cs.sout.flush();
+    requests.reset();
+    types.clear();
+
+    // read all responses
+    final String[] results = new String[rs];
+    final OutputStream os = cs.out;
+    String error = null;
+    for(int r = 0; r < rs; ++r) {
+      final ServerCmd sc = cmds[r];
+      final ArrayOutput ao = new ArrayOutput();
+      final boolean ok;
+      if(sc == ServerCmd.BIND || sc == ServerCmd.EXEC) {
+        // queries: {RESULT}0, (0|1{ERROR}0)
+        ClientSession.receive(cs.sin, sc == ServerCmd.EXEC && os != null ?
+            os : ao);
+        ok = ClientSession.ok(cs.sin);
+        info = ok ? "" : cs.sin.readString();
+      } else {
+        // commands: ({RESULT}0){INFO}0(0|1)
+        if(sc == ServerCmd.COMMAND) {
+          ClientSession.receive(cs.sin, os != null ? os : ao);
+        }
+        info = cs.sin.readString();
+        ok = ClientSession.ok(cs.sin);
+      }
+      if(!ok && error == null) error = info;
+      results[r] = ao.toString();
+    }
+    if(error != null) throw new BaseXException(error);
+    return results;
+  }
+
+  /**
+   * Returns the info string of the last request.
+   * @return info string
+   */
+  public String info() {
+    return info;
+  }
+
+  /**
+   * Buffers a request with the specified input.
+   * @param cmd server command
+   * @param input input stream
+   * @param path path argument
+   * @return self reference
+   * @throws IOException I/O exception
+   */
+  private ClientBatch add(final ServerCmd cmd, final InputStream input,
+      final String path) throws IOException {
+    // the input is read first: the batch remains unchanged if reading fails
+    final ArrayOutput ao = request(cmd, path);
+    final EncodingOutput eo = new EncodingOutput(ao);
+    for(int b; (b = input.read()) != -1;) eo.write(b);
+    ao.write(0);
+    return add(cmd, ao);
+  }
+
+  /**
+   * Adds the specified request.
+   * @param cmd server command
+   * @param request request
+   * @return self reference
+   */
+  private ClientBatch add(final ServerCmd cmd, final ArrayOutput request) {
+    for(final byte b : request.toArray()) requests.write(b);
+    types.add(cmd);
+    return this;
+  }
+
+  /**
+   * Creates a request with the specified string arguments.
+   * @param cmd server command
+   * @param strings string arguments
+   * @return request
+   */
+  private static ArrayOutput request(final ServerCmd cmd,
+      final String... strings) {
+    final ArrayOutput ao = new ArrayOutput();
+    // the first byte of database commands belongs to the command string
+    if(cmd != ServerCmd.COMMAND) ao.write(cmd.code);
+    for(final String s : strings) {
+      for(final byte b : Token.token(s)) ao.write(b);
+      ao.write(0);
+    }
+    return ao;
+  }
+}
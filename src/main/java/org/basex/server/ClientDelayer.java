@@ -46,5 +46,6 @@ final class ClientDelayer extends Thread {
     } catch(final IOException ex) {
       // socket was closed..
     }
+    listener.close();
   }
 }
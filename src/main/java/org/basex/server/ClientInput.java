@@ -0,0 +1,276 @@
+package org.basex.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import org.basex.io.IO;
+
+/**
+ * This class buffers the input of a client connection and splits it into
+ * complete protocol frames, which can then be processed without blocking.
+ * A frame consists of the login data or a single {@link ServerCmd}, followed
+ * by its zero-terminated arguments and, for commands that send documents,
+ * the encoded input. The requests of a {@link ServerCmd#BATCH} are combined
+ * to a single frame. An empty frame indicates the end of the stream.
+ *
+ * <p>The chunks of a {@link ServerCmd#CHUNKED} request are not buffered:
+ * after the header of the request has been scanned, the channel is no longer
+ * read by the selector thread, and the worker thread reads the chunks until
+ * the transfer is {@link #resume resumed}.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class ClientInput {
+  /** Frame that indicates the end of the stream. */
+  static final byte[] EOF = {};
+
+  /** Indicates if the end of the stream has been reached. */
+  boolean eof;
+  /** Indicates if the input is currently read by a worker thread. */
+  private boolean streaming;
+
+  /** Complete frames. */
+  private final LinkedList<byte[]> frames = new LinkedList<byte[]>();
+  /** Read buffer. */
+  private final ByteBuffer bb = ByteBuffer.allocate(IO.BLOCKSIZE);
+  /** Buffered bytes. */
+  private byte[] buffer = new byte[IO.BLOCKSIZE];
+  /** Number of buffered bytes. */
+  private int size;
+  /** Number of scanned bytes. */
+  private int pos;
+
+  /** Indicates if the first byte of the current frame has been scanned. */
+  private boolean started;
+  /** Indicates if the next frame contains the login data. */
+  private boolean login = true;
+  /** Indicates if the next frame contains the name of a watched event. */
+  private boolean watch;
+  /** Number of remaining strings of the current frame. */
+  private int strings;
+  /** Indicates if the current frame is followed by encoded input. */
+  private boolean input;
+  /** Indicates if the current frame is followed by chunked input. */
+  private boolean chunked;
+  /** Indicates if the next byte is the code of a chunked request. */
+  private boolean code;
+  /** Indicates if the next byte of the encoded input is escaped. */
+  private boolean escaped;
+  /** Number of requests of a batch ({@code -1}: invalid number). */
+  private int count;
+  /** Indicates if the number of requests of a batch is scanned. */
+  private boolean counting;
+  /** Number of remaining requests of the current batch. */
+  private int batch;
+  /** Indicates if the frames are currently being processed. */
+  private boolean busy;
+
+  /**
+   * Reads the available bytes from the channel of the specified key and adds
+   * all complete frames to the queue.
+   * @param key selection key
+   * @return {@code true} if the frames need to be processed by a new worker
+   */
+  synchronized boolean read(final SelectionKey key) {
+    // chunks are currently read by the worker thread
+    if(streaming) return false;
+    final ReadableByteChannel ch = (ReadableByteChannel) key.channel();
+    try {
+      while(true) {
+        bb.clear();
+        final int r = ch.read(bb);
+        if(r <= 0) {
+          eof = r < 0;
+          break;
+        }
+        if(size + r > buffer.length) {
+          final int s = Math.max(buffer.length << 1, size + r);
+          buffer = Arrays.copyOf(buffer, s);
+        }
+        bb.flip();
+        bb.get(buffer, size, r);
+        size += r;
+      }
+    } catch(final IOException ex) {
+      // connection was reset by the client
+      eof = true;
+    }
+
+    boolean added = frames();
+    if(eof) added |= add(EOF);
+    // stop monitoring the channel until the chunks have been read
+    if(streaming && !eof) key.interestOps(0);
+    return added;
+  }
+
+  /**
+   * Returns the bytes that have been read after the header of a chunked
+   * request. The remaining chunks will be read by the worker thread.
+   * @return bytes
+   */
+  synchronized byte[] take() {
+    final byte[] bytes = Arrays.copyOf(buffer, size);
+    size = 0;
+    pos = 0;
+    return bytes;
+  }
+
+  /**
+   * Finishes the transfer of a chunked request, adds the bytes that have
+   * been read by the worker thread beyond its end, and resumes monitoring
+   * the channel.
+   * @param key selection key
+   * @param bytes remaining bytes
+   */
+  synchronized void resume(final SelectionKey key, final byte[] bytes) {
+    streaming = false;
+    if(size + bytes.length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, size + bytes.length);
+    }
+    System.arraycopy(buffer, 0, buffer, bytes.length, size);
+    System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+    size += bytes.length;
+    // frames will be processed by the current worker
+    frames();
+    if(!streaming && key.isValid()) {
+      key.interestOps(SelectionKey.OP_READ);
+      key.selector().wakeup();
+    }
+  }
+
+  /**
+   * Adds all complete frames to the queue.
+   * @return {@code true} if the frames need to be processed by a new worker
+   */
+  private boolean frames() {
+    boolean added = false;
+    int start = 0;
+    while(pos < size && !streaming) {
+      if(scan(buffer[pos++] & 0xFF)) {
+        added |= add(Arrays.copyOfRange(buffer, start, pos));
+        start = pos;
+      }
+    }
+    // remove processed bytes
+    if(start != 0) {
+      System.arraycopy(buffer, start, buffer, 0, size - start);
+      size -= start;
+      pos -= start;
+    }
+    return added;
+  }
+
+  /**
+   * Returns the next complete frame.
+   * @return frame, or {@code null} if no frame is available
+   */
+  synchronized byte[] next() {
+    final byte[] frame = frames.poll();
+    if(frame == null) busy = false;
+    return frame;
+  }
+
+  /**
+   * Adds a complete frame.
+   * @param frame frame
+   * @return {@code true} if the frames need to be processed by a new worker
+   */
+  private synchronized boolean add(final byte[] frame) {
+    frames.add(frame);
+    if(busy) return false;
+    busy = true;
+    return true;
+  }
+
+  /**
+   * Scans the next byte of the current frame.
+   * @param b byte
+   * @return {@code true} if the frame is complete
+   */
+  private boolean scan(final int b) {
+    if(!started) {
+      started = true;
+      if(login) {
+        // {USER}0{PASSWORD}0
+        strings = 2;
+      } else if(watch) {
+        // {NAME}0
+        watch = false;
+        strings = 1;
+      } else {
+        final ServerCmd sc = ServerCmd.get(b);
+        if(sc == ServerCmd.WATCH && batch == 0) {
+          // the client waits for the event port before sending the name
+          watch = true;
+          return finish();
+        }
+        if(sc == ServerCmd.CHUNKED && batch == 0) {
+          // {CODE}{ARG}0, followed by the chunks
+          chunked = true;
+          code = true;
+          strings = 1;
+          return false;
+        }
+        if(sc == ServerCmd.BATCH && batch == 0) {
+          // {COUNT}0
+          counting = true;
+          count = 0;
+          strings = 1;
+          return false;
+        }
+        strings = sc == ServerCmd.BIND ? 4 : 1;
+        input = sc == ServerCmd.CREATE || sc == ServerCmd.ADD ||
+          sc == ServerCmd.REPLACE || sc == ServerCmd.STORE;
+        // the first byte of database commands belongs to the command string
+        if(sc != ServerCmd.COMMAND) return false;
+      }
+    }
+
+    if(code) {
+      code = false;
+      return false;
+    }
+    if(counting) {
+      if(b != 0) {
+        count = b >= '0' && b <= '9' && count >= 0 && count < 10000000 ?
+          count * 10 + b - '0' : -1;
+        return false;
+      }
+      // requests of a batch will be combined to a single frame
+      counting = false;
+      started = false;
+      strings = 0;
+      batch = Math.max(0, count);
+      return batch == 0 && finish();
+    }
+    if(strings > 0) {
+      if(b == 0) --strings;
+    } else if(escaped) {
+      escaped = false;
+    } else if(b == 0xFF) {
+      escaped = true;
+    } else if(b == 0) {
+      input = false;
+    }
+    if(strings != 0 || input) return false;
+    // stop scanning: the chunks will be read by the worker thread
+    streaming = chunked;
+    chunked = false;
+    return finish();
+  }
+
+  /**
+   * Finishes the current request.
+   * @return {@code true} if the frame is complete
+   */
+  private boolean finish() {
+    started = false;
+    login = false;
+    return batch == 0 || --batch == 0;
+  }
+}
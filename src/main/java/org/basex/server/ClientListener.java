@@ -5,13 +5,20 @@ import static org.basex.util.Token.*;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.basex.BaseXServer;
 import org.basex.core.BaseXException;
 import org.basex.core.Command;
 import org.basex.core.CommandParser;
 import org.basex.core.Context;
+import org.basex.core.Events;
 import org.basex.core.MainProp;
 import org.basex.core.cmd.Add;
 import org.basex.core.cmd.Close;
@@ -19,33 +26,49 @@ import org.basex.core.cmd.CreateDB;
 import org.basex.core.cmd.Exit;
 import org.basex.core.cmd.Replace;
 import org.basex.core.cmd.Store;
+import org.basex.data.Data;
+import org.basex.io.in.ArrayInput;
 import org.basex.io.in.BufferInput;
 import org.basex.io.in.DecodingInput;
+import org.basex.io.out.BufferOutput;
 import org.basex.io.out.EncodingOutput;
 import org.basex.io.out.PrintOutput;
 import org.basex.query.QueryException;
 import org.basex.util.Performance;
+import org.basex.util.TokenBuilder;
 import org.basex.util.Util;
 import org.basex.util.list.ByteList;
+import org.basex.util.list.StringList;
 
 /**
  * Server-side client session in the client-server architecture.
+ * The input of the client is buffered by the server's selector thread.
+ * As soon as complete requests are available, they are processed by
+ * a worker thread, which will be released again when all requests have been
+ * answered. Idle sessions do not occupy any threads.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Andreas Weiler
  * @author Christian Gruen
  */
-public final class ClientListener extends Thread {
+public final class ClientListener implements Runnable {
+  /** Session id counter. */
+  private static final AtomicLong IDS = new AtomicLong();
+
   /** Active queries. */
   private final HashMap<String, QueryListener> queries =
     new HashMap<String, QueryListener>();
   /** Performance measurement. */
   private final Performance perf = new Performance();
+  /** Buffered client input. */
+  private final ClientInput input = new ClientInput();
+  /** Session id. */
+  private final long sid = IDS.incrementAndGet();
 
   /** Database context. */
   private final Context context;
-  /** Socket reference. */
-  private final Socket socket;
+  /** Socket channel. */
+  private final SocketChannel channel;
   /** Server reference. */
   private final BaseXServer server;
   /** Log reference. */
@@ -54,59 +77,117 @@ public final class ClientListener extends Thread {
   /** Socket for events. */
   private Socket esocket;
   /** Output for events. */
-  private PrintOutput eout;
+  private volatile PrintOutput eout;
   /** Flag for active events. */
   private boolean events;
-  /** Input stream. */
-  private BufferInput in;
+  /** Pending event notifications. */
+  private final ConcurrentLinkedQueue<byte[]> notifications =
+    new ConcurrentLinkedQueue<byte[]>();
+  /** Number of pending event notifications. */
+  private final AtomicInteger pending = new AtomicInteger();
+  /** Indicates if event notifications are currently being delivered. */
+  private final AtomicBoolean delivering = new AtomicBoolean();
+  /** Task for delivering event notifications. */
+  private final Runnable deliverer = new Runnable() {
+    @Override
+    public void run() {
+      deliver();
+    }
+  };
+  /** Input stream of the current request. */
+  private ArrayInput in;
+  /** Selection key of the channel. */
+  private SelectionKey key;
   /** Output stream. */
   private PrintOutput out;
   /** Current command. */
   private Command command;
   /** Query id counter. */
   private int id;
-  /** Indicates if the server thread is running. */
-  private boolean running;
+  /** Indicates if the next request contains the name of a watched event. */
+  private boolean watching;
+  /** Indicates if the requests of a batch are processed. */
+  private boolean batch;
+  /** Timestamp for cram-md5 authentication ({@code null} after login). */
+  private String ts;
+  /** Indicates if the session is running. */
+  private volatile boolean running;
 
   /** Timestamp of last interaction. */
   public long last;
 
   /**
    * Constructor.
-   * @param s socket
+   * @param ch socket channel
    * @param c database context
    * @param l log reference
    * @param srv server reference
    */
-  public ClientListener(final Socket s, final Context c, final Log l,
+  public ClientListener(final SocketChannel ch, final Context c, final Log l,
       final BaseXServer srv) {
     context = new Context(c, this);
-    socket = s;
+    channel = ch;
     log = l;
     server = srv;
     last = System.currentTimeMillis();
   }
 
+  /**
+   * Initializes the session via cram-md5 authentication.
+   * @throws IOException I/O exception
+   */
+  public void init() throws IOException {
+    ts = Long.toString(System.nanoTime());
+    // send {TIMESTAMP}0
+    out = PrintOutput.get(new BufferOutput(new ClientOutput(channel),
+        context.mprop.num(MainProp.CHUNKSIZE)));
+    out.print(ts);
+    send(true);
+  }
+
+  /**
+   * Reads the available input of the client. Called by the selector thread.
+   * @param sk selection key of the channel
+   * @return {@code true} if complete requests need to be processed by
+   * {@link #run}
+   */
+  public boolean read(final SelectionKey sk) {
+    key = sk;
+    final boolean ready = input.read(sk);
+    // stop monitoring the channel if the end of the stream has been reached
+    if(input.eof) sk.cancel();
+    return ready;
+  }
+
   @Override
   public void run() {
-    // initialize the session via cram-md5 authentication
-    try {
-      final String ts = Long.toString(System.nanoTime());
-      final byte[] address = socket.getInetAddress().getAddress();
-
-      // send {TIMESTAMP}0
-      out = PrintOutput.get(socket.getOutputStream());
-      out.print(ts);
-      send(true);
+    // called by a worker thread: process all complete requests
+    for(byte[] frame; (frame = input.next()) != null;) {
+      if(frame == ClientInput.EOF) {
+        // end of stream: exit session
+        if(running) quit();
+        else close();
+      } else {
+        in = new ArrayInput(frame);
+        if(ts != null) login();
+        else if(running) process();
+      }
+    }
+  }
 
-      // evaluate login data
-      in = new BufferInput(socket.getInputStream());
+  /**
+   * Evaluates the login data.
+   */
+  private void login() {
+    try {
+      final byte[] address = channel.socket().getInetAddress().getAddress();
       // receive {USER}0{PASSWORD}0
       final String us = in.readString();
       final String pw = in.readString();
       context.user = context.users.get(us);
       running = context.user != null &&
         md5(string(context.user.password) + ts).equals(pw);
+      ts = null;
 
       // write log information
       if(running) {
@@ -122,110 +203,115 @@ public final class ClientListener extends Thread {
     } catch(final IOException ex) {
       Util.stack(ex);
       log.write(ex.getMessage());
-      return;
+      close();
     }
-    if(!running) return;
+  }
 
-    // authentification done, start command loop
+  /**
+   * Processes a single request.
+   */
+  private void process() {
     ServerCmd sc = null;
     String cmd = null;
-
+    command = null;
     try {
-      while(running) {
-        command = null;
-        try {
-          final int b = in.read();
-          if(b == -1) {
-            // end of stream: exit session
-            quit();
-            break;
-          }
-
-          last = System.currentTimeMillis();
-          perf.time();
-          sc = ServerCmd.get(b);
-          cmd = null;
-          if(sc == ServerCmd.CREATE) {
-            create();
-          } else if(sc == ServerCmd.ADD) {
-            add();
-          } else if(sc == ServerCmd.WATCH) {
-            watch();
-          } else if(sc == ServerCmd.UNWATCH) {
-            unwatch();
-          } else if(sc == ServerCmd.REPLACE) {
-            replace();
-          } else if(sc == ServerCmd.STORE) {
-            store();
-          } else if(sc != ServerCmd.COMMAND) {
-            query(sc);
-          } else {
-            // database command
-            cmd = new ByteList().add(b).add(in.readBytes()).toString();
-          }
-        } catch(final IOException ex) {
-          // this exception may be thrown if a session is stopped
-          quit();
-          break;
-        }
-        if(sc != ServerCmd.COMMAND) continue;
-
-        // parse input and create command instance
-        try {
-          command = new CommandParser(cmd, context).parseSingle();
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log.write(this, cmd, ERROR_C + msg);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.writeString(msg);
-          // send 1 to mark error
-          send(false);
-          continue;
-        }
-
-        // start timeout
-        command.startTimeout(context.mprop.num(MainProp.TIMEOUT));
-        log.write(this,
-            command.toString().replace('\r', ' ').replace('\n', ' '));
-
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info;
-        try {
-          command.execute(context, new EncodingOutput(out));
-          info = command.info();
-        } catch(final BaseXException ex) {
-          ok = false;
-          info = ex.getMessage();
-          if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
-        }
-        // stop timeout
-        command.stopTimeout();
-
-        // send 0 to mark end of result
-        out.write(0);
-        // send info
-        info(info, ok);
-
-        // stop console
-        if(command instanceof Exit) {
-          command = null;
-          quit();
-        }
+      last = System.currentTimeMillis();
+      perf.time();
+      if(watching) {
+        sc = ServerCmd.WATCH;
+        watch(in.readString());
+        return;
+      }
+      final int b = in.read();
+      sc = ServerCmd.get(b);
+      if(batch) lock(sc);
+      if(sc == ServerCmd.CREATE) {
+        create();
+      } else if(sc == ServerCmd.ADD) {
+        add();
+      } else if(sc == ServerCmd.WATCH && !batch) {
+        watch();
+      } else if(sc == ServerCmd.UNWATCH) {
+        unwatch();
+      } else if(sc == ServerCmd.REPLACE) {
+        replace();
+      } else if(sc == ServerCmd.STORE) {
+        store();
+      } else if(sc == ServerCmd.BATCH && !batch) {
+        batch();
+      } else if(sc == ServerCmd.CHUNKED && !batch) {
+        chunked();
+      } else if(sc != ServerCmd.COMMAND) {
+        query(sc);
+      } else {
+        // database command
+        cmd = new ByteList().add(b).add(in.readBytes()).toString();
+        command(cmd);
       }
     } catch(final IOException ex) {
+      // this exception may be thrown if a session is stopped
       log.write(this, sc == ServerCmd.COMMAND ? cmd : sc,
           ERROR_C + ex.getMessage());
       Util.debug(ex);
       command = null;
-      quit();
+      if(running) quit();
     }
     command = null;
   }
 
+  /**
+   * Parses and executes a database command.
+   * @param cmd command string
+   * @throws IOException I/O exception
+   */
+  private void command(final String cmd) throws IOException {
+    // parse input and create command instance
+    try {
+      command = new CommandParser(cmd, context).parseSingle();
+    } catch(final QueryException ex) {
+      // log invalid command
+      final String msg = ex.getMessage();
+      log.write(this, cmd, ERROR_C + msg);
+      // send 0 to mark end of potential result
+      out.write(0);
+      // send {INFO}0
+      out.writeString(msg);
+      // send 1 to mark error
+      send(false);
+      return;
+    }
+
+    // start timeout
+    command.startTimeout(context.mprop.num(MainProp.TIMEOUT));
+    log.write(this,
+        command.toString().replace('\r', ' ').replace('\n', ' '));
+
+    // execute command and send {RESULT}
+    boolean ok = true;
+    String info;
+    try {
+      command.execute(context, new EncodingOutput(out));
+      info = command.info();
+    } catch(final BaseXException ex) {
+      ok = false;
+      info = ex.getMessage();
+      if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+    }
+    // stop timeout
+    command.stopTimeout();
+
+    // send 0 to mark end of result
+    out.write(0);
+    // send info
+    info(info, ok);
+
+    // stop console
+    if(command instanceof Exit) {
+      command = null;
+      quit();
+    }
+  }
+
   /**
    * Exits the session.
    */
@@ -242,7 +328,7 @@ public final class ClientListener extends Thread {
 
     try {
       new Close().execute(context);
-      socket.close();
+      close();
       if(events) {
         esocket.close();
         // remove this session from all events in pool
@@ -254,6 +340,26 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Closes the connection.
+   */
+  public void close() {
+    try {
+      if(out != null) out.close();
+      channel.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Returns the id of this session.
+   * @return session id
+   */
+  public long getId() {
+    return sid;
+  }
+
   /**
    * Returns the context of this session.
    * @return user reference
@@ -275,25 +381,38 @@ public final class ClientListener extends Thread {
   }
 
   /**
-   * Sends a notification to the client.
+   * Queues a notification for the client. Notifications are delivered
+   * asynchronously. If the maximum number of pending notifications has been
+   * reached, the notification is dropped, or the client is disconnected from
+   * all events.
    * @param name event name
    * @param msg event message
-   * @throws IOException I/O exception
    */
-  public synchronized void notify(final byte[] name, final byte[] msg)
-      throws IOException {
+  public void notify(final byte[] name, final byte[] msg) {
+    final Events ev = context.events;
+    final int max = context.mprop.num(MainProp.EVENTQUEUE);
+    if(max > 0 && pending.get() >= max) {
+      ev.dropped.incrementAndGet();
+      if(context.mprop.is(MainProp.EVENTDISCONNECT)) unwatchAll();
+      return;
+    }
+    notifications.add(new TokenBuilder(name).add(0).add(msg).add(0).finish());
+    pending.incrementAndGet();
+    if(delivering.compareAndSet(false, true)) server.deliver(deliverer);
+  }
 
-    last = System.currentTimeMillis();
-    eout.print(name);
-    eout.write(0);
-    eout.print(msg);
-    eout.write(0);
-    eout.flush();
+  /**
+   * Returns the number of pending event notifications.
+   * @return number of notifications
+   */
+  public int pending() {
+    return pending.get();
   }
 
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("[");
+    final Socket socket = channel.socket();
     sb.append(socket.getInetAddress().getHostAddress());
     sb.append(COL).append(socket.getPort()).append(']');
     if(context.data() != null) sb.append(COLS).append(context.data().meta.name);
@@ -302,6 +421,45 @@ public final class ClientListener extends Thread {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Writes all pending event notifications to the event socket and flushes
+   * it once. Called by a separate thread.
+   */
+  private void deliver() {
+    final Events ev = context.events;
+    do {
+      int n = 0;
+      try {
+        for(byte[] msg; (msg = notifications.poll()) != null; ++n) {
+          eout.print(msg);
+        }
+        eout.flush();
+        if(n != 0) last = System.currentTimeMillis();
+        ev.delivered.addAndGet(n);
+      } catch(final IOException ex) {
+        // remove client if events could not be delivered
+        Util.debug(ex);
+        ev.dropped.addAndGet(n);
+        unwatchAll();
+      }
+      pending.addAndGet(-n);
+      delivering.set(false);
+      // continue if new notifications have been added in the meantime
+    } while(!notifications.isEmpty() && delivering.compareAndSet(false, true));
+  }
+
+  /**
+   * Removes the session from all events and discards pending notifications.
+   */
+  private void unwatchAll() {
+    final Events ev = context.events;
+    for(final Sessions s : ev.values()) s.remove(this);
+    while(notifications.poll() != null) {
+      ev.dropped.incrementAndGet();
+      pending.decrementAndGet();
+    }
+  }
+
   /**
    * Returns error feedback.
    * @param info error string
@@ -384,6 +542,78 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Executes a command with input that is sent in chunks, and reports the
+   * transfer rate.
+   * @throws IOException I/O exception
+   */
+  private void chunked() throws IOException {
+    final ServerCmd sc = ServerCmd.get(in.read());
+    final String arg = in.readString();
+    final Command cmd = sc == ServerCmd.CREATE ? new CreateDB(arg) :
+      sc == ServerCmd.ADD ? new Add(arg) : sc == ServerCmd.REPLACE ?
+      new Replace(arg) : new Store(arg);
+    log.write(this, cmd + " [...]");
+
+    final Performance p = new Performance();
+    final ChunkInput ci = new ChunkInput(channel, input.take(),
+        context.mprop.num(MainProp.CHUNKSIZE));
+    boolean ok = true;
+    String info;
+    try {
+      cmd.setInput(ci);
+      cmd.execute(context);
+      info = cmd.info();
+    } catch(final BaseXException ex) {
+      ok = false;
+      info = ex.getMessage();
+    }
+    // skip remaining chunks and continue with the subsequent requests
+    input.resume(key, ci.finish());
+
+    if(ok) {
+      final long time = Math.max(1, p.time());
+      info += Util.info(RECEIVED_X_X, Performance.format(ci.size),
+          Performance.format(ci.size * 1000000000L / time)) + NL;
+    }
+    info(info, ok);
+  }
+
+  /**
+   * Processes a batch of requests. All responses are sent at once.
+   * @throws IOException I/O exception
+   */
+  private void batch() throws IOException {
+    // skip number of requests: the frame contains all requests of the batch
+    in.readString();
+    batch = true;
+    try {
+      while(in.more() && running) process();
+    } finally {
+      batch = false;
+      context.unregisterBatch();
+      out.flush();
+    }
+  }
+
+  /**
+   * Registers a single lock for consecutive requests of a batch that add,
+   * replace or store documents in the opened database, and releases it
+   * before all other requests.
+   * @param sc server command of the next request
+   */
+  private void lock(final ServerCmd sc) {
+    final Data data = context.data();
+    if(data != null && (sc == ServerCmd.ADD || sc == ServerCmd.REPLACE ||
+        sc == ServerCmd.STORE)) {
+      if(!context.batched()) {
+        context.registerBatch(new StringList().add(data.meta.name));
+      }
+    } else {
+      context.unregisterBatch();
+    }
+  }
+
   /**
    * Watches an event.
    * @throws IOException I/O exception
@@ -398,7 +628,17 @@ public final class ClientListener extends Thread {
       out.flush();
       events = true;
     }
-    final String name = in.readString();
+    // the event name will be sent as separate request
+    watching = true;
+  }
+
+  /**
+   * Watches the event with the specified name.
+   * @param name name of event
+   * @throws IOException I/O exception
+   */
+  private void watch(final String name) throws IOException {
+    watching = false;
     final Sessions s = context.events.get(name);
     final boolean ok = s != null && !s.contains(this);
     final String message;
@@ -502,7 +742,7 @@ public final class ClientListener extends Thread {
       out.write(1);
       out.writeString(err);
     }
-    out.flush();
+    flush();
   }
 
   /**
@@ -512,6 +752,14 @@ public final class ClientListener extends Thread {
    */
   void send(final boolean ok) throws IOException {
     out.write(ok ? 0 : 1);
-    out.flush();
+    flush();
+  }
+
+  /**
+   * Flushes the output, unless a batch is processed.
+   * @throws IOException I/O exception
+   */
+  private void flush() throws IOException {
+    if(!batch) out.flush();
   }
 }
@@ -0,0 +1,58 @@
+package org.basex.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * This class writes the output of a client session to a non-blocking
+ * channel. If the socket buffer is full, the writing thread waits until
+ * the channel is writable again.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class ClientOutput extends OutputStream {
+  /** Channel. */
+  private final SocketChannel channel;
+  /** Selector for waiting until the channel is writable (lazily opened). */
+  private Selector selector;
+
+  /**
+   * Constructor.
+   * @param ch channel
+   */
+  ClientOutput(final SocketChannel ch) {
+    channel = ch;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len)
+      throws IOException {
+
+    final ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+    while(bb.hasRemaining()) {
+      if(channel.write(bb) != 0) continue;
+      // socket buffer is full: wait until the client has read some data
+      if(selector == null) {
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_WRITE);
+      }
+      selector.select(1000);
+      selector.selectedKeys().clear();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(selector != null) selector.close();
+  }
+}
@@ -0,0 +1,209 @@
+package org.basex.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.basex.core.BaseXException;
+import org.basex.core.cmd.XQuery;
+
+/**
+ * This class provides a thread-safe pool of client sessions, which are
+ * connected to the same server and authenticated with the same user.
+ * Sessions are returned to the pool after use, so that their connections
+ * can be reused without another login. A single session must only be used
+ * by one thread at a time.
+ *
+ * <p>Sessions that have not been used for a specified time are closed.
+ * A session that has been idle for more than a second is checked before it
+ * is handed out again, and replaced if the connection has been closed,
+ * e.g. by the server. Note that sessions keep their state (opened database,
+ * properties, unclosed queries) when being returned to the pool.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientPool {
+  /** Idle time after which a session will be checked (ms). */
+  private static final long CHECK = 1000;
+
+  /** Idle sessions, ordered by their last use. */
+  private final ArrayList<ClientSession> sessions =
+    new ArrayList<ClientSession>();
+  /** Server name. */
+  private final String host;
+  /** Server port. */
+  private final int port;
+  /** User name. */
+  private final String user;
+  /** Password. */
+  private final String pass;
+  /** Maximum number of sessions. */
+  private final int max;
+  /** Idle time after which sessions will be closed (ms). */
+  private final long idle;
+  /** Number of sessions that have been handed out. */
+  private int used;
+  /** Closed flag. */
+  private boolean closed;
+
+  /**
+   * Constructor.
+   * @param hst server name
+   * @param prt server port
+   * @param usr user name
+   * @param pss password
+   * @param mx maximum number of sessions
+   * @param idl idle time after which sessions will be closed (ms);
+   * sessions will be kept open if set to 0
+   */
+  public ClientPool(final String hst, final int prt, final String usr,
+      final String pss, final int mx, final long idl) {
+    host = hst;
+    port = prt;
+    user = usr;
+    pass = pss;
+    max = mx;
+    idle = idl;
+  }
+
+  /**
+   * Returns a session from the pool. If no idle session is available, a new
+   * session will be created. If the maximum number of sessions has been
+   * handed out, the method waits until a session is released.
+   * @return session
+   * @throws IOException I/O exception
+   */
+  public ClientSession acquire() throws IOException {
+    while(true) {
+      ClientSession cs = null;
+      long time = 0;
+      synchronized(this) {
+        while(!closed && sessions.isEmpty() && used >= max) {
+          try {
+            wait();
+          } catch(final InterruptedException ex) {
+            throw new IOException(ex.toString());
+          }
+        }
+        if(closed) throw new IOException("Pool was closed.");
+        evict();
+        if(!sessions.isEmpty()) {
+          cs = sessions.remove(sessions.size() - 1);
+          time = cs.time;
+        }
+        ++used;
+      }
+
+      // create new session
+      if(cs == null) {
+        try {
+          return new ClientSession(host, port, user, pass);
+        } catch(final IOException ex) {
+          free();
+          throw ex;
+        }
+      }
+      // return session if it has recently been used, or if it is alive
+      if(System.currentTimeMillis() - time < CHECK || alive(cs)) return cs;
+      close(cs);
+      free();
+    }
+  }
+
+  /**
+   * Returns a session to the pool. If results of an iterated query are
+   * pending, they will be read first. The session will be closed if it
+   * cannot be reused.
+   * @param cs session
+   */
+  public void release(final ClientSession cs) {
+    cs.setOutputStream(null);
+    boolean ok = true;
+    try {
+      cs.finish();
+    } catch(final IOException ex) {
+      ok = false;
+    }
+    synchronized(this) {
+      if(ok && !closed) {
+        cs.time = System.currentTimeMillis();
+        sessions.add(cs);
+      }
+      --used;
+      notifyAll();
+    }
+    if(!ok || closed) close(cs);
+  }
+
+  /**
+   * Returns the number of idle sessions.
+   * @return number of sessions
+   */
+  public synchronized int idle() {
+    return sessions.size();
+  }
+
+  /**
+   * Closes all idle sessions. Sessions that are currently used will be
+   * closed when being released.
+   */
+  public void close() {
+    final ArrayList<ClientSession> list;
+    synchronized(this) {
+      closed = true;
+      list = new ArrayList<ClientSession>(sessions);
+      sessions.clear();
+      notifyAll();
+    }
+    for(final ClientSession cs : list) close(cs);
+  }
+
+  /**
+   * Closes sessions that have been idle for too long.
+   */
+  private void evict() {
+    if(idle == 0) return;
+    final long time = System.currentTimeMillis() - idle;
+    // sessions are ordered by their last use
+    while(!sessions.isEmpty() && sessions.get(0).time < time) {
+      close(sessions.remove(0));
+    }
+  }
+
+  /**
+   * Decreases the number of used sessions.
+   */
+  private synchronized void free() {
+    --used;
+    notifyAll();
+  }
+
+  /**
+   * Checks if the connection of a session is still alive.
+   * @param cs session
+   * @return result of check
+   */
+  private static boolean alive(final ClientSession cs) {
+    try {
+      cs.execute(new XQuery("()"));
+      return true;
+    } catch(final BaseXException ex) {
+      // the server has sent an error message
+      return true;
+    } catch(final IOException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Closes a session.
+   * @param cs session
+   */
+  private static void close(final ClientSession cs) {
+    try {
+      cs.close();
+    } catch(final IOException ex) {
+      // ignore errors on closed connections
+    }
+  }
+}
@@ -6,12 +6,19 @@ import java.io.OutputStream;
 import org.basex.core.BaseXException;
 import org.basex.io.in.BufferInput;
 import org.basex.io.out.ArrayOutput;
+import org.basex.util.list.TokenList;
 
 /**
  * This class defines all methods for iteratively evaluating queries with the
  * client/server architecture. All sent data is received by the
  * {@link ClientListener} and interpreted by the {@link QueryListener}.
  *
+ * <p>If a query is iterated, the results are read on demand. As the server
+ * blocks as long as the client does not consume its output, the evaluation
+ * of the query on the server is throttled by a slow consumer. If another
+ * request is sent via the same session before all items have been retrieved,
+ * the remaining items will be cached.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
@@ -19,7 +26,11 @@ public class ClientQuery extends Query {
   /** Client session. */
   private final ClientSession cs;
   /** Query id. */
-  private final String id;
+  final String id;
+  /** Indicates if results are currently being streamed from the server. */
+  private boolean streaming;
+  /** Error message of an iterated query. */
+  private String error;
 
   /**
    * Standard constructor.
@@ -60,17 +71,62 @@ public class ClientQuery extends Query {
 
   @Override
   public void close() throws IOException {
+    // skip the remaining results
+    if(streaming) finish(false);
     exec(ServerCmd.CLOSE, id, null);
   }
 
+  @Override
+  public boolean more() throws IOException {
+    if(cache == null) cache();
+    if(pos == cache.size() && streaming) {
+      // discard consumed items and read the next item
+      cache.reset();
+      pos = 0;
+      read(true);
+    }
+    if(pos < cache.size()) return true;
+    if(error == null) return false;
+    final String msg = error;
+    error = null;
+    throw new BaseXException(msg);
+  }
+
   @Override
   protected void cache() throws IOException {
+    cs.finish();
     cs.sout.write(ServerCmd.ITER.code);
     cs.send(id);
     cs.sout.flush();
-    final BufferInput bi = new BufferInput(cs.sin);
-    cache(bi);
-    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    cache = new TokenList();
+    streaming = true;
+    cs.iter = this;
+  }
+
+  /**
+   * Reads all remaining results from the server.
+   * @param keep cache results (or discard them)
+   * @throws IOException I/O exception
+   */
+  void finish(final boolean keep) throws IOException {
+    while(streaming) read(keep);
+  }
+
+  /**
+   * Reads the next result from the server. If all results have been read,
+   * the success flag will be checked, and the session will be released.
+   * @param keep cache result (or discard it)
+   * @throws IOException I/O exception
+   */
+  private void read(final boolean keep) throws IOException {
+    final byte[] item = item(cs.sin);
+    if(item != null) {
+      if(keep) cache.add(item);
+    } else {
+      streaming = false;
+      cs.iter = null;
+      if(!ClientSession.ok(cs.sin)) error = cs.sin.readString();
+    }
   }
 
   /**
@@ -84,13 +140,14 @@ public class ClientQuery extends Query {
   private String exec(final ServerCmd cmd, final String arg,
       final OutputStream output) throws IOException {
 
+    cs.finish();
     final OutputStream os = output == null ? new ArrayOutput() : output;
     cs.sout.write(cmd.code);
     cs.send(arg);
     cs.sout.flush();
-    final BufferInput bi = new BufferInput(cs.sin);
-    ClientSession.receive(bi, os);
-    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    ClientSession.receive(cs.sin, os);
+    if(!ClientSession.ok(cs.sin)) throw new BaseXException(
+        cs.sin.readString());
     return os.toString();
   }
 }
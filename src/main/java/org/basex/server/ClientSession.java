@@ -16,7 +16,6 @@ import org.basex.core.Context;
 import org.basex.core.MainProp;
 import org.basex.io.in.BufferInput;
 import org.basex.io.in.DecodingInput;
-import org.basex.io.out.EncodingOutput;
 import org.basex.io.out.PrintOutput;
 import org.basex.util.Token;
 
@@ -41,13 +40,20 @@ import org.basex.util.Token;
  * @author Christian Gruen
  */
 public class ClientSession extends Session {
+  /** Maximum size of the chunks in which input is sent. */
+  private static final int CHUNK = 1 << 16;
+
   /** Event notifications. */
   final Map<String, EventNotifier> notifiers =
     Collections.synchronizedMap(new HashMap<String, EventNotifier>());
   /** Server output (buffered). */
   final PrintOutput sout;
-  /** Server input. */
-  final InputStream sin;
+  /** Server input (buffered). */
+  final BufferInput sin;
+  /** Query, the results of which are currently being read. */
+  ClientQuery iter;
+  /** Time of last use, assigned by the {@link ClientPool}. */
+  long time;
 
   /** Socket reference. */
   private final Socket socket;
@@ -115,11 +121,10 @@ public class ClientSession extends Session {
     // 5 seconds timeout
     socket = new Socket();
     socket.connect(new InetSocketAddress(host, port), 5000);
-    sin = socket.getInputStream();
+    sin = new BufferInput(socket.getInputStream());
 
     // receive timestamp
-    final BufferInput bi = new BufferInput(sin);
-    final String ts = bi.readString();
+    final String ts = sin.readString();
 
     // send user name and hashed password/timestamp
     sout = PrintOutput.get(socket.getOutputStream());
@@ -128,7 +133,7 @@ public class ClientSession extends Session {
     sout.flush();
 
     // receive success flag
-    if(!ok(bi)) throw new LoginException();
+    if(!ok(sin)) throw new LoginException();
   }
 
   @Override
@@ -160,6 +165,14 @@ public class ClientSession extends Session {
     return new ClientQuery(query, this, out);
   }
 
+  /**
+   * Returns a new batch, which sends several requests in a single message.
+   * @return batch
+   */
+  public ClientBatch batch() {
+    return new ClientBatch(this);
+  }
+
   @Override
   public synchronized void close() throws IOException {
     if(esocket != null) esocket.close();
@@ -169,6 +182,7 @@ public class ClientSession extends Session {
   @Override
   protected void execute(final String cmd, final OutputStream os)
       throws IOException {
+    finish();
     send(cmd);
     sout.flush();
     receive(os);
@@ -189,16 +203,16 @@ public class ClientSession extends Session {
   public void watch(final String name, final EventNotifier notifier)
       throws IOException {
 
+    finish();
     sout.write(ServerCmd.WATCH.code);
     if(esocket == null) {
       sout.flush();
-      final BufferInput bi = new BufferInput(sin);
-      final int eport = Integer.parseInt(bi.readString());
+      final int eport = Integer.parseInt(sin.readString());
       // initialize event socket
       esocket = new Socket();
       esocket.connect(new InetSocketAddress(ehost, eport), 5000);
       final OutputStream so = esocket.getOutputStream();
-      so.write(bi.readBytes());
+      so.write(sin.readBytes());
       so.write(0);
       so.flush();
       final InputStream is = esocket.getInputStream();
@@ -217,6 +231,7 @@ public class ClientSession extends Session {
    * @throws IOException I/O exception
    */
   public void unwatch(final String name) throws IOException {
+    finish();
     sout.write(ServerCmd.UNWATCH.code);
     send(name);
     sout.flush();
@@ -247,18 +262,34 @@ public class ClientSession extends Session {
   }
 
   /**
-   * Sends the specified stream to the server.
+   * Sends the specified stream to the server in chunks.
    * @param input input stream
    * @throws IOException I/O exception
    */
   private void send(final InputStream input) throws IOException {
-    final EncodingOutput eo = new EncodingOutput(sout);
-    for(int b; (b = input.read()) != -1;) eo.write(b);
-    sout.write(0);
+    final byte[] chunk = new byte[CHUNK];
+    for(int r; (r = input.read(chunk)) != -1;) {
+      if(r == 0) continue;
+      length(r);
+      sout.write(chunk, 0, r);
+    }
+    length(0);
     sout.flush();
     receive(null);
   }
 
+  /**
+   * Sends the length of a chunk.
+   * @param l length
+   * @throws IOException I/O exception
+   */
+  private void length(final int l) throws IOException {
+    sout.write(l >>> 24);
+    sout.write(l >>> 16);
+    sout.write(l >>> 8);
+    sout.write(l);
+  }
+
   /**
    * Receives the info string.
    * @param os output stream to send result to. If {@code null}, no result
@@ -266,10 +297,9 @@ public class ClientSession extends Session {
    * @throws IOException I/O exception
    */
   private void receive(final OutputStream os) throws IOException {
-    final BufferInput bi = new BufferInput(sin);
-    if(os != null) receive(bi, os);
-    info = bi.readString();
-    if(!ok(bi)) throw new BaseXException(info);
+    if(os != null) receive(sin, os);
+    info = sin.readString();
+    if(!ok(sin)) throw new BaseXException(info);
   }
 
   /**
@@ -283,7 +313,7 @@ public class ClientSession extends Session {
   }
 
   /**
-   * Sends the specified command, string arguments and input.
+   * Sends the specified command, string arguments and chunked input.
    * @param cmd command
    * @param input input stream
    * @param strings string arguments
@@ -291,11 +321,22 @@ public class ClientSession extends Session {
    */
   void send(final ServerCmd cmd, final InputStream input,
       final String... strings) throws IOException {
+    finish();
+    sout.write(ServerCmd.CHUNKED.code);
     sout.write(cmd.code);
     for(final String s : strings) send(s);
     send(input);
   }
 
+  /**
+   * Reads the remaining results of a query that is currently iterated.
+   * Must be called before a new request is sent to the server.
+   * @throws IOException I/O exception
+   */
+  void finish() throws IOException {
+    if(iter != null) iter.finish(true);
+  }
+
   /**
    * Retrieves data from the server.
    * @param bi buffered server input
@@ -7,8 +7,13 @@ import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
 
 import org.basex.core.Context;
+import org.basex.core.MainProp;
 import org.basex.core.Prop;
 import org.basex.io.IOFile;
 import org.basex.util.TokenBuilder;
@@ -17,6 +22,12 @@ import org.basex.util.Util;
 /**
  * This class writes logging information to disk.
  *
+ * Entries are added to a lock-free queue. If {@link MainProp#LOGFLUSH} is
+ * greater than zero, they are formatted and written in batches by a
+ * background thread, which is woken up when the flush interval has passed
+ * or when too many entries are pending. Otherwise, all entries are written
+ * and flushed by the calling thread.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Andreas Weiler
  */
@@ -25,11 +36,24 @@ public final class Log {
   private static final DateFormat DATE = new SimpleDateFormat("yyyy-MM-dd");
   /** Time format. */
   private static final DateFormat TIME = new SimpleDateFormat("HH:mm:ss.SSS");
+  /** Whitespaces to be normalized. */
+  private static final Pattern WS = Pattern.compile("[\\r\\n ]+");
+  /** Number of pending entries that causes the entries to be written. */
+  private static final int BATCH = 1024;
 
   /** Quiet flag. */
   private final boolean quiet;
   /** Logging directory. */
   private final IOFile dir;
+  /** Pending entries. */
+  private final ConcurrentLinkedQueue<Entry> entries =
+    new ConcurrentLinkedQueue<Entry>();
+  /** Number of pending entries. */
+  private final AtomicInteger pending = new AtomicInteger();
+  /** Background writer ({@code null} if entries are written synchronously). */
+  private final Writer writer;
+  /** Indicates if the log has been closed. */
+  private volatile boolean closed;
 
   /** Start date of log. */
   private String start;
@@ -44,38 +68,79 @@ public final class Log {
   public Log(final Context ctx, final boolean q) {
     dir = ctx.mprop.dbpath(".logs");
     quiet = q;
-    if(!q) create(new Date());
+    final int ms = ctx.mprop.num(MainProp.LOGFLUSH);
+    writer = q || ms <= 0 ? null : new Writer(ms);
+    if(q) return;
+    create(new Date());
+    if(writer != null) writer.start();
   }
 
   /**
    * Writes an entry to the log file.
    * @param str strings to be written
    */
-  public synchronized void write(final Object... str) {
-    if(quiet) return;
-
-    // check if current log file is still up-to-date
-    final Date now = new Date();
-    if(!start.equals(DATE.format(now))) {
-      close();
-      create(now);
+  public void write(final Object... str) {
+    if(quiet || closed) return;
+
+    // strings are created at once, as the objects may change
+    final String[] strings = new String[str.length];
+    for(int s = 0; s < str.length; ++s) strings[s] = str[s].toString();
+    entries.add(new Entry(System.currentTimeMillis(), strings));
+
+    // the entry is discarded by the calling thread if the log has been closed
+    // in the meantime, as the background writer may already have stopped
+    if(writer == null || closed) {
+      flush();
+    } else if(pending.incrementAndGet() >= BATCH) {
+      LockSupport.unpark(writer);
     }
+  }
 
-    // construct log text
-    final TokenBuilder tb = new TokenBuilder(TIME.format(now));
-    for(final Object s : str) {
-      tb.add('\t');
-      tb.add(chop(token(s.toString().replaceAll("[\\r\\n ]+", " ")), 1000));
+  /**
+   * Writes all pending entries to the log file and flushes it.
+   */
+  private synchronized void flush() {
+    final TokenBuilder tb = new TokenBuilder();
+    int n = 0;
+    if(fos == null) {
+      // log has been closed: discard entries
+      for(; entries.poll() != null; ++n);
+      if(writer != null) pending.addAndGet(-n);
+      return;
+    }
+    for(Entry e; (e = entries.poll()) != null; ++n) {
+      // check if current log file is still up-to-date
+      final Date date = new Date(e.time);
+      if(!start.equals(DATE.format(date))) {
+        write(tb);
+        close(fos);
+        create(date);
+      }
+      // construct log text
+      tb.add(TIME.format(date));
+      for(final String s : e.strings) {
+        tb.add('\t');
+        tb.add(chop(token(WS.matcher(s).replaceAll(" ")), 1000));
+      }
+      tb.add(Prop.NL);
     }
-    tb.add(Prop.NL);
+    if(writer != null) pending.addAndGet(-n);
+    write(tb);
+  }
 
-    // write text and flush log file
+  /**
+   * Writes the specified text to the log file and flushes it.
+   * @param tb text
+   */
+  private void write(final TokenBuilder tb) {
+    if(tb.size() == 0) return;
     try {
       fos.write(tb.finish());
       fos.flush();
     } catch(final Exception ex) {
       Util.debug(ex);
     }
+    tb.reset();
   }
 
   /**
@@ -93,14 +158,80 @@ public final class Log {
   }
 
   /**
-   * Closes the log file.
+   * Writes all pending entries and closes the log file. Entries that are
+   * added afterwards will be discarded.
+   */
+  public void close() {
+    if(quiet || closed) return;
+    closed = true;
+    if(writer != null) {
+      writer.running = false;
+      LockSupport.unpark(writer);
+      try {
+        writer.join();
+      } catch(final InterruptedException ex) {
+        Util.stack(ex);
+      }
+    }
+    synchronized(this) {
+      flush();
+      close(fos);
+      fos = null;
+    }
+  }
+
+  /**
+   * Closes the specified output stream.
+   * @param os output stream
    */
-  public synchronized void close() {
-    if(quiet) return;
+  private static void close(final FileOutputStream os) {
     try {
-      fos.close();
+      os.close();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
+
+  /** Single log entry. */
+  private static final class Entry {
+    /** Time of the entry. */
+    final long time;
+    /** Strings to be written. */
+    final String[] strings;
+
+    /**
+     * Constructor.
+     * @param t time of the entry
+     * @param s strings to be written
+     */
+    Entry(final long t, final String[] s) {
+      time = t;
+      strings = s;
+    }
+  }
+
+  /** Background thread, which writes pending entries. */
+  private final class Writer extends Thread {
+    /** Flush interval (nanoseconds). */
+    private final long interval;
+    /** Running flag. */
+    volatile boolean running = true;
+
+    /**
+     * Constructor.
+     * @param ms flush interval (milliseconds)
+     */
+    Writer(final int ms) {
+      interval = ms * 1000000L;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while(running) {
+        LockSupport.parkNanos(this, interval);
+        flush();
+      }
+    }
+  }
 }
@@ -84,13 +84,21 @@ public abstract class Query {
    */
   protected void cache(final InputStream is) throws IOException {
     cache = new TokenList();
+    for(byte[] item; (item = item(is)) != null;) cache.add(item);
+  }
+
+  /**
+   * Reads the next item from the incoming input.
+   * @param is input stream
+   * @return item, or {@code null} if all items have been read
+   * @throws IOException I/O exception
+   */
+  protected byte[] item(final InputStream is) throws IOException {
+    if(is.read() <= 0) return null;
     final ByteList bl = new ByteList();
-    while(is.read() > 0) {
-      final DecodingInput di = new DecodingInput(is);
-      for(int b; (b = di.read()) != -1;) bl.add(b);
-      cache.add(bl.toArray());
-      bl.reset();
-    }
+    final DecodingInput di = new DecodingInput(is);
+    for(int b; (b = di.read()) != -1;) bl.add(b);
+    return bl.toArray();
   }
 
   /**
@@ -5,20 +5,29 @@ import static org.basex.io.serial.SerializerProp.*;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.basex.core.BaseXException;
 import org.basex.core.Context;
+import org.basex.core.Job;
+import org.basex.core.MainProp;
 import org.basex.core.Progress;
+import org.basex.core.Prop;
 import org.basex.io.out.EncodingOutput;
 import org.basex.io.out.PrintOutput;
 import org.basex.io.serial.Serializer;
 import org.basex.io.serial.SerializerProp;
+import org.basex.query.QueryCache;
 import org.basex.query.QueryException;
 import org.basex.query.QueryProcessor;
+import org.basex.query.ResultCache;
 import org.basex.query.item.Item;
 import org.basex.query.iter.Iter;
 import org.basex.util.Performance;
 import org.basex.util.TokenBuilder;
+import org.basex.util.list.StringList;
 
 /**
  * Server-side query session in the client-server architecture.
@@ -30,10 +39,17 @@ import org.basex.util.TokenBuilder;
 final class QueryListener extends Progress {
   /** Performance. */
   private final Performance perf = new Performance();
-  /** Query processor. */
-  private final QueryProcessor qp;
+  /** Bound variables. */
+  private final HashMap<String, Object[]> bindings =
+    new LinkedHashMap<String, Object[]>();
+  /** Query string. */
+  private final String query;
   /** Database context. */
   private final Context ctx;
+  /** Flag for caching compiled queries. */
+  private final boolean cache;
+  /** Query processor ({@code null} if a new processor is to be created). */
+  private QueryProcessor qp;
 
   /** Query info. */
   private String info = "";
@@ -47,7 +63,9 @@ final class QueryListener extends Progress {
    */
   QueryListener(final String qu, final Context c) {
     qp = new QueryProcessor(qu, c);
+    query = qu;
     ctx = c;
+    cache = c.mprop.num(MainProp.QUERYCACHE) != 0;
   }
 
   /**
@@ -59,7 +77,18 @@ final class QueryListener extends Progress {
    */
   void bind(final String n, final Object o, final String t) throws IOException {
     try {
-      qp.bind(n, o, t);
+      // variables of cached queries will be bound before evaluation
+      if(!cache) {
+        // a query that has already been parsed is parsed again, and the
+        // existing bindings are assigned to the new processor
+        if(options != null) {
+          qp = new QueryProcessor(query, ctx);
+          options = null;
+          bind();
+        }
+        qp.bind(n, o, t);
+      }
+      bindings.put(n, new Object[] { o, t });
     } catch(final QueryException ex) {
       throw new BaseXException(ex);
     }
@@ -93,54 +122,209 @@ final class QueryListener extends Progress {
   void execute(final boolean iter, final OutputStream out, final boolean enc)
       throws IOException {
 
-    boolean mon = false;
+    Job job = null;
+    StringList db = new StringList();
+    String key = null;
     try {
+      if(cache) key = cached();
       init();
-      ctx.register(qp.ctx.updating());
-      mon = true;
-
-      // create serializer
-      final Iter ir = qp.iter();
-      final boolean wrap = !options.get(S_WRAP_PREFIX).isEmpty();
-
-      // iterate through results
-      final PrintOutput po =
-          PrintOutput.get(enc ? new EncodingOutput(out) : out);
-      if(iter && wrap) po.write(1);
-
-      final Serializer ser = Serializer.get(po, options);
-      int c = 0;
-      for(Item it; (it = ir.next()) != null;) {
-        if(iter && !wrap) {
-          po.write(it.type.id());
-          ser.reset();
-        }
-        ser.openResult();
-        it.serialize(ser);
-        ser.closeResult();
-        if(iter && !wrap) {
-          po.flush();
-          out.write(0);
-        }
-        c++;
+      if(!qp.databases(db)) db = null;
+      final boolean vs = qp.ctx.versioned();
+      final boolean writing = qp.ctx.updating();
+      qp.ctx.snapshots = vs && !writing;
+      job = ctx.register(writing, vs, db);
+      if(job == null) throw new BaseXException(QUEUE_FULL);
+      if(key != null) key = prepare(key);
+
+      // look up cached result
+      final ResultCache rc = ctx.results;
+      String rkey = rc.key(query, values(iter, enc), ctx);
+      if(rkey != null && !rc.cacheable(qp)) rkey = null;
+      final ResultCache.Entry entry = rkey != null ? rc.get(rkey) : null;
+      final long c;
+      final long saved;
+      if(entry != null) {
+        out.write(entry.result);
+        c = entry.hits;
+        saved = entry.time;
+      } else {
+        final long stamp = rc.stamp();
+        final Performance p = new Performance();
+        final ResultCache.Recorder rec =
+            rkey != null ? rc.recorder(out) : null;
+        c = serialize(iter, rec != null ? rec : out, enc);
+        saved = qp.saved();
+        // cache result before the query is closed
+        final byte[] result = rec != null ? rec.bytes() : null;
+        if(result != null) rc.put(rkey, qp, result, c, p.time(), stamp);
       }
-      ser.close();
-      if(iter && wrap) out.write(0);
 
       // generate query info
       final int up = qp.updates();
       final TokenBuilder tb = new TokenBuilder();
       tb.addExt(HITS_X_CC + "% %" + NL, c, c == 1 ? ITEM : ITEMS);
       tb.addExt(UPDATED_CC + "% %" + NL, up, up == 1 ? ITEM : ITEMS);
+      if(saved != 0 && ctx.prop.is(Prop.QUERYINFO)) {
+        tb.add(CACHED_CC + Performance.getTime(saved, 1) + NL);
+      }
       tb.addExt(TOTAL_TIME_CC + '%', perf);
       info = tb.toString();
 
+      // cache query before the process is unregistered
+      if(key != null) {
+        ctx.queries.put(key, qp);
+        qp = null;
+      }
     } catch(final QueryException ex) {
       throw new BaseXException(ex);
     } finally {
-      try { qp.close(); } catch(final QueryException ex) { }
-      if(mon) ctx.unregister(qp.ctx.updating());
+      close();
+      // cached queries are not evaluated more than once
+      if(cache) {
+        qp = null;
+        options = null;
+      }
+      if(job != null) ctx.unregister(job);
+    }
+  }
+
+  /**
+   * Evaluates the query and serializes the results.
+   * @param iter iterative evaluation
+   * @param out output stream
+   * @param enc encode stream
+   * @return number of results
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  private long serialize(final boolean iter, final OutputStream out,
+      final boolean enc) throws IOException, QueryException {
+
+    // create serializer
+    final Iter ir = qp.iter();
+    final boolean wrap = !options.get(S_WRAP_PREFIX).isEmpty();
+
+    // iterate through results
+    final PrintOutput po =
+        PrintOutput.get(enc ? new EncodingOutput(out) : out);
+    if(iter && wrap) po.write(1);
+
+    final Serializer ser = Serializer.get(po, options);
+    long c = 0;
+    for(Item it; (it = ir.next()) != null;) {
+      if(iter && !wrap) {
+        po.write(it.type.id());
+        ser.reset();
+      }
+      ser.openResult();
+      it.serialize(ser);
+      ser.closeResult();
+      if(iter && !wrap) {
+        // items are collected in the output chunks of the session; if the
+        // client does not consume them, the iteration will be suspended
+        po.flush();
+        out.write(0);
+      }
+      c++;
+    }
+    ser.close();
+    if(iter && wrap) out.write(0);
+    return c;
+  }
+
+  /**
+   * Returns a string representation of the bound variables and the output
+   * mode, which is used for identifying cached results.
+   * @param iter iterative evaluation
+   * @param enc encode stream
+   * @return string
+   */
+  private String values(final boolean iter, final boolean enc) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(iter ? 'i' : 'e').append(enc ? 'e' : ' ');
+    for(final Map.Entry<String, Object[]> b : bindings.entrySet()) {
+      final Object[] v = b.getValue();
+      sb.append(b.getKey()).append('\0').append(v[0]).append('\0');
+      sb.append(v[1]).append('\0');
     }
+    return sb.toString();
+  }
+
+  /**
+   * Assigns a query processor if compiled queries are cached.
+   * @return key of the query in the cache, or {@code null} if the query
+   * will not be cached
+   * @throws QueryException query exception
+   */
+  private String cached() throws QueryException {
+    final QueryCache qc = ctx.queries;
+    final StringBuilder types = new StringBuilder();
+    for(final Map.Entry<String, Object[]> b : bindings.entrySet()) {
+      types.append(b.getKey()).append(' ').append(b.getValue()[1]).append(' ');
+    }
+    final String key = qc.key(query, types.toString(), ctx);
+    if(key == null || qc.rejected(key)) {
+      // bind variables before the query is parsed
+      close();
+      qp = new QueryProcessor(query, ctx);
+      options = null;
+      bind();
+      return null;
+    }
+    final QueryProcessor cp = qc.get(key, ctx);
+    if(cp != null) {
+      close();
+      qp = cp;
+      options = null;
+    } else if(qp == null) {
+      qp = new QueryProcessor(query, ctx);
+    }
+    return key;
+  }
+
+  /**
+   * Compiles a query that will be cached, or checks if a cached query is
+   * still valid, and binds the variables. Must be called after the process
+   * has been registered.
+   * @param key key of the query in the cache
+   * @return key, or {@code null} if the query cannot be cached
+   * @throws QueryException query exception
+   */
+  private String prepare(final String key) throws QueryException {
+    final QueryCache qc = ctx.queries;
+    final boolean snapshots = qp.ctx.snapshots;
+    if(qp.saved() != 0 && !qc.valid(qp)) {
+      close();
+      qp = new QueryProcessor(query, ctx);
+      qp.ctx.snapshots = snapshots;
+    }
+    String k = key;
+    if(qp.saved() == 0 && !qc.compile(key, qp)) {
+      // query cannot be cached: parse it again after binding the variables
+      close();
+      qp = new QueryProcessor(query, ctx);
+      qp.ctx.snapshots = snapshots;
+      k = null;
+    }
+    bind();
+    return k;
+  }
+
+  /**
+   * Binds all variables to the current query processor.
+   * @throws QueryException query exception
+   */
+  private void bind() throws QueryException {
+    for(final Map.Entry<String, Object[]> b : bindings.entrySet()) {
+      qp.bind(b.getKey(), b.getValue()[0], (String) b.getValue()[1]);
+    }
+  }
+
+  /**
+   * Closes the current query processor.
+   */
+  private void close() {
+    if(qp != null) try { qp.close(); } catch(final QueryException ex) { }
   }
 
   /**
@@ -148,6 +332,7 @@ final class QueryListener extends Progress {
    * @throws IOException Exception
    */
   private void init() throws IOException {
+    if(qp == null) qp = new QueryProcessor(query, ctx);
     if(options != null) return;
     try {
       qp.parse();
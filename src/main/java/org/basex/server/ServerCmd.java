@@ -35,6 +35,13 @@ public enum ServerCmd {
   REPLACE(12),
   /** Code for storing raw data in a database: {path}0{input}0. */
   STORE(13),
+  /** Code for sending a batch of requests: {count}0{request}*. */
+  BATCH(14),
+  /** Code for sending the input of {@link #CREATE}, {@link #ADD},
+   * {@link #REPLACE} or {@link #STORE} in chunks: {code}{arg}0{chunk}*.
+   * Each chunk consists of its length (4 bytes) and the raw data,
+   * and the last chunk has length 0. */
+  CHUNKED(15),
   /** Code for running a database command: {path}0{input}0. */
   COMMAND(-1);
 
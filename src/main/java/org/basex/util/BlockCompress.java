@@ -0,0 +1,149 @@
+package org.basex.util;
+
+import org.basex.util.list.ByteList;
+
+/**
+ * This class compresses and decompresses blocks of bytes. It implements a
+ * simple variant of the LZ77 algorithm, which favors speed over the
+ * compression ratio. Repeated byte sequences of at least {@link #MINMATCH}
+ * bytes are replaced by references to their last occurrence in the block.
+ *
+ * <p>A compressed block consists of a sequence of entries:</p>
+ * <ul>
+ * <li>1 byte: number of literal bytes (upper 4 bits) and length of the
+ *   match, minus {@link #MINMATCH} (lower 4 bits). If a value is {@code 15},
+ *   it is incremented by the following bytes until a byte smaller than
+ *   {@code 255} is found.</li>
+ * <li>the literal bytes</li>
+ * <li>2 bytes: distance to the matching bytes, followed by the bytes
+ *   that extend the match length. This part is omitted in the last entry.</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BlockCompress {
+  /** Minimum length of a match. */
+  private static final int MINMATCH = 4;
+  /** Maximum distance of a match. */
+  private static final int MAXDIST = 0xFFFF;
+  /** Number of hash bits. */
+  private static final int HASHBITS = 12;
+
+  /** Private constructor. */
+  private BlockCompress() { }
+
+  /**
+   * Compresses the specified bytes.
+   * @param src source array
+   * @param len number of bytes to be compressed
+   * @return compressed bytes
+   */
+  public static byte[] pack(final byte[] src, final int len) {
+    final ByteList out = new ByteList((len >>> 1) + 16);
+    // positions of the last occurrences of all hashed sequences, plus one
+    final int[] table = new int[1 << HASHBITS];
+    final int limit = len - MINMATCH;
+    int p = 0, anchor = 0;
+    while(p <= limit) {
+      final int seq = int4(src, p);
+      final int h = seq * -1640531535 >>> 32 - HASHBITS;
+      final int ref = table[h] - 1;
+      table[h] = p + 1;
+      if(ref >= 0 && p - ref <= MAXDIST && int4(src, ref) == seq) {
+        int ml = MINMATCH;
+        while(p + ml < len && src[ref + ml] == src[p + ml]) ++ml;
+        entry(out, src, anchor, p - anchor, p - ref, ml);
+        p += ml;
+        anchor = p;
+      } else {
+        ++p;
+      }
+    }
+    entry(out, src, anchor, len - anchor, 0, 0);
+    return out.toArray();
+  }
+
+  /**
+   * Decompresses the specified bytes.
+   * @param src source array
+   * @param off offset of the compressed bytes
+   * @param len number of compressed bytes
+   * @param dst target array, which must be large enough to hold
+   * all decompressed bytes
+   * @return number of decompressed bytes
+   */
+  public static int unpack(final byte[] src, final int off, final int len,
+      final byte[] dst) {
+
+    final int end = off + len;
+    int s = off, d = 0;
+    while(true) {
+      final int t = src[s++] & 0xFF;
+      // copy literals
+      int ll = t >>> 4;
+      if(ll == 15) {
+        int b;
+        do ll += b = src[s++] & 0xFF; while(b == 255);
+      }
+      System.arraycopy(src, s, dst, d, ll);
+      s += ll;
+      d += ll;
+      if(s == end) return d;
+
+      // copy match (byte-wise, as source and target may overlap)
+      final int dist = (src[s++] & 0xFF) << 8 | src[s++] & 0xFF;
+      int ml = t & 0x0F;
+      if(ml == 15) {
+        int b;
+        do ml += b = src[s++] & 0xFF; while(b == 255);
+      }
+      ml += MINMATCH;
+      for(int r = d - dist; ml > 0; --ml) dst[d++] = dst[r++];
+    }
+  }
+
+  /**
+   * Writes a single entry.
+   * @param out output
+   * @param src source array
+   * @param ls offset of the literals
+   * @param ll number of literals
+   * @param dist distance to the match ({@code 0}: no match)
+   * @param ml length of the match
+   */
+  private static void entry(final ByteList out, final byte[] src,
+      final int ls, final int ll, final int dist, final int ml) {
+
+    final int m = dist == 0 ? 0 : ml - MINMATCH;
+    out.add(Math.min(ll, 15) << 4 | Math.min(m, 15));
+    if(ll >= 15) length(out, ll - 15);
+    out.add(src, ls, ls + ll);
+    if(dist == 0) return;
+    out.add(dist >>> 8);
+    out.add(dist);
+    if(m >= 15) length(out, m - 15);
+  }
+
+  /**
+   * Writes the remaining part of a length.
+   * @param out output
+   * @param l length
+   */
+  private static void length(final ByteList out, final int l) {
+    int r = l;
+    for(; r >= 255; r -= 255) out.add(255);
+    out.add(r);
+  }
+
+  /**
+   * Returns a 4-byte integer from the specified array.
+   * @param src source array
+   * @param p position
+   * @return integer
+   */
+  private static int int4(final byte[] src, final int p) {
+    return src[p] << 24 | (src[p + 1] & 0xFF) << 16 |
+      (src[p + 2] & 0xFF) << 8 | src[p + 3] & 0xFF;
+  }
+}
@@ -0,0 +1,162 @@
+package org.basex.test.data;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests dictionary-encoded attribute values.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class CategoriesTest {
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Test database name. */
+  private static final String NAME = Util.name(CategoriesTest.class);
+  /** Number of elements. */
+  private static final int SIZE = 1000;
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void create() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < SIZE; ++i) {
+      sb.append("<e status='s").append(i % 5).append("' id='i").append(i);
+      sb.append("'/>");
+    }
+    new CreateDB(NAME, sb.append("</xml>").toString()).execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+  }
+
+  /**
+   * Closes the context.
+   */
+  @AfterClass
+  public static void stop() {
+    CONTEXT.close();
+  }
+
+  /**
+   * Checks which values are encoded.
+   * @throws Exception exception
+   */
+  @Test
+  public void encoded() throws Exception {
+    new Close().execute(CONTEXT);
+    final Data data = Open.open(NAME, CONTEXT);
+    try {
+      final int status = data.atnindex.id("status".getBytes());
+      final int id = data.atnindex.id("id".getBytes());
+      int st = 0, ids = 0;
+      for(int pre = 0; pre < data.meta.size; ++pre) {
+        if(data.kind(pre) != Data.ATTR) continue;
+        final boolean enc = data.valueOffset(pre) != 0;
+        if(data.name(pre) == status) {
+          assertTrue(enc);
+          assertEquals("s" + st++ % 5, new String(data.text(pre, false)));
+        } else if(data.name(pre) == id) {
+          // the size of a dictionary is limited
+          assertEquals(ids < data.meta.maxcats, enc);
+          assertEquals("i" + ids++, new String(data.text(pre, false)));
+        }
+      }
+      assertEquals(SIZE, st);
+      assertEquals(SIZE, ids);
+      assertTrue(data.valueOffset(status, "s1".getBytes()) != 0);
+      assertEquals(0, data.valueOffset(status, "s5".getBytes()));
+    } finally {
+      Close.close(data, CONTEXT);
+    }
+  }
+
+  /**
+   * Compares encoded attribute values.
+   */
+  @Test
+  public void compare() {
+    final String db = _DB_OPEN.args(NAME);
+    assertEquals(SIZE / 5, count(db + "//e[@status = 's1']"));
+    assertEquals(SIZE / 5 * 4, count(db + "//e[@status != 's1']"));
+    assertEquals(SIZE / 5 * 2, count(db + "//e[@status = ('s1', 's3')]"));
+    assertEquals(0, count(db + "//e[@status = 's5']"));
+    assertEquals(SIZE, count(db + "//e[@status != 's5']"));
+    assertEquals(SIZE / 5, count(db + "//e['s2' = @status]"));
+    assertEquals(1, count(db + "//e[@id = 'i3']"));
+    assertEquals(1, count(db + "//e[@id = 'i999']"));
+    assertEquals(SIZE / 5,
+        count(db + "//e[@status = //e[@id = 'i4']/@status]"));
+    assertEquals(0, count(db + "//e[@status = 's1'][@status = 's2']"));
+  }
+
+  /**
+   * Updates encoded attribute values.
+   */
+  @Test
+  public void update() {
+    final String db = _DB_OPEN.args(NAME);
+    query("for $e in " + db + "//e[@status = 's1'] return " +
+        "replace value of node $e/@status with 's2'");
+    assertEquals(0, count(db + "//e[@status = 's1']"));
+    assertEquals(SIZE / 5 * 2, count(db + "//e[@status = 's2']"));
+
+    query("for $e in " + db + "//e[@status = 's2'] return " +
+        "rename node $e/@status as 'state'");
+    assertEquals(SIZE / 5 * 2, count(db + "//e[@state = 's2']"));
+    assertEquals(0, count(db + "//e[@status = 's2']"));
+
+    query("insert node attribute status { 'new' } into " + db + "/xml");
+    query("insert node <e status='s3'/> into " + db + "/xml");
+    assertEquals(1, count(db + "//*[@status = 'new']"));
+    assertEquals(SIZE / 5 + 1, count(db + "//e[@status = 's3']"));
+    assertEquals(SIZE / 5 * 2, count(db + "//e[@state = 's2']"));
+  }
+
+  /**
+   * Returns the number of results of the specified query.
+   * @param query query
+   * @return count
+   */
+  private static int count(final String query) {
+    return Integer.parseInt(query("count(" + query + ")"));
+  }
+
+  /**
+   * Evaluates the specified query.
+   * @param query query
+   * @return result
+   */
+  private static String query(final String query) {
+    try {
+      return new XQuery(query).execute(CONTEXT);
+    } catch(final BaseXException ex) {
+      fail(Util.message(ex) + "\nQuery: " + query);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class compares databases with plain and block-compressed text files.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedStorageTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/factbook.zip";
+  /** Test database name. */
+  private static final String NAME = Util.name(CompressedStorageTest.class);
+  /** Name of the compressed test database. */
+  private static final String CNAME = NAME + "Compressed";
+  /** Number of scans. */
+  private static final int RUNS = 5;
+  /** Verbose flag. */
+  private static final boolean VERBOSE = false;
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void start() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.COMPRESS, true);
+    new CreateDB(CNAME, FILE).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.COMPRESS, false);
+    new Close().execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void stop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    new DropDB(CNAME).execute(CONTEXT);
+  }
+
+  /**
+   * Compares the texts and file sizes of both databases.
+   * @throws Exception exception
+   */
+  @Test
+  public void texts() throws Exception {
+    final Data plain = Open.open(NAME, CONTEXT);
+    final Data compr = Open.open(CNAME, CONTEXT);
+    try {
+      assertFalse(plain.meta.compress);
+      assertTrue(compr.meta.compress);
+      final long pt = plain.meta.dbfile(DATATXT).length();
+      final long ct = compr.meta.dbfile(DATATXT).length();
+      final long pa = plain.meta.dbfile(DATAATV).length();
+      final long ca = compr.meta.dbfile(DATAATV).length();
+      assertTrue(ct < pt);
+      assertTrue(ca < pa);
+
+      final int size = plain.meta.size;
+      final int[] pres = new int[size];
+      final Random rnd = new Random(0);
+      for(int p = 0; p < size; ++p) pres[p] = rnd.nextInt(size);
+      final long hash = scan(plain, pres);
+      assertEquals(hash, scan(compr, pres));
+
+      final Performance perf = new Performance();
+      for(int r = 0; r < RUNS; ++r) scan(plain, pres);
+      final String ptime = perf.getTime(RUNS);
+      for(int r = 0; r < RUNS; ++r) scan(compr, pres);
+      final String ctime = perf.getTime(RUNS);
+      if(VERBOSE) {
+        Util.errln("Texts:  " + pt + " vs. " + ct + " bytes");
+        Util.errln("Values: " + pa + " vs. " + ca + " bytes");
+        Util.errln("Random scan, plain:      " + ptime);
+        Util.errln("Random scan, compressed: " + ctime);
+      }
+    } finally {
+      Close.close(plain, CONTEXT);
+      Close.close(compr, CONTEXT);
+    }
+  }
+
+  /**
+   * Updates a compressed database.
+   * @throws Exception exception
+   */
+  @Test
+  public void update() throws Exception {
+    final String query = "for $c in " + _DB_OPEN.args(CNAME) +
+        "//country[position() <= 10] return (" +
+        "replace value of node $c/@name with upper-case($c/@name), " +
+        "insert node <new>text</new> into $c)";
+    new XQuery(query).execute(CONTEXT);
+    new Close().execute(CONTEXT);
+
+    final Data data = Open.open(CNAME, CONTEXT);
+    try {
+      assertFalse(data.meta.compress);
+    } finally {
+      Close.close(data, CONTEXT);
+    }
+    final String db = _DB_OPEN.args(CNAME);
+    assertEquals("10", new XQuery("count(" + db + "//new)").execute(CONTEXT));
+    assertEquals("ALBANIA", new XQuery("(" + db + "//country)[1]/@name/data()").
+        execute(CONTEXT));
+    assertEquals(new XQuery("count(" + _DB_OPEN.args(NAME) + "//text())").
+        execute(CONTEXT), new XQuery("count(" + db + "//text()) - 10").
+        execute(CONTEXT));
+  }
+
+  /**
+   * Reads the texts of the specified nodes.
+   * @param data data reference
+   * @param pres pre values
+   * @return hash value of all read values
+   */
+  private static long scan(final Data data, final int[] pres) {
+    long h = 0;
+    for(final int pre : pres) {
+      final int k = data.kind(pre);
+      if(k == Data.TEXT || k == Data.ATTR) {
+        h = h * 31 + data.textLen(pre, k == Data.TEXT);
+        for(final byte b : data.text(pre, k == Data.TEXT)) h = h * 31 + b;
+      }
+    }
+    return h;
+  }
+}
@@ -0,0 +1,127 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.data.Data;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests concurrent read access to a disk database.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ConcurrentReadTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/factbook.zip";
+  /** Test database name. */
+  private static final String NAME = Util.name(ConcurrentReadTest.class);
+  /** Maximum number of threads. */
+  private static final int THREADS = 8;
+  /** Number of scans per thread. */
+  private static final int RUNS = 4;
+  /** Verbose flag. */
+  private static final boolean VERBOSE = false;
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void start() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(CONTEXT);
+    new Close().execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void stop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Scans the database with an increasing number of threads and compares
+   * the results with a single-threaded scan.
+   * @throws Exception exception
+   */
+  @Test
+  public void scan() throws Exception {
+    final Data data = Open.open(NAME, CONTEXT);
+    try {
+      final long hash = scan(data);
+      for(int t = 1; t <= THREADS; t <<= 1) {
+        final Performance perf = new Performance();
+        assertEquals(hash, scan(data, t));
+        if(VERBOSE) Util.errln(t + " thread(s): " + perf.getTime(t * RUNS));
+      }
+    } finally {
+      Close.close(data, CONTEXT);
+    }
+  }
+
+  /**
+   * Scans the database with the specified number of threads.
+   * @param data data reference
+   * @param threads number of threads
+   * @return hash value of all read values, or {@code 0} if the results of
+   * the threads differ
+   * @throws InterruptedException interrupted exception
+   */
+  private static long scan(final Data data, final int threads)
+      throws InterruptedException {
+
+    final AtomicLong result = new AtomicLong(-1);
+    final Thread[] th = new Thread[threads];
+    for(int t = 0; t < threads; ++t) {
+      th[t] = new Thread() {
+        @Override
+        public void run() {
+          for(int r = 0; r < RUNS; ++r) {
+            final long h = scan(data);
+            if(!result.compareAndSet(-1, h) && result.get() != h) result.set(0);
+          }
+        }
+      };
+      th[t].start();
+    }
+    for(final Thread t : th) t.join();
+    return result.get();
+  }
+
+  /**
+   * Reads the table entries and texts of all nodes.
+   * @param data data reference
+   * @return hash value of all read values
+   */
+  static long scan(final Data data) {
+    long h = 0;
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; ++pre) {
+      final int k = data.kind(pre);
+      h = h * 31 + k + data.parent(pre, k) + data.size(pre, k);
+      if(k == Data.ELEM || k == Data.ATTR) h = h * 31 + data.name(pre);
+      if(k == Data.TEXT || k == Data.ATTR) {
+        for(final byte b : data.text(pre, k == Data.TEXT)) h = h * 31 + b;
+      }
+    }
+    return h;
+  }
+}
@@ -0,0 +1,152 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.data.Data;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class compares sequential and random scans on databases with
+ * buffered and memory mapped storage files.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedStorageTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/factbook.zip";
+  /** Test database name. */
+  private static final String NAME = Util.name(MappedStorageTest.class);
+  /** Number of scans. */
+  private static final int RUNS = 5;
+  /** Verbose flag. */
+  private static final boolean VERBOSE = false;
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void start() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.MMAP, true);
+    new CreateDB(NAME + "Mapped", FILE).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.MMAP, false);
+    new Close().execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void stop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    new DropDB(NAME + "Mapped").execute(CONTEXT);
+    CONTEXT.close();
+  }
+
+  /**
+   * Sequential scan.
+   * @throws Exception exception
+   */
+  @Test
+  public void sequential() throws Exception {
+    final int size = size();
+    final int[] pres = new int[size];
+    for(int p = 0; p < size; ++p) pres[p] = p;
+    compare("Sequential", pres);
+  }
+
+  /**
+   * Random scan.
+   * @throws Exception exception
+   */
+  @Test
+  public void random() throws Exception {
+    final int size = size();
+    final int[] pres = new int[size];
+    final Random rnd = new Random(0);
+    for(int p = 0; p < size; ++p) pres[p] = rnd.nextInt(size);
+    compare("Random", pres);
+  }
+
+  /**
+   * Returns the number of nodes of the test database.
+   * @return size
+   * @throws Exception exception
+   */
+  private static int size() throws Exception {
+    final Data data = Open.open(NAME, CONTEXT);
+    try {
+      return data.meta.size;
+    } finally {
+      Close.close(data, CONTEXT);
+    }
+  }
+
+  /**
+   * Scans both databases in the specified order and compares the results.
+   * @param type type of scan
+   * @param pres pre values to be scanned
+   * @throws Exception exception
+   */
+  private static void compare(final String type, final int[] pres)
+      throws Exception {
+    final Data buffered = Open.open(NAME, CONTEXT);
+    final Data mapped = Open.open(NAME + "Mapped", CONTEXT);
+    try {
+      assertFalse(buffered.meta.mmap);
+      assertTrue(mapped.meta.mmap);
+      final long hash = scan(buffered, pres);
+      assertEquals(hash, scan(mapped, pres));
+
+      final Performance perf = new Performance();
+      for(int r = 0; r < RUNS; ++r) scan(buffered, pres);
+      final String bt = perf.getTime(RUNS);
+      for(int r = 0; r < RUNS; ++r) scan(mapped, pres);
+      final String mt = perf.getTime(RUNS);
+      if(VERBOSE) {
+        Util.errln(type + " scan, buffered: " + bt);
+        Util.errln(type + " scan, mapped:   " + mt);
+      }
+    } finally {
+      Close.close(buffered, CONTEXT);
+      Close.close(mapped, CONTEXT);
+    }
+  }
+
+  /**
+   * Reads the table entries and texts of the specified nodes.
+   * @param data data reference
+   * @param pres pre values
+   * @return hash value of all read values
+   */
+  private static long scan(final Data data, final int[] pres) {
+    long h = 0;
+    for(final int pre : pres) {
+      final int k = data.kind(pre);
+      h = h * 31 + k + data.parent(pre, k) + data.size(pre, k);
+      if(k == Data.TEXT || k == Data.ATTR) {
+        h = h * 31 + data.textLen(pre, k == Data.TEXT);
+        for(final byte b : data.text(pre, k == Data.TEXT)) h = h * 31 + b;
+      }
+    }
+    return h;
+  }
+}
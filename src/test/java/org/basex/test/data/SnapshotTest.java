@@ -0,0 +1,203 @@
+package org.basex.test.data;
+
+import static org.basex.query.func.Function.*;
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.MainProp;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Open;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.index.IndexToken.IndexType;
+import org.basex.index.ValuesToken;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the evaluation of read-only queries on snapshots of disk
+ * databases.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class SnapshotTest {
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Test database name. */
+  private static final String NAME = Util.name(SnapshotTest.class);
+  /** Number of updates. */
+  private static final int UPDATES = 100;
+  /** Number of reading threads. */
+  private static final int READERS = 4;
+  /** Verbose flag. */
+  private static final boolean VERBOSE = false;
+
+  /**
+   * Enables snapshots.
+   */
+  @BeforeClass
+  public static void init() {
+    CONTEXT.mprop.set(MainProp.MVCC, true);
+  }
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void create() throws BaseXException {
+    CONTEXT.prop.set(Prop.UPDINDEX, true);
+    new CreateDB(NAME, "<xml><n id='n'>x</n></xml>").execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.UPDINDEX, false);
+  }
+
+  /**
+   * Closes the context.
+   */
+  @AfterClass
+  public static void stop() {
+    CONTEXT.mprop.set(MainProp.MVCC, false);
+    CONTEXT.close();
+  }
+
+  /**
+   * Checks that snapshots are not affected by subsequent updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void snapshot() throws BaseXException {
+    new Open(NAME).execute(CONTEXT);
+    final Data data = CONTEXT.data();
+    final Data snap = data.snapshot();
+    assertNotSame(data, snap);
+    final int size = snap.meta.size;
+
+    insert(UPDATES);
+    query("replace value of node " + _DB_OPEN.args(NAME) + "/xml/n[1] " +
+        "with 'y'");
+    query("delete node " + _DB_OPEN.args(NAME) + "/xml/n[1]/@id");
+
+    // snapshot still reflects the initial state
+    assertEquals(size, snap.meta.size);
+    assertEquals("n", text(snap, 3));
+    assertEquals("x", text(snap, 4));
+    // new snapshot reflects all updates
+    final Data next = data.snapshot();
+    assertNotSame(snap, next);
+    assertEquals(data.meta.size, next.meta.size);
+    assertEquals("y", text(next, 3));
+  }
+
+  /**
+   * Checks that the index structures of snapshots are not affected by
+   * subsequent updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void index() throws BaseXException {
+    new Open(NAME).execute(CONTEXT);
+    final Data snap = CONTEXT.data().snapshot();
+    insert(UPDATES);
+    assertEquals("n5", query(_DB_OPEN.args(NAME) +
+        "//n[text() = '5']/@id/string()"));
+    assertEquals(5, snap.meta.size);
+    assertEquals(0, snap.iter(new ValuesToken(IndexType.TEXT,
+        token("5"))).size());
+  }
+
+  /**
+   * Runs read-only queries in parallel with updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrent() throws Exception {
+    final Performance perf = new Performance();
+    final String count = "count(" + _DB_OPEN.args(NAME) + "//n)";
+    final Thread[] readers = new Thread[READERS];
+    final String[] errors = new String[READERS];
+    for(int r = 0; r < READERS; ++r) {
+      final int rr = r;
+      readers[r] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            int last = 0;
+            for(int i = 0; i < UPDATES; ++i) {
+              final int c = Integer.parseInt(
+                  new XQuery(count).execute(CONTEXT));
+              // results must never reflect older states
+              if(c < last || c > UPDATES + 1) {
+                errors[rr] = "Unexpected count: " + c;
+                return;
+              }
+              last = c;
+            }
+          } catch(final BaseXException ex) {
+            errors[rr] = Util.message(ex);
+          }
+        }
+      };
+      readers[r].start();
+    }
+    insert(UPDATES);
+    for(final Thread t : readers) t.join();
+    for(final String e : errors) if(e != null) fail(e);
+    assertEquals(String.valueOf(UPDATES + 1), query(count));
+    if(VERBOSE) Util.errln(READERS + " readers, " + UPDATES + " updates: " +
+        perf);
+  }
+
+  /**
+   * Inserts the specified number of elements, one per query.
+   * @param n number of updates
+   */
+  private static void insert(final int n) {
+    for(int i = 0; i < n; ++i) {
+      query("insert node <n id='n" + i + "'>" + i + "</n> into " +
+          _DB_OPEN.args(NAME) + "/xml");
+    }
+  }
+
+  /**
+   * Returns the string value of the specified node.
+   * @param data data reference
+   * @param pre pre value
+   * @return string value
+   */
+  private static String text(final Data data, final int pre) {
+    return string(data.text(pre, data.kind(pre) != Data.ATTR));
+  }
+
+  /**
+   * Evaluates the specified query.
+   * @param query query
+   * @return result
+   */
+  private static String query(final String query) {
+    try {
+      return new XQuery(query).execute(CONTEXT);
+    } catch(final BaseXException ex) {
+      fail(Util.message(ex) + "\nQuery: " + query);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import java.io.RandomAccessFile;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.Close;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IO;
+import org.basex.io.IOFile;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class tests the write-ahead log of disk databases.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteAheadLogTest {
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Test database name. */
+  private static final String NAME = Util.name(WriteAheadLogTest.class);
+  /** Name of the copied database. */
+  private static final String COPY = NAME + "Copy";
+  /** Number of updates. */
+  private static final int UPDATES = 200;
+  /** Verbose flag. */
+  private static final boolean VERBOSE = false;
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void create() throws BaseXException {
+    CONTEXT.prop.set(Prop.WAL, true);
+    new CreateDB(NAME, "<xml/>").execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+    new DropDB(COPY).execute(CONTEXT);
+    CONTEXT.prop.set(Prop.WAL, false);
+  }
+
+  /**
+   * Closes the context.
+   */
+  @AfterClass
+  public static void stop() {
+    CONTEXT.close();
+  }
+
+  /**
+   * Performs updates and reopens the database.
+   * @throws Exception exception
+   */
+  @Test
+  public void update() throws Exception {
+    final Performance perf = new Performance();
+    insert(UPDATES);
+    if(VERBOSE) Util.errln(UPDATES + " updates: " + perf);
+
+    new Close().execute(CONTEXT);
+    assertFalse(log(NAME).exists());
+    assertEquals(UPDATES, count(NAME));
+  }
+
+  /**
+   * Simulates a crash by copying the files of an opened database,
+   * and recovers the copy.
+   * @throws Exception exception
+   */
+  @Test
+  public void recover() throws Exception {
+    insert(UPDATES);
+    copy();
+    assertTrue(log(COPY).exists());
+    assertEquals(UPDATES, count(COPY));
+    assertEquals("n" + (UPDATES - 1),
+        query(_DB_OPEN.args(COPY) + "/xml/n[last()]/@id/string()"));
+  }
+
+  /**
+   * Checks that incomplete transactions are discarded.
+   * @throws Exception exception
+   */
+  @Test
+  public void incomplete() throws Exception {
+    insert(UPDATES);
+    copy();
+    final RandomAccessFile raf = new RandomAccessFile(log(COPY).file(), "rw");
+    try {
+      raf.seek(raf.length());
+      raf.write(new byte[] { 1, 3, 'x', 'y', 'z', 0, 0 });
+    } finally {
+      raf.close();
+    }
+    assertEquals(UPDATES, count(COPY));
+  }
+
+  /**
+   * Inserts the specified number of elements, one per query.
+   * @param n number of updates
+   */
+  private static void insert(final int n) {
+    for(int i = 0; i < n; ++i) {
+      query("insert node <n id='n" + i + "'>" + i + "</n> into " +
+          _DB_OPEN.args(NAME) + "/xml");
+    }
+  }
+
+  /**
+   * Copies the files of the opened test database.
+   * @throws Exception exception
+   */
+  private static void copy() throws Exception {
+    final IOFile trg = CONTEXT.mprop.dbpath(COPY);
+    trg.md();
+    for(final IOFile f : CONTEXT.mprop.dbpath(NAME).children()) {
+      new IOFile(trg, f.name()).write(f.read());
+    }
+  }
+
+  /**
+   * Returns the log file of the specified database.
+   * @param db database
+   * @return log file
+   */
+  private static IOFile log(final String db) {
+    return new IOFile(CONTEXT.mprop.dbpath(db), DATAWAL + IO.BASEXSUFFIX);
+  }
+
+  /**
+   * Returns the number of inserted elements.
+   * @param db database
+   * @return count
+   */
+  private static int count(final String db) {
+    return Integer.parseInt(query("count(" + _DB_OPEN.args(db) + "//n)"));
+  }
+
+  /**
+   * Evaluates the specified query.
+   * @param query query
+   * @return result
+   */
+  private static String query(final String query) {
+    try {
+      return new XQuery(query).execute(CONTEXT);
+    } catch(final BaseXException ex) {
+      fail(Util.message(ex) + "\nQuery: " + query);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package org.basex.test.query;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Set;
+import org.basex.core.cmd.XQuery;
+import org.basex.data.Data;
+import org.basex.index.RangeToken;
+import org.basex.io.out.ArrayOutput;
+import org.basex.io.serial.Serializer;
+import org.basex.query.QueryProcessor;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * This class tests range queries on the numeric keys of the value indexes.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class RangeIndexTest {
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Test database name. */
+  private static final String NAME = Util.name(RangeIndexTest.class);
+  /** Number of elements. */
+  private static final int SIZE = 2000;
+  /** Tested ranges. */
+  private static final double[][] RANGES = {
+    { 10, 20 }, { 0, 0 }, { -5, 3.5 }, { 99.5, 1000 }, { 0, 100 },
+    { 1500, 2500 }
+  };
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME).execute(CONTEXT);
+  }
+
+  /**
+   * Closes the context.
+   */
+  @AfterClass
+  public static void stop() {
+    CONTEXT.close();
+  }
+
+  /**
+   * Range queries on a static index.
+   * @throws Exception exception
+   */
+  @Test
+  public void range() throws Exception {
+    create(false);
+    final int[] texts = new int[SIZE], attrs = new int[SIZE];
+    init(texts, attrs);
+    check(texts, attrs);
+  }
+
+  /**
+   * Range queries on an updatable index.
+   * @throws Exception exception
+   */
+  @Test
+  public void updatable() throws Exception {
+    create(true);
+    final int[] texts = new int[SIZE], attrs = new int[SIZE];
+    init(texts, attrs);
+    check(texts, attrs);
+
+    // replace values: creates new keys and deletes existing ones
+    final String db = _DB_OPEN.args(NAME);
+    new XQuery("for $e in " + db + "//e[position() mod 3 = 0] " +
+        "return (replace value of node $e/text() with $e/text() + 1000," +
+        "replace value of node $e/@a with $e/@a * 2 + 0.5)").execute(CONTEXT);
+    for(int i = 2; i < SIZE; i += 3) {
+      texts[i] += 1000;
+      attrs[i] = attrs[i] * 2 + 1;
+    }
+    check(texts, attrs);
+
+    // delete and insert nodes
+    new XQuery("delete node " + db + "//e[position() mod 4 = 1]").
+      execute(CONTEXT);
+    for(int i = 0; i < SIZE; i += 4) texts[i] = attrs[i] = Integer.MIN_VALUE;
+    new XQuery("insert node <e a='5'>15</e> into " + db + "/xml").
+      execute(CONTEXT);
+    check(texts, attrs, 1);
+  }
+
+  /**
+   * Creates the test database.
+   * @param upd updatable indexes
+   * @throws BaseXException database exception
+   */
+  private static void create(final boolean upd) throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < SIZE; ++i) {
+      sb.append("<e a='").append(i % 97).append("'>").append(i);
+      sb.append("</e><s b='x").append(i).append("'>y</s>");
+    }
+    new Set(Prop.UPDINDEX, upd).execute(CONTEXT);
+    new CreateDB(NAME, sb.append("</xml>").toString()).execute(CONTEXT);
+    new Set(Prop.UPDINDEX, false).execute(CONTEXT);
+  }
+
+  /**
+   * Initializes the expected values. Text values are unique, whereas
+   * attribute values are doubled to allow decimal values.
+   * @param texts text values
+   * @param attrs attribute values
+   */
+  private static void init(final int[] texts, final int[] attrs) {
+    for(int i = 0; i < SIZE; ++i) {
+      texts[i] = i;
+      attrs[i] = i % 97 * 2;
+    }
+  }
+
+  /**
+   * Compares the results of range queries with the expected values.
+   * @param texts text values
+   * @param attrs attribute values (doubled)
+   */
+  private static void check(final int[] texts, final int[] attrs) {
+    check(texts, attrs, 0);
+  }
+
+  /**
+   * Compares the results of range queries with the expected values.
+   * @param texts text values
+   * @param attrs attribute values (doubled)
+   * @param add additionally inserted element
+   */
+  private static void check(final int[] texts, final int[] attrs,
+      final int add) {
+    for(final double[] r : RANGES) {
+      int t = 0, a = 0;
+      for(int i = 0; i < SIZE; ++i) {
+        if(texts[i] != Integer.MIN_VALUE && texts[i] >= r[0] &&
+            texts[i] <= r[1]) ++t;
+        if(attrs[i] != Integer.MIN_VALUE && attrs[i] >= r[0] * 2 &&
+            attrs[i] <= r[1] * 2) ++a;
+      }
+      if(add != 0 && r[0] <= 15 && r[1] >= 15) t += add;
+      if(add != 0 && r[0] <= 5 && r[1] >= 5) a += add;
+
+      // access index directly
+      final Data data = CONTEXT.data();
+      assertEquals(t, data.iter(new RangeToken(true, r[0], r[1])).size());
+      assertEquals(a, data.iter(new RangeToken(false, r[0], r[1])).size());
+
+      // range queries will only be rewritten if the statistics are up-to-date
+      if(!data.meta.uptodate) continue;
+      final String db = _DB_OPEN.args(NAME);
+      assertEquals(String.valueOf(t), query("count(" + db + "//e[text() >= " +
+          r[0] + " and text() <= " + r[1] + "])"));
+      assertEquals(String.valueOf(a), query("count(" + db + "//e[@a >= " +
+          r[0] + " and @a <= " + r[1] + "])"));
+    }
+  }
+
+  /**
+   * Evaluates a query and checks if the range index was applied.
+   * @param query query
+   * @return result
+   */
+  private static String query(final String query) {
+    final QueryProcessor qp = new QueryProcessor(query, CONTEXT);
+    try {
+      final ArrayOutput ao = new ArrayOutput();
+      qp.execute().serialize(qp.getSerializer(ao));
+      final ArrayOutput plan = new ArrayOutput();
+      qp.plan(Serializer.get(plan));
+      final String p = plan.toString();
+      // range expressions must be rewritten or pre-evaluated
+      assertFalse("No index used: " + p, p.contains("<CmpR"));
+      return ao.toString();
+    } catch(final Exception ex) {
+      fail(Util.message(ex) + "\nQuery: " + query);
+      return null;
+    } finally {
+      try {
+        qp.close();
+      } catch(final Exception ex) {
+        Util.stack(ex);
+      }
+    }
+  }
+}
@@ -4,6 +4,8 @@ import static org.junit.Assert.*;
 
 import org.basex.core.BaseXException;
 import org.basex.core.Context;
+import org.basex.core.MainProp;
+import org.basex.core.Prop;
 import org.basex.core.cmd.XQuery;
 import org.basex.util.Util;
 import org.junit.Test;
@@ -25,6 +27,217 @@ public final class FLWORTest {
         "<x>1</x>");
   }
 
+  /** Tests hash joins. */
+  @Test
+  public void hashJoinTest() {
+    final String x = "let $x := <x>{ for $i in 1 to 5 " +
+        "return <a id='{ $i }'/> }</x> ";
+    final String y = "let $y := <y>{ for $i in (3, 1, 4, 1, 5, 9) " +
+        "return <b r='{ $i }'/> }</y> ";
+    join(x + y + "for $a in $x/a for $b in $y/b where $a/@id = $b/@r " +
+        "return concat($a/@id, count($b/preceding-sibling::b))",
+        "11 13 30 42 54");
+    join(y + "for $a in (9, 1) for $b in $y/b[@r = $a] return string($b/@r)",
+        "9 1 1");
+    // untyped values, strings and numbers
+    join("let $x := (<x>1</x>, <x>2.0</x>, <x> 3 </x>, <x>-0</x>) " +
+        "for $a in (1, 2, 3, 0) for $b in $x where $b = $a " +
+        "return string($b)", "1 2.0  3  -0");
+    join("let $x := (<x>1</x>, <x>2</x>, <x>b</x>) " +
+        "for $a in ('1', '2.0', 'x') for $b in $x where $b = $a " +
+        "return string($b)", "1");
+    // multiple keys and additional predicates
+    join("for $a in (<k>1 2</k>, <k>2</k>) for $b in ('1', 'a', '2') " +
+        "where $b = tokenize($a, ' ') and $b != '1' return $b", "2 2");
+    // floats are compared with decimals as floats
+    join("let $ys := (0.1, 0.2) for $x in (xs:float(0.1), xs:float(0.2)) " +
+        "for $y in $ys[. = $x] return $y", "0.1 0.2");
+    join("let $ys := (xs:float(0.1), 0.3) for $x in (0.1, 0.3) " +
+        "for $y in $ys[. = $x] return string($y)", "0.1 0.3");
+    // comparisons that raise errors are evaluated as nested loops
+    error("for $a in (1, 2) for $b in ('1', 1) where $b = $a return $b");
+  }
+
+  /**
+   * Tests the parallel evaluation of return clauses.
+   */
+  @Test
+  public void parallelTest() {
+    final int threads = CONTEXT.mprop.num(MainProp.PARALLELTHREADS);
+    CONTEXT.mprop.set(MainProp.PARALLELTHREADS, 4);
+    try {
+      final String f = "declare function local:f($n) { " +
+          "sum(for $i in 1 to $n return $i * $i) }; ";
+      final String p = "(# basex:parallel 4 #) ";
+      optimized(f + p + "{ for $i in 1 to 10 return local:f($i) }",
+          "1 5 14 30 55 91 140 204 285 385", "threads");
+      // variables, where clause, order by, context item
+      optimized("let $x := 3 return " + p + "{ for $i in 1 to 6 for $j in " +
+          "($i, -$i) where $j > 2 order by $j descending " +
+          "return $j * $x }", "18 15 12 9", "threads");
+      optimized("<a>x</a>/(" + p + "{ for $i in 1 to 3 " +
+          "return concat(., $i) })", "x1 x2 x3", "threads");
+      // results of paths are cached for the same document
+      optimized("let $d := document { <a>{ for $i in 1 to 100 " +
+          "return <b>{ $i }</b> }</a> } return sum(" + p +
+          "{ for $i in 1 to 100 return count($d//b[. <= $i]) })", "5050",
+          "threads");
+      // the first error is raised
+      error(p + "{ for $i in 1 to 100 return " +
+          "if($i = 50) then error() else $i }");
+      query("try { " + p + "{ for $i in 1 to 100 return if($i = 50) " +
+          "then error(xs:QName('a'), 'a') else if($i = 70) " +
+          "then error(xs:QName('b'), 'b') else () } } catch * { $err:code }",
+          "a");
+      // the number of threads is limited
+      optimized("(# basex:parallel 100000 #) { for $i in 1 to 3 " +
+          "return $i * 2 }", "2 4 6", "in 4 threads");
+      // nested parallel expressions share the threads
+      optimized(p + "{ for $i in 1 to 8 return sum(" + p +
+          "{ for $j in 1 to 10 return $i * $j }) }",
+          "55 110 165 220 275 330 385 440", "threads");
+    } finally {
+      CONTEXT.mprop.set(MainProp.PARALLELTHREADS, threads);
+    }
+  }
+
+  /**
+   * Tests sorting with runs that are written to temporary files.
+   */
+  @Test
+  public void sortLimitTest() {
+    CONTEXT.prop.set(Prop.SORTLIMIT, 3);
+    try {
+      query("for $i in 1 to 10 order by $i mod 3 descending, -$i " +
+          "return $i", "8 5 2 10 7 4 1 9 6 3");
+      // empty keys, numbers, strings and dates
+      query("for $i in (3, 1.5, (), xs:float(2), 'a', xs:double('NaN')) " +
+          "order by number($i) empty greatest return string($i)",
+          "1.5 2 3 a NaN");
+      query("for $i in 1 to 5 order by -$i return " +
+          "xs:date('2000-01-01') + xs:dayTimeDuration(concat('P', $i, 'D'))",
+          "2000-01-06 2000-01-05 2000-01-04 2000-01-03 2000-01-02");
+      // database nodes and items that are kept in main memory
+      query("let $d := parse-xml('<a><b>3</b><b>1</b><b>0</b><b>2</b>" +
+          "<b>1</b></a>') for $b in (for $c in $d//b order by $c return $c) " +
+          "return concat($b, $b/preceding-sibling::b[1])", "01 13 12 20 3");
+      query("for $i in 1 to 7 order by $i mod 2 return " +
+          "if($i = 4) then <a/> else $i", "2<a/> 6 1 3 5 7");
+      query("for $i in 1 to 7 order by $i mod 2 return " +
+          "if($i = 4) then xs:QName('a') else $i", "2 a 6 1 3 5 7");
+      // parallel evaluation of the return clause
+      query("(# basex:parallel 2 #) { for $i in 1 to 10 " +
+          "order by $i mod 3, $i descending return $i * 2 }",
+          "18 12 6 20 14 8 2 16 10 4");
+    } finally {
+      CONTEXT.prop.set(Prop.SORTLIMIT, 0);
+    }
+  }
+
+  /**
+   * Tests the evaluation of ordered expressions of which only the first
+   * results are requested.
+   */
+  @Test
+  public void topTest() {
+    final String f = "for $i in 1 to 100 order by $i mod 7, -$i return $i";
+    optimized("(" + f + ")[position() <= 5]", "98 91 84 77 70", "first");
+    optimized("(" + f + ")[3]", "84", "first");
+    optimized("subsequence(" + f + ", 4, 3)", "77 70 63", "first");
+    optimized("head(" + f + ")", "98", "first");
+    // return clause may yield an empty sequence
+    query("(for $i in 1 to 9 order by -$i return $i[. mod 2 = 0])[2]", "6");
+  }
+
+  /**
+   * Tests aggregates that are computed while grouping.
+   */
+  @Test
+  public void aggregateTest() {
+    final String g = "for $i in 1 to 10 let $k := $i mod 3 group by $k " +
+        "order by $k return ";
+    optimized(g + "count($i)", "3 4 3", "while grouping");
+    optimized(g + "sum($i)", "18 22 15", "while grouping");
+    optimized(g + "avg($i)", "6 5.5 5", "while grouping");
+    optimized(g + "min($i) + max($i)", "12 11 10", "while grouping");
+    // items and aggregates of the same variable
+    query(g + "concat(count($i), ':', string-join(for $j in $i " +
+        "return string($j), ','))", "3:3,6,9 4:1,4,7,10 3:2,5,8");
+    // empty sequences
+    query("for $i in 1 to 4 let $k := $i mod 2, $e := $i[. > 2] " +
+        "group by $k order by $k return concat(count($e), '|', sum($e), " +
+        "'|', avg($e), '|', max($e))", "1|4|4|4 1|3|3|3");
+    query("for $i in 1 to 2 let $e := () group by $i return " +
+        "concat(count($e), sum($e), avg($e))", "00 00");
+  }
+
+  /**
+   * Tests grouping with items that are written to temporary files.
+   */
+  @Test
+  public void groupLimitTest() {
+    CONTEXT.prop.set(Prop.GROUPLIMIT, 2);
+    try {
+      query("for $i in 1 to 10 let $k := $i mod 3, $s := string($i) " +
+          "group by $k order by $k return string-join($s, ',')",
+          "3,6,9 1,4,7,10 2,5,8");
+      // database nodes and items that are kept in main memory
+      query("let $d := parse-xml('<a><b>3</b><b>1</b><b>0</b><b>2</b>" +
+          "<b>1</b></a>') for $b in $d//b let $k := string($b) group by $k " +
+          "order by $k return string-join(for $c in $b return " +
+          "concat($c, $c/preceding-sibling::b[1]), ',')", "01 13,12 20 3");
+      query("for $i in 1 to 7 let $k := $i mod 2, $n := if($i = 4) " +
+          "then <a/> else $i group by $k order by $k return " +
+          "count($n) + count($n[. instance of element()])", "4 4");
+    } finally {
+      CONTEXT.prop.set(Prop.GROUPLIMIT, 0);
+    }
+  }
+
+  /**
+   * Checks that a query is evaluated as hash join and returns the
+   * expected result.
+   * @param query query
+   * @param expected expected output
+   */
+  private static void join(final String query, final String expected) {
+    optimized(query, expected, "hash join");
+  }
+
+  /**
+   * Checks that a query returns the expected result, and that the query
+   * info contains the specified string.
+   * @param query query
+   * @param expected expected output
+   * @param info query info
+   */
+  private static void optimized(final String query, final String expected,
+      final String info) {
+    try {
+      CONTEXT.prop.set(Prop.QUERYINFO, true);
+      final XQuery xq = new XQuery(query);
+      assertEquals(expected, xq.execute(CONTEXT));
+      assertTrue(xq.info().contains(info));
+    } catch(final BaseXException ex) {
+      fail(Util.message(ex));
+    } finally {
+      CONTEXT.prop.set(Prop.QUERYINFO, false);
+    }
+  }
+
+  /**
+   * Checks that a query fails.
+   * @param query query
+   */
+  private static void error(final String query) {
+    try {
+      new XQuery(query).execute(CONTEXT);
+      fail("Query did not fail: " + query);
+    } catch(final BaseXException ex) {
+      // expected
+    }
+  }
+
   /**
    * Runs an updating query and matches the result of the second query
    * against the expected output.
@@ -121,6 +121,8 @@ public final class FuncTest extends QueryTest {
         "for $i in distinct-values(//line) return string($i)" },
       { "distinct-values 2", itr(2),
         "count(distinct-values(//line/text()))" },
+      { "distinct-values 3", itr(1),
+        "head(distinct-values((1, 1, 2, error())))" },
     };
   }
 
@@ -90,6 +90,33 @@ public final class SimpleTest extends QueryTest {
       { "ContextItem 7", node(0), "try { <a/>/(1+'') } catch * {.}" },
 
       { "Path 1", empty(), "<a/>[./(@*)]" },
+
+      { "Union 1", node(0, 1, 2), "(//text(), //x) | (/, //x)" },
+      { "Union 2", itr(3), "count((<a/>, //x) | (//x, /))" },
+      { "Union 3", itr(4), "let $e := parse-xml('<r><a/><b/></r>')/r " +
+        "return count(($e/b, //x) | (/, $e/a, //x))" },
+      { "Union 4", itr(4), "count((//x, <y/>, /) | //text())" },
+      { "Union 5", str("yabc"),
+        "let $d := parse-xml('<r><a/><b/><c/></r>')/r return string-join(" +
+        "for $n in ($d/b, <y/>, $d/a) | $d/c return name($n), '')" },
+      { "Union 6", str("sasbrarb"),
+        "let $d := parse-xml('<r><a/><b/></r>')/r, " +
+        "$e := parse-xml('<s><a/><b/></s>')/s " +
+        "return string-join(for $n in ($e/b, $d/b) | ($e/a, $d/a) " +
+        "return concat(name($n/..), name($n)), '')" },
+      { "Intersect 1", node(1), "(//text(), //x) intersect (//x, /)" },
+      { "Intersect 2", itr(2), "let $e := parse-xml('<r><a/><b/></r>')/r " +
+        "return count(($e/b, //x, $e/a, /) intersect (//x, $e/b, //text()))" },
+      { "Intersect 3", itr(1), "count((//x, <y/>, /) intersect (/, <y/>))" },
+      { "Intersect 4", empty(),
+        "(//x[. = 'Y'], //text()[. = 'Y']) intersect (//x, error())" },
+      { "Except 1", node(0, 2), "(//text(), /, //x) except (//x, //x)" },
+      { "Except 2", itr(1), "count((<a/>, //x) except (//x, /))" },
+      { "Except 3", itr(2), "let $e := parse-xml('<r><a/><b/></r>')/r " +
+        "return count(($e/b, //x, $e/a, /) except (//x, $e/b))" },
+      { "Except 4", itr(2), "count((//x, <y/>, /) except (/, //text()))" },
+      { "Except 5", empty(),
+        "(//x[. = 'Y'], //text()[. = 'Y']) except (//x, error())" },
     };
   }
 }
@@ -0,0 +1,162 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.basex.BaseXServer;
+import org.basex.core.BaseXException;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.server.ClientBatch;
+import org.basex.server.ClientQuery;
+import org.basex.server.ClientSession;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the batched execution of client requests.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BatchTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(BatchTest.class);
+  /** Number of requests. */
+  private static final int REQUESTS = 100;
+
+  /** Server reference. */
+  private static BaseXServer server;
+  /** Client session. */
+  private ClientSession session;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void start() throws IOException {
+    server = new BaseXServer("-z", "-p9999", "-e9998");
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    server.stop();
+  }
+
+  /**
+   * Creates a client session.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void startSession() throws IOException {
+    session = new ClientSession(LOCALHOST, 9999, ADMIN, ADMIN);
+  }
+
+  /**
+   * Drops the test database and closes the client session.
+   * @throws IOException I/O exception
+   */
+  @After
+  public void stopSession() throws IOException {
+    session.execute(new DropDB(NAME));
+    session.close();
+  }
+
+  /**
+   * Runs database commands.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void commands() throws IOException {
+    final ClientBatch batch = session.batch();
+    for(int r = 0; r < REQUESTS; ++r) batch.execute(new XQuery(r + "+1"));
+    assertEquals(REQUESTS, batch.size());
+    final String[] results = batch.execute();
+    assertEquals(0, batch.size());
+    for(int r = 0; r < REQUESTS; ++r) {
+      assertEquals(Integer.toString(r + 1), results[r]);
+    }
+  }
+
+  /**
+   * Adds, replaces and stores documents.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void documents() throws IOException {
+    session.execute(new CreateDB(NAME));
+    final ClientBatch batch = session.batch();
+    for(int r = 0; r < REQUESTS; ++r) {
+      batch.add(r + ".xml", input("<a>" + r + "</a>"));
+    }
+    batch.replace("0.xml", input("<b/>"));
+    batch.store("raw", input("RAW"));
+    batch.execute("xquery count(collection('" + NAME + "')/a)");
+    final String[] results = batch.execute();
+    assertEquals(REQUESTS + 3, results.length);
+    assertEquals(Integer.toString(REQUESTS - 1), results[REQUESTS + 2]);
+    assertEquals(Integer.toString(REQUESTS + 1), session.execute(new XQuery(
+        "count(db:list('" + NAME + "'))")));
+  }
+
+  /**
+   * Binds variables and executes queries.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queries() throws IOException {
+    final ClientQuery query = session.query(
+        "declare variable $x as xs:integer external; $x * 2");
+    final ClientBatch batch = session.batch();
+    for(int r = 0; r < REQUESTS; ++r) {
+      batch.bind(query, "x", r, "xs:integer").execute(query);
+    }
+    final String[] results = batch.execute();
+    for(int r = 0; r < REQUESTS; ++r) {
+      assertEquals(Integer.toString(r * 2), results[r * 2 + 1]);
+    }
+    query.close();
+  }
+
+  /**
+   * Checks that all responses are read if a request fails.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void error() throws IOException {
+    final ClientBatch batch = session.batch();
+    batch.execute(new XQuery("1")).execute("xquery 1+").execute(
+        new XQuery("3"));
+    try {
+      batch.execute();
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      // expected: the last request has been successful
+      assertNotNull(batch.info());
+    }
+    assertEquals("4", session.execute(new XQuery("4")));
+  }
+
+  /**
+   * Returns an input stream for the specified string.
+   * @param string string
+   * @return input stream
+   */
+  private static ByteArrayInputStream input(final String string) {
+    return new ByteArrayInputStream(Token.token(string));
+  }
+}
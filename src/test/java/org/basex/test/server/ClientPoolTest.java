@@ -0,0 +1,128 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.basex.BaseXServer;
+import org.basex.core.cmd.XQuery;
+import org.basex.server.ClientPool;
+import org.basex.server.ClientQuery;
+import org.basex.server.ClientSession;
+import org.basex.util.Performance;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the pool of client sessions.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientPoolTest {
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void start() throws IOException {
+    server = new BaseXServer("-z", "-p9999", "-e9998");
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    server.stop();
+  }
+
+  /**
+   * Checks that released sessions are reused.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void reuse() throws IOException {
+    final ClientPool pool = new ClientPool(LOCALHOST, 9999, ADMIN, ADMIN,
+        2, 0);
+    final ClientSession cs1 = pool.acquire();
+    final ClientSession cs2 = pool.acquire();
+    assertNotSame(cs1, cs2);
+    // pending results are read before the session is reused
+    final ClientQuery query = cs1.query("1 to 10");
+    assertEquals("1", query.next());
+    pool.release(cs1);
+    assertEquals(1, pool.idle());
+    final ClientSession cs3 = pool.acquire();
+    assertSame(cs1, cs3);
+    assertEquals("1", cs3.execute(new XQuery("1")));
+    pool.release(cs2);
+    pool.release(cs3);
+    assertEquals(2, pool.idle());
+    pool.close();
+    assertEquals(0, pool.idle());
+  }
+
+  /**
+   * Checks that threads wait until a session is released.
+   * @throws Exception exception
+   */
+  @Test
+  public void waiting() throws Exception {
+    final ClientPool pool = new ClientPool(LOCALHOST, 9999, ADMIN, ADMIN,
+        1, 0);
+    final ClientSession cs = pool.acquire();
+    final ClientSession[] acquired = new ClientSession[1];
+    final Thread t = new Thread() {
+      @Override
+      public void run() {
+        try {
+          acquired[0] = pool.acquire();
+        } catch(final IOException ex) {
+          fail(ex.toString());
+        }
+      }
+    };
+    t.start();
+    Performance.sleep(200);
+    assertNull(acquired[0]);
+    pool.release(cs);
+    t.join();
+    assertSame(cs, acquired[0]);
+    pool.release(cs);
+    pool.close();
+  }
+
+  /**
+   * Checks that idle and closed sessions are discarded.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void evict() throws IOException {
+    ClientPool pool = new ClientPool(LOCALHOST, 9999, ADMIN, ADMIN, 1, 100);
+    ClientSession cs = pool.acquire();
+    pool.release(cs);
+    Performance.sleep(200);
+    final ClientSession cs1 = pool.acquire();
+    assertNotSame(cs, cs1);
+    pool.release(cs1);
+    pool.close();
+
+    pool = new ClientPool(LOCALHOST, 9999, ADMIN, ADMIN, 1, 0);
+    cs = pool.acquire();
+    cs.close();
+    pool.release(cs);
+    Performance.sleep(1100);
+    final ClientSession cs2 = pool.acquire();
+    assertNotSame(cs, cs2);
+    assertEquals("1", cs2.execute(new XQuery("1")));
+    pool.release(cs2);
+    pool.close();
+  }
+}
@@ -6,11 +6,16 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 
 import org.basex.BaseXServer;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.io.in.ArrayInput;
 import org.basex.server.ClientSession;
+import org.basex.util.Performance;
 import org.basex.util.Util;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Test;
 
 /**
  * This class tests the client/server API.
@@ -49,4 +54,18 @@ public class ClientSessionTest extends SessionTest {
       fail(Util.message(ex));
     }
   }
+
+  /**
+   * Checks that the size of chunked input is reported.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void received() throws IOException {
+    final String db = Util.name(ClientSessionTest.class);
+    session.execute(new CreateDB(db));
+    session.store("X", new ArrayInput("!"));
+    final String info = session.info();
+    assertTrue(info, info.contains(Performance.format(1)));
+    session.execute(new DropDB(db));
+  }
 }
@@ -4,7 +4,10 @@ import static org.basex.core.Text.*;
 import static org.junit.Assert.*;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
 import org.basex.BaseXServer;
+import org.basex.core.Events;
+import org.basex.core.MainProp;
 import org.basex.server.ClientSession;
 import org.basex.server.EventNotifier;
 import org.basex.util.Util;
@@ -234,6 +237,40 @@ public final class EventTest {
     session.execute("drop event " + NAME + 1);
   }
 
+  /**
+   * Checks that notifications for slow clients are dropped instead of
+   * blocking the notifying query.
+   * @throws Exception exception
+   */
+  @Test
+  public void slowClient() throws Exception {
+    server.context.mprop.set(MainProp.EVENTQUEUE, 2);
+    session.execute("create event " + NAME);
+    final CountDownLatch latch = new CountDownLatch(1);
+    sessions[0].watch(NAME, new EventNotifier() {
+      @Override
+      public void notify(final String data) {
+        try {
+          latch.await();
+        } catch(final InterruptedException ex) {
+          fail(ex.toString());
+        }
+      }
+    });
+
+    // fire large events that are not consumed by the watching client
+    final Events events = server.context.events;
+    final long dropped = events.dropped.get();
+    session.query("for $i in 1 to 50 return db:event('" + NAME + "', " +
+        "string-join(for $j in 1 to 100000 return 'XXXXXXXXXX'))").execute();
+    assertTrue(events.dropped.get() > dropped);
+    latch.countDown();
+
+    sessions[0].unwatch(NAME);
+    session.execute("drop event " + NAME);
+    server.context.mprop.set(MainProp.EVENTQUEUE, 10000);
+  }
+
   /**
    * Returns a session instance.
    * @return session
@@ -0,0 +1,99 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.basex.BaseXServer;
+import org.basex.core.Context;
+import org.basex.core.MainProp;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.server.ClientSession;
+import org.basex.util.TokenBuilder;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests a large number of client sessions, which are served by
+ * a small number of worker threads.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class IdleSessionsTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(IdleSessionsTest.class);
+  /** Number of sessions. */
+  private static final int SESSIONS = 200;
+  /** Number of worker threads. */
+  private static final int THREADS = 2;
+
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void start() throws IOException {
+    final Context ctx = new Context();
+    ctx.mprop.set(MainProp.SERVERTHREADS, THREADS);
+    server = new BaseXServer(ctx, "-z", "-p9999", "-e9998");
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    server.stop();
+  }
+
+  /**
+   * Opens many sessions and runs a query in each of them.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void sessions() throws IOException {
+    final ClientSession[] cs = new ClientSession[SESSIONS];
+    try {
+      for(int s = 0; s < SESSIONS; ++s) {
+        cs[s] = new ClientSession(LOCALHOST, 9999, ADMIN, ADMIN);
+      }
+      assertEquals(SESSIONS, server.context.sessions.size());
+      for(int s = SESSIONS - 1; s >= 0; --s) {
+        assertEquals(Integer.toString(s), cs[s].execute(new XQuery(s + "")));
+      }
+    } finally {
+      for(final ClientSession c : cs) if(c != null) c.close();
+    }
+  }
+
+  /**
+   * Sends a document that exceeds the size of the read buffers.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void largeInput() throws IOException {
+    final TokenBuilder tb = new TokenBuilder("<xml>");
+    for(int i = 0; i < 10000; ++i) tb.add("<a>" + i + "</a>");
+    tb.add("</xml>");
+
+    final ClientSession cs = new ClientSession(LOCALHOST, 9999, ADMIN, ADMIN);
+    try {
+      cs.create(NAME, new ByteArrayInputStream(tb.finish()));
+      assertEquals("10000", cs.execute(new XQuery("count(//a)")));
+      assertEquals("9999", cs.execute(new XQuery("string((//a)[last()])")));
+      cs.execute(new DropDB(NAME));
+    } finally {
+      cs.close();
+    }
+  }
+}
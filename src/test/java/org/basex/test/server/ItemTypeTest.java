@@ -7,7 +7,6 @@ import org.basex.server.ClientQuery;
 import org.basex.server.ClientSession;
 import org.basex.util.list.ByteList;
 import org.basex.util.list.IntList;
-import org.basex.util.list.TokenList;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -94,7 +93,7 @@ public final class ItemTypeTest {
    */
   static class TestQuery extends ClientQuery {
     /** List of data types. */
-    IntList types;
+    final IntList types = new IntList();
 
     /**
      * Constructor.
@@ -109,19 +108,14 @@ public final class ItemTypeTest {
     }
 
     @Override
-    protected void cache(final InputStream is) throws IOException {
-      cache = new TokenList();
-      types = new IntList();
+    protected byte[] item(final InputStream is) throws IOException {
+      final int t = is.read();
+      if(t <= 0) return null;
+      types.add(t);
       final ByteList bl = new ByteList();
-      while(true) {
-        final int t = is.read();
-        if(t <= 0) break;
-        types.add(t);
-        final DecodingInput di = new DecodingInput(is);
-        for(int b; (b = di.read()) != -1;) bl.add(b);
-        cache.add(bl.toArray());
-        bl.reset();
-      }
+      final DecodingInput di = new DecodingInput(is);
+      for(int b; (b = di.read()) != -1;) bl.add(b);
+      return bl.toArray();
     }
 
     /**
@@ -0,0 +1,184 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.basex.BaseXServer;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.XQuery;
+import org.basex.server.ClientSession;
+import org.basex.util.Performance;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class measures the read throughput of concurrent clients while
+ * other clients are updating the same or a different database.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class LockStressTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(LockStressTest.class);
+  /** Database that will be updated. */
+  private static final String WRITE = NAME + "Write";
+  /** Test file. */
+  private static final String FILE = "src/test/resources/factbook.zip";
+  /** Number of reading clients. */
+  private static final int READERS = 8;
+  /** Number of writing clients. */
+  private static final int WRITERS = 2;
+  /** Duration of a single test run, in milliseconds. */
+  private static final int DURATION = 3000;
+  /** Verbose flag. */
+  private static final boolean VERBOSE = false;
+
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server and creates the test databases.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void start() throws IOException {
+    server = new BaseXServer("-z", "-p9999", "-e9998");
+    final ClientSession cs = newSession();
+    cs.execute(new CreateDB(NAME, FILE));
+    cs.execute(new CreateDB(WRITE, FILE));
+    cs.close();
+  }
+
+  /**
+   * Drops the test databases and stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    final ClientSession cs = newSession();
+    cs.execute(new DropDB(NAME));
+    cs.execute(new DropDB(WRITE));
+    cs.close();
+    server.stop();
+  }
+
+  /**
+   * Compares the read throughput with writers on the same and on another
+   * database. Readers are expected to complete more queries if the writers
+   * update another database.
+   * @throws Exception exception
+   */
+  @Test
+  public void readThroughput() throws Exception {
+    final int none = run(null);
+    final int same = run(NAME);
+    final int other = run(WRITE);
+    if(VERBOSE) {
+      Util.errln("Read queries without writers:          " + none);
+      Util.errln("Read queries, writers on same database:  " + same);
+      Util.errln("Read queries, writers on other database: " + other);
+    }
+    assertTrue("No read queries completed", none > 0 && other > 0);
+  }
+
+  /**
+   * Runs reading and writing clients for a fixed amount of time.
+   * @param db database to be updated by writers ({@code null}: no writers)
+   * @return number of completed read queries
+   * @throws Exception exception
+   */
+  private static int run(final String db) throws Exception {
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicInteger reads = new AtomicInteger();
+    final int writers = db == null ? 0 : WRITERS;
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch stop = new CountDownLatch(READERS + writers);
+
+    final String read = "count(db:open('" + NAME + "')//province)";
+    for(int r = 0; r < READERS; ++r) {
+      new Client(read, start, stop, running, reads);
+    }
+    final String write = "for $n in (db:open('" + db + "')//province)" +
+        "[position() < 10] return insert node <test/> into $n";
+    for(int w = 0; w < writers; ++w) {
+      new Client(write, start, stop, running, null);
+    }
+
+    start.countDown();
+    Performance.sleep(DURATION);
+    running.set(false);
+    stop.await();
+    return reads.get();
+  }
+
+  /**
+   * Returns a session instance.
+   * @return session
+   * @throws IOException exception
+   */
+  static ClientSession newSession() throws IOException {
+    return new ClientSession(LOCALHOST, 9999, ADMIN, ADMIN);
+  }
+
+  /** Client, repeatedly executing a single query. */
+  private static final class Client extends Thread {
+    /** Start signal. */
+    private final CountDownLatch startSignal;
+    /** Stop signal. */
+    private final CountDownLatch stopSignal;
+    /** Running flag. */
+    private final AtomicBoolean running;
+    /** Counter for completed queries (may be {@code null}). */
+    private final AtomicInteger counter;
+    /** Client session. */
+    private final ClientSession session;
+    /** Query string. */
+    private final String query;
+
+    /**
+     * Client constructor.
+     * @param q query to execute
+     * @param start start signal
+     * @param stop stop signal
+     * @param run running flag
+     * @param count counter for completed queries
+     * @throws IOException I/O exception while establishing the session
+     */
+    Client(final String q, final CountDownLatch start,
+        final CountDownLatch stop, final AtomicBoolean run,
+        final AtomicInteger count) throws IOException {
+      session = newSession();
+      query = q;
+      startSignal = start;
+      stopSignal = stop;
+      running = run;
+      counter = count;
+      start();
+    }
+
+    @Override
+    public void run() {
+      try {
+        startSignal.await();
+        while(running.get()) {
+          session.execute(new XQuery(query));
+          if(counter != null) counter.incrementAndGet();
+        }
+        session.close();
+      } catch(final Exception ex) {
+        ex.printStackTrace();
+      } finally {
+        stopSignal.countDown();
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package org.basex.test.server;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.basex.core.Context;
+import org.basex.core.MainProp;
+import org.basex.io.IOFile;
+import org.basex.server.Log;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * This class tests the batched writing of log entries.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class LogTest {
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Test name. */
+  private static final String NAME = Util.name(LogTest.class);
+  /** Number of writing threads. */
+  private static final int THREADS = 4;
+  /** Number of entries per thread. */
+  private static final int ENTRIES = 1000;
+
+  /**
+   * Closes the context.
+   */
+  @AfterClass
+  public static void stop() {
+    CONTEXT.mprop.set(MainProp.LOGFLUSH, 1000);
+    CONTEXT.close();
+  }
+
+  /**
+   * Writes entries in the background.
+   * @throws Exception exception
+   */
+  @Test
+  public void batched() throws Exception {
+    CONTEXT.mprop.set(MainProp.LOGFLUSH, 100);
+    write();
+  }
+
+  /**
+   * Writes entries synchronously.
+   * @throws Exception exception
+   */
+  @Test
+  public void direct() throws Exception {
+    CONTEXT.mprop.set(MainProp.LOGFLUSH, 0);
+    write();
+  }
+
+  /**
+   * Writes entries with several threads and checks that all of them have
+   * been written when the log is closed, and that later entries are
+   * discarded.
+   * @throws Exception exception
+   */
+  private static void write() throws Exception {
+    // unique marker: log files may contain entries of previous runs
+    final String marker = NAME + System.nanoTime();
+    final Log log = new Log(CONTEXT, false);
+    final Thread[] threads = new Thread[THREADS];
+    for(int t = 0; t < THREADS; ++t) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for(int e = 0; e < ENTRIES; ++e) log.write(marker, "a\r\n  b");
+        }
+      };
+      threads[t].start();
+    }
+    for(final Thread t : threads) t.join();
+    log.close();
+    log.write(marker, "c");
+
+    int c = 0;
+    for(final String line : content().split("\r?\n")) {
+      if(line.endsWith('\t' + marker + "\ta b")) ++c;
+      assertFalse(line.endsWith('\t' + marker + "\tc"));
+    }
+    assertEquals(THREADS * ENTRIES, c);
+  }
+
+  /**
+   * Returns the contents of all log files.
+   * @return contents
+   * @throws IOException I/O exception
+   */
+  private static String content() throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    for(final IOFile f : CONTEXT.mprop.dbpath(".logs").children()) {
+      sb.append(Token.string(f.read()));
+    }
+    return sb.toString();
+  }
+}
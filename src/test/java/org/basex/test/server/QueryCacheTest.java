@@ -0,0 +1,181 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.basex.BaseXServer;
+import org.basex.core.MainProp;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Set;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IOFile;
+import org.basex.server.ClientQuery;
+import org.basex.server.ClientSession;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the server-side cache for compiled queries.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCacheTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(QueryCacheTest.class);
+  /** Query with an external variable. */
+  private static final String QUERY =
+      "declare variable $x as xs:integer external; $x * 2";
+  /** Query on the test database. */
+  private static final String COUNT = "count(db:open('" + NAME + "')//a)";
+
+  /** Server reference. */
+  private static BaseXServer server;
+  /** Client session. */
+  private ClientSession session;
+
+  /**
+   * Starts the server and enables the query cache.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void start() throws IOException {
+    server = new BaseXServer("-z", "-p9999", "-e9998");
+    server.context.mprop.set(MainProp.QUERYCACHE, 2);
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    server.context.mprop.set(MainProp.QUERYCACHE, 0);
+    server.stop();
+  }
+
+  /**
+   * Creates a client session and the test database.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void startSession() throws IOException {
+    session = new ClientSession(LOCALHOST, 9999, ADMIN, ADMIN);
+    session.execute(new CreateDB(NAME, "<x><a/></x>"));
+    session.execute("close");
+    server.context.queries.close();
+  }
+
+  /**
+   * Drops the test database and closes the client session.
+   * @throws IOException I/O exception
+   */
+  @After
+  public void stopSession() throws IOException {
+    session.execute(new DropDB(NAME));
+    session.close();
+  }
+
+  /**
+   * Evaluates a cached query with different bindings.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void bindings() throws IOException {
+    for(int r = 0; r < 10; ++r) {
+      final ClientQuery query = session.query(QUERY);
+      query.bind("x", r, "xs:integer");
+      assertEquals(Integer.toString(r * 2), query.execute());
+      query.close();
+    }
+    final ClientQuery query = session.query(QUERY);
+    for(int r = 0; r < 10; ++r) {
+      query.bind("x", r, "xs:integer");
+      assertEquals(Integer.toString(r * 2), query.execute());
+    }
+    query.close();
+    assertEquals(1, server.context.queries.size());
+  }
+
+  /**
+   * Checks that cached queries are discarded if a database is updated.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void update() throws IOException {
+    assertEquals("1", session.execute(new XQuery(COUNT)));
+    assertEquals("1", session.execute(new XQuery(COUNT)));
+    assertEquals(1, server.context.queries.size());
+    session.execute(new XQuery("db:add('" + NAME + "', document { <a/> }, " +
+        "'a.xml')"));
+    assertEquals(0, server.context.queries.size());
+    assertEquals("2", session.execute(new XQuery(COUNT)));
+    // commands and client queries share the same cache entries
+    assertEquals("2", session.query(COUNT).execute());
+    assertEquals(1, server.context.queries.size());
+  }
+
+  /**
+   * Checks that updating queries and least recently used queries are not
+   * cached.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void limits() throws IOException {
+    session.execute(new XQuery("insert node <a/> into db:open('" + NAME +
+        "')/x"));
+    for(int r = 0; r < 3; ++r) session.execute(new XQuery("" + r));
+    assertEquals(2, server.context.queries.size());
+  }
+
+  /**
+   * Checks that queries on files are not cached.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void files() throws IOException {
+    final IOFile file = new IOFile(Prop.TMP + NAME + ".xml");
+    try {
+      for(int r = 0; r < 2; ++r) {
+        file.write(Token.token("<x>" + r + "</x>"));
+        assertEquals(Integer.toString(r), session.execute(
+            new XQuery("string(doc('" + file.path() + "'))")));
+      }
+      assertEquals(0, server.context.queries.size());
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Checks that the time saved by the cache is included in the query info.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void info() throws IOException {
+    session.execute(new Set("queryinfo", true));
+    session.execute(new XQuery(COUNT));
+    assertFalse(session.info().contains(CACHED_CC));
+    session.execute(new XQuery(COUNT));
+    assertTrue(session.info().contains(CACHED_CC));
+
+    final ClientQuery query = session.query(QUERY);
+    query.bind("x", 1, "xs:integer");
+    query.execute();
+    assertFalse(query.info().contains(CACHED_CC));
+    query.bind("x", 2, "xs:integer");
+    query.execute();
+    assertTrue(query.info().contains(CACHED_CC));
+    query.close();
+    session.execute(new Set("queryinfo", false));
+  }
+}
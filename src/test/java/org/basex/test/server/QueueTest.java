@@ -0,0 +1,186 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.Job;
+import org.basex.core.MainProp;
+import org.basex.core.Commands.CmdPerm;
+import org.basex.core.cmd.CreateUser;
+import org.basex.core.cmd.DropUser;
+import org.basex.core.cmd.Grant;
+import org.basex.util.Performance;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.basex.util.list.StringList;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the admission control of the process queue.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class QueueTest {
+  /** Database context. */
+  private static final Context CONTEXT = new Context();
+  /** Test user name. */
+  private static final String NAME = Util.name(QueueTest.class);
+  /** Name of test user with write permissions. */
+  private static final String WRITER = NAME + "Writer";
+
+  /**
+   * Limits the queue size and creates a test user.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    CONTEXT.mprop.set(MainProp.QUEUESIZE, 1);
+    new CreateUser(NAME, Token.md5(NAME)).execute(CONTEXT);
+    new CreateUser(WRITER, Token.md5(WRITER)).execute(CONTEXT);
+    new Grant(CmdPerm.WRITE, WRITER).execute(CONTEXT);
+  }
+
+  /**
+   * Drops the test user and closes the context.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void stop() throws BaseXException {
+    new DropUser(NAME).execute(CONTEXT);
+    new DropUser(WRITER).execute(CONTEXT);
+    CONTEXT.mprop.set(MainProp.QUEUESIZE, 0);
+    CONTEXT.close();
+  }
+
+  /**
+   * Checks that processes are rejected if the queue is full, and that
+   * processes of admin users are preferred.
+   * @throws Exception exception
+   */
+  @Test
+  public void admission() throws Exception {
+    // global writer blocks all other processes
+    final Job job = CONTEXT.register(true, null);
+    assertNotNull(job);
+
+    final Context user1 = context(NAME);
+    final Reader r1 = new Reader(user1);
+    r1.start();
+    waiting(1);
+    // queue is full: reject process of non-admin user
+    assertNull(context(NAME).register(false, new StringList()));
+
+    // processes of admin users are always accepted and queued first
+    final Reader r2 = new Reader(context(ADMIN));
+    r2.start();
+    waiting(2);
+    final String info = CONTEXT.queue();
+    assertTrue(info, info.indexOf(LI + WAITING + ' ' + ADMIN) <
+        info.indexOf(LI + WAITING + ' ' + NAME));
+    assertTrue(info, info.contains(LI_REJECTED + 1));
+
+    CONTEXT.unregister(job);
+    r1.join();
+    r2.join();
+    assertTrue(r1.ok);
+    assertTrue(r2.ok);
+    assertTrue(CONTEXT.queue().startsWith(Util.info(QUEUE_X_X, 0, 0)));
+  }
+
+  /**
+   * Checks that processes are queued by the permissions of their users.
+   * @throws Exception exception
+   */
+  @Test
+  public void priorities() throws Exception {
+    CONTEXT.mprop.set(MainProp.QUEUESIZE, 0);
+    try {
+      final Job job = CONTEXT.register(true, null);
+      final Reader r1 = new Reader(context(NAME));
+      r1.start();
+      waiting(1);
+      final Reader r2 = new Reader(context(WRITER));
+      r2.start();
+      waiting(2);
+      final String info = CONTEXT.queue();
+      assertTrue(info, info.indexOf(LI + WAITING + ' ' + WRITER) <
+          info.indexOf(LI + WAITING + ' ' + NAME + ' '));
+      CONTEXT.unregister(job);
+      r1.join();
+      r2.join();
+      assertTrue(r1.ok);
+      assertTrue(r2.ok);
+    } finally {
+      CONTEXT.mprop.set(MainProp.QUEUESIZE, 1);
+    }
+  }
+
+  /**
+   * Checks that concurrent processes with the same properties are
+   * unregistered independently.
+   */
+  @Test
+  public void unregister() {
+    final Job job1 = CONTEXT.register(false, null);
+    Performance.sleep(200);
+    final Job job2 = CONTEXT.register(false, null);
+    CONTEXT.unregister(job2);
+    // the running time of the first process must not have been recorded
+    final String info = CONTEXT.queue();
+    assertTrue(info, info.startsWith(Util.info(QUEUE_X_X, 0, 1)));
+    final int i = info.indexOf(" (avg), ", info.indexOf(LI_RUN_TIME)) + 8;
+    final double max = Double.parseDouble(
+        info.substring(i, info.indexOf(' ', i)));
+    assertTrue(info, max < 200);
+    CONTEXT.unregister(job1);
+    assertTrue(CONTEXT.queue().startsWith(Util.info(QUEUE_X_X, 0, 0)));
+  }
+
+  /**
+   * Waits until the specified number of processes is queued.
+   * @param n number of processes
+   */
+  private static void waiting(final int n) {
+    final String state = Util.info(QUEUE_X_X, n, 1);
+    while(!CONTEXT.queue().startsWith(state)) Performance.sleep(10);
+  }
+
+  /**
+   * Returns a client context for the specified user.
+   * @param name name of user
+   * @return context
+   */
+  private static Context context(final String name) {
+    final Context ctx = new Context(CONTEXT, null);
+    ctx.user = CONTEXT.users.get(name);
+    return ctx;
+  }
+
+  /** Registers a reading process. */
+  private static final class Reader extends Thread {
+    /** Client context. */
+    private final Context ctx;
+    /** Result of registration. */
+    boolean ok;
+
+    /**
+     * Constructor.
+     * @param c client context
+     */
+    Reader(final Context c) {
+      ctx = c;
+    }
+
+    @Override
+    public void run() {
+      final Job job = ctx.register(false, new StringList());
+      ok = job != null;
+      if(ok) ctx.unregister(job);
+    }
+  }
+}
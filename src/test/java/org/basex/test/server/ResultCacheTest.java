@@ -0,0 +1,206 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.basex.BaseXServer;
+import org.basex.core.MainProp;
+import org.basex.core.Prop;
+import org.basex.core.cmd.CreateDB;
+import org.basex.core.cmd.DropDB;
+import org.basex.core.cmd.Set;
+import org.basex.core.cmd.XQuery;
+import org.basex.io.IOFile;
+import org.basex.server.ClientBatch;
+import org.basex.server.ClientQuery;
+import org.basex.server.ClientSession;
+import org.basex.util.Token;
+import org.basex.util.Util;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This class tests the server-side cache for query results.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ResultCacheTest {
+  /** Test database name. */
+  private static final String NAME = Util.name(ResultCacheTest.class);
+  /** Query on the test database. */
+  private static final String COUNT = "count(db:open('" + NAME + "')//a)";
+  /** Query with an external variable. */
+  private static final String QUERY = "declare variable $x external; " +
+      "concat(db:open('" + NAME + "')//a/name(), $x)";
+
+  /** Server reference. */
+  private static BaseXServer server;
+  /** Client session. */
+  private ClientSession session;
+
+  /**
+   * Starts the server and enables the result cache.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void start() throws IOException {
+    server = new BaseXServer("-z", "-p9999", "-e9998");
+    server.context.mprop.set(MainProp.RESULTCACHE, 1);
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    server.context.mprop.set(MainProp.RESULTCACHE, 0);
+    server.stop();
+  }
+
+  /**
+   * Creates a client session and the test database.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void startSession() throws IOException {
+    session = new ClientSession(LOCALHOST, 9999, ADMIN, ADMIN);
+    session.execute(new CreateDB(NAME, "<x><a/></x>"));
+    session.execute("close");
+    server.context.results.close();
+  }
+
+  /**
+   * Drops the test database and closes the client session.
+   * @throws IOException I/O exception
+   */
+  @After
+  public void stopSession() throws IOException {
+    session.execute(new DropDB(NAME));
+    session.close();
+  }
+
+  /**
+   * Checks that results are returned from the cache.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void cached() throws IOException {
+    session.execute(new Set("queryinfo", true));
+    assertEquals("1", session.execute(new XQuery(COUNT)));
+    assertFalse(session.info().contains(CACHED_CC));
+    assertEquals("1", session.execute(new XQuery(COUNT)));
+    assertTrue(session.info().contains(CACHED_CC));
+    assertEquals(1, server.context.results.size());
+
+    ClientQuery query = session.query(COUNT);
+    assertEquals("1", query.execute());
+    query.close();
+    query = session.query(COUNT);
+    assertEquals("1", query.execute());
+    assertTrue(query.info().contains(CACHED_CC));
+    query.close();
+    session.execute(new Set("queryinfo", false));
+  }
+
+  /**
+   * Checks that iterated results are returned from the cache.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void iter() throws IOException {
+    for(int r = 0; r < 2; ++r) {
+      final ClientQuery query =
+          session.query("for $i in 1 to 3 return $i * 2");
+      assertTrue(query.more());
+      assertEquals("2", query.next());
+      assertEquals("4", query.next());
+      assertEquals("6", query.next());
+      assertFalse(query.more());
+      query.close();
+    }
+    assertEquals(1, server.context.results.size());
+  }
+
+  /**
+   * Checks that bound variables are part of the key.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void bindings() throws IOException {
+    final ClientQuery query = session.query(QUERY);
+    for(int r = 0; r < 4; ++r) {
+      query.bind("x", r % 2);
+      assertEquals("a" + r % 2, query.execute());
+    }
+    query.close();
+    assertEquals(2, server.context.results.size());
+  }
+
+  /**
+   * Checks that cached results are discarded if a database is updated.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void update() throws IOException {
+    assertEquals("1", session.execute(new XQuery(COUNT)));
+    assertEquals("1", session.execute(new XQuery(COUNT)));
+    session.execute(new XQuery("db:add('" + NAME + "', document { <a/> }, " +
+        "'a.xml')"));
+    assertEquals(0, server.context.results.size());
+    assertEquals("2", session.execute(new XQuery(COUNT)));
+
+    // updates in batches are detected via the modification counter
+    final ClientBatch batch = session.batch();
+    batch.execute("open " + NAME);
+    batch.execute(new XQuery(COUNT));
+    batch.add("b.xml", new ByteArrayInputStream(Token.token("<a/>")));
+    batch.execute(new XQuery(COUNT));
+    final String[] results = batch.execute();
+    assertEquals("2", results[1]);
+    assertEquals("3", results[3]);
+  }
+
+  /**
+   * Checks that non-deterministic and updating queries are not cached.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void rejected() throws IOException {
+    session.execute(new XQuery("math:random()"));
+    session.execute(new XQuery("current-dateTime()"));
+    session.execute(new XQuery("declare function local:f() { " +
+        "math:random() }; local:f()"));
+    session.execute(new XQuery("insert node <a/> into db:open('" + NAME +
+        "')/x"));
+    assertEquals(0, server.context.results.size());
+  }
+
+  /**
+   * Checks that queries on files are not cached.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void files() throws IOException {
+    final IOFile file = new IOFile(Prop.TMP + NAME + ".txt");
+    try {
+      for(int r = 0; r < 2; ++r) {
+        file.write(Token.token(Integer.toString(r)));
+        assertEquals(Integer.toString(r), session.execute(
+            new XQuery("unparsed-text('" + file.path() + "')")));
+        assertEquals(Integer.toString(r), session.execute(
+            new XQuery("unparsed-text-lines('" + file.path() + "')")));
+      }
+      assertEquals(0, server.context.results.size());
+    } finally {
+      file.delete();
+    }
+  }
+}
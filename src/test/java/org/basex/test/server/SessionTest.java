@@ -13,6 +13,7 @@ import org.basex.io.in.ArrayInput;
 import org.basex.io.out.ArrayOutput;
 import org.basex.server.Query;
 import org.basex.server.Session;
+import org.basex.util.TokenBuilder;
 import org.basex.util.Util;
 import org.junit.After;
 import org.junit.Test;
@@ -209,6 +210,26 @@ public abstract class SessionTest {
     session.execute("drop db " + DB);
   }
 
+  /**
+   * Adds and stores large input, which is sent in several chunks.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public final void addLarge() throws IOException {
+    session.execute("create db " + DB);
+    final TokenBuilder tb = new TokenBuilder("<x>");
+    for(int i = 0; i < 100000; i++) tb.add("<a/>");
+    session.add("X", new ArrayInput(tb.add("</x>").finish()));
+    check("100000", session.query(
+        "count(" + _DB_OPEN.args(DB) + "//a)").execute());
+
+    final byte[] bin = new byte[1 << 20];
+    for(int b = 0; b < bin.length; b++) bin[b] = (byte) b;
+    session.store("Y", new ArrayInput(bin));
+    check(bin.length, session.query("count(" +
+        _UTIL_TO_BYTES.args(_DB_RETRIEVE.args(DB, "Y")) + ')').execute());
+  }
+
   /** Stores binary content.
    * @throws IOException I/O exception */
   @Test
@@ -511,6 +532,24 @@ public abstract class SessionTest {
     query2.close();
   }
 
+  /** Iterates queries and runs other requests in between.
+   * @throws IOException I/O exception */
+  @Test
+  public void queryParallel3() throws IOException {
+    final Query query1 = session.query("1 to 100000");
+    final Query query2 = session.query("1 to 100000");
+    check("1", query1.next());
+    check("1", query2.next());
+    check("2", query1.next());
+    check("X", session.execute("xquery 'X'"));
+    check("3", query1.next());
+    query2.close();
+    int c = 3;
+    while(query1.more()) check(++c, query1.next());
+    assertEquals(100000, c);
+    query1.close();
+  }
+
   /** Runs 5 queries in parallel.
    * @throws IOException I/O exception */
   @Test
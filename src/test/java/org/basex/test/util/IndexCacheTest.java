@@ -0,0 +1,96 @@
+package org.basex.test.util;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import org.basex.index.IndexCache;
+import org.basex.index.IndexCache.Policy;
+import org.junit.Test;
+
+/**
+ * Index cache tests.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexCacheTest {
+  /** Number of cached keys. */
+  private static final int KEYS = 100;
+  /** Memory budget, sufficient for the specified number of keys. */
+  private static final long BUDGET = KEYS * (64 + 5);
+
+  /** Tests if the cache size is bounded. */
+  @Test
+  public void bounded() {
+    final IndexCache cache = new IndexCache(BUDGET, Policy.LRU);
+    final int size = KEYS * 100;
+    for(int i = 0; i < size; ++i) cache.add(key(i), i, i * 10L);
+
+    // only the most recently added keys are cached
+    int cached = 0;
+    for(int i = 0; i < size; ++i) {
+      final int id = cache.id(key(i));
+      if(id == 0) continue;
+      assertEquals(i, cache.size(id));
+      assertEquals(i * 10L, cache.pointer(id));
+      assertTrue(i >= size - KEYS);
+      ++cached;
+    }
+    assertEquals(KEYS, cached);
+  }
+
+  /** Tests the LRU policy. */
+  @Test
+  public void lru() {
+    final IndexCache cache = new IndexCache(BUDGET, Policy.LRU);
+    for(int i = 0; i < KEYS; ++i) cache.add(key(i), i, i);
+    // access first key, add another key
+    assertTrue(cache.id(key(0)) != 0);
+    cache.add(key(KEYS), KEYS, KEYS);
+    assertTrue(cache.id(key(0)) != 0);
+    assertEquals(0, cache.id(key(1)));
+  }
+
+  /** Tests the FIFO policy. */
+  @Test
+  public void fifo() {
+    final IndexCache cache = new IndexCache(BUDGET, Policy.FIFO);
+    for(int i = 0; i < KEYS; ++i) cache.add(key(i), i, i);
+    // access first key, add another key
+    assertTrue(cache.id(key(0)) != 0);
+    cache.add(key(KEYS), KEYS, KEYS);
+    assertEquals(0, cache.id(key(0)));
+    assertTrue(cache.id(key(1)) != 0);
+  }
+
+  /** Tests deleted keys. */
+  @Test
+  public void delete() {
+    final IndexCache cache = new IndexCache(BUDGET, Policy.LRU);
+    for(int i = 0; i < KEYS; ++i) cache.add(key(i), i, i);
+    for(int i = 0; i < KEYS; i += 2) cache.delete(key(i));
+    // new keys are added without evicting existing ones
+    for(int i = 0; i < KEYS / 2; ++i) cache.add(key(KEYS + i), i, i);
+    for(int i = 0; i < KEYS; ++i) {
+      assertEquals(i % 2 != 0, cache.id(key(i)) != 0);
+      if(i < KEYS / 2) assertTrue(cache.id(key(KEYS + i)) != 0);
+    }
+  }
+
+  /** Tests a disabled cache. */
+  @Test
+  public void disabled() {
+    final IndexCache cache = new IndexCache(0, Policy.LRU);
+    cache.add(key(0), 0, 0);
+    assertEquals(0, cache.id(key(0)));
+  }
+
+  /**
+   * Returns a key with 5 bytes.
+   * @param i key number
+   * @return key
+   */
+  private static byte[] key(final int i) {
+    return token(10000 + i);
+  }
+}